@@ -0,0 +1,98 @@
+package com.phonepe.leaderboard.jmh;
+
+import com.phonepe.leaderboard.index.UserDictionary;
+import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.model.LeaderboardFactory;
+import com.phonepe.leaderboard.model.LeaderboardPage;
+import com.phonepe.leaderboard.model.LeaderboardStorage;
+import com.phonepe.leaderboard.util.SystemTimeProvider;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Time to first query for a finished board after a restart: rebuilding its index from
+// (userId, score) pairs, as snapshot recovery does, versus mapping its archive file. Each
+// invocation starts from nothing but the pairs or the file; the gc profiler's allocation per
+// operation shows what each approach builds on the heap. 10M users need -jvmArgsAppend -Xmx8g.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArchiveStartupBenchmark {
+    private static final int BATCH = 1 << 16;
+
+    @Param({"1000000"})
+    public int users;
+
+    private String[] userIds;
+    private int[] scores;
+    private String probe;
+    private Path directory;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        userIds = new String[users];
+        scores = new int[users];
+        Random random = new Random(1);
+        for (int u = 0; u < users; u++) {
+            userIds[u] = "player-" + u;
+            scores[u] = random.nextInt(1_000_000_000);
+        }
+        probe = userIds[users / 2];
+        directory = Files.createTempDirectory("leaderboard-archive-bench");
+        file = directory.resolve("board.lb");
+        load(new LeaderboardFactory(new SystemTimeProvider())).archive(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public int rebuildIndex() {
+        return load(new LeaderboardFactory(new SystemTimeProvider())).getRank(probe);
+    }
+
+    @Benchmark
+    public LeaderboardPage mapArchive() throws IOException {
+        Leaderboard mapped = new LeaderboardFactory(new SystemTimeProvider()).openArchivedLeaderboard(file);
+        mapped.getRank(probe);
+        return mapped.getPageAfterUser(probe, 10);
+    }
+
+    private Leaderboard load(LeaderboardFactory factory) {
+        Leaderboard leaderboard = factory.createLeaderboard("game", 0, Long.MAX_VALUE, LeaderboardStorage.HEAP, 1);
+        UserDictionary dictionary = leaderboard.getUserDictionary();
+        for (int from = 0; from < users; from += BATCH) {
+            int to = Math.min(users, from + BATCH);
+            int[] keys = new int[to - from];
+            int[] batch = new int[to - from];
+            for (int i = from; i < to; i++) {
+                keys[i - from] = dictionary.intern(userIds[i]);
+                batch[i - from] = scores[i];
+            }
+            leaderboard.updateScores(keys, batch);
+        }
+        return leaderboard;
+    }
+}
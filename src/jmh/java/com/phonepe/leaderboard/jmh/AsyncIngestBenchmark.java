@@ -0,0 +1,36 @@
+package com.phonepe.leaderboard.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Sustained ingest on one hot board: producers calling submitScore directly versus offerScore
+// into the board's single-writer queue, backing off while it reports a full queue. Once the
+// warm-up has filled the queue, producers can only offer as fast as the writer applies, so the
+// offer rate is the applied rate. Run with several threads, e.g. -Dthreads=4.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AsyncIngestBenchmark {
+
+    @Benchmark
+    public void submitScore(ServiceWorkload workload) {
+        workload.service.submitScore(Workload.GAME_ID, workload.randomUser(), workload.randomScore());
+    }
+
+    @Benchmark
+    public void offerScore(ServiceWorkload workload) {
+        String userId = workload.randomUser();
+        int score = workload.randomScore();
+        while (!workload.service.offerScore(Workload.GAME_ID, userId, score)) {
+            Thread.yield();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.phonepe.leaderboard.jmh;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Entry point of target/benchmarks.jar. Takes the usual JMH command line (benchmark regex,
+// -p boardSize=..., -f, ...) and runs it once per thread count in -Dthreads (default 1,4,16),
+// first for throughput in ops/s and then for sampled latency percentiles in microseconds.
+// Allocation per operation comes from the gc profiler, which is always on. Each pass writes
+// its results as JSON to target/jmh/, to keep as the baseline for later changes.
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        String resultDirectory = System.getProperty("resultDir", "target/jmh");
+        new File(resultDirectory).mkdirs();
+        for (String threads : System.getProperty("threads", "1,4,16").split(",")) {
+            int threadCount = Integer.parseInt(threads.trim());
+            run(commandLine, threadCount, Mode.Throughput, TimeUnit.SECONDS, resultDirectory);
+            run(commandLine, threadCount, Mode.SampleTime, TimeUnit.MICROSECONDS, resultDirectory);
+        }
+    }
+
+    private static void run(CommandLineOptions commandLine, int threads, Mode mode, TimeUnit timeUnit, String resultDirectory)
+            throws RunnerException {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLine)
+                .threads(threads)
+                .mode(mode)
+                .timeUnit(timeUnit)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultDirectory + "/" + mode.shortLabel() + "-t" + threads + ".json");
+        if (commandLine.getProfilers().isEmpty()) {
+            options.addProfiler(GCProfiler.class);
+        }
+        new Runner(options.build()).run();
+    }
+}
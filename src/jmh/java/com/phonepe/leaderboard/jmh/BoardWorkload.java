@@ -0,0 +1,58 @@
+package com.phonepe.leaderboard.jmh;
+
+import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.util.SystemTimeProvider;
+import java.util.concurrent.ThreadLocalRandom;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// A standalone Leaderboard filled with boardSize players, for measuring the model without the
+// service's validation and routing
+@State(Scope.Benchmark)
+public class BoardWorkload extends Workload {
+    // Compare e.g. -p partitions=1,8 to see what partitioning costs readers and saves writers
+    @Param({"1"})
+    public int partitions;
+
+    // 0 answers getApproximateRank exactly; compare with 0.01 for the histogram's read and write cost
+    @Param({"0.01"})
+    public double approximateRankError;
+
+    Leaderboard leaderboard;
+    int[] userKeys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        createUsers();
+        leaderboard = new Leaderboard.Builder()
+                .id("bench")
+                .gameId(GAME_ID)
+                .startTime(0)
+                .endTime(Long.MAX_VALUE)
+                .timeProvider(new SystemTimeProvider())
+                .partitions(partitions)
+                .approximateRankError(approximateRankError)
+                .build();
+        userKeys = new int[boardSize];
+        for (int i = 0; i < boardSize; i++) {
+            userKeys[i] = leaderboard.getUserDictionary().intern(userIds[i]);
+        }
+        for (int from = 0; from < boardSize; from += FILL_BATCH) {
+            int to = Math.min(boardSize, from + FILL_BATCH);
+            int[] keys = new int[to - from];
+            int[] scores = new int[to - from];
+            for (int i = from; i < to; i++) {
+                keys[i - from] = userKeys[i];
+                scores[i - from] = randomScore();
+            }
+            leaderboard.updateScores(keys, scores);
+        }
+    }
+
+    int randomUserKey() {
+        return userKeys[ThreadLocalRandom.current().nextInt(boardSize)];
+    }
+}
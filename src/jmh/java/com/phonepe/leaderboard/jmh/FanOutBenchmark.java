@@ -0,0 +1,110 @@
+package com.phonepe.leaderboard.jmh;
+
+import com.phonepe.leaderboard.config.LeaderboardConfig;
+import com.phonepe.leaderboard.model.AckMode;
+import com.phonepe.leaderboard.model.ScoreSubmission;
+import com.phonepe.leaderboard.service.LeaderboardService;
+import com.phonepe.leaderboard.util.SystemTimeProvider;
+import com.phonepe.leaderboard.validation.RangeScoreValidationStrategy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// submitScore from one caller as a game gains overlapping boards, on an in-memory and on a
+// durable service, acknowledging on all boards or on the primary only. Boards below
+// FAN_OUT_MIN_BOARDS are updated in a loop; from there on they are fanned out, which pays off
+// when board updates wait (for the log on a durable service) or when there are cores to spare.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FanOutBenchmark {
+    private static final String GAME = "game";
+
+    @Param({"1", "2", "4", "8"})
+    public int boards;
+
+    @Param({"ALL_BOARDS", "PRIMARY_BOARD"})
+    public AckMode ack;
+
+    @Param({"false", "true"})
+    public boolean durable;
+
+    @Param({"100000"})
+    public int users;
+
+    private LeaderboardService service;
+    private Path directory;
+    private String[] userIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        userIds = new String[users];
+        for (int u = 0; u < users; u++) {
+            userIds[u] = "player-" + u;
+        }
+        RangeScoreValidationStrategy validation =
+                new RangeScoreValidationStrategy(LeaderboardConfig.MIN_SCORE, LeaderboardConfig.MAX_SCORE);
+        if (durable) {
+            directory = Files.createTempDirectory("leaderboard-fanout");
+            service = new LeaderboardService(new SystemTimeProvider(), validation, directory);
+        } else {
+            service = new LeaderboardService(new SystemTimeProvider(), validation);
+        }
+        service.addSupportedGame(GAME);
+        int now = (int) (System.currentTimeMillis() / 1000);
+        for (int b = 0; b < boards; b++) {
+            service.createLeaderboard(GAME, now - 60, now + 86_400);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<ScoreSubmission> batch = new ArrayList<>(Workload.FILL_BATCH);
+        for (String userId : userIds) {
+            batch.add(new ScoreSubmission(userId, random.nextInt(LeaderboardConfig.MAX_SCORE)));
+            if (batch.size() == Workload.FILL_BATCH) {
+                service.submitScores(GAME, batch);
+                batch.clear();
+            }
+        }
+        service.submitScores(GAME, batch);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        service.shutdown();
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public CompletableFuture<Void> submitScore() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return service.submitScore(GAME, userIds[random.nextInt(users)], random.nextInt(LeaderboardConfig.MAX_SCORE), ack);
+    }
+}
@@ -0,0 +1,46 @@
+package com.phonepe.leaderboard.jmh;
+
+import com.phonepe.leaderboard.model.ApproximateRank;
+import com.phonepe.leaderboard.model.LeaderboardPage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The model on its own, with users already interned
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LeaderboardBenchmark {
+
+    @Benchmark
+    public void updateScore(BoardWorkload workload) {
+        workload.leaderboard.updateScore(workload.randomUserKey(), workload.randomScore());
+    }
+
+    @Benchmark
+    public int getRank(BoardWorkload workload) {
+        return workload.leaderboard.getRank(workload.randomUser());
+    }
+
+    @Benchmark
+    public ApproximateRank getApproximateRank(BoardWorkload workload) {
+        return workload.leaderboard.getApproximateRank(workload.randomUser());
+    }
+
+    @Benchmark
+    public LeaderboardPage getPageAfterUser(BoardWorkload workload) {
+        return workload.leaderboard.getPageAfterUser(workload.randomUser(), ServiceBenchmark.PAGE_SIZE);
+    }
+
+    @Benchmark
+    public LeaderboardPage getPageBeforeUser(BoardWorkload workload) {
+        return workload.leaderboard.getPageBeforeUser(workload.randomUser(), ServiceBenchmark.PAGE_SIZE);
+    }
+}
@@ -0,0 +1,52 @@
+package com.phonepe.leaderboard.jmh;
+
+import com.phonepe.leaderboard.metrics.MetricsRegistry;
+import com.phonepe.leaderboard.model.RankedEntry;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The instrumented service calls with metrics recording (true) and with a disabled registry
+// (false) in the same build; the difference is what counters and sampled latencies cost
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class MetricsWorkload extends ServiceWorkload {
+        @Param({"true", "false"})
+        public boolean metrics;
+
+        @Override
+        MetricsRegistry metrics() {
+            return metrics ? new MetricsRegistry() : MetricsRegistry.disabled();
+        }
+    }
+
+    @Benchmark
+    public void submitScore(MetricsWorkload workload) {
+        workload.service.submitScore(Workload.GAME_ID, workload.randomUser(), workload.randomScore());
+    }
+
+    @Benchmark
+    public int getRank(MetricsWorkload workload) {
+        return workload.service.getRank(workload.leaderboardId, workload.randomUser());
+    }
+
+    @Benchmark
+    public List<RankedEntry> getTopK(MetricsWorkload workload) {
+        return workload.service.getTopK(workload.leaderboardId, ServiceBenchmark.PAGE_SIZE, 0);
+    }
+}
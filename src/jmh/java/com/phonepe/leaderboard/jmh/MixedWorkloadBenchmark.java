@@ -0,0 +1,38 @@
+package com.phonepe.leaderboard.jmh;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Service traffic where readPercent of operations page around a player and the rest submit
+// scores; run with several threads to see readers and writers contend
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MixedWorkloadBenchmark {
+
+    @Param({"0", "50", "90", "99"})
+    public int readPercent;
+
+    @Benchmark
+    public Object readOrWrite(ServiceWorkload workload) {
+        if (ThreadLocalRandom.current().nextInt(100) < readPercent) {
+            return workload.service.listPlayersNext(Workload.GAME_ID, workload.leaderboardId, workload.randomUser(),
+                    ServiceBenchmark.PAGE_SIZE);
+        }
+        workload.service.submitScore(Workload.GAME_ID, workload.randomUser(), workload.randomScore());
+        return null;
+    }
+}
@@ -0,0 +1,78 @@
+package com.phonepe.leaderboard.jmh;
+
+import com.phonepe.leaderboard.config.LeaderboardConfig;
+import com.phonepe.leaderboard.model.RankedEntry;
+import com.phonepe.leaderboard.notification.RankChangeListener;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// What rank-change subscriptions cost writers. Every submission raises a random player's best,
+// so each one is published and, with a board subscription, moves a rank the dispatcher has to
+// work out; the dispatcher shares the machine with the writers.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NotificationBenchmark {
+
+    public enum Subscriber {
+        NONE, USER, TOP_K, BOARD
+    }
+
+    @State(Scope.Benchmark)
+    public static class NotificationWorkload extends ServiceWorkload {
+        @Param({"NONE", "USER", "TOP_K", "BOARD"})
+        public Subscriber subscriber;
+
+        int[] best;
+
+        @Override
+        void afterFill() {
+            Map<String, Integer> scores = new HashMap<>();
+            for (RankedEntry entry : service.getTopK(leaderboardId, boardSize, 0)) {
+                scores.put(entry.getUserId(), entry.getScore());
+            }
+            best = new int[boardSize];
+            for (int i = 0; i < boardSize; i++) {
+                best[i] = scores.get(userIds[i]);
+            }
+            RankChangeListener listener = new RankChangeListener() {
+            };
+            switch (subscriber) {
+                case USER:
+                    service.subscribeToUser(leaderboardId, randomUser(), listener);
+                    break;
+                case TOP_K:
+                    service.subscribeToTopK(leaderboardId, ServiceBenchmark.PAGE_SIZE, listener);
+                    break;
+                case BOARD:
+                    service.subscribe(leaderboardId, listener);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    @Benchmark
+    public void submitImprovement(NotificationWorkload workload) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int user = random.nextInt(workload.boardSize);
+        int score = (int) Math.min(LeaderboardConfig.MAX_SCORE, workload.best[user] + 1L + random.nextInt(1_000));
+        workload.best[user] = score;
+        workload.service.submitScore(Workload.GAME_ID, workload.userIds[user], score);
+    }
+}
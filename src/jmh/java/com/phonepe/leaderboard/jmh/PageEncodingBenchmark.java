@@ -0,0 +1,130 @@
+package com.phonepe.leaderboard.jmh;
+
+import com.phonepe.leaderboard.config.LeaderboardConfig;
+import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.model.RankedEntry;
+import com.phonepe.leaderboard.model.ScoreSubmission;
+import com.phonepe.leaderboard.service.LeaderboardService;
+import com.phonepe.leaderboard.util.SystemTimeProvider;
+import com.phonepe.leaderboard.validation.RangeScoreValidationStrategy;
+import com.phonepe.leaderboard.wire.BufferPool;
+import com.phonepe.leaderboard.wire.EncodedPage;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Serializes ranking pages the way a response handler would: getTopK rendered as JSON bytes,
+// against getTopKEncoded into a pooled direct buffer, for the front page of an active board, a
+// page halfway down it, and the front page of a frozen board. Compare allocation per page with
+// the gc profiler.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PageEncodingBenchmark {
+
+    @Param({"200000"})
+    public int users;
+
+    @Param({"100"})
+    public int pageSize;
+
+    private LeaderboardService service;
+    private String leaderboardId;
+    private Leaderboard frozen;
+    private BufferPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new LeaderboardService(new SystemTimeProvider(),
+                new RangeScoreValidationStrategy(LeaderboardConfig.MIN_SCORE, LeaderboardConfig.MAX_SCORE));
+        service.addSupportedGame(Workload.GAME_ID);
+        int now = (int) (System.currentTimeMillis() / 1000);
+        leaderboardId = service.createLeaderboard(Workload.GAME_ID, now - 60, now + 86_400);
+        frozen = new Leaderboard.Builder().id("frozen").gameId(Workload.GAME_ID).startTime(now - 60).endTime(now + 86_400)
+                .timeProvider(new SystemTimeProvider()).build();
+        Random random = new Random(42);
+        List<ScoreSubmission> batch = new ArrayList<>(Workload.FILL_BATCH);
+        for (int u = 0; u < users; u++) {
+            int score = random.nextInt(LeaderboardConfig.MAX_SCORE);
+            batch.add(new ScoreSubmission("player-" + u, score));
+            frozen.updateScore("player-" + u, score);
+            if (batch.size() == Workload.FILL_BATCH) {
+                service.submitScores(Workload.GAME_ID, batch);
+                batch.clear();
+            }
+        }
+        service.submitScores(Workload.GAME_ID, batch);
+        frozen.freeze();
+        pool = new BufferPool(LeaderboardConfig.ENCODED_PAGE_MAX_POOLED_BYTES, LeaderboardConfig.ENCODED_PAGE_POOL_BUFFERS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public int frontJson() {
+        return json(service.getTopK(leaderboardId, pageSize, 0));
+    }
+
+    @Benchmark
+    public int frontBinary() {
+        return binary(service.getTopKEncoded(leaderboardId, pageSize, 0));
+    }
+
+    @Benchmark
+    public int deepJson() {
+        return json(service.getTopK(leaderboardId, pageSize, users / 2));
+    }
+
+    @Benchmark
+    public int deepBinary() {
+        return binary(service.getTopKEncoded(leaderboardId, pageSize, users / 2));
+    }
+
+    @Benchmark
+    public int frozenJson() {
+        return json(frozen.getTopK(pageSize, 0));
+    }
+
+    @Benchmark
+    public int frozenBinary() {
+        return binary(frozen.encodeTopK(pageSize, 0, pool));
+    }
+
+    // Same rendering as the network server's JSON responses
+    private static int json(List<RankedEntry> entries) {
+        StringBuilder out = new StringBuilder(32 + entries.size() * 48).append("{\"entries\":[");
+        for (int i = 0; i < entries.size(); i++) {
+            RankedEntry entry = entries.get(i);
+            out.append(i == 0 ? "{\"userId\":\"" : ",{\"userId\":\"").append(entry.getUserId())
+                    .append("\",\"score\":").append(entry.getScore()).append(",\"rank\":").append(entry.getRank()).append('}');
+        }
+        return out.append("]}").toString().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static int binary(EncodedPage page) {
+        try (EncodedPage written = page) {
+            return written.getBuffer().remaining();
+        }
+    }
+}
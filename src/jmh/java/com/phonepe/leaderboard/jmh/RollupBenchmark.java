@@ -0,0 +1,96 @@
+package com.phonepe.leaderboard.jmh;
+
+import com.phonepe.leaderboard.config.LeaderboardConfig;
+import com.phonepe.leaderboard.model.ScoreSubmission;
+import com.phonepe.leaderboard.rollup.RollupMode;
+import com.phonepe.leaderboard.rollup.RollupWindow;
+import com.phonepe.leaderboard.service.LeaderboardService;
+import com.phonepe.leaderboard.validation.RangeScoreValidationStrategy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// One game with hour, day, week and season leaderboards, fed by submitScore: four independent
+// boards the submission fans out to, against a rollup of the same windows with every level
+// incremental, or with week and season on demand. Every player starts with one score, so most
+// submissions don't improve and the smaller windows let the rollup stop early.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RollupBenchmark {
+    private static final String GAME = "game";
+    private static final int SEASON_START = 1_000_000;
+    private static final int SEASON_END = SEASON_START + 28 * 86_400 - 1;
+
+    public enum Layout {
+        INDEPENDENT, INCREMENTAL, ON_DEMAND
+    }
+
+    @Param({"INDEPENDENT", "INCREMENTAL", "ON_DEMAND"})
+    public Layout layout;
+
+    @Param({"200000"})
+    public int users;
+
+    private LeaderboardService service;
+    private String[] userIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userIds = new String[users];
+        for (int u = 0; u < users; u++) {
+            userIds[u] = "player-" + u;
+        }
+        service = new LeaderboardService(() -> SEASON_START + 1_800,
+                new RangeScoreValidationStrategy(LeaderboardConfig.MIN_SCORE, LeaderboardConfig.MAX_SCORE));
+        service.addSupportedGame(GAME);
+        if (layout == Layout.INDEPENDENT) {
+            service.createLeaderboard(GAME, SEASON_START, SEASON_START + 3_599);
+            service.createLeaderboard(GAME, SEASON_START, SEASON_START + 86_399);
+            service.createLeaderboard(GAME, SEASON_START, SEASON_START + 7 * 86_400 - 1);
+            service.createLeaderboard(GAME, SEASON_START, SEASON_END);
+        } else {
+            RollupMode large = layout == Layout.INCREMENTAL ? RollupMode.INCREMENTAL : RollupMode.ON_DEMAND;
+            service.createRollup(GAME, SEASON_START, SEASON_END, RollupWindow.hourly(RollupMode.INCREMENTAL),
+                    RollupWindow.daily(RollupMode.INCREMENTAL), RollupWindow.weekly(large), RollupWindow.season(large));
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<ScoreSubmission> batch = new ArrayList<>(Workload.FILL_BATCH);
+        for (String userId : userIds) {
+            batch.add(new ScoreSubmission(userId, random.nextInt(LeaderboardConfig.MAX_SCORE)));
+            if (batch.size() == Workload.FILL_BATCH) {
+                service.submitScores(GAME, batch);
+                batch.clear();
+            }
+        }
+        service.submitScores(GAME, batch);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public void submitScore() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        service.submitScore(GAME, userIds[random.nextInt(users)], random.nextInt(LeaderboardConfig.MAX_SCORE));
+    }
+}
@@ -0,0 +1,34 @@
+package com.phonepe.leaderboard.jmh;
+
+import com.phonepe.leaderboard.config.LeaderboardConfig;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Shapes of score data the benchmarks run against. They stress the rank index differently:
+// uniform scores are almost all distinct, Zipfian ones pile most players into a long low tail,
+// and heavy ties put thousands of players on each score so ordering falls to the user id.
+public enum ScoreDistribution {
+    UNIFORM {
+        @Override
+        public int nextScore(ThreadLocalRandom random) {
+            return random.nextInt(LeaderboardConfig.MAX_SCORE);
+        }
+    },
+    ZIPFIAN {
+        private final double logRanks = Math.log(1_000_000);
+
+        // Log-uniform rank, i.e. P(rank) ~ 1/rank, so the score at rank r is MAX_SCORE / r
+        @Override
+        public int nextScore(ThreadLocalRandom random) {
+            int rank = (int) Math.exp(random.nextDouble() * logRanks);
+            return LeaderboardConfig.MAX_SCORE / Math.max(1, rank);
+        }
+    },
+    HEAVY_TIES {
+        @Override
+        public int nextScore(ThreadLocalRandom random) {
+            return random.nextInt(100) * 1_000;
+        }
+    };
+
+    public abstract int nextScore(ThreadLocalRandom random);
+}
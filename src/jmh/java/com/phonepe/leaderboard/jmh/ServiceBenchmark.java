@@ -0,0 +1,42 @@
+package com.phonepe.leaderboard.jmh;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+// LeaderboardService entry points as a client sees them: string ids, validation and routing
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+    static final int PAGE_SIZE = 10;
+
+    @Benchmark
+    public void submitScore(ServiceWorkload workload) {
+        workload.service.submitScore(Workload.GAME_ID, workload.randomUser(), workload.randomScore());
+    }
+
+    @Benchmark
+    public int getRank(ServiceWorkload workload) {
+        return workload.service.getRank(workload.leaderboardId, workload.randomUser());
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Integer>> listPlayersNext(ServiceWorkload workload) {
+        return workload.service.listPlayersNext(Workload.GAME_ID, workload.leaderboardId, workload.randomUser(), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Integer>> listPlayersPrev(ServiceWorkload workload) {
+        return workload.service.listPlayersPrev(Workload.GAME_ID, workload.leaderboardId, workload.randomUser(), PAGE_SIZE);
+    }
+}
@@ -0,0 +1,56 @@
+package com.phonepe.leaderboard.jmh;
+
+import com.phonepe.leaderboard.config.LeaderboardConfig;
+import com.phonepe.leaderboard.metrics.MetricsRegistry;
+import com.phonepe.leaderboard.model.ScoreSubmission;
+import com.phonepe.leaderboard.service.LeaderboardService;
+import com.phonepe.leaderboard.util.SystemTimeProvider;
+import com.phonepe.leaderboard.validation.RangeScoreValidationStrategy;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// A LeaderboardService with one active board for the game, filled with boardSize players
+@State(Scope.Benchmark)
+public class ServiceWorkload extends Workload {
+    LeaderboardService service;
+    String leaderboardId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        createUsers();
+        service = new LeaderboardService(new SystemTimeProvider(),
+                new RangeScoreValidationStrategy(LeaderboardConfig.MIN_SCORE, LeaderboardConfig.MAX_SCORE), metrics());
+        service.addSupportedGame(GAME_ID);
+        int now = (int) (System.currentTimeMillis() / 1000);
+        leaderboardId = service.createLeaderboard(GAME_ID, now - 60, now + 86_400);
+
+        List<ScoreSubmission> batch = new ArrayList<>(FILL_BATCH);
+        for (String userId : userIds) {
+            batch.add(new ScoreSubmission(userId, randomScore()));
+            if (batch.size() == FILL_BATCH) {
+                service.submitScores(GAME_ID, batch);
+                batch.clear();
+            }
+        }
+        service.submitScores(GAME_ID, batch);
+        afterFill();
+    }
+
+    MetricsRegistry metrics() {
+        return new MetricsRegistry();
+    }
+
+    // Runs once the board is filled, for workloads that need more set up
+    void afterFill() {
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+}
@@ -0,0 +1,117 @@
+package com.phonepe.leaderboard.jmh;
+
+import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.model.LeaderboardPage;
+import com.phonepe.leaderboard.model.LeaderboardSnapshot;
+import com.phonepe.leaderboard.model.RankCursor;
+import com.phonepe.leaderboard.model.TieBreak;
+import com.phonepe.leaderboard.util.SystemTimeProvider;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// A capped game: cappedPercent of the players climb to the same maximum score, so the board is
+// one huge tie. Measures improving submissions from the players below the cap under each
+// tie-break, then paging through the tie by cursor and around a player.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TieBreakBenchmark {
+    private static final int CAP = 1_000;
+    private static final int PAGE = 20;
+    private static final int CURSORS = 1_024;
+
+    @Param({"FIRST_SEEN", "FIRST_ACHIEVED"})
+    public TieBreak tieBreak;
+
+    @Param({"500000"})
+    public int users;
+
+    @Param({"50"})
+    public int cappedPercent;
+
+    private Leaderboard board;
+    private LeaderboardSnapshot snapshot;
+    private String[] userIds;
+    private int[] userKeys;
+    private int[] best;
+    private String[] cursors;
+
+    // Every player climbs in four steps; capped players end on CAP
+    @Setup(Level.Trial)
+    public void setUp() {
+        board = new Leaderboard.Builder()
+                .id("bench")
+                .gameId(Workload.GAME_ID)
+                .startTime(0)
+                .endTime(Long.MAX_VALUE)
+                .timeProvider(new SystemTimeProvider())
+                .tieBreak(tieBreak)
+                .build();
+        userIds = new String[users];
+        userKeys = new int[users];
+        best = new int[users];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int u = 0; u < users; u++) {
+            userIds[u] = "user" + u;
+            userKeys[u] = board.getUserDictionary().intern(userIds[u]);
+            best[u] = capped(u) ? CAP : random.nextInt(CAP);
+        }
+        for (int step = 1; step <= 4; step++) {
+            for (int u = 0; u < users; u++) {
+                board.updateScore(userKeys[u], best[u] * step / 4);
+            }
+        }
+        snapshot = board.snapshot();
+        cursors = new String[CURSORS];
+        for (int i = 0; i < CURSORS; i++) {
+            String userId = snapshot.getUserAtRank(1 + random.nextInt(snapshot.size() / 2));
+            cursors[i] = snapshot.pageAfterUser(userId, PAGE).getNextCursor();
+        }
+    }
+
+    private boolean capped(int user) {
+        return user % 100 < cappedPercent;
+    }
+
+    // Raises the best of a random player below the cap
+    @Benchmark
+    public void submitImprovement() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int user = random.nextInt(users);
+        while (capped(user)) {
+            user = random.nextInt(users);
+        }
+        best[user] += 1 + random.nextInt(CAP);
+        board.updateScore(userKeys[user], best[user]);
+    }
+
+    @Benchmark
+    public LeaderboardPage pageAfterCursor() {
+        return snapshot.pageAfter(RankCursor.decode(cursors[ThreadLocalRandom.current().nextInt(CURSORS)]), PAGE);
+    }
+
+    @Benchmark
+    public LeaderboardPage pageAfterUser() {
+        return snapshot.pageAfterUser(userIds[ThreadLocalRandom.current().nextInt(users)], PAGE);
+    }
+
+    @Benchmark
+    public LeaderboardPage pageBeforeUser() {
+        return snapshot.pageBeforeUser(userIds[ThreadLocalRandom.current().nextInt(users)], PAGE);
+    }
+}
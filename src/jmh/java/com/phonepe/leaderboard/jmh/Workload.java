@@ -0,0 +1,39 @@
+package com.phonepe.leaderboard.jmh;
+
+import java.util.concurrent.ThreadLocalRandom;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+// Parameters shared by every benchmark: how many players the board holds and how their
+// scores are distributed. Boards of 10M players need a large heap, e.g. -jvmArgsAppend -Xmx8g.
+@State(Scope.Benchmark)
+public abstract class Workload {
+    static final String GAME_ID = "bench-game";
+    static final int FILL_BATCH = 10_000;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int boardSize;
+
+    @Param({"UNIFORM", "ZIPFIAN", "HEAVY_TIES"})
+    public ScoreDistribution distribution;
+
+    String[] userIds;
+
+    void createUsers() {
+        userIds = new String[boardSize];
+        for (int i = 0; i < boardSize; i++) {
+            userIds[i] = "user" + i;
+        }
+    }
+
+    // Submissions go to existing players; most of them don't beat the player's best, as on a
+    // live board
+    String randomUser() {
+        return userIds[ThreadLocalRandom.current().nextInt(boardSize)];
+    }
+
+    int randomScore() {
+        return distribution.nextScore(ThreadLocalRandom.current());
+    }
+}
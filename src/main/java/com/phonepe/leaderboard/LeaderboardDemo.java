@@ -1,6 +1,7 @@
 package com.phonepe.leaderboard;
 
 import com.phonepe.leaderboard.config.LeaderboardConfig;
+import com.phonepe.leaderboard.model.RankedEntry;
 import com.phonepe.leaderboard.service.LeaderboardService;
 import com.phonepe.leaderboard.util.SystemTimeProvider;
 import com.phonepe.leaderboard.validation.RangeScoreValidationStrategy;
@@ -28,9 +29,9 @@ public class LeaderboardDemo {
         service.submitScore("PUBG_MOBILE", "user2", 1800); // This will not update user1's score
         
 
-        Map<String, Integer> leaderboard = service.getLeaderboard(leaderboardId);
-        System.out.println("Full Leaderboard:");
-        leaderboard.forEach((userId, score) -> System.out.println(userId + ": " + score));
+        List<RankedEntry> topPlayers = service.getTopK(leaderboardId, 10, 0);
+        System.out.println("Top 10:");
+        topPlayers.forEach(entry -> System.out.println(entry.getRank() + ". " + entry.getUserId() + ": " + entry.getScore()));
         
         // Get players around user2
         System.out.println("\nPlayers around user2:");
@@ -41,5 +42,7 @@ public class LeaderboardDemo {
         prevPlayers.forEach(entry -> System.out.println(entry.getKey() + ": " + entry.getValue()));
         System.out.println("Next players:");
         nextPlayers.forEach(entry -> System.out.println(entry.getKey() + ": " + entry.getValue()));
+
+        service.shutdown();
     }
 } 
\ No newline at end of file
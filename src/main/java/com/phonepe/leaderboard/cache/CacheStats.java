@@ -0,0 +1,58 @@
+package com.phonepe.leaderboard.cache;
+
+// Point-in-time counters of a QueryCache; hits and misses count since the cache was created
+public class CacheStats {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long invalidations;
+    private final long windows;
+    private final long entries;
+
+    public CacheStats(long hits, long misses, long evictions, long invalidations, long windows, long entries) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.invalidations = invalidations;
+        this.windows = windows;
+        this.entries = entries;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    // Windows dropped to stay within capacity
+    public long getEvictions() {
+        return evictions;
+    }
+
+    // Windows dropped because a score change overlapped their range
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    public long getWindows() {
+        return windows;
+    }
+
+    // Ranked entries held across all windows; bounded by the capacity
+    public long getEntries() {
+        return entries;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d misses=%d hitRate=%.3f evictions=%d invalidations=%d windows=%d entries=%d",
+                hits, misses, getHitRate(), evictions, invalidations, windows, entries);
+    }
+}
@@ -0,0 +1,420 @@
+package com.phonepe.leaderboard.cache;
+
+import com.phonepe.leaderboard.index.UserScoreMap;
+import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.model.LeaderboardSnapshot;
+import com.phonepe.leaderboard.model.LeaderboardState;
+import com.phonepe.leaderboard.model.ScoreListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Read-through cache for rank windows: top-K slices and pages around a user or cursor. Each
+// cached window records the score range its result depends on, and a score change only drops
+// the windows of that board it can affect. Hot windows away from the scores being written stay
+// cached while the board keeps changing.
+//
+// Two kinds of window:
+//   positional - entries at fixed ranks (a top-K slice). A user whose old and new scores
+//                straddle or touch the range shifts the slice, so [old, new] must miss it.
+//   anchored   - entries next to an anchor score (a page around a user). Its members only
+//                change when a user's old or new score falls in the range; users jumping over
+//                it shift ranks but keep the members, so callers renumber ranks on each hit.
+// A new user counts as coming from below every score.
+//
+// Capacity is in entries, not windows, so a 100-entry page costs 100 times a 1-entry one.
+// Windows are kept in LRU order within a fixed number of segments. A query is only cached the
+// second time it misses within a recent stretch of queries (a TinyLFU-style doorkeeper), so
+// one-off pages go straight to the snapshot instead of pushing out hot windows.
+//
+// A window computed while a board changes is only kept if none of the changes made meanwhile
+// affect it: writers record each change before invalidating, and a filler checks the changes
+// recorded since it started after publishing its window, so one of the two always sees the other.
+public final class QueryCache {
+    private static final int SEGMENTS = 16;
+    private static final int RECENT_CHANGES = 64; // per board; a fill that raced more is dropped
+    private static final int DOORKEEPER_BITS = 1 << 13; // per segment; remembers ~500 recent misses
+
+    private static final Comparator<Cached> BY_LOW_SCORE =
+            Comparator.comparingLong((Cached cached) -> cached.lowScore).thenComparingLong(cached -> cached.id);
+
+    private final Segment[] segments;
+    private final Map<Leaderboard, BoardWindows> boards = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final AtomicLong nextId = new AtomicLong();
+
+    // capacity: total entries across cached windows; 0 disables caching
+    public QueryCache(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative");
+        }
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment((capacity + SEGMENTS - 1) / SEGMENTS);
+        }
+    }
+
+    // Result of query on the board, loaded from its current snapshot on a miss. query must
+    // identify everything the result depends on apart from the board (kind, anchor, window)
+    // and implement equals and hashCode, e.g. a List of those.
+    public <T> T get(Leaderboard leaderboard, Object query, Loader<T> loader) {
+        Key key = new Key(leaderboard.getId(), query);
+        Segment segment = segmentFor(key);
+        // Derived boards report no score changes to invalidate by
+        if (segment.capacity == 0 || leaderboard.isDerived() || leaderboard.getState() == LeaderboardState.EVICTED) {
+            return loader.load(leaderboard.snapshot()).value;
+        }
+        Cached cached = segment.get(key);
+        if (cached != null && cached.board.leaderboard == leaderboard) {
+            hits.increment();
+            @SuppressWarnings("unchecked")
+            T value = (T) cached.value;
+            return value;
+        }
+        misses.increment();
+        if (!segment.admit(key)) {
+            return loader.load(leaderboard.snapshot()).value;
+        }
+        BoardWindows board = boards.computeIfAbsent(leaderboard, BoardWindows::new);
+        if (leaderboard.getState() == LeaderboardState.EVICTED) {
+            // Evicted while registering, so the listener may never hear of it
+            board.leaderboardEvicted(leaderboard);
+            return loader.load(leaderboard.snapshot()).value;
+        }
+        long since = board.changes.get();
+        Window<T> window = loader.load(leaderboard.snapshot());
+        Cached loaded = new Cached(key, board, window, nextId.getAndIncrement());
+        board.add(loaded);
+        for (Cached evicted : segment.put(loaded)) {
+            evicted.board.remove(evicted);
+            evictions.increment();
+        }
+        if (!board.unchangedSince(since, loaded)) {
+            remove(loaded);
+        }
+        return window.value;
+    }
+
+    public CacheStats getStats() {
+        long windows = 0;
+        long weight = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                windows += segment.map.size();
+                weight += segment.weight;
+            }
+        }
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), windows, weight);
+    }
+
+    private void remove(Cached cached) {
+        cached.board.remove(cached);
+        segmentFor(cached.key).remove(cached);
+    }
+
+    private Segment segmentFor(Key key) {
+        // High bits, so the segment's own map still gets distinct low bits to spread keys by
+        return segments[(key.hashCode() * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(SEGMENTS))];
+    }
+
+    public interface Loader<T> {
+        Window<T> load(LeaderboardSnapshot snapshot);
+    }
+
+    // A query result and the inclusive score range it depends on; Long.MIN_VALUE and
+    // Long.MAX_VALUE leave that side open
+    public static final class Window<T> {
+        public static final long OPEN_BELOW = Long.MIN_VALUE;
+        public static final long OPEN_ABOVE = Long.MAX_VALUE;
+
+        private final T value;
+        private final long lowScore;
+        private final long highScore;
+        private final int weight;
+        private final boolean positional;
+
+        private Window(T value, long lowScore, long highScore, int weight, boolean positional) {
+            this.value = value;
+            this.lowScore = lowScore;
+            this.highScore = highScore;
+            this.weight = Math.max(1, weight);
+            this.positional = positional;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        // Entries at fixed ranks; weight is their number
+        public static <T> Window<T> positional(T value, long lowScore, long highScore, int weight) {
+            return new Window<>(value, lowScore, highScore, weight, true);
+        }
+
+        // Entries next to an anchor; ranks in value go stale as users pass over the range
+        public static <T> Window<T> anchored(T value, long lowScore, long highScore, int weight) {
+            return new Window<>(value, lowScore, highScore, weight, false);
+        }
+    }
+
+    // Windows cached for one board plus its recent changes. Anchored windows with a finite
+    // range are found by stabbing the changed scores, looking back at most the widest such
+    // window; the rest are few (top-K slices, pages at the ends) and are scanned up to the change.
+    private final class BoardWindows implements ScoreListener {
+        final Leaderboard leaderboard;
+        final ConcurrentSkipListSet<Cached> anchored = new ConcurrentSkipListSet<>(BY_LOW_SCORE);
+        final ConcurrentSkipListSet<Cached> spanning = new ConcurrentSkipListSet<>(BY_LOW_SCORE);
+        final AtomicLong widestAnchored = new AtomicLong();
+        final AtomicLong changes = new AtomicLong();
+        final AtomicReferenceArray<Change> recent = new AtomicReferenceArray<>(RECENT_CHANGES);
+
+        BoardWindows(Leaderboard leaderboard) {
+            this.leaderboard = leaderboard;
+            leaderboard.addScoreListener(this);
+        }
+
+        void add(Cached cached) {
+            if (cached.isStabbable()) {
+                widestAnchored.accumulateAndGet(cached.highScore - cached.lowScore, Math::max);
+                anchored.add(cached);
+            } else {
+                spanning.add(cached);
+            }
+        }
+
+        void remove(Cached cached) {
+            (cached.isStabbable() ? anchored : spanning).remove(cached);
+        }
+
+        @Override
+        public void scoreChanged(Leaderboard board, int userKey, long previousScore, int score) {
+            long sequence = changes.getAndIncrement();
+            recent.set((int) (sequence % RECENT_CHANGES), new Change(sequence, previousScore, score));
+            long highest = Math.max(previousScore, score);
+            for (Cached cached : spanning) {
+                if (cached.lowScore > highest) {
+                    break;
+                }
+                invalidateIfAffected(cached, previousScore, score);
+            }
+            stab(score, previousScore, score);
+            if (previousScore != UserScoreMap.NO_SCORE) {
+                stab(previousScore, previousScore, score);
+            }
+        }
+
+        private void stab(long at, long previousScore, int score) {
+            Cached from = Cached.probe(at - widestAnchored.get(), Long.MIN_VALUE);
+            Cached to = Cached.probe(at, Long.MAX_VALUE);
+            for (Cached cached : anchored.subSet(from, true, to, true)) {
+                invalidateIfAffected(cached, previousScore, score);
+            }
+        }
+
+        private void invalidateIfAffected(Cached cached, long previousScore, int score) {
+            if (cached.affectedBy(previousScore, score)) {
+                QueryCache.this.remove(cached);
+                invalidations.increment();
+            }
+        }
+
+        @Override
+        public void leaderboardEvicted(Leaderboard board) {
+            boards.remove(board, this);
+            for (Cached cached : anchored) {
+                QueryCache.this.remove(cached);
+            }
+            for (Cached cached : spanning) {
+                QueryCache.this.remove(cached);
+            }
+        }
+
+        // Whether no change recorded from sequence since on affects the window. Changes that
+        // were overwritten or are still being recorded count as affecting it.
+        boolean unchangedSince(long since, Cached cached) {
+            long now = changes.get();
+            if (now - since > RECENT_CHANGES) {
+                return false;
+            }
+            for (long sequence = since; sequence < now; sequence++) {
+                Change change = recent.get((int) (sequence % RECENT_CHANGES));
+                if (change == null || change.sequence != sequence || cached.affectedBy(change.previousScore, change.score)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Change {
+        final long sequence;
+        final long previousScore;
+        final int score;
+
+        Change(long sequence, long previousScore, int score) {
+            this.sequence = sequence;
+            this.previousScore = previousScore;
+            this.score = score;
+        }
+    }
+
+    private static final class Cached {
+        final Key key;
+        final BoardWindows board;
+        final Object value;
+        final long lowScore;
+        final long highScore;
+        final int weight;
+        final boolean positional;
+        final long id;
+
+        Cached(Key key, BoardWindows board, Window<?> window, long id) {
+            this(key, board, window.value, window.lowScore, window.highScore, window.weight, window.positional, id);
+        }
+
+        private Cached(Key key, BoardWindows board, Object value, long lowScore, long highScore, int weight,
+                boolean positional, long id) {
+            this.key = key;
+            this.board = board;
+            this.value = value;
+            this.lowScore = lowScore;
+            this.highScore = highScore;
+            this.weight = weight;
+            this.positional = positional;
+            this.id = id;
+        }
+
+        // Search bound for the windows' ordering
+        static Cached probe(long lowScore, long id) {
+            return new Cached(null, null, null, lowScore, lowScore, 0, false, id);
+        }
+
+        boolean isStabbable() {
+            return !positional && lowScore != Window.OPEN_BELOW && highScore != Window.OPEN_ABOVE;
+        }
+
+        boolean affectedBy(long previousScore, int score) {
+            if (positional) {
+                return previousScore <= highScore && score >= lowScore;
+            }
+            return contains(score) || (previousScore != UserScoreMap.NO_SCORE && contains(previousScore));
+        }
+
+        private boolean contains(long score) {
+            return lowScore <= score && score <= highScore;
+        }
+    }
+
+    private static final class Key {
+        final String leaderboardId;
+        final Object query;
+
+        Key(String leaderboardId, Object query) {
+            this.leaderboardId = leaderboardId;
+            this.query = query;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return leaderboardId.equals(other.leaderboardId) && query.equals(other.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * leaderboardId.hashCode() + query.hashCode();
+        }
+    }
+
+    // LRU map holding up to capacity entries' worth of windows, plus a Bloom filter of the
+    // queries that missed recently. The filter is cleared once an eighth of its bits were set,
+    // which keeps false positives near 5%.
+    private static final class Segment {
+        final int capacity;
+        final LinkedHashMap<Key, Cached> map = new LinkedHashMap<>(16, 0.75f, true);
+        final long[] seen;
+        long weight;
+        int marked;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+            this.seen = new long[DOORKEEPER_BITS / 64];
+        }
+
+        synchronized Cached get(Key key) {
+            return map.get(key);
+        }
+
+        // Whether the query missed before since the filter was last cleared; marks it if not
+        synchronized boolean admit(Key key) {
+            long hash = key.hashCode() * 0x9E3779B97F4A7C15L;
+            int mask = DOORKEEPER_BITS - 1;
+            int first = (int) hash & mask;
+            int second = (int) (hash >>> 32) & mask;
+            if (isMarked(first) && isMarked(second)) {
+                return true;
+            }
+            if (marked >= DOORKEEPER_BITS / 8) {
+                Arrays.fill(seen, 0);
+                marked = 0;
+            }
+            mark(first);
+            mark(second);
+            return false;
+        }
+
+        private boolean isMarked(int bit) {
+            return (seen[bit >>> 6] & (1L << bit)) != 0;
+        }
+
+        private void mark(int bit) {
+            if (!isMarked(bit)) {
+                seen[bit >>> 6] |= 1L << bit;
+                marked++;
+            }
+        }
+
+        // Adds the window unless it alone exceeds the segment, returning what was evicted
+        synchronized List<Cached> put(Cached cached) {
+            List<Cached> evicted = new ArrayList<>();
+            if (cached.weight > capacity) {
+                evicted.add(cached);
+                return evicted;
+            }
+            Cached replaced = map.put(cached.key, cached);
+            if (replaced != null) {
+                weight -= replaced.weight;
+                evicted.add(replaced);
+            }
+            weight += cached.weight;
+            Iterator<Cached> eldest = map.values().iterator();
+            while (weight > capacity) {
+                Cached victim = eldest.next();
+                eldest.remove();
+                weight -= victim.weight;
+                evicted.add(victim);
+            }
+            return evicted;
+        }
+
+        synchronized void remove(Cached cached) {
+            if (map.remove(cached.key, cached)) {
+                weight -= cached.weight;
+            }
+        }
+    }
+}
@@ -4,4 +4,30 @@ public class LeaderboardConfig {
     public static final int MIN_SCORE = 0;
     public static final int MAX_SCORE = 1_000_000_000;
     public static final int DEFAULT_LEADERBOARD_DURATION = 86400; // 24 hours in seconds
+    public static final int DEFAULT_PARTITIONS = Math.min(Runtime.getRuntime().availableProcessors(), 8); // hash partitions of a board created without a count, one per core up to 8
+    public static final int TOP_K_CACHE_SIZE = 100; // front-page entries kept materialized per snapshot
+    public static final int OFF_HEAP_DELTA_LIMIT = 1 << 20; // updates an off-heap board buffers on heap before compacting
+    public static final boolean FIRST_ACHIEVED_TIES = false; // boards break ties by who reached the score first rather than by first-seen user
+    public static final int FREEZE_AFTER_SECONDS = 60; // grace period after endTime for in-flight submissions
+    public static final int ARCHIVE_AFTER_SECONDS = 7 * 86400; // ended boards move to local disk after a week
+    public static final int EVICT_AFTER_SECONDS = 30 * 86400; // and are dropped after 30 days
+    public static final int LIFECYCLE_SWEEP_INTERVAL_SECONDS = 60;
+    public static final int INGEST_QUEUE_CAPACITY = 1 << 16; // pending async submissions per board before backpressure
+    public static final int INGEST_MAX_BATCH = 4096; // submissions the writer applies per CAS
+    public static final int CHECKPOINT_INTERVAL_SECONDS = 300; // durable services snapshot boards and trim the log this often
+    public static final int QUERY_CACHE_CAPACITY = 1 << 16; // ranked entries the service caches across top-K and neighbour windows; 0 disables it
+    public static final int NOTIFICATION_QUEUE_CAPACITY = 1 << 16; // score changes awaiting the notification dispatcher before they are dropped
+    public static final int NOTIFICATION_INTERVAL_MILLIS = 100; // rank-change events are coalesced over this long
+    public static final int NOTIFICATION_DELIVERY_THREADS = 2; // threads calling subscribers; each subscriber sees one batch at a time
+    public static final int FAN_OUT_THREADS = 4; // pool threads helping a submission update a game's boards in parallel
+    public static final int FAN_OUT_MIN_BOARDS = 4; // active boards a submission must reach before they are updated in parallel
+    public static final int ROLLUP_REFRESH_MILLIS = 1_000; // on-demand rollup windows are rebuilt from per-user bests at most this often
+    public static final int SERVER_HANDLER_THREADS = 4; // request handlers of the network server when virtual threads are unavailable
+    public static final int SERVER_MAX_REQUEST_BYTES = 1 << 20; // largest HTTP request or binary frame a connection buffers
+    public static final int SERVER_MAX_PENDING_RESPONSE_BYTES = 1 << 20; // responses queued for a slow reader before its requests wait
+    public static final int ENCODED_PAGE_POOL_BUFFERS = 64; // pooled direct buffers per size class for binary-encoded pages
+    public static final int ENCODED_PAGE_MAX_POOLED_BYTES = 1 << 20; // larger encoded pages get a buffer of their own
+    public static final int ENCODED_PAGE_MEMO_SIZE = 32; // front-page windows a frozen board keeps encoded for reuse
+    public static final int METRICS_LATENCY_SAMPLE_RATE = 128; // service calls timed for latency histograms: one in this many
+    public static final double APPROXIMATE_RANK_ERROR = 0.01; // score histogram bucket width behind approximate ranks; 0 disables it
 } 
\ No newline at end of file
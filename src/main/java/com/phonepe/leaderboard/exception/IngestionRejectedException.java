@@ -0,0 +1,8 @@
+package com.phonepe.leaderboard.exception;
+
+// A board's ingestion queue is full or shutting down; the submission was not taken
+public class IngestionRejectedException extends LeaderboardException {
+    public IngestionRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.phonepe.leaderboard.exception;
+
+// No leaderboard with the requested id; an IllegalArgumentException as callers always got one
+public class LeaderboardNotFoundException extends IllegalArgumentException {
+    public LeaderboardNotFoundException(String message) {
+        super(message);
+    }
+}
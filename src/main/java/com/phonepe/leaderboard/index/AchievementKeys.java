@@ -0,0 +1,114 @@
+package com.phonepe.leaderboard.index;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Store keys for a board that breaks ties by when each user reached their score. Every
+// improvement gets a fresh key from a counter shared by the whole board, so among equal scores
+// ascending key order is achievement order, and every ScoreStore keeps ordering by (score, key)
+// as it always has. The user's previous key is retired along with their previous entry.
+//
+// One instance per snapshot: the userKey -> current key map is persistent like the stores,
+// while the key -> userKey table is append-only and shared by all of them. Keys are never
+// reused, so the table costs 4 bytes per improvement over the board's lifetime.
+public final class AchievementKeys implements UserKeys {
+    private final Table table;
+    private final UserKeys dictionary;
+    private final UserScoreMap current; // userKey -> key
+    private final AchievementKeys[] parts; // per-partition keys this view combines, or null
+
+    private AchievementKeys(Table table, UserKeys dictionary, UserScoreMap current, AchievementKeys[] parts) {
+        this.table = table;
+        this.dictionary = dictionary;
+        this.current = current;
+        this.parts = parts;
+    }
+
+    // Keys of an empty board whose user IDs come from dictionary
+    public static AchievementKeys empty(UserKeys dictionary) {
+        return new AchievementKeys(new Table(), dictionary, UserScoreMap.EMPTY, null);
+    }
+
+    // Read-only view over the keys of every partition of one board, where parts[i] holds the users
+    // for which PartitionedScoreStore.partitionOf(userKey, parts.length) == i
+    public static AchievementKeys combine(AchievementKeys[] parts) {
+        return new AchievementKeys(parts[0].table, parts[0].dictionary, null, parts.clone());
+    }
+
+    // Successor in which the user holds a new key, ordered after every key handed out so far
+    public AchievementKeys next(int userKey) {
+        if (parts != null) {
+            throw new IllegalStateException("Combined keys are read-only");
+        }
+        return new AchievementKeys(table, dictionary, current.put(userKey, table.allocate(userKey)), null);
+    }
+
+    // Current key of the interned user, or UNKNOWN if the user has none
+    public int keyOf(int userKey) {
+        if (parts != null) {
+            return parts[PartitionedScoreStore.partitionOf(userKey, parts.length)].keyOf(userKey);
+        }
+        long key = current.find(userKey);
+        return key == UserScoreMap.NO_SCORE ? UNKNOWN : (int) key;
+    }
+
+    // Interned user a key was handed out to, or UNKNOWN for a key never handed out
+    public int userKeyOf(int key) {
+        return key >= 0 && key < table.next.get() ? table.userKey(key) : UNKNOWN;
+    }
+
+    @Override
+    public int lookup(String userId) {
+        int userKey = dictionary.lookup(userId);
+        return userKey == UNKNOWN ? UNKNOWN : keyOf(userKey);
+    }
+
+    @Override
+    public String userId(int key) {
+        return dictionary.userId(table.userKey(key));
+    }
+
+    // key -> userKey in fixed-size chunks, like UserDictionary's names. A key is written before
+    // the snapshot holding it is published, so readers never see a slot before its value.
+    private static final class Table {
+        private static final int CHUNK_BITS = 12;
+        private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+        private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+        private final AtomicInteger next = new AtomicInteger();
+        private volatile int[][] chunks = new int[16][];
+
+        int allocate(int userKey) {
+            int key = next.getAndIncrement();
+            if (key < 0) {
+                next.set(Integer.MIN_VALUE);
+                throw new IllegalStateException("Leaderboard has used up its tie-break keys");
+            }
+            chunk(key)[key & CHUNK_MASK] = userKey;
+            return key;
+        }
+
+        int userKey(int key) {
+            return chunks[key >>> CHUNK_BITS][key & CHUNK_MASK];
+        }
+
+        private int[] chunk(int key) {
+            int index = key >>> CHUNK_BITS;
+            int[][] current = chunks;
+            if (index < current.length && current[index] != null) {
+                return current[index];
+            }
+            synchronized (this) {
+                current = chunks;
+                if (index >= current.length) {
+                    current = Arrays.copyOf(current, Math.max(current.length * 2, index + 1));
+                }
+                if (current[index] == null) {
+                    current[index] = new int[CHUNK_SIZE];
+                }
+                chunks = current;
+                return current[index];
+            }
+        }
+    }
+}
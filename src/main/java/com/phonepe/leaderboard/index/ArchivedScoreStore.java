@@ -0,0 +1,327 @@
+package com.phonepe.leaderboard.index;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Read-only store served straight from a memory-mapped file. Nothing is deserialized: queries
+// read the columns in place, so opening an archive costs one mmap and the OS page cache decides
+// what stays resident. The file is self-contained, with the user IDs stored next to the scores,
+// so a restarted process can serve it without interning anybody.
+//
+// Keys are rank positions: the store is its own UserKeys, and since ties are already in rank
+// order, ordering by (score, position) is the same as the order the board had when archived.
+//
+// Layout, big-endian, each column 8-byte aligned:
+//   magic, version, header length, header (entry count, names length, metadata)
+//   scores      int[size]      in rank order
+//   nameOffsets int[size + 1]  start of each rank's UTF-8 name in the names column
+//   byName      int[size]      ranks sorted by name bytes, for lookups
+//   names       byte[]         UTF-8 user IDs in rank order
+public final class ArchivedScoreStore implements ScoreStore, UserKeys {
+    private static final int MAGIC = 0x4C424D43; // "LBMC"
+    private static final int FORMAT_VERSION = 1;
+
+    private final Path file;
+    private final Map<String, String> metadata;
+    private final int size;
+    private final IntBuffer scores;
+    private final IntBuffer nameOffsets;
+    private final IntBuffer byName;
+    private final ByteBuffer names;
+
+    private ArchivedScoreStore(Path file, ByteBuffer mapped) throws IOException {
+        this.file = file;
+        if (mapped.capacity() < 12 || mapped.getInt(0) != MAGIC || mapped.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Not a leaderboard archive: " + file);
+        }
+        int headerLength = mapped.getInt(8);
+        if (headerLength < 0 || 12L + headerLength > mapped.capacity()) {
+            throw new IOException("Corrupt leaderboard archive header: " + file);
+        }
+        byte[] header = new byte[headerLength];
+        mapped.position(12);
+        mapped.get(header);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(header));
+        this.size = in.readInt();
+        int namesLength = in.readInt();
+        int properties = in.readInt();
+        if (size < 0 || namesLength < 0 || 12L * size + namesLength > mapped.capacity()) {
+            throw new IOException("Corrupt leaderboard archive header: " + file);
+        }
+        Map<String, String> read = new LinkedHashMap<>();
+        for (int i = 0; i < properties; i++) {
+            read.put(in.readUTF(), in.readUTF());
+        }
+        this.metadata = Collections.unmodifiableMap(read);
+
+        int position = align(12 + header.length);
+        this.scores = column(mapped, position, size * 4).asIntBuffer();
+        position = align(position + size * 4);
+        this.nameOffsets = column(mapped, position, (size + 1) * 4).asIntBuffer();
+        position = align(position + (size + 1) * 4);
+        this.byName = column(mapped, position, size * 4).asIntBuffer();
+        position = align(position + size * 4);
+        this.names = column(mapped, position, namesLength);
+    }
+
+    // Writes every entry of store, with names from keys, to file, replacing anything already
+    // there, and maps the result. metadata is kept verbatim for whoever reopens the file.
+    public static ArchivedScoreStore write(ScoreStore store, UserKeys keys, Map<String, String> metadata, Path file)
+            throws IOException {
+        int size = store.size();
+        int[] rankScores = new int[size];
+        byte[][] rankNames = new byte[size][];
+        long[] namesLength = new long[1];
+        store.forEachFrom(0, size, (rank, score, userId) -> {
+            rankScores[rank] = score;
+            rankNames[rank] = keys.userId(userId).getBytes(StandardCharsets.UTF_8);
+            namesLength[0] += rankNames[rank].length;
+        });
+        if (namesLength[0] + 12L * size > Integer.MAX_VALUE) {
+            throw new IOException("Leaderboard too large for a single mapped archive");
+        }
+        Integer[] sorted = new Integer[size];
+        for (int rank = 0; rank < size; rank++) {
+            sorted[rank] = rank;
+        }
+        Arrays.sort(sorted, (a, b) -> compare(rankNames[a], rankNames[b]));
+
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        header.writeInt(size);
+        header.writeInt((int) namesLength[0]);
+        header.writeInt(metadata.size());
+        for (Map.Entry<String, String> property : metadata.entrySet()) {
+            header.writeUTF(property.getKey());
+            header.writeUTF(property.getValue());
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(headerBytes.size());
+            headerBytes.writeTo(out);
+            pad(out);
+            for (int score : rankScores) {
+                out.writeInt(score);
+            }
+            pad(out);
+            int offset = 0;
+            for (byte[] name : rankNames) {
+                out.writeInt(offset);
+                offset += name.length;
+            }
+            out.writeInt(offset);
+            pad(out);
+            for (Integer rank : sorted) {
+                out.writeInt(rank);
+            }
+            pad(out);
+            for (byte[] name : rankNames) {
+                out.write(name);
+            }
+            out.flush();
+            // Recovery may rely on the archive alone once the board's log and snapshot are gone
+            channel.force(true);
+        }
+        // A crash mid-write leaves the temp file behind, never a truncated archive
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        return open(file);
+    }
+
+    public static ArchivedScoreStore open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Leaderboard archive too large to map: " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ArchivedScoreStore(file, mapped);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // Whatever the writer passed as metadata
+    public Map<String, String> getMetadata() {
+        return metadata;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long find(int userId) {
+        return userId >= 0 && userId < size ? scores.get(userId) : UserScoreMap.NO_SCORE;
+    }
+
+    @Override
+    public ScoreStore withScore(int userId, long currentScore, int score) {
+        throw new IllegalStateException("Archived leaderboards are read-only");
+    }
+
+    @Override
+    public int countBefore(int score, int userId) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int midScore = scores.get(mid);
+            boolean before = midScore != score ? midScore > score : mid < userId;
+            if (before) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public int countAbove(int score) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (scores.get(mid) > score) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public RankIndex.Entry entryAt(int rank) {
+        return rank < 0 || rank >= size ? null : new RankIndex.Entry(rank, scores.get(rank));
+    }
+
+    @Override
+    public void forEachFrom(int rank, int limit, RankIndex.Visitor visitor) {
+        if (rank < 0 || limit <= 0) {
+            return;
+        }
+        int end = (int) Math.min(size, (long) rank + limit);
+        for (int position = rank; position < end; position++) {
+            visitor.visit(position, scores.get(position), position);
+        }
+    }
+
+    @Override
+    public void forEachScore(UserScoreMap.EntryConsumer consumer) {
+        for (int rank = 0; rank < size; rank++) {
+            consumer.accept(rank, scores.get(rank));
+        }
+    }
+
+    @Override
+    public ScoreStore freeze() {
+        return this;
+    }
+
+    @Override
+    public UserKeys userKeys(UserKeys dictionary) {
+        return this;
+    }
+
+    // Binary search over the name-sorted column, comparing UTF-8 bytes in place
+    @Override
+    public int lookup(String userId) {
+        byte[] name = userId.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int rank = byName.get(mid);
+            int cmp = compareName(rank, name);
+            if (cmp == 0) {
+                return rank;
+            }
+            if (cmp < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    @Override
+    public String userId(int key) {
+        int start = nameOffsets.get(key);
+        byte[] name = new byte[nameOffsets.get(key + 1) - start];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = names.get(start + i);
+        }
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    private int compareName(int rank, byte[] name) {
+        int start = nameOffsets.get(rank);
+        int length = nameOffsets.get(rank + 1) - start;
+        for (int i = 0; i < Math.min(length, name.length); i++) {
+            int cmp = Integer.compare(names.get(start + i) & 0xFF, name[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, name.length);
+    }
+
+    // Unsigned lexicographic order, which for UTF-8 is code point order
+    private static int compare(byte[] a, byte[] b) {
+        for (int i = 0; i < Math.min(a.length, b.length); i++) {
+            int cmp = Integer.compare(a[i] & 0xFF, b[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    private static ByteBuffer column(ByteBuffer mapped, int position, int length) throws IOException {
+        if (position + (long) length > mapped.capacity()) {
+            throw new IOException("Truncated leaderboard archive");
+        }
+        ByteBuffer column = mapped.duplicate();
+        column.position(position);
+        column.limit(position + length);
+        return column.slice();
+    }
+
+    private static int align(int position) {
+        return (position + 7) & ~7;
+    }
+
+    private static void pad(DataOutputStream out) throws IOException {
+        while ((out.size() & 7) != 0) {
+            out.write(0);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.phonepe.leaderboard.index;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+// Read-only store for boards that no longer take scores: parallel int arrays in rank order,
+// plus a userId-sorted index into them. That is 16 bytes per entry and no per-entry objects,
+// so a frozen board costs the garbage collector next to nothing.
+public final class FrozenScoreStore implements ScoreStore {
+    private static final int MAGIC = 0x4C424652; // "LBFR"
+    private static final int FORMAT_VERSION = 1;
+
+    private final int[] scores; // rank order
+    private final int[] userIds; // rank order
+    private final int[] sortedUserIds;
+    private final int[] ranksByUser; // rank of sortedUserIds[i]
+
+    private FrozenScoreStore(int[] scores, int[] userIds) {
+        this.scores = scores;
+        this.userIds = userIds;
+        int size = scores.length;
+        long[] byUser = new long[size];
+        for (int rank = 0; rank < size; rank++) {
+            byUser[rank] = ((long) userIds[rank] << 32) | rank;
+        }
+        Arrays.sort(byUser);
+        this.sortedUserIds = new int[size];
+        this.ranksByUser = new int[size];
+        for (int i = 0; i < size; i++) {
+            sortedUserIds[i] = (int) (byUser[i] >> 32);
+            ranksByUser[i] = (int) byUser[i];
+        }
+    }
+
+    public static FrozenScoreStore of(ScoreStore store) {
+        int size = store.size();
+        int[] scores = new int[size];
+        int[] userIds = new int[size];
+        store.forEachFrom(0, size, (rank, score, userId) -> {
+            scores[rank] = score;
+            userIds[rank] = userId;
+        });
+        return new FrozenScoreStore(scores, userIds);
+    }
+
+    // Store of the first count (userIds[i], scores[i]) pairs, given in any order; userIds must be distinct
+    public static FrozenScoreStore of(int[] userIds, int[] scores, int count) {
+        // Ascending ~score is descending score; ties fall back to ascending userId
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = ((long) ~scores[i] << 32) | (userIds[i] & 0xFFFFFFFFL);
+        }
+        Arrays.sort(order);
+        int[] rankedScores = new int[count];
+        int[] rankedUserIds = new int[count];
+        for (int rank = 0; rank < count; rank++) {
+            rankedScores[rank] = ~(int) (order[rank] >> 32);
+            rankedUserIds[rank] = (int) order[rank];
+        }
+        return new FrozenScoreStore(rankedScores, rankedUserIds);
+    }
+
+    // Entries of any store in rank order behind a small header; readFrom loads them back as a
+    // frozen store. The ids are only meaningful to the UserDictionary they were interned with.
+    public static void write(ScoreStore store, DataOutputStream out) throws IOException {
+        int size = store.size();
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(size);
+        try {
+            store.forEachFrom(0, size, (rank, score, userId) -> {
+                try {
+                    out.writeInt(score);
+                    out.writeInt(userId);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public static FrozenScoreStore readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Not a frozen leaderboard archive");
+        }
+        int size = in.readInt();
+        int[] scores = new int[size];
+        int[] userIds = new int[size];
+        for (int rank = 0; rank < size; rank++) {
+            scores[rank] = in.readInt();
+            userIds[rank] = in.readInt();
+        }
+        return new FrozenScoreStore(scores, userIds);
+    }
+
+    @Override
+    public int size() {
+        return scores.length;
+    }
+
+    @Override
+    public long find(int userId) {
+        int i = Arrays.binarySearch(sortedUserIds, userId);
+        return i < 0 ? UserScoreMap.NO_SCORE : scores[ranksByUser[i]];
+    }
+
+    @Override
+    public ScoreStore withScore(int userId, long currentScore, int score) {
+        throw new IllegalStateException("Frozen leaderboards are read-only");
+    }
+
+    @Override
+    public int countBefore(int score, int userId) {
+        int low = 0;
+        int high = scores.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            boolean before = scores[mid] != score ? scores[mid] > score : userIds[mid] < userId;
+            if (before) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public int countAbove(int score) {
+        int low = 0;
+        int high = scores.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (scores[mid] > score) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public RankIndex.Entry entryAt(int rank) {
+        return rank < 0 || rank >= scores.length ? null : new RankIndex.Entry(userIds[rank], scores[rank]);
+    }
+
+    @Override
+    public void forEachFrom(int rank, int limit, RankIndex.Visitor visitor) {
+        if (rank < 0 || limit <= 0) {
+            return;
+        }
+        int end = (int) Math.min(scores.length, (long) rank + limit);
+        for (int position = rank; position < end; position++) {
+            visitor.visit(position, scores[position], userIds[position]);
+        }
+    }
+
+    @Override
+    public void forEachScore(UserScoreMap.EntryConsumer consumer) {
+        for (int rank = 0; rank < scores.length; rank++) {
+            consumer.accept(userIds[rank], scores[rank]);
+        }
+    }
+
+    @Override
+    public ScoreStore freeze() {
+        return this;
+    }
+}
@@ -0,0 +1,85 @@
+package com.phonepe.leaderboard.index;
+
+// Default store: a persistent score trie and rank treap, both on the Java heap.
+public final class HeapScoreStore implements ScoreStore {
+    public static final HeapScoreStore EMPTY = new HeapScoreStore(UserScoreMap.EMPTY, RankIndex.EMPTY);
+
+    // Below this many updates the bulk treap merge costs more than it saves
+    private static final int BULK_THRESHOLD = 16;
+
+    private final UserScoreMap scores;
+    private final RankIndex rankIndex;
+
+    private HeapScoreStore(UserScoreMap scores, RankIndex rankIndex) {
+        this.scores = scores;
+        this.rankIndex = rankIndex;
+    }
+
+    @Override
+    public int size() {
+        return rankIndex.size();
+    }
+
+    @Override
+    public long find(int userId) {
+        return scores.find(userId);
+    }
+
+    @Override
+    public HeapScoreStore withScore(int userId, long currentScore, int score) {
+        RankIndex index = currentScore == UserScoreMap.NO_SCORE ? rankIndex : rankIndex.remove((int) currentScore, userId);
+        return new HeapScoreStore(scores.put(userId, score), index.insert(score, userId));
+    }
+
+    @Override
+    public HeapScoreStore without(int userId, long currentScore) {
+        return new HeapScoreStore(scores.remove(userId), rankIndex.remove((int) currentScore, userId));
+    }
+
+    // Removes the old entries and merges in the new ones as two treaps, which copies the paths
+    // the batch shares once instead of once per update
+    @Override
+    public ScoreStore withScores(int[] userIds, long[] currentScores, int[] scores, int count) {
+        if (count < BULK_THRESHOLD) {
+            return ScoreStore.super.withScores(userIds, currentScores, scores, count);
+        }
+        int[] oldScores = new int[count];
+        int[] oldUserIds = new int[count];
+        int removed = 0;
+        UserScoreMap updatedScores = this.scores;
+        for (int i = 0; i < count; i++) {
+            if (currentScores[i] != UserScoreMap.NO_SCORE) {
+                oldScores[removed] = (int) currentScores[i];
+                oldUserIds[removed++] = userIds[i];
+            }
+            updatedScores = updatedScores.put(userIds[i], scores[i]);
+        }
+        RankIndex index = removed == 0 ? rankIndex : rankIndex.difference(RankIndex.build(oldScores, oldUserIds, removed));
+        return new HeapScoreStore(updatedScores, index.union(RankIndex.build(scores, userIds, count)));
+    }
+
+    @Override
+    public int countBefore(int score, int userId) {
+        return rankIndex.countBefore(score, userId);
+    }
+
+    @Override
+    public int countAbove(int score) {
+        return rankIndex.countAbove(score);
+    }
+
+    @Override
+    public RankIndex.Entry entryAt(int rank) {
+        return rankIndex.entryAt(rank);
+    }
+
+    @Override
+    public void forEachFrom(int rank, int limit, RankIndex.Visitor visitor) {
+        rankIndex.forEachFrom(rank, limit, visitor);
+    }
+
+    @Override
+    public void forEachScore(UserScoreMap.EntryConsumer consumer) {
+        scores.forEach(consumer);
+    }
+}
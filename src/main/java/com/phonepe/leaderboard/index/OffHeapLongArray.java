@@ -0,0 +1,43 @@
+package com.phonepe.leaderboard.index;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+// Fixed-length, zero-initialised long array in direct memory. It is split into segments so
+// it can grow past the 2 GB limit of a single ByteBuffer. The array is filled by the thread
+// that builds it; after it has been safely published, absolute reads are fine from any thread.
+public final class OffHeapLongArray {
+    private static final int SEGMENT_BITS = 24; // 16M longs, 128 MB per segment
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final LongBuffer[] segments;
+    private final long length;
+
+    public OffHeapLongArray(long length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("length must be non-negative");
+        }
+        this.length = length;
+        int count = (int) ((length + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+        this.segments = new LongBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long remaining = length - ((long) i << SEGMENT_BITS);
+            int longs = (int) Math.min(SEGMENT_SIZE, remaining);
+            segments[i] = ByteBuffer.allocateDirect(longs * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+        }
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public long get(long index) {
+        return segments[(int) (index >>> SEGMENT_BITS)].get((int) (index & SEGMENT_MASK));
+    }
+
+    public void set(long index, long value) {
+        segments[(int) (index >>> SEGMENT_BITS)].put((int) (index & SEGMENT_MASK), value);
+    }
+}
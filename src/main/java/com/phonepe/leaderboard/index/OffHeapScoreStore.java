@@ -0,0 +1,339 @@
+package com.phonepe.leaderboard.index;
+
+// Store for boards too large to keep on the Java heap. Most entries live in an immutable base
+// in direct memory: a sorted run of every (score, userId) pair in rank order, plus an
+// open-addressing table from userId to score. Updates since the base was built go to a small
+// on-heap delta made of the same persistent structures HeapScoreStore uses, so withScore stays
+// O(log n) and snapshots stay free. Once the delta reaches its limit the board folds it into a
+// fresh base (Leaderboard.compact), so heap usage is bounded by the limit, not by the player count.
+//
+// A base entry is superseded once its user has a delta entry or is removed. Superseded entries
+// are indexed separately, so rank arithmetic stays O(log n) without rewriting the base.
+public final class OffHeapScoreStore implements ScoreStore {
+    private final Base base;
+    private final UserScoreMap deltaScores;
+    private final RankIndex delta;
+    private final RankIndex superseded; // base entries of users that have a delta entry or were removed
+    private final UserScoreMap removed; // users removed since the base was built; none has a delta entry
+    private final int deltaLimit;
+
+    private OffHeapScoreStore(Base base, UserScoreMap deltaScores, RankIndex delta, RankIndex superseded, UserScoreMap removed,
+            int deltaLimit) {
+        this.base = base;
+        this.deltaScores = deltaScores;
+        this.delta = delta;
+        this.superseded = superseded;
+        this.removed = removed;
+        this.deltaLimit = deltaLimit;
+    }
+
+    // deltaLimit is the number of buffered updates after which the store asks to be compacted
+    public static OffHeapScoreStore empty(int deltaLimit) {
+        if (deltaLimit <= 0) {
+            throw new IllegalArgumentException("deltaLimit must be positive");
+        }
+        return new OffHeapScoreStore(Base.EMPTY, UserScoreMap.EMPTY, RankIndex.EMPTY, RankIndex.EMPTY, UserScoreMap.EMPTY, deltaLimit);
+    }
+
+    @Override
+    public int size() {
+        return base.size - superseded.size() + delta.size();
+    }
+
+    @Override
+    public long find(int userId) {
+        long score = deltaScores.find(userId);
+        if (score != UserScoreMap.NO_SCORE || isRemoved(userId)) {
+            return score;
+        }
+        return base.find(userId);
+    }
+
+    @Override
+    public OffHeapScoreStore withScore(int userId, long currentScore, int score) {
+        long deltaScore = deltaScores.find(userId);
+        RankIndex updatedDelta = delta;
+        RankIndex updatedSuperseded = superseded;
+        if (deltaScore != UserScoreMap.NO_SCORE) {
+            updatedDelta = delta.remove((int) deltaScore, userId);
+        } else if (currentScore != UserScoreMap.NO_SCORE) {
+            // First update since the base was built: the base entry stops counting
+            updatedSuperseded = superseded.insert((int) currentScore, userId);
+        }
+        UserScoreMap updatedRemoved = isRemoved(userId) ? removed.remove(userId) : removed;
+        return new OffHeapScoreStore(base, deltaScores.put(userId, score), updatedDelta.insert(score, userId),
+                updatedSuperseded, updatedRemoved, deltaLimit);
+    }
+
+    // A delta entry is dropped; a base entry is superseded like an updated one. Either way the
+    // user is recorded as removed, so a rebase can replay the removal.
+    @Override
+    public OffHeapScoreStore without(int userId, long currentScore) {
+        long deltaScore = deltaScores.find(userId);
+        if (deltaScore != UserScoreMap.NO_SCORE) {
+            return new OffHeapScoreStore(base, deltaScores.remove(userId), delta.remove((int) deltaScore, userId), superseded,
+                    removed.put(userId, (int) deltaScore), deltaLimit);
+        }
+        return new OffHeapScoreStore(base, deltaScores, delta, superseded.insert((int) currentScore, userId),
+                removed.put(userId, (int) currentScore), deltaLimit);
+    }
+
+    @Override
+    public int countBefore(int score, int userId) {
+        return liveBaseBefore(score, userId) + delta.countBefore(score, userId);
+    }
+
+    @Override
+    public int countAbove(int score) {
+        return base.countAbove(score) - superseded.countAbove(score) + delta.countAbove(score);
+    }
+
+    @Override
+    public RankIndex.Entry entryAt(int rank) {
+        RankIndex.Entry[] found = new RankIndex.Entry[1];
+        forEachFrom(rank, 1, (position, score, userId) -> found[0] = new RankIndex.Entry(userId, score));
+        return found[0];
+    }
+
+    // Merges the delta with the live part of the base. Locating the start costs O(log^2 n);
+    // after that each entry is O(1) plus a delta lookup to skip superseded base entries.
+    @Override
+    public void forEachFrom(int rank, int limit, RankIndex.Visitor visitor) {
+        int size = size();
+        if (rank < 0 || limit <= 0 || rank >= size) {
+            return;
+        }
+        int count = Math.min(limit, size - rank);
+        int deltaIndex = deltaEntriesBefore(rank);
+        int position = basePositionOf(rank - deltaIndex);
+
+        // At most count delta entries can be visited, so buffer just those
+        int deltaCount = Math.min(count, delta.size() - deltaIndex);
+        int[] deltaScoreBuffer = new int[deltaCount];
+        int[] deltaUserBuffer = new int[deltaCount];
+        int[] filled = new int[1];
+        delta.forEachFrom(deltaIndex, deltaCount, (r, score, userId) -> {
+            deltaScoreBuffer[filled[0]] = score;
+            deltaUserBuffer[filled[0]++] = userId;
+        });
+
+        int d = 0;
+        for (int visited = 0; visited < count; visited++) {
+            while (position < base.size && isSuperseded(base.userAt(position))) {
+                position++;
+            }
+            boolean fromDelta = d < deltaCount && (position >= base.size
+                    || compare(deltaScoreBuffer[d], deltaUserBuffer[d], base.scoreAt(position), base.userAt(position)) < 0);
+            if (fromDelta) {
+                visitor.visit(rank + visited, deltaScoreBuffer[d], deltaUserBuffer[d]);
+                d++;
+            } else {
+                visitor.visit(rank + visited, base.scoreAt(position), base.userAt(position));
+                position++;
+            }
+        }
+    }
+
+    @Override
+    public void forEachScore(UserScoreMap.EntryConsumer consumer) {
+        for (int position = 0; position < base.size; position++) {
+            int userId = base.userAt(position);
+            if (!isSuperseded(userId)) {
+                consumer.accept(userId, base.scoreAt(position));
+            }
+        }
+        deltaScores.forEach(consumer);
+    }
+
+    @Override
+    public boolean needsCompaction() {
+        return delta.size() + removed.size() >= deltaLimit;
+    }
+
+    // Writes the merged contents into a new base; O(n) and allocates n entries of direct memory
+    @Override
+    public OffHeapScoreStore compact() {
+        int size = size();
+        OffHeapLongArray entries = new OffHeapLongArray(size);
+        forEachFrom(0, size, (rank, score, userId) -> entries.set(rank, pack(score, userId)));
+        return new OffHeapScoreStore(Base.build(entries, size), UserScoreMap.EMPTY, RankIndex.EMPTY, RankIndex.EMPTY,
+                UserScoreMap.EMPTY, deltaLimit);
+    }
+
+    // A compacted base is already a sorted array in direct memory; copying it onto the heap
+    // would defeat the point of an off-heap board
+    @Override
+    public OffHeapScoreStore freeze() {
+        return delta.size() == 0 && removed.size() == 0 ? this : compact();
+    }
+
+    // Every store built on the same base descends from it through improving updates and removals,
+    // so the users whose delta score differs from source's are exactly the updates to replay, and
+    // the users removed here but not in source the removals.
+    @Override
+    public ScoreStore rebase(ScoreStore source, ScoreStore compacted) {
+        if (!(source instanceof OffHeapScoreStore) || ((OffHeapScoreStore) source).base != base) {
+            return null;
+        }
+        UserScoreMap sourceScores = ((OffHeapScoreStore) source).deltaScores;
+        UserScoreMap sourceRemoved = ((OffHeapScoreStore) source).removed;
+        ScoreStore[] result = {compacted};
+        deltaScores.forEach((userId, score) -> {
+            if (sourceScores.find(userId) != score) {
+                result[0] = result[0].withScore(userId, result[0].find(userId), score);
+            }
+        });
+        removed.forEach((userId, score) -> {
+            long current = result[0].find(userId);
+            if (sourceRemoved.find(userId) == UserScoreMap.NO_SCORE && current != UserScoreMap.NO_SCORE) {
+                result[0] = result[0].without(userId, current);
+            }
+        });
+        return result[0];
+    }
+
+    private boolean isSuperseded(int userId) {
+        return deltaScores.find(userId) != UserScoreMap.NO_SCORE || isRemoved(userId);
+    }
+
+    private boolean isRemoved(int userId) {
+        return removed.size() > 0 && removed.find(userId) != UserScoreMap.NO_SCORE;
+    }
+
+    private int liveBaseBefore(int score, int userId) {
+        return base.countBefore(score, userId) - superseded.countBefore(score, userId);
+    }
+
+    // Number of delta entries ranked ahead of the given rank
+    private int deltaEntriesBefore(int rank) {
+        int low = 0;
+        int high = delta.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            RankIndex.Entry entry = delta.entryAt(mid);
+            if (mid + liveBaseBefore(entry.getScore(), entry.getUserId()) < rank) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Smallest base position with the given number of live entries ahead of it
+    private int basePositionOf(int liveIndex) {
+        int low = 0;
+        int high = base.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int live = mid - superseded.countBefore(base.scoreAt(mid), base.userAt(mid));
+            if (live < liveIndex) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int compare(int score, int userId, int otherScore, int otherUserId) {
+        if (score != otherScore) {
+            return score > otherScore ? -1 : 1;
+        }
+        return Integer.compare(userId, otherUserId);
+    }
+
+    private static long pack(int score, int userId) {
+        return ((long) score << 32) | (userId & 0xFFFFFFFFL);
+    }
+
+    // Immutable sorted run plus userId -> score table, both in direct memory
+    private static final class Base {
+        static final Base EMPTY = new Base(new OffHeapLongArray(0), 0, new OffHeapLongArray(0));
+
+        final OffHeapLongArray entries; // (score << 32) | userId, in rank order
+        final int size;
+        final OffHeapLongArray table; // ((userId + 1) << 32) | score, 0 marks an empty slot
+        final long mask;
+
+        Base(OffHeapLongArray entries, int size, OffHeapLongArray table) {
+            this.entries = entries;
+            this.size = size;
+            this.table = table;
+            this.mask = table.length() - 1;
+        }
+
+        static Base build(OffHeapLongArray entries, int size) {
+            // Power-of-two capacity at a load factor of at most 0.7
+            long capacity = 2;
+            while (capacity * 7 < size * 10L) {
+                capacity <<= 1;
+            }
+            OffHeapLongArray table = new OffHeapLongArray(capacity);
+            long mask = capacity - 1;
+            for (int position = 0; position < size; position++) {
+                long entry = entries.get(position);
+                int userId = (int) entry;
+                long slot = UserScoreMap.hash(userId) & mask;
+                while (table.get(slot) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table.set(slot, ((long) (userId + 1) << 32) | (entry >>> 32));
+            }
+            return new Base(entries, size, table);
+        }
+
+        int scoreAt(int position) {
+            return (int) (entries.get(position) >> 32);
+        }
+
+        int userAt(int position) {
+            return (int) entries.get(position);
+        }
+
+        long find(int userId) {
+            if (size == 0) {
+                return UserScoreMap.NO_SCORE;
+            }
+            long slot = UserScoreMap.hash(userId) & mask;
+            while (true) {
+                long value = table.get(slot);
+                if (value == 0) {
+                    return UserScoreMap.NO_SCORE;
+                }
+                if ((int) (value >>> 32) == userId + 1) {
+                    return (int) value;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        int countBefore(int score, int userId) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compare(scoreAt(mid), userAt(mid), score, userId) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        int countAbove(int score) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (scoreAt(mid) > score) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.phonepe.leaderboard.index;
+
+// Read-only view over the stores of a board whose users are hash-partitioned (see
+// Leaderboard.Builder.partitions). Every user lives in exactly one part, so counts are sums of
+// the parts' counts and rank order is a k-way merge of the parts' rank orders.
+//
+// Parts are only used through ScoreStore's read methods, so a part could just as well answer
+// from another process; nothing here assumes they share memory.
+public final class PartitionedScoreStore implements ScoreStore {
+    private static final int MERGE_CHUNK = 1024;
+
+    private final ScoreStore[] parts;
+    private final int size;
+
+    private PartitionedScoreStore(ScoreStore[] parts) {
+        this.parts = parts;
+        int total = 0;
+        for (ScoreStore part : parts) {
+            total += part.size();
+        }
+        this.size = total;
+    }
+
+    // parts[i] must hold exactly the users for which partitionOf(userId, parts.length) == i
+    public static PartitionedScoreStore of(ScoreStore[] parts) {
+        return new PartitionedScoreStore(parts.clone());
+    }
+
+    // Partition that owns the user
+    public static int partitionOf(int userId, int partitions) {
+        return partitions == 1 ? 0 : (UserScoreMap.hash(userId) & Integer.MAX_VALUE) % partitions;
+    }
+
+    public int partitions() {
+        return parts.length;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long find(int userId) {
+        return parts[partitionOf(userId, parts.length)].find(userId);
+    }
+
+    @Override
+    public ScoreStore withScore(int userId, long currentScore, int score) {
+        throw new IllegalStateException("Partitioned views are read-only; updates go to the owning partition");
+    }
+
+    @Override
+    public int countBefore(int score, int userId) {
+        int count = 0;
+        for (ScoreStore part : parts) {
+            count += part.countBefore(score, userId);
+        }
+        return count;
+    }
+
+    @Override
+    public int countAbove(int score) {
+        int count = 0;
+        for (ScoreStore part : parts) {
+            count += part.countAbove(score);
+        }
+        return count;
+    }
+
+    @Override
+    public RankIndex.Entry entryAt(int rank) {
+        RankIndex.Entry[] found = new RankIndex.Entry[1];
+        forEachFrom(rank, 1, (position, score, userId) -> found[0] = new RankIndex.Entry(userId, score));
+        return found[0];
+    }
+
+    // Positions each part at its first entry at or after the global rank, O(p^2 log^2 n), then
+    // merges. Prefer forEachFromKey when the key at that rank is known.
+    @Override
+    public void forEachFrom(int rank, int limit, RankIndex.Visitor visitor) {
+        if (rank < 0 || limit <= 0 || rank >= size) {
+            return;
+        }
+        int[] offsets = new int[parts.length];
+        if (rank > 0) {
+            for (int p = 0; p < parts.length; p++) {
+                offsets[p] = entriesBefore(p, rank);
+            }
+        }
+        merge(offsets, rank, Math.min(limit, size - rank), visitor);
+    }
+
+    // Each part's offset is its own countBefore, so seeking costs O(p log n)
+    @Override
+    public void forEachFromKey(int score, int userId, int rank, int limit, RankIndex.Visitor visitor) {
+        if (rank < 0 || limit <= 0 || rank >= size) {
+            return;
+        }
+        int[] offsets = new int[parts.length];
+        for (int p = 0; p < parts.length; p++) {
+            offsets[p] = parts[p].countBefore(score, userId);
+        }
+        merge(offsets, rank, Math.min(limit, size - rank), visitor);
+    }
+
+    // The entries ahead of the key are among the last limit ahead of it in each part; merge
+    // those and keep the tail
+    @Override
+    public void forEachBeforeKey(int score, int userId, int rank, int limit, RankIndex.Visitor visitor) {
+        int count = Math.min(Math.max(limit, 0), rank);
+        if (count == 0) {
+            return;
+        }
+        int[] offsets = new int[parts.length];
+        int candidates = 0;
+        for (int p = 0; p < parts.length; p++) {
+            int end = parts[p].countBefore(score, userId);
+            offsets[p] = Math.max(0, end - count);
+            candidates += end - offsets[p];
+        }
+        int skip = candidates - count;
+        merge(offsets, rank - count - skip, candidates, (position, entryScore, entryUserId) -> {
+            if (position >= rank - count) {
+                visitor.visit(position, entryScore, entryUserId);
+            }
+        });
+    }
+
+    // Visits count entries starting from each part's offset, numbering them from rank, in chunks;
+    // each step picks the best head, which is cheap for the handful of partitions a board has
+    private void merge(int[] offsets, int rank, int count, RankIndex.Visitor visitor) {
+        Cursor[] cursors = new Cursor[parts.length];
+        for (int p = 0; p < parts.length; p++) {
+            cursors[p] = new Cursor(parts[p], offsets[p], Math.min(count, MERGE_CHUNK));
+        }
+        for (int visited = 0; visited < count; visited++) {
+            Cursor best = null;
+            for (Cursor cursor : cursors) {
+                if (cursor.hasNext() && (best == null || compare(cursor.score(), cursor.userId(), best.score(), best.userId()) < 0)) {
+                    best = cursor;
+                }
+            }
+            visitor.visit(rank + visited, best.score(), best.userId());
+            best.advance();
+        }
+    }
+
+    @Override
+    public void forEachScore(UserScoreMap.EntryConsumer consumer) {
+        for (ScoreStore part : parts) {
+            part.forEachScore(consumer);
+        }
+    }
+
+    // Number of part p's entries ranked ahead of the given global rank
+    private int entriesBefore(int p, int rank) {
+        ScoreStore part = parts[p];
+        int low = 0;
+        int high = part.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            RankIndex.Entry entry = part.entryAt(mid);
+            int globalRank = mid;
+            for (int q = 0; q < parts.length; q++) {
+                if (q != p) {
+                    globalRank += parts[q].countBefore(entry.getScore(), entry.getUserId());
+                }
+            }
+            if (globalRank < rank) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int compare(int score, int userId, int otherScore, int otherUserId) {
+        if (score != otherScore) {
+            return score > otherScore ? -1 : 1;
+        }
+        return Integer.compare(userId, otherUserId);
+    }
+
+    // One part's entries from a position on, fetched a chunk at a time
+    private static final class Cursor {
+        private final ScoreStore part;
+        private final int[] scores;
+        private final int[] userIds;
+        private int next; // part position of the first entry after the buffer
+        private int filled;
+        private int index;
+
+        Cursor(ScoreStore part, int position, int chunk) {
+            this.part = part;
+            this.scores = new int[chunk];
+            this.userIds = new int[chunk];
+            this.next = position;
+            fill();
+        }
+
+        boolean hasNext() {
+            return index < filled;
+        }
+
+        int score() {
+            return scores[index];
+        }
+
+        int userId() {
+            return userIds[index];
+        }
+
+        void advance() {
+            if (++index == filled) {
+                fill();
+            }
+        }
+
+        private void fill() {
+            index = 0;
+            filled = 0;
+            part.forEachFrom(next, scores.length, (rank, score, userId) -> {
+                scores[filled] = score;
+                userIds[filled++] = userId;
+            });
+            next += filled;
+        }
+    }
+}
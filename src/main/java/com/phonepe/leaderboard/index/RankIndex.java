@@ -0,0 +1,395 @@
+package com.phonepe.leaderboard.index;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+// Persistent order-statistic treap ordered by score (highest first), then interned userId.
+// Every node tracks its subtree size so rank and select are O(log n). Nodes are never
+// mutated: insert and remove copy the O(log n) path they touch and return a new index,
+// so any RankIndex instance can be read from many threads without locking.
+//
+// Heap priorities are derived from a hash of (score, userId) rather than stored, which
+// keeps a node at five int-sized fields.
+public final class RankIndex {
+    public static final RankIndex EMPTY = new RankIndex(null);
+
+    private final Node root;
+
+    private static final class Node {
+        final int score;
+        final int userId;
+        final int size;
+        final Node left;
+        final Node right;
+
+        Node(int score, int userId, Node left, Node right) {
+            this.score = score;
+            this.userId = userId;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + size(left) + size(right);
+        }
+
+        Node withChildren(Node left, Node right) {
+            if (left == this.left && right == this.right) {
+                return this;
+            }
+            return new Node(score, userId, left, right);
+        }
+
+        int priority() {
+            return priorityOf(score, userId);
+        }
+    }
+
+    private RankIndex(Node root) {
+        this.root = root;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public RankIndex insert(int score, int userId) {
+        return new RankIndex(insert(root, score, userId, priorityOf(score, userId)));
+    }
+
+    public RankIndex remove(int score, int userId) {
+        Node updated = remove(root, score, userId);
+        return updated == root ? this : new RankIndex(updated);
+    }
+
+    // Index holding the first count (score, userId) pairs, which must be distinct. Costs
+    // O(m log m) for the sort plus O(m) to link the treap, against O(m log m) node copies for
+    // m separate inserts.
+    public static RankIndex build(int[] scores, int[] userIds, int count) {
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = sortKey(scores[i], userIds[i]);
+        }
+        Arrays.sort(keys);
+        int[] sortedScores = new int[count];
+        int[] sortedUserIds = new int[count];
+        int[] priorities = new int[count];
+        for (int i = 0; i < count; i++) {
+            long key = keys[i] ^ Long.MIN_VALUE;
+            sortedScores[i] = (int) (Integer.MAX_VALUE - (key >>> 32));
+            sortedUserIds[i] = (int) key ^ Integer.MIN_VALUE;
+            priorities[i] = priorityOf(sortedScores[i], sortedUserIds[i]);
+        }
+        // Cartesian tree over the sorted run: a stack of the right spine, in index form so the
+        // immutable nodes can then be created children first
+        int[] left = new int[count];
+        int[] right = new int[count];
+        int[] spine = new int[count];
+        int depth = 0;
+        for (int i = 0; i < count; i++) {
+            left[i] = -1;
+            right[i] = -1;
+            int last = -1;
+            while (depth > 0 && priorities[spine[depth - 1]] < priorities[i]) {
+                last = spine[--depth];
+            }
+            left[i] = last;
+            if (depth > 0) {
+                right[spine[depth - 1]] = i;
+            }
+            spine[depth++] = i;
+        }
+        return new RankIndex(depth == 0 ? null : link(spine[0], sortedScores, sortedUserIds, left, right));
+    }
+
+    // Entries of both indexes; an entry present in both is kept once. O(m log(n/m + 1)) node
+    // copies when merging m entries into n, which is what makes batch updates cheaper.
+    public RankIndex union(RankIndex other) {
+        return new RankIndex(union(root, other.root));
+    }
+
+    // Entries of this index that are not in other
+    public RankIndex difference(RankIndex other) {
+        return new RankIndex(difference(root, other.root));
+    }
+
+    // Number of entries ranked ahead of (score, userId), or -1 if the entry is absent.
+    public int rankOf(int score, int userId) {
+        int rank = 0;
+        Node node = root;
+        while (node != null) {
+            int cmp = compare(score, userId, node);
+            if (cmp == 0) {
+                return rank + size(node.left);
+            }
+            if (cmp < 0) {
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return -1;
+    }
+
+    // Number of entries ranked strictly ahead of (score, userId), whether or not it is present.
+    public int countBefore(int score, int userId) {
+        int count = 0;
+        Node node = root;
+        while (node != null) {
+            if (compare(score, userId, node) > 0) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    // Zero-based positional lookup; returns null when rank is out of range.
+    public Entry entryAt(int rank) {
+        if (rank < 0 || rank >= size()) {
+            return null;
+        }
+        Node node = root;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (rank < leftSize) {
+                node = node.left;
+            } else if (rank == leftSize) {
+                return new Entry(node.userId, node.score);
+            } else {
+                rank -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        return null;
+    }
+
+    // Number of entries with a score strictly higher than the given score.
+    public int countAbove(int score) {
+        int count = 0;
+        Node node = root;
+        while (node != null) {
+            if (node.score > score) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    // Visits up to limit entries starting at the given position and walking towards lower ranks.
+    // Costs O(log n + limit): the stack only ever holds one root-to-leaf path.
+    public void forEachFrom(int rank, int limit, Visitor visitor) {
+        if (rank < 0 || limit <= 0 || rank >= size()) {
+            return;
+        }
+        Deque<Node> stack = new ArrayDeque<>();
+        Node node = root;
+        int remaining = rank;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (remaining < leftSize) {
+                stack.push(node);
+                node = node.left;
+            } else if (remaining == leftSize) {
+                stack.push(node);
+                break;
+            } else {
+                remaining -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        int position = rank;
+        while (!stack.isEmpty() && limit-- > 0) {
+            Node current = stack.pop();
+            visitor.visit(position++, current.score, current.userId);
+            for (Node next = current.right; next != null; next = next.left) {
+                stack.push(next);
+            }
+        }
+    }
+
+    // Visits up to limit entries starting at the given position and walking towards higher ranks.
+    public void forEachDescendingFrom(int rank, int limit, Visitor visitor) {
+        if (rank < 0 || limit <= 0 || rank >= size()) {
+            return;
+        }
+        Deque<Node> stack = new ArrayDeque<>();
+        Node node = root;
+        int remaining = rank;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (remaining < leftSize) {
+                node = node.left;
+            } else if (remaining == leftSize) {
+                stack.push(node);
+                break;
+            } else {
+                stack.push(node);
+                remaining -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        int position = rank;
+        while (!stack.isEmpty() && limit-- > 0) {
+            Node current = stack.pop();
+            visitor.visit(position--, current.score, current.userId);
+            for (Node next = current.left; next != null; next = next.right) {
+                stack.push(next);
+            }
+        }
+    }
+
+    private static Node insert(Node node, int score, int userId, int priority) {
+        if (node == null) {
+            return new Node(score, userId, null, null);
+        }
+        if (compare(score, userId, node) < 0) {
+            Node left = insert(node.left, score, userId, priority);
+            if (left.priority() > node.priority()) {
+                // rotate right
+                return left.withChildren(left.left, node.withChildren(left.right, node.right));
+            }
+            return node.withChildren(left, node.right);
+        }
+        Node right = insert(node.right, score, userId, priority);
+        if (right.priority() > node.priority()) {
+            // rotate left
+            return right.withChildren(node.withChildren(node.left, right.left), right.right);
+        }
+        return node.withChildren(node.left, right);
+    }
+
+    private static Node remove(Node node, int score, int userId) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(score, userId, node);
+        if (cmp == 0) {
+            return merge(node.left, node.right);
+        }
+        if (cmp < 0) {
+            Node left = remove(node.left, score, userId);
+            return left == node.left ? node : node.withChildren(left, node.right);
+        }
+        Node right = remove(node.right, score, userId);
+        return right == node.right ? node : node.withChildren(node.left, right);
+    }
+
+    private static Node link(int i, int[] scores, int[] userIds, int[] left, int[] right) {
+        Node leftChild = left[i] < 0 ? null : link(left[i], scores, userIds, left, right);
+        Node rightChild = right[i] < 0 ? null : link(right[i], scores, userIds, left, right);
+        return new Node(scores[i], userIds[i], leftChild, rightChild);
+    }
+
+    private static Node union(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority() < b.priority()) {
+            Node swap = a;
+            a = b;
+            b = swap;
+        }
+        Node[] parts = split(b, a.score, a.userId);
+        return a.withChildren(union(a.left, parts[0]), union(a.right, parts[1]));
+    }
+
+    // Walks a only where b still has entries, splitting the smaller b around a's nodes
+    private static Node difference(Node a, Node b) {
+        if (a == null || b == null) {
+            return a;
+        }
+        Node[] parts = split(b, a.score, a.userId);
+        Node left = difference(a.left, parts[0]);
+        Node right = difference(a.right, parts[1]);
+        return parts[2] != null ? merge(left, right) : a.withChildren(left, right);
+    }
+
+    // Entries ranked before and after (score, userId), plus the entry itself if present
+    private static Node[] split(Node node, int score, int userId) {
+        if (node == null) {
+            return new Node[3];
+        }
+        int cmp = compare(score, userId, node);
+        if (cmp == 0) {
+            return new Node[] {node.left, node.right, node};
+        }
+        if (cmp < 0) {
+            Node[] parts = split(node.left, score, userId);
+            parts[1] = node.withChildren(parts[1], node.right);
+            return parts;
+        }
+        Node[] parts = split(node.right, score, userId);
+        parts[0] = node.withChildren(node.left, parts[0]);
+        return parts;
+    }
+
+    // Orders like compare() when sorted as signed longs: score descending, then userId ascending
+    private static long sortKey(int score, int userId) {
+        long scoreKey = (long) Integer.MAX_VALUE - score;
+        return ((scoreKey << 32) | ((userId ^ Integer.MIN_VALUE) & 0xFFFFFFFFL)) ^ Long.MIN_VALUE;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority() > right.priority()) {
+            return left.withChildren(left.left, merge(left.right, right));
+        }
+        return right.withChildren(merge(left, right.left), right.right);
+    }
+
+    private static int compare(int score, int userId, Node node) {
+        if (score != node.score) {
+            return score > node.score ? -1 : 1;
+        }
+        return Integer.compare(userId, node.userId);
+    }
+
+    private static int priorityOf(int score, int userId) {
+        int h = userId * 0x9E3779B9 + score;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    public interface Visitor {
+        void visit(int rank, int score, int userId);
+    }
+
+    public static class Entry {
+        private final int userId;
+        private final int score;
+
+        public Entry(int userId, int score) {
+            this.userId = userId;
+            this.score = score;
+        }
+
+        public int getUserId() {
+            return userId;
+        }
+
+        public int getScore() {
+            return score;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.phonepe.leaderboard.index;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Approximate score distribution, DDSketch-style: bucket boundaries grow geometrically, so any
+// two scores sharing a bucket are within relativeError of each other. Counting the buckets above
+// a score gives its rank up to the entries in its own bucket, which are interpolated.
+//
+// Writers adjust the counters in place, so a query racing an update may be off by that update.
+public final class ScoreHistogram {
+    private final double relativeError;
+    private final double gamma;
+    private final double logGamma;
+    private final int zeroBucket; // score 0; negative scores mirror the positive buckets below it
+    private final AtomicLongArray counts;
+
+    public ScoreHistogram(double relativeError) {
+        if (!(relativeError > 0 && relativeError < 1)) {
+            throw new IllegalArgumentException("relativeError must be in (0, 1)");
+        }
+        this.relativeError = relativeError;
+        this.gamma = (1 + relativeError) / (1 - relativeError);
+        this.logGamma = Math.log(gamma);
+        this.zeroBucket = magnitudeBucket(1L << 31);
+        this.counts = new AtomicLongArray(2 * zeroBucket + 1);
+    }
+
+    public static ScoreHistogram of(ScoreStore store, double relativeError) {
+        ScoreHistogram histogram = new ScoreHistogram(relativeError);
+        store.forEachScore((userId, score) -> histogram.counts.incrementAndGet(histogram.bucket(score)));
+        return histogram;
+    }
+
+    public double getRelativeError() {
+        return relativeError;
+    }
+
+    public int buckets() {
+        return counts.length();
+    }
+
+    // Records that a user's best moved from previousScore (NO_SCORE for a new user) to score
+    public void move(long previousScore, int score) {
+        int to = bucket(score);
+        if (previousScore != UserScoreMap.NO_SCORE) {
+            int from = bucket((int) previousScore);
+            if (from == to) {
+                return;
+            }
+            counts.decrementAndGet(from);
+        }
+        counts.incrementAndGet(to);
+    }
+
+    // Entries in buckets strictly above the score's bucket; O(buckets)
+    public long countAboveBucket(int score) {
+        int bucket = bucket(score);
+        long count = 0;
+        for (int b = counts.length() - 1; b > bucket; b--) {
+            count += counts.get(b);
+        }
+        return Math.max(0, count);
+    }
+
+    public long countInBucket(int score) {
+        return Math.max(0, counts.get(bucket(score)));
+    }
+
+    // Estimated share of the score's bucket ranked ahead of it, assuming scores are spread
+    // evenly across the bucket's range
+    public double fractionAboveInBucket(int score) {
+        int b = bucket(score);
+        if (b == zeroBucket) {
+            return 0;
+        }
+        double low;
+        double high;
+        int magnitude = Math.abs(b - zeroBucket);
+        double lower = Math.pow(gamma, magnitude - 1);
+        double upper = Math.pow(gamma, magnitude);
+        if (b > zeroBucket) {
+            low = lower;
+            high = upper;
+        } else {
+            low = -upper;
+            high = -lower;
+        }
+        return Math.min(1, Math.max(0, (high - score) / (high - low)));
+    }
+
+    int bucket(int score) {
+        if (score == 0) {
+            return zeroBucket;
+        }
+        return score > 0 ? zeroBucket + magnitudeBucket(score) : zeroBucket - magnitudeBucket(-(long) score);
+    }
+
+    // 1 + floor(log_gamma(magnitude)), so magnitudes in [gamma^(m-1), gamma^m) share bucket m
+    private int magnitudeBucket(long magnitude) {
+        return 1 + (int) Math.floor(Math.log(magnitude) / logGamma);
+    }
+}
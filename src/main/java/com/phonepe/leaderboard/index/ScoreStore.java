@@ -0,0 +1,87 @@
+package com.phonepe.leaderboard.index;
+
+// Score table plus rank order for one leaderboard. Implementations are immutable: withScore
+// returns a new store and leaves this one readable, which is what lets LeaderboardSnapshot
+// hand out consistent views without locking.
+//
+// Entries are ordered by score (highest first), then userId; ranks are 0-based.
+public interface ScoreStore {
+
+    int size();
+
+    // Score for the user, or UserScoreMap.NO_SCORE if the user is not in the store
+    long find(int userId);
+
+    // Store with the user's score replaced; currentScore is what find returned for the user
+    ScoreStore withScore(int userId, long currentScore, int score);
+
+    // Store with the first count users' scores replaced, as if by withScore in turn; userIds must
+    // be distinct and currentScores[i] is what find returned for userIds[i]
+    default ScoreStore withScores(int[] userIds, long[] currentScores, int[] scores, int count) {
+        ScoreStore store = this;
+        for (int i = 0; i < count; i++) {
+            store = store.withScore(userIds[i], currentScores[i], scores[i]);
+        }
+        return store;
+    }
+
+    // Store without the user's entry; currentScore is what find returned for the user, and must
+    // not be NO_SCORE. Read-only stores throw IllegalStateException.
+    default ScoreStore without(int userId, long currentScore) {
+        throw new IllegalStateException(getClass().getSimpleName() + " is read-only");
+    }
+
+    // Number of entries ranked strictly ahead of (score, userId), whether or not it is present
+    int countBefore(int score, int userId);
+
+    // Number of entries with a score strictly higher than the given score
+    int countAbove(int score);
+
+    // Zero-based positional lookup; returns null when rank is out of range
+    RankIndex.Entry entryAt(int rank);
+
+    // Visits up to limit entries starting at the given position and walking towards lower ranks
+    void forEachFrom(int rank, int limit, RankIndex.Visitor visitor);
+
+    // Same as forEachFrom(rank, limit, visitor) where rank is countBefore(score, userId); stores
+    // that can seek by key more cheaply than by position override it
+    default void forEachFromKey(int score, int userId, int rank, int limit, RankIndex.Visitor visitor) {
+        forEachFrom(rank, limit, visitor);
+    }
+
+    // Visits, in rank order, the up to limit entries ranked immediately ahead of (score, userId),
+    // where rank is countBefore(score, userId)
+    default void forEachBeforeKey(int score, int userId, int rank, int limit, RankIndex.Visitor visitor) {
+        int start = Math.max(0, rank - Math.max(limit, 0));
+        forEachFrom(start, rank - start, visitor);
+    }
+
+    // Visits every (userId, score) pair in no particular order
+    void forEachScore(UserScoreMap.EntryConsumer consumer);
+
+    // Stores that buffer updates ask to be compacted once the buffer is large enough
+    default boolean needsCompaction() {
+        return false;
+    }
+
+    // Equivalent store in its compact layout
+    default ScoreStore compact() {
+        return this;
+    }
+
+    // Key space the store's userIds belong to; most stores use the repository's dictionary
+    default UserKeys userKeys(UserKeys dictionary) {
+        return dictionary;
+    }
+
+    // Read-optimized equivalent for a board that will take no more updates
+    default ScoreStore freeze() {
+        return FrozenScoreStore.of(this);
+    }
+
+    // Replays onto compacted every update this store has on top of source, where compacted is
+    // source.compact(). Returns null if this store does not descend from source.
+    default ScoreStore rebase(ScoreStore source, ScoreStore compacted) {
+        return source == this ? compacted : null;
+    }
+}
@@ -0,0 +1,67 @@
+package com.phonepe.leaderboard.index;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Interns user IDs into a dense int space shared by every leaderboard in a repository, so
+// each board stores 4-byte keys and the String itself is held exactly once.
+// IDs are handed out in first-seen order and never reused.
+public class UserDictionary implements UserKeys {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final ConcurrentHashMap<String, Integer> ids;
+    // id -> userId, in fixed-size chunks so growing never copies existing names
+    private volatile String[][] chunks;
+    private int size; // guarded by this
+
+    public UserDictionary() {
+        this.ids = new ConcurrentHashMap<>();
+        this.chunks = new String[16][];
+    }
+
+    public int intern(String userId) {
+        Integer id = ids.get(userId);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(userId);
+            if (id != null) {
+                return id;
+            }
+            int next = size;
+            String[][] current = chunks;
+            int chunk = next >>> CHUNK_BITS;
+            if (chunk >= current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            if (current[chunk] == null) {
+                current[chunk] = new String[CHUNK_SIZE];
+            }
+            current[chunk][next & CHUNK_MASK] = userId;
+            chunks = current;
+            size = next + 1;
+            // Publishing through the map orders the name write before any reader that sees the id
+            ids.put(userId, next);
+            return next;
+        }
+    }
+
+    // Existing id for the user, or UNKNOWN without interning
+    @Override
+    public int lookup(String userId) {
+        Integer id = ids.get(userId);
+        return id == null ? UNKNOWN : id;
+    }
+
+    @Override
+    public String userId(int id) {
+        return chunks[id >>> CHUNK_BITS][id & CHUNK_MASK];
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
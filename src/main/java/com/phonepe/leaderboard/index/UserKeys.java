@@ -0,0 +1,13 @@
+package com.phonepe.leaderboard.index;
+
+// Translates user IDs to the int keys a ScoreStore orders and looks users up by, and back.
+// Usually that is the repository's UserDictionary; a store that carries its own names (see
+// ArchivedScoreStore) can supply its own key space instead.
+public interface UserKeys {
+    int UNKNOWN = -1;
+
+    // Key of the user, or UNKNOWN without creating one
+    int lookup(String userId);
+
+    String userId(int key);
+}
@@ -0,0 +1,211 @@
+package com.phonepe.leaderboard.index;
+
+// Persistent hash array mapped trie from interned userId to score, laid out CHAMP-style:
+// inline entries live in a flat int[] of (key, value) pairs and only sub-tries are objects.
+// Like RankIndex it never mutates a published node: put and remove copy the O(log32 n) path they
+// touch and return a new map.
+//
+// Keys are spread with a bijective mix, so distinct keys never share a full 32-bit hash and
+// no collision nodes are needed.
+public final class UserScoreMap {
+    public static final long NO_SCORE = Long.MIN_VALUE;
+    public static final UserScoreMap EMPTY = new UserScoreMap(Node.EMPTY, 0);
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private final Node root;
+    private final int size;
+
+    private UserScoreMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Score for the user, or NO_SCORE if the user is not in the map
+    public long find(int userId) {
+        return root.find(userId, hash(userId), 0);
+    }
+
+    public UserScoreMap put(int userId, int score) {
+        boolean[] added = new boolean[1];
+        Node updated = root.put(userId, hash(userId), 0, score, added);
+        if (updated == root) {
+            return this;
+        }
+        return new UserScoreMap(updated, added[0] ? size + 1 : size);
+    }
+
+    public UserScoreMap remove(int userId) {
+        Node updated = root.remove(userId, hash(userId), 0);
+        return updated == root ? this : new UserScoreMap(updated, size - 1);
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        root.forEach(consumer);
+    }
+
+    public interface EntryConsumer {
+        void accept(int userId, int score);
+    }
+
+    private static final class Node {
+        static final Node EMPTY = new Node(0, 0, new int[0], new Node[0]);
+
+        final int dataMap;
+        final int nodeMap;
+        final int[] data; // key0, value0, key1, value1, ...
+        final Node[] nodes;
+
+        Node(int dataMap, int nodeMap, int[] data, Node[] nodes) {
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.data = data;
+            this.nodes = nodes;
+        }
+
+        long find(int key, int hash, int shift) {
+            int bit = bitpos(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = 2 * index(dataMap, bit);
+                return data[i] == key ? data[i + 1] : NO_SCORE;
+            }
+            if ((nodeMap & bit) != 0) {
+                return nodes[index(nodeMap, bit)].find(key, hash, shift + BITS);
+            }
+            return NO_SCORE;
+        }
+
+        Node put(int key, int hash, int shift, int value, boolean[] added) {
+            int bit = bitpos(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = 2 * index(dataMap, bit);
+                if (data[i] == key) {
+                    if (data[i + 1] == value) {
+                        return this;
+                    }
+                    int[] copy = data.clone();
+                    copy[i + 1] = value;
+                    return new Node(dataMap, nodeMap, copy, nodes);
+                }
+                // Slot taken by another key: push both down into a new sub-trie
+                Node child = pair(data[i], data[i + 1], key, hash, value, shift + BITS);
+                added[0] = true;
+                return new Node(dataMap ^ bit, nodeMap | bit, removePair(data, i), insertNode(nodes, index(nodeMap, bit), child));
+            }
+            if ((nodeMap & bit) != 0) {
+                int j = index(nodeMap, bit);
+                Node child = nodes[j].put(key, hash, shift + BITS, value, added);
+                if (child == nodes[j]) {
+                    return this;
+                }
+                Node[] copy = nodes.clone();
+                copy[j] = child;
+                return new Node(dataMap, nodeMap, data, copy);
+            }
+            added[0] = true;
+            return new Node(dataMap | bit, nodeMap, insertPair(data, 2 * index(dataMap, bit), key, value), nodes);
+        }
+
+        Node remove(int key, int hash, int shift) {
+            int bit = bitpos(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = 2 * index(dataMap, bit);
+                return data[i] == key ? new Node(dataMap ^ bit, nodeMap, removePair(data, i), nodes) : this;
+            }
+            if ((nodeMap & bit) != 0) {
+                int j = index(nodeMap, bit);
+                Node child = nodes[j].remove(key, hash, shift + BITS);
+                if (child == nodes[j]) {
+                    return this;
+                }
+                if (child.nodeMap == 0 && child.data.length == 2) {
+                    // A sub-trie left with one entry moves back inline, the shape put would have built
+                    return new Node(dataMap | bit, nodeMap ^ bit, insertPair(data, 2 * index(dataMap, bit), child.data[0], child.data[1]),
+                            removeNode(nodes, j));
+                }
+                Node[] copy = nodes.clone();
+                copy[j] = child;
+                return new Node(dataMap, nodeMap, data, copy);
+            }
+            return this;
+        }
+
+        void forEach(EntryConsumer consumer) {
+            for (int i = 0; i < data.length; i += 2) {
+                consumer.accept(data[i], data[i + 1]);
+            }
+            for (Node node : nodes) {
+                node.forEach(consumer);
+            }
+        }
+
+        private static Node pair(int key1, int value1, int key2, int hash2, int value2, int shift) {
+            int hash1 = hash(key1);
+            int bit1 = bitpos(hash1, shift);
+            int bit2 = bitpos(hash2, shift);
+            if (bit1 == bit2) {
+                return new Node(0, bit1, new int[0], new Node[] {pair(key1, value1, key2, hash2, value2, shift + BITS)});
+            }
+            // Inline entries are kept in bit order; bit 31 is negative, hence the unsigned compare
+            int[] data = Integer.compareUnsigned(bit1, bit2) < 0
+                    ? new int[] {key1, value1, key2, value2}
+                    : new int[] {key2, value2, key1, value1};
+            return new Node(bit1 | bit2, 0, data, new Node[0]);
+        }
+
+        private static int index(int bitmap, int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+    }
+
+    private static int[] insertPair(int[] data, int at, int key, int value) {
+        int[] copy = new int[data.length + 2];
+        System.arraycopy(data, 0, copy, 0, at);
+        copy[at] = key;
+        copy[at + 1] = value;
+        System.arraycopy(data, at, copy, at + 2, data.length - at);
+        return copy;
+    }
+
+    private static int[] removePair(int[] data, int at) {
+        int[] copy = new int[data.length - 2];
+        System.arraycopy(data, 0, copy, 0, at);
+        System.arraycopy(data, at + 2, copy, at, data.length - at - 2);
+        return copy;
+    }
+
+    private static Node[] insertNode(Node[] nodes, int at, Node node) {
+        Node[] copy = new Node[nodes.length + 1];
+        System.arraycopy(nodes, 0, copy, 0, at);
+        copy[at] = node;
+        System.arraycopy(nodes, at, copy, at + 1, nodes.length - at);
+        return copy;
+    }
+
+    private static Node[] removeNode(Node[] nodes, int at) {
+        Node[] copy = new Node[nodes.length - 1];
+        System.arraycopy(nodes, 0, copy, 0, at);
+        System.arraycopy(nodes, at + 1, copy, at, nodes.length - at - 1);
+        return copy;
+    }
+
+    private static int bitpos(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    // murmur3 finalizer; a bijection on int
+    static int hash(int key) {
+        int h = key;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,69 @@
+package com.phonepe.leaderboard.ingest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bounded lock-free queue for many producers and a single consumer. Each slot carries a
+// sequence number: a producer claims a slot by CAS on the tail and publishes it by advancing
+// the slot's sequence, so the consumer never sees a claimed but unwritten slot.
+public final class MpscRingBuffer<T> {
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // consumer thread only
+
+    public MpscRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two of at least 2");
+        }
+        elements = new Object[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        mask = capacity - 1;
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+
+    // Adds the element, or returns false if the buffer is full
+    public boolean offer(T element) {
+        while (true) {
+            long position = tail.get();
+            int slot = (int) position & mask;
+            long available = sequences.get(slot) - position;
+            if (available < 0) {
+                return false;
+            }
+            if (available == 0 && tail.compareAndSet(position, position + 1)) {
+                elements[slot] = element;
+                // A full volatile write, so a producer that then checks whether the consumer is
+                // parked cannot miss a consumer that just found the buffer empty
+                sequences.set(slot, position + 1);
+                return true;
+            }
+        }
+    }
+
+    // Consumer thread only; returns null if nothing is ready
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        int slot = (int) head & mask;
+        if (sequences.get(slot) != head + 1) {
+            return null;
+        }
+        T element = (T) elements[slot];
+        elements[slot] = null;
+        sequences.lazySet(slot, head + elements.length);
+        head++;
+        return element;
+    }
+
+    // Consumer thread only
+    public boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+}
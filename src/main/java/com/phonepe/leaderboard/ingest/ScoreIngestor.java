@@ -0,0 +1,167 @@
+package com.phonepe.leaderboard.ingest;
+
+import com.phonepe.leaderboard.exception.IngestionRejectedException;
+import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.model.LeaderboardState;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Single-writer front end for one leaderboard. Producers enqueue into a bounded ring buffer and
+// return immediately; one dedicated thread drains it and applies each drained batch with
+// Leaderboard.updateScores, so the board sees one writer and one CAS per batch instead of
+// every producer racing on the same snapshot. A full buffer rejects instead of blocking.
+//
+// The writer stops by itself once the board leaves ACTIVE, failing whatever is still queued.
+public final class ScoreIngestor {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Leaderboard leaderboard;
+    private final MpscRingBuffer<Pending> queue;
+    private final int maxBatch;
+    private final Thread writer;
+    private final LongAdder producing = new LongAdder(); // producers between their closed check and enqueue
+    private volatile boolean closed;
+    private volatile boolean writerParked;
+
+    public ScoreIngestor(Leaderboard leaderboard, int capacity, int maxBatch) {
+        if (maxBatch <= 0) {
+            throw new IllegalArgumentException("maxBatch must be positive");
+        }
+        this.leaderboard = leaderboard;
+        this.queue = new MpscRingBuffer<>(capacity);
+        this.maxBatch = maxBatch;
+        this.writer = new Thread(this::drainUntilClosed, "score-ingest-" + leaderboard.getId());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public Leaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    // Completes with whether the score became the user's best once the writer has applied it,
+    // or fails with IngestionRejectedException right away if the queue is full or closed
+    public CompletableFuture<Boolean> submit(int userKey, int score) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        if (!enqueue(new Pending(userKey, score, result))) {
+            result.completeExceptionally(rejection());
+        }
+        return result;
+    }
+
+    // Fire-and-forget: false means the queue is full (or closed) and the caller should back off
+    public boolean offer(int userKey, int score) {
+        return enqueue(new Pending(userKey, score, null));
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // Stops taking submissions, lets the writer apply everything already accepted and waits for it
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        if (Thread.currentThread() != writer) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private boolean enqueue(Pending pending) {
+        producing.increment();
+        try {
+            if (closed || !queue.offer(pending)) {
+                return false;
+            }
+        } finally {
+            producing.decrement();
+        }
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    private IngestionRejectedException rejection() {
+        return new IngestionRejectedException(closed
+                ? "Leaderboard " + leaderboard.getId() + " is no longer taking submissions"
+                : "Ingestion queue for leaderboard " + leaderboard.getId() + " is full");
+    }
+
+    private void drainUntilClosed() {
+        Pending[] batch = new Pending[maxBatch];
+        while (!closed) {
+            if (leaderboard.getState() != LeaderboardState.ACTIVE) {
+                closed = true;
+                break;
+            }
+            if (drain(batch) == 0) {
+                writerParked = true;
+                if (queue.isEmpty() && !closed) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                writerParked = false;
+            }
+        }
+        // Producers that got past the closed check may still be enqueueing
+        while (producing.sum() != 0) {
+            Thread.onSpinWait();
+        }
+        while (drain(batch) > 0) {
+            // keep going until everything accepted before close has been applied or failed
+        }
+    }
+
+    private int drain(Pending[] batch) {
+        int count = 0;
+        Pending pending;
+        while (count < batch.length && (pending = queue.poll()) != null) {
+            batch[count++] = pending;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        int[] userKeys = new int[count];
+        int[] scores = new int[count];
+        for (int i = 0; i < count; i++) {
+            userKeys[i] = batch[i].userKey;
+            scores[i] = batch[i].score;
+        }
+        try {
+            boolean[] improved = leaderboard.updateScores(userKeys, scores);
+            for (int i = 0; i < count; i++) {
+                if (batch[i].result != null) {
+                    batch[i].result.complete(improved[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            for (int i = 0; i < count; i++) {
+                if (batch[i].result != null) {
+                    batch[i].result.completeExceptionally(e);
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            batch[i] = null;
+        }
+        return count;
+    }
+
+    private static final class Pending {
+        final int userKey;
+        final int score;
+        final CompletableFuture<Boolean> result; // null for fire-and-forget
+
+        Pending(int userKey, int score, CompletableFuture<Boolean> result) {
+            this.userKey = userKey;
+            this.score = score;
+            this.result = result;
+        }
+    }
+}
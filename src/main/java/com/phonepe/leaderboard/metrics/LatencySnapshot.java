@@ -0,0 +1,62 @@
+package com.phonepe.leaderboard.metrics;
+
+// Point-in-time copy of a LatencyHistogram; all durations are in nanoseconds. Counts are of
+// recorded durations, so about one in getSampleRate() of the calls timed.
+public final class LatencySnapshot {
+    private final long[] counts;
+    private final long count;
+    private final long total;
+    private final long max;
+    private final int sampleRate;
+
+    LatencySnapshot(long[] counts, long total, long max, int sampleRate) {
+        this.counts = counts;
+        long count = 0;
+        for (long bucket : counts) {
+            count += bucket;
+        }
+        this.count = count;
+        this.total = total;
+        this.max = max;
+        this.sampleRate = sampleRate;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    // Smallest duration that percentile percent of the recorded ones do not exceed, rounded up
+    // to its bucket; 0 if nothing was recorded
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be in [0, 100]");
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= target) {
+                return Math.min(LatencyHistogram.highestIn(bucket), max);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.1fus p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus", count, getMean() / 1e3,
+                getPercentile(50) / 1e3, getPercentile(99) / 1e3, getPercentile(99.9) / 1e3, max / 1e3);
+    }
+}
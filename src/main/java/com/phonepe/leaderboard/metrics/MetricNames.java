@@ -0,0 +1,49 @@
+package com.phonepe.leaderboard.metrics;
+
+// Metrics recorded by the service, repository and boards. Counters and latencies are cumulative
+// since startup; latencies are in nanoseconds, memory gauges in bytes.
+public class MetricNames {
+    // Counters: every score submitted through the service, rejected ones included
+    public static final String SUBMISSIONS = "service.submissions";
+    public static final String REJECTED_INVALID_SCORE = "service.rejected.invalid_score";
+    public static final String REJECTED_GAME_NOT_SUPPORTED = "service.rejected.game_not_supported";
+
+    // Latencies of the service calls, as seen by the caller; sampled, see LatencyHistogram
+    public static final String SUBMIT_LATENCY = "service.latency.submit";
+    public static final String RANK_LATENCY = "service.latency.rank";
+    public static final String APPROXIMATE_RANK_LATENCY = "service.latency.approximate_rank";
+    public static final String TOP_K_LATENCY = "service.latency.top_k";
+    public static final String PAGE_LATENCY = "service.latency.page";
+
+    // Gauges over the service's query cache
+    public static final String CACHE_HITS = "service.cache.hits";
+    public static final String CACHE_MISSES = "service.cache.misses";
+
+    // Counters summed over every board: scores that became a user's new best, and publications
+    // retried because another writer got in first
+    public static final String UPDATES_APPLIED = "leaderboard.updates.applied";
+    public static final String CAS_RETRIES = "leaderboard.cas.retries";
+    // Time a write spent losing the publication race, from its first lost CAS; boards are
+    // lock-free, so this is what lock wait would be elsewhere. Every contended write is recorded.
+    public static final String CAS_WAIT_LATENCY = "leaderboard.latency.cas_wait";
+
+    // Counter of background checkpoints that failed; the log is not trimmed until one succeeds
+    public static final String CHECKPOINT_FAILURES = "persistence.checkpoint.failures";
+
+    // Gauges over the repository
+    public static final String BOARDS_ACTIVE = "repository.boards.active";
+    public static final String BOARDS_FROZEN = "repository.boards.frozen";
+    public static final String BOARDS_ARCHIVED = "repository.boards.archived";
+    public static final String ENTRIES = "repository.entries";
+    public static final String HEAP_USED = "memory.heap.used";
+    public static final String DIRECT_USED = "memory.direct.used"; // OFF_HEAP boards
+    public static final String MAPPED_USED = "memory.mapped.used"; // archived boards
+    // Counter of board lifecycle transitions (freeze, archive, evict) that failed; see
+    // LeaderboardLifecycleManager.sweep
+    public static final String LIFECYCLE_FAILURES = "repository.lifecycle.failures";
+
+    // Gauge of one registered board's entries
+    public static String boardEntries(String leaderboardId) {
+        return "leaderboard." + leaderboardId + ".entries";
+    }
+}
@@ -0,0 +1,9 @@
+package com.phonepe.leaderboard.metrics;
+
+// Ships metrics somewhere else, e.g. a monitoring agent; see MetricsRegistry.addExporter.
+// Counters and latencies are cumulative since startup, so an exporter wanting rates diffs
+// consecutive snapshots.
+@FunctionalInterface
+public interface MetricsExporter {
+    void export(MetricsSnapshot snapshot);
+}
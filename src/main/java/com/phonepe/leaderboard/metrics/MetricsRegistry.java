@@ -0,0 +1,127 @@
+package com.phonepe.leaderboard.metrics;
+
+import com.phonepe.leaderboard.config.LeaderboardConfig;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Named counters, gauges and latency histograms. Hot paths look their counters and histograms
+// up once and keep them, so recording is a striped LongAdder or a histogram increment; gauges
+// are only read when a snapshot is taken. Names are listed in MetricNames.
+public final class MetricsRegistry {
+    private final int latencySampleRate;
+    private final boolean enabled;
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private ScheduledExecutorService exporters; // guarded by this; started with the first exporter
+    private boolean closed; // guarded by this
+
+    public MetricsRegistry() {
+        this(LeaderboardConfig.METRICS_LATENCY_SAMPLE_RATE);
+    }
+
+    // Latency histograms time one call in latencySampleRate; see LatencyHistogram
+    public MetricsRegistry(int latencySampleRate) {
+        this(latencySampleRate, true);
+    }
+
+    private MetricsRegistry(int latencySampleRate, boolean enabled) {
+        if (latencySampleRate < 1) {
+            throw new IllegalArgumentException("latencySampleRate must be positive");
+        }
+        this.latencySampleRate = latencySampleRate;
+        this.enabled = enabled;
+    }
+
+    // Registry whose counters and latencies record nothing, so snapshots report zeros; gauges
+    // still work. Exists to measure what the instrumentation costs.
+    public static MetricsRegistry disabled() {
+        return new MetricsRegistry(1, false);
+    }
+
+    // The counter under name, created on first use; the same instance on every call
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, ignored -> enabled ? new LongAdder() : new DiscardingAdder());
+    }
+
+    public LatencyHistogram latency(String name) {
+        return latencies.computeIfAbsent(name,
+                ignored -> enabled ? new LatencyHistogram(latencySampleRate) : LatencyHistogram.disabled());
+    }
+
+    // Replaces any gauge of the same name. Read on every snapshot from the exporting thread,
+    // so value must be cheap and thread-safe.
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public void removeGauge(String name) {
+        gauges.remove(name);
+    }
+
+    public MetricsSnapshot snapshot() {
+        Map<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, counter) -> counterValues.put(name, counter.sum()));
+        Map<String, Long> gaugeValues = new TreeMap<>();
+        gauges.forEach((name, gauge) -> {
+            // A failing gauge is left out rather than failing the whole snapshot
+            try {
+                gaugeValues.put(name, gauge.getAsLong());
+            } catch (RuntimeException ignored) {
+            }
+        });
+        Map<String, LatencySnapshot> latencyValues = new TreeMap<>();
+        latencies.forEach((name, histogram) -> latencyValues.put(name, histogram.snapshot()));
+        return new MetricsSnapshot(System.currentTimeMillis(), counterValues, gaugeValues, latencyValues);
+    }
+
+    // Hands the exporter a snapshot every periodMillis on a background thread until close().
+    // An exporter that throws just misses that round.
+    public synchronized void addExporter(MetricsExporter exporter, long periodMillis) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("periodMillis must be positive");
+        }
+        if (closed) {
+            throw new IllegalStateException("Metrics registry is closed");
+        }
+        if (exporters == null) {
+            exporters = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "metrics-exporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        exporters.scheduleAtFixedRate(() -> {
+            try {
+                exporter.export(snapshot());
+            } catch (RuntimeException ignored) {
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Stops the exporters; metrics keep recording and snapshot() keeps working
+    public synchronized void close() {
+        closed = true;
+        if (exporters != null) {
+            exporters.shutdownNow();
+        }
+    }
+
+    private static final class DiscardingAdder extends LongAdder {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void add(long x) {
+        }
+
+        @Override
+        public void increment() {
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.phonepe.leaderboard.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+// Every metric of a MetricsRegistry at one moment, keyed by name in name order
+public final class MetricsSnapshot {
+    private final long timestampMillis;
+    private final Map<String, Long> counters;
+    private final Map<String, Long> gauges;
+    private final Map<String, LatencySnapshot> latencies;
+
+    MetricsSnapshot(long timestampMillis, Map<String, Long> counters, Map<String, Long> gauges,
+            Map<String, LatencySnapshot> latencies) {
+        this.timestampMillis = timestampMillis;
+        this.counters = Collections.unmodifiableMap(counters);
+        this.gauges = Collections.unmodifiableMap(gauges);
+        this.latencies = Collections.unmodifiableMap(latencies);
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    public Map<String, Long> getGauges() {
+        return gauges;
+    }
+
+    public Map<String, LatencySnapshot> getLatencies() {
+        return latencies;
+    }
+
+    // 0 for a counter nothing has been counted under yet
+    public long getCounter(String name) {
+        return counters.getOrDefault(name, 0L);
+    }
+
+    // null if there is no such gauge
+    public Long getGauge(String name) {
+        return gauges.get(name);
+    }
+
+    // null if nothing has been recorded under the name yet
+    public LatencySnapshot getLatency(String name) {
+        return latencies.get(name);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        counters.forEach((name, value) -> out.append(name).append(' ').append(value).append('\n'));
+        gauges.forEach((name, value) -> out.append(name).append(' ').append(value).append('\n'));
+        latencies.forEach((name, value) -> out.append(name).append(' ').append(value).append('\n'));
+        return out.toString();
+    }
+}
@@ -0,0 +1,10 @@
+package com.phonepe.leaderboard.model;
+
+// When LeaderboardService.submitScore returns for a game with several active boards
+public enum AckMode {
+    // Once every active board has the score
+    ALL_BOARDS,
+    // Once the primary board (the game's earliest-created active board) has it, durably on a
+    // durable service; the other boards follow on the fan-out pool
+    PRIMARY_BOARD
+}
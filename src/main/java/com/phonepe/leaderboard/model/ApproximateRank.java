@@ -0,0 +1,44 @@
+package com.phonepe.leaderboard.model;
+
+// Estimated 1-based rank with the range the exact rank is guaranteed to fall in, out of total
+// entries on the board. The guarantee is for a board with no writes in flight; see
+// Leaderboard.getApproximateRank.
+public class ApproximateRank {
+    private final int rank;
+    private final int bestRank;
+    private final int worstRank;
+    private final int total;
+
+    public ApproximateRank(int rank, int bestRank, int worstRank, int total) {
+        this.rank = rank;
+        this.bestRank = bestRank;
+        this.worstRank = worstRank;
+        this.total = total;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public int getBestRank() {
+        return bestRank;
+    }
+
+    public int getWorstRank() {
+        return worstRank;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    // Share of the board ranked at or above this rank, e.g. 3.2 for "top 3.2%"
+    public double getTopPercent() {
+        return total == 0 ? 100.0 : 100.0 * Math.min(rank, total) / total;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + rank + " [" + bestRank + ", " + worstRank + "] of " + total;
+    }
+}
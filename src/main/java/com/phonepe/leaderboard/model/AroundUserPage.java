@@ -0,0 +1,27 @@
+package com.phonepe.leaderboard.model;
+
+import java.util.List;
+
+// A page centred on one user: the entries ranked just above them, their own entry, then the
+// entries just below, all read from one snapshot. Empty, with no user, if the user has no score.
+public class AroundUserPage extends LeaderboardPage {
+    private final int userIndex; // position of the user's entry in getEntries(), or -1
+
+    public AroundUserPage(List<RankedEntry> entries, int userIndex, String prevCursor, String nextCursor) {
+        super(entries, prevCursor, nextCursor);
+        if (userIndex < -1 || userIndex >= entries.size() || (userIndex < 0) != entries.isEmpty()) {
+            throw new IllegalArgumentException("userIndex " + userIndex + " out of range for " + entries.size() + " entries");
+        }
+        this.userIndex = userIndex;
+    }
+
+    // The user's own entry, carrying their absolute rank, or null if the page is empty
+    public RankedEntry getUser() {
+        return userIndex < 0 ? null : getEntries().get(userIndex);
+    }
+
+    // Number of entries above the user; those below follow the user's entry
+    public int getUserIndex() {
+        return userIndex;
+    }
+}
@@ -0,0 +1,16 @@
+package com.phonepe.leaderboard.model;
+
+import com.phonepe.leaderboard.index.ScoreStore;
+
+// Contents of a board computed from data kept elsewhere, e.g. a rollup window derived from
+// per-user bests it shares with other windows. The board holds no scores of its own while it is
+// active: it rebuilds a read-only snapshot from build() when version() has moved, at most once
+// per refresh interval, and keeps the last build once frozen.
+public interface DerivedScores {
+
+    // Changes whenever build() would return different contents
+    long version();
+
+    // Current contents; keys come from the board's UserDictionary
+    ScoreStore build();
+}
@@ -1,20 +1,74 @@
 package com.phonepe.leaderboard.model;
 
+import com.phonepe.leaderboard.config.LeaderboardConfig;
+import com.phonepe.leaderboard.index.AchievementKeys;
+import com.phonepe.leaderboard.index.ArchivedScoreStore;
+import com.phonepe.leaderboard.index.FrozenScoreStore;
+import com.phonepe.leaderboard.index.HeapScoreStore;
+import com.phonepe.leaderboard.index.PartitionedScoreStore;
+import com.phonepe.leaderboard.index.ScoreHistogram;
+import com.phonepe.leaderboard.index.UserDictionary;
+import com.phonepe.leaderboard.metrics.LatencyHistogram;
+import com.phonepe.leaderboard.metrics.MetricNames;
+import com.phonepe.leaderboard.metrics.MetricsRegistry;
 import com.phonepe.leaderboard.util.TimeProvider;
+import com.phonepe.leaderboard.wire.BufferPool;
+import com.phonepe.leaderboard.wire.EncodedPage;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 import java.util.Set;
-import java.util.HashSet;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Leaderboard {
+    private static final int MAX_BATCH_ATTEMPTS = 4;
+    // Archive metadata keys; enough to re-create the board around its archive after a restart
+    static final String ARCHIVE_ID = "id";
+    static final String ARCHIVE_GAME_ID = "gameId";
+    static final String ARCHIVE_START_TIME = "startTime";
+    static final String ARCHIVE_END_TIME = "endTime";
+    static final String ARCHIVE_STORAGE = "storage";
+    static final String ARCHIVE_PARTITIONS = "partitions";
+
     private final String id;
     private final String gameId;
     private final long startTime;
     private final long endTime;
-    private final Map<String, Integer> userScores; // userId -> score
-    private final TreeMap<Integer, Set<String>> scoreToUser; // score -> Set of userIds (for efficient ranking)
+    // Latest published snapshot of each partition; writers replace their user's partition with
+    // a CAS, readers just load them. Swapped for a single slot once the board is archived.
+    private volatile AtomicReferenceArray<LeaderboardSnapshot> current;
+    private final int partitions;
     private final TimeProvider timeProvider;
+    private final UserDictionary userDictionary;
+    private final LeaderboardStorage storage;
+    private final TieBreak tieBreak;
+    private final LeaderboardChangeLog changeLog;
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private final double approximateRankError;
+    // Follows every published change; built on first use for a board opened from an archive
+    private volatile ScoreHistogram histogram;
+    private volatile ScoreListener[] listeners = new ScoreListener[0];
+    private volatile LeaderboardState state = LeaderboardState.ACTIVE;
+    // Shared with every board of the same registry
+    private final LongAdder appliedUpdates;
+    private final LongAdder casRetries;
+    private final LatencyHistogram casWait;
+    // Set for a board derived from data kept elsewhere; see DerivedScores
+    private final DerivedScores derived;
+    private final long derivedRefreshNanos;
+    private volatile DerivedView derivedView;
+    // Front-page windows of a frozen or archived board, encoded once; keyed by k << 32 | offset
+    private final Map<Long, ByteBuffer> encodedPages = new ConcurrentHashMap<>();
 
     private Leaderboard(Builder builder) {
         this.id = builder.id;
@@ -22,8 +76,31 @@ public class Leaderboard {
         this.startTime = builder.startTime;
         this.endTime = builder.endTime;
         this.timeProvider = builder.timeProvider;
-        this.userScores = new ConcurrentHashMap<>();
-        this.scoreToUser = new TreeMap<>((a, b) -> b.compareTo(a)); // Reverse order for highest scores first
+        this.userDictionary = builder.userDictionary != null ? builder.userDictionary : new UserDictionary();
+        this.storage = builder.storage;
+        this.tieBreak = builder.tieBreak;
+        this.changeLog = builder.changeLog;
+        this.partitions = builder.partitions;
+        this.approximateRankError = builder.approximateRankError;
+        MetricsRegistry metrics = builder.metrics != null ? builder.metrics : new MetricsRegistry();
+        this.appliedUpdates = metrics.counter(MetricNames.UPDATES_APPLIED);
+        this.casRetries = metrics.counter(MetricNames.CAS_RETRIES);
+        this.casWait = metrics.latency(MetricNames.CAS_WAIT_LATENCY);
+        this.derived = builder.derived;
+        this.derivedRefreshNanos = builder.derivedRefreshMillis * 1_000_000;
+        if (builder.archive != null) {
+            this.state = LeaderboardState.ARCHIVED;
+            this.current = single(LeaderboardSnapshot.empty(userDictionary, builder.archive));
+        } else if (derived != null) {
+            this.current = single(LeaderboardSnapshot.empty(userDictionary, FrozenScoreStore.of(HeapScoreStore.EMPTY)));
+        } else {
+            this.current = new AtomicReferenceArray<>(partitions);
+            AchievementKeys order = tieBreak == TieBreak.FIRST_ACHIEVED ? AchievementKeys.empty(userDictionary) : null;
+            for (int i = 0; i < partitions; i++) {
+                current.set(i, LeaderboardSnapshot.empty(userDictionary, storage.emptyStore(), order));
+            }
+            this.histogram = approximateRankError > 0 ? new ScoreHistogram(approximateRankError) : null;
+        }
     }
 
     public static class Builder {
@@ -32,6 +109,16 @@ public class Leaderboard {
         private long startTime;
         private long endTime;
         private TimeProvider timeProvider;
+        private UserDictionary userDictionary;
+        private LeaderboardStorage storage = LeaderboardStorage.HEAP;
+        private TieBreak tieBreak = TieBreak.FIRST_SEEN;
+        private LeaderboardChangeLog changeLog = LeaderboardChangeLog.NONE;
+        private ArchivedScoreStore archive;
+        private int partitions = 1;
+        private double approximateRankError;
+        private MetricsRegistry metrics;
+        private DerivedScores derived;
+        private long derivedRefreshMillis;
 
         public Builder id(String id) {
             this.id = id;
@@ -58,10 +145,81 @@ public class Leaderboard {
             return this;
         }
 
+        // Shared across boards so each user ID is interned once; a private dictionary is used if unset
+        public Builder userDictionary(UserDictionary userDictionary) {
+            this.userDictionary = userDictionary;
+            return this;
+        }
+
+        public Builder storage(LeaderboardStorage storage) {
+            this.storage = storage;
+            return this;
+        }
+
+        // Order of users with equal scores; boards derived from other data always use FIRST_SEEN
+        public Builder tieBreak(TieBreak tieBreak) {
+            this.tieBreak = tieBreak;
+            return this;
+        }
+
+        // Told about every score change once it is published
+        public Builder changeLog(LeaderboardChangeLog changeLog) {
+            this.changeLog = changeLog;
+            return this;
+        }
+
+        // Hash-partitions users into this many independently published parts, so writers for
+        // different partitions never contend. Reads combine the parts: ranks sum their counts and
+        // pages merge their entries, so queries cost roughly partitions times more.
+        public Builder partitions(int partitions) {
+            this.partitions = partitions;
+            return this;
+        }
+
+        // Keeps a score histogram whose buckets span this relative error, so getApproximateRank
+        // costs O(buckets) instead of a walk of the index; every update then also moves a
+        // histogram counter. 0, the default, answers approximate queries exactly.
+        public Builder approximateRankError(double approximateRankError) {
+            this.approximateRankError = approximateRankError;
+            return this;
+        }
+
+        // Starts the board ARCHIVED, serving an archive written earlier, possibly by another process
+        public Builder archive(ArchivedScoreStore archive) {
+            this.archive = archive;
+            return this;
+        }
+
+        // Where the board counts its updates; a private registry if not set
+        public Builder metrics(MetricsRegistry metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        // Read-only board whose contents are rebuilt from derived when it changes, at most once
+        // every refreshMillis
+        public Builder derived(DerivedScores derived, long refreshMillis) {
+            this.derived = derived;
+            this.derivedRefreshMillis = refreshMillis;
+            return this;
+        }
+
         public Leaderboard build() {
-            if (id == null || gameId == null || timeProvider == null) {
+            if (id == null || gameId == null || timeProvider == null || storage == null || tieBreak == null || changeLog == null) {
                 throw new IllegalStateException("Required fields not set");
             }
+            if (derived != null && (archive != null || derivedRefreshMillis < 0)) {
+                throw new IllegalStateException("A derived board needs a non-negative refresh interval and no archive");
+            }
+            if (derived != null && tieBreak != TieBreak.FIRST_SEEN) {
+                throw new IllegalStateException("A derived board breaks ties by first-seen order");
+            }
+            if (partitions < 1) {
+                throw new IllegalStateException("partitions must be positive");
+            }
+            if (!(approximateRankError >= 0 && approximateRankError < 1)) {
+                throw new IllegalStateException("approximateRankError must be in [0, 1)");
+            }
             return new Leaderboard(this);
         }
     }
@@ -87,42 +245,552 @@ public class Leaderboard {
         return currentTime >= startTime && currentTime <= endTime;
     }
 
+    public UserDictionary getUserDictionary() {
+        return userDictionary;
+    }
+
+    public LeaderboardStorage getStorage() {
+        return storage;
+    }
+
+    public TieBreak getTieBreak() {
+        return tieBreak;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public LeaderboardState getState() {
+        return state;
+    }
+
+    // Contents come from DerivedScores rather than updateScore; such boards tell no ScoreListener
+    public boolean isDerived() {
+        return derived != null;
+    }
+
     public void updateScore(String userId, int score) {
-        // logging
+        updateScore(userDictionary.intern(userId), score);
+    }
 
-        synchronized (this) {
-            Integer currentScore = userScores.get(userId);
-            if (currentScore == null || score > currentScore) {
-                if (currentScore != null) {
-                    // Remove user from old score's set
-                    Set<String> usersAtScore = scoreToUser.get(currentScore);
-                    if (usersAtScore != null) {
-                        usersAtScore.remove(userId);
-                        if (usersAtScore.isEmpty()) {
-                            scoreToUser.remove(currentScore);
-                        }
+    // userKey must come from this board's UserDictionary. Throws IllegalStateException once the board is frozen.
+    public void updateScore(int userKey, int score) {
+        checkNotDerived();
+        updateScoreIfImproved(userKey, score);
+    }
+
+    private boolean updateScoreIfImproved(int userKey, int score) {
+        AtomicReferenceArray<LeaderboardSnapshot> slots = current;
+        int partition = PartitionedScoreStore.partitionOf(userKey, slots.length());
+        // Optimistic retry loop: submissions that don't beat the user's best never write, and
+        // improving submissions from different users only ever cost each other a retry.
+        long contendedSince = 0;
+        boolean contended = false;
+        while (true) {
+            LeaderboardSnapshot snapshot = slots.get(partition);
+            // Checked after loading the snapshot: freeze flips the state before publishing its
+            // read-only copy, so an update can never land on top of that copy
+            if (state != LeaderboardState.ACTIVE) {
+                throw new IllegalStateException("Leaderboard " + id + " is " + state);
+            }
+            LeaderboardSnapshot next = snapshot.withScore(userKey, score);
+            if (next == snapshot) {
+                if (contended) {
+                    casWait.record(System.nanoTime() - contendedSince);
+                }
+                return false;
+            }
+            changeLog.checkWritable();
+            if (slots.compareAndSet(partition, snapshot, next)) {
+                if (contended) {
+                    casWait.record(System.nanoTime() - contendedSince);
+                }
+                appliedUpdates.increment();
+                scheduleCompactionIfNeeded(next);
+                published(snapshot, userKey, score);
+                changeLog.scoreChanged(this, userKey, score);
+                return true;
+            }
+            casRetries.increment();
+            if (!contended) {
+                contended = true;
+                contendedSince = System.nanoTime();
+            }
+        }
+    }
+
+    // Applies a batch of scores with a single CAS per partition, so the batch costs one
+    // publication per partition instead of one per score. Returns, per index, whether that score became the user's new best; a user
+    // listed more than once counts at their highest score (the first of equal ones). If the batch
+    // keeps losing the race to other writers it falls back to per-score updates so it cannot starve.
+    public boolean[] updateScores(int[] userKeys, int[] scores) {
+        if (userKeys.length != scores.length) {
+            throw new IllegalArgumentException("userKeys and scores must have the same length");
+        }
+        checkNotDerived();
+        int[] best = bestPerUser(userKeys, scores);
+        int[] keys = new int[best.length];
+        int[] bestScores = new int[best.length];
+        for (int i = 0; i < best.length; i++) {
+            keys[i] = userKeys[best[i]];
+            bestScores[i] = scores[best[i]];
+        }
+        boolean[] applied = applyBatch(keys, bestScores);
+        boolean[] improved = new boolean[userKeys.length];
+        for (int i = 0; i < best.length; i++) {
+            improved[best[i]] = applied[i];
+        }
+        return improved;
+    }
+
+    private boolean[] applyBatch(int[] userKeys, int[] scores) {
+        AtomicReferenceArray<LeaderboardSnapshot> slots = current;
+        if (slots.length() == 1) {
+            return applyBatch(slots, 0, userKeys, scores);
+        }
+        // Split by partition, keeping each user's position so results land back in place
+        int[] counts = new int[slots.length()];
+        int[] partitionOf = new int[userKeys.length];
+        for (int i = 0; i < userKeys.length; i++) {
+            partitionOf[i] = PartitionedScoreStore.partitionOf(userKeys[i], slots.length());
+            counts[partitionOf[i]]++;
+        }
+        boolean[] improved = new boolean[userKeys.length];
+        for (int partition = 0; partition < slots.length(); partition++) {
+            if (counts[partition] == 0) {
+                continue;
+            }
+            int[] positions = new int[counts[partition]];
+            int[] keys = new int[counts[partition]];
+            int[] partScores = new int[counts[partition]];
+            int n = 0;
+            for (int i = 0; i < userKeys.length; i++) {
+                if (partitionOf[i] == partition) {
+                    positions[n] = i;
+                    keys[n] = userKeys[i];
+                    partScores[n++] = scores[i];
+                }
+            }
+            boolean[] applied = applyBatch(slots, partition, keys, partScores);
+            for (int j = 0; j < n; j++) {
+                improved[positions[j]] = applied[j];
+            }
+        }
+        return improved;
+    }
+
+    private boolean[] applyBatch(AtomicReferenceArray<LeaderboardSnapshot> slots, int partition, int[] userKeys, int[] scores) {
+        boolean[] improved = new boolean[userKeys.length];
+        long contendedSince = 0;
+        for (int attempt = 0; attempt < MAX_BATCH_ATTEMPTS; attempt++) {
+            LeaderboardSnapshot snapshot = slots.get(partition);
+            if (state != LeaderboardState.ACTIVE) {
+                throw new IllegalStateException("Leaderboard " + id + " is " + state);
+            }
+            LeaderboardSnapshot next = snapshot.withScores(userKeys, scores, improved);
+            if (next == snapshot) {
+                if (attempt > 0) {
+                    casWait.record(System.nanoTime() - contendedSince);
+                }
+                return improved;
+            }
+            changeLog.checkWritable();
+            if (slots.compareAndSet(partition, snapshot, next)) {
+                if (attempt > 0) {
+                    casWait.record(System.nanoTime() - contendedSince);
+                }
+                scheduleCompactionIfNeeded(next);
+                for (int i = 0; i < userKeys.length; i++) {
+                    if (improved[i]) {
+                        appliedUpdates.increment();
+                        published(snapshot, userKeys[i], scores[i]);
                     }
                 }
+                changeLog.scoresChanged(this, userKeys, scores, improved);
+                return improved;
+            }
+            casRetries.increment();
+            if (attempt == 0) {
+                contendedSince = System.nanoTime();
+            }
+        }
+        casWait.record(System.nanoTime() - contendedSince);
+        for (int i = 0; i < userKeys.length; i++) {
+            improved[i] = updateScoreIfImproved(userKeys[i], scores[i]);
+        }
+        return improved;
+    }
+
+    private void checkNotDerived() {
+        if (derived != null) {
+            throw new IllegalStateException("Leaderboard " + id + " is derived and takes no direct updates");
+        }
+    }
+
+    // Moves the user's histogram bucket and tells the listeners; previous holds the score the
+    // change replaced
+    private void published(LeaderboardSnapshot previous, int userKey, int score) {
+        ScoreHistogram tracked = histogram;
+        ScoreListener[] notified = listeners;
+        if (tracked == null && notified.length == 0) {
+            return;
+        }
+        long previousScore = previous.findScore(userKey);
+        if (tracked != null) {
+            tracked.move(previousScore, score);
+        }
+        for (ScoreListener listener : notified) {
+            listener.scoreChanged(this, userKey, previousScore, score);
+        }
+    }
+
+    public synchronized void addScoreListener(ScoreListener listener) {
+        ScoreListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[listeners.length] = listener;
+        listeners = updated;
+    }
+
+    public synchronized void removeScoreListener(ScoreListener listener) {
+        listeners = Arrays.stream(listeners).filter(registered -> registered != listener).toArray(ScoreListener[]::new);
+    }
 
-                userScores.put(userId, score);
-                scoreToUser.computeIfAbsent(score, k -> new HashSet<>()).add(userId);
+    // Index of each distinct user's highest score, in submission order, which is the order an
+    // achievement tie-break ranks them in (within each partition, as partitions publish in turn)
+    private static int[] bestPerUser(int[] userKeys, int[] scores) {
+        long[] byUser = new long[userKeys.length];
+        for (int i = 0; i < userKeys.length; i++) {
+            byUser[i] = ((long) userKeys[i] << 32) | i;
+        }
+        Arrays.sort(byUser);
+        int[] best = new int[userKeys.length];
+        int count = 0;
+        for (int i = 0; i < byUser.length; i++) {
+            int index = (int) byUser[i];
+            if (i > 0 && (int) (byUser[i] >> 32) == (int) (byUser[i - 1] >> 32)) {
+                if (scores[index] > scores[best[count - 1]]) {
+                    best[count - 1] = index;
+                }
+            } else {
+                best[count++] = index;
+            }
+        }
+        best = Arrays.copyOf(best, count);
+        Arrays.sort(best);
+        return best;
+    }
+
+    // Folds buffered updates into the store's compact layout without changing what readers see.
+    // The expensive rebuild runs outside the CAS loop; updates published meanwhile are replayed
+    // onto the result. A no-op for heap boards.
+    public void compact() {
+        AtomicReferenceArray<LeaderboardSnapshot> slots = current;
+        for (int partition = 0; partition < slots.length(); partition++) {
+            compact(slots, partition);
+        }
+    }
+
+    private static void compact(AtomicReferenceArray<LeaderboardSnapshot> slots, int partition) {
+        LeaderboardSnapshot source = slots.get(partition);
+        LeaderboardSnapshot compacted = source.compacted();
+        while (true) {
+            LeaderboardSnapshot latest = slots.get(partition);
+            LeaderboardSnapshot next = latest == source ? compacted : latest.rebase(source, compacted);
+            // null: a concurrent compaction got there first
+            if (next == null || slots.compareAndSet(partition, latest, next)) {
+                return;
+            }
+        }
+    }
+
+    // Replaces the contents with a read-only, array-backed copy; later updates are rejected
+    public synchronized void freeze() {
+        if (state != LeaderboardState.ACTIVE) {
+            return;
+        }
+        if (derived != null) {
+            // Last build from the source, published before the state says to read it
+            current = single(LeaderboardSnapshot.empty(userDictionary, derived.build()));
+            derivedView = null;
+        }
+        state = LeaderboardState.FROZEN;
+        AtomicReferenceArray<LeaderboardSnapshot> slots = current;
+        for (int partition = 0; partition < slots.length(); partition++) {
+            while (true) {
+                LeaderboardSnapshot snapshot = slots.get(partition);
+                if (slots.compareAndSet(partition, snapshot, snapshot.frozen())) {
+                    break;
+                }
+            }
+        }
+    }
+
+    // Freezes the board if needed, writes it to file and drops the in-memory copy. Reads are
+    // served from the memory-mapped file; the materialized front page stays in memory. The file
+    // carries the board's metadata and user IDs, so LeaderboardFactory can reopen it after a restart.
+    // Partitions are merged into the one file.
+    public synchronized void archive(Path file) throws IOException {
+        freeze();
+        if (state != LeaderboardState.FROZEN) {
+            return;
+        }
+        LeaderboardSnapshot frozen = snapshot();
+        current = single(frozen.withStore(ArchivedScoreStore.write(frozen.getStore(), frozen.getKeys(), archiveMetadata(), file)));
+        state = LeaderboardState.ARCHIVED;
+    }
+
+    private Map<String, String> archiveMetadata() {
+        Map<String, String> metadata = new LinkedHashMap<>();
+        metadata.put(ARCHIVE_ID, id);
+        metadata.put(ARCHIVE_GAME_ID, gameId);
+        metadata.put(ARCHIVE_START_TIME, Long.toString(startTime));
+        metadata.put(ARCHIVE_END_TIME, Long.toString(endTime));
+        metadata.put(ARCHIVE_STORAGE, storage.name());
+        metadata.put(ARCHIVE_PARTITIONS, Integer.toString(partitions));
+        return metadata;
+    }
+
+    // Releases the contents for good; the board reads as empty afterwards
+    public synchronized void evict() {
+        state = LeaderboardState.EVICTED;
+        histogram = null;
+        derivedView = null;
+        encodedPages.clear();
+        current = single(LeaderboardSnapshot.empty(userDictionary, FrozenScoreStore.of(HeapScoreStore.EMPTY)));
+        for (ScoreListener listener : listeners) {
+            listener.leaderboardEvicted(this);
+        }
+        listeners = new ScoreListener[0];
+    }
+
+    private void scheduleCompactionIfNeeded(LeaderboardSnapshot published) {
+        if (published.needsCompaction() && compactionScheduled.compareAndSet(false, true)) {
+            ForkJoinPool.commonPool().execute(this::runScheduledCompaction);
+        }
+    }
+
+    private void runScheduledCompaction() {
+        try {
+            compact();
+        } finally {
+            compactionScheduled.set(false);
+        }
+    }
+
+    // Consistent, lock-free view for callers that need several queries to agree with each other.
+    // For a partitioned board this combines the latest snapshot of every partition.
+    public LeaderboardSnapshot snapshot() {
+        if (derived != null && state == LeaderboardState.ACTIVE) {
+            return derivedSnapshot();
+        }
+        AtomicReferenceArray<LeaderboardSnapshot> slots = current;
+        if (slots.length() == 1) {
+            return slots.get(0);
+        }
+        LeaderboardSnapshot[] parts = new LeaderboardSnapshot[slots.length()];
+        for (int partition = 0; partition < parts.length; partition++) {
+            parts[partition] = slots.get(partition);
+        }
+        return LeaderboardSnapshot.combine(userDictionary, parts);
+    }
+
+    // Readers share the last build until the source changes and the refresh interval has passed;
+    // one of them rebuilds while the rest wait for it
+    private LeaderboardSnapshot derivedSnapshot() {
+        DerivedView view = derivedView;
+        if (view != null && view.isFresh(derived.version(), derivedRefreshNanos)) {
+            return view.snapshot;
+        }
+        synchronized (this) {
+            if (state != LeaderboardState.ACTIVE) {
+                return current.get(0);
+            }
+            // Version read first, so changes made during the build trigger the next one
+            long version = derived.version();
+            view = derivedView;
+            if (view == null || !view.isFresh(version, derivedRefreshNanos)) {
+                view = new DerivedView(LeaderboardSnapshot.empty(userDictionary, derived.build()), version, System.nanoTime());
+                derivedView = view;
             }
+            return view.snapshot;
+        }
+    }
+
+    private static final class DerivedView {
+        final LeaderboardSnapshot snapshot;
+        final long version;
+        final long builtAtNanos;
+
+        DerivedView(LeaderboardSnapshot snapshot, long version, long builtAtNanos) {
+            this.snapshot = snapshot;
+            this.version = version;
+            this.builtAtNanos = builtAtNanos;
         }
 
-        // score 100 - user1
-        // thread1 - score 150 - user1
-        // thread2- score 100 - user1
+        boolean isFresh(long sourceVersion, long refreshNanos) {
+            return version == sourceVersion || System.nanoTime() - builtAtNanos < refreshNanos;
+        }
+    }
 
+    private static AtomicReferenceArray<LeaderboardSnapshot> single(LeaderboardSnapshot snapshot) {
+        AtomicReferenceArray<LeaderboardSnapshot> slots = new AtomicReferenceArray<>(1);
+        slots.set(0, snapshot);
+        return slots;
+    }
+
+    // 1-based rank of the user, or -1 if the user has no score on this leaderboard
+    public int getRank(String userId) {
+        return snapshot().getRank(userId);
+    }
+
+    // User holding the given 1-based rank, or null if the rank is out of range
+    public String getUserAtRank(int rank) {
+        return snapshot().getUserAtRank(rank);
+    }
+
+    public Integer getScore(String userId) {
+        return snapshot().getScore(userId);
+    }
+
+    public RankedEntry getEntry(String userId) {
+        return snapshot().getEntry(userId);
+    }
+
+    public LeaderboardPage getPageAfterUser(String userId, int count) {
+        return snapshot().pageAfterUser(userId, count);
+    }
+
+    public LeaderboardPage getPageBeforeUser(String userId, int count) {
+        return snapshot().pageBeforeUser(userId, count);
+    }
+
+    public AroundUserPage getPageAroundUser(String userId, int above, int below) {
+        return snapshot().pageAroundUser(userId, above, below);
+    }
+
+    public LeaderboardPage getPageAfter(RankCursor cursor, int count) {
+        return snapshot().pageAfter(cursor, count);
+    }
+
+    public LeaderboardPage getPageBefore(RankCursor cursor, int count) {
+        return snapshot().pageBefore(cursor, count);
+    }
+
+    public List<RankedEntry> getTopK(int k, int offset) {
+        return snapshot().topK(k, offset);
+    }
+
+    // getTopK in PageCodec's layout; close the page once it has been written out. A board that
+    // can no longer change encodes each front-page window once and shares it; every other page
+    // is written into a buffer borrowed from the pool.
+    public EncodedPage encodeTopK(int k, int offset, BufferPool pool) {
+        LeaderboardState seen = state;
+        LeaderboardSnapshot snapshot = snapshot();
+        if ((seen == LeaderboardState.FROZEN || seen == LeaderboardState.ARCHIVED) && k >= 0 && offset >= 0
+                && (long) offset + k <= LeaderboardConfig.TOP_K_CACHE_SIZE) {
+            Long window = (long) k << 32 | offset;
+            ByteBuffer page = encodedPages.get(window);
+            if (page == null && encodedPages.size() < LeaderboardConfig.ENCODED_PAGE_MEMO_SIZE) {
+                try (EncodedPage encoded = encode(snapshot, k, offset, pool)) {
+                    ByteBuffer copy = ByteBuffer.allocateDirect(encoded.size()).put(encoded.getBuffer());
+                    ByteBuffer raced = encodedPages.putIfAbsent(window, copy);
+                    page = raced != null ? raced : copy;
+                }
+            }
+            if (page != null) {
+                return EncodedPage.shared(page);
+            }
+        }
+        return encode(snapshot, k, offset, pool);
+    }
+
+    private static EncodedPage encode(LeaderboardSnapshot snapshot, int k, int offset, BufferPool pool) {
+        int estimate = 16 + Math.max(0, Math.min(k, snapshot.size() - offset)) * 24;
+        while (true) {
+            ByteBuffer buffer = pool.acquire(estimate);
+            try {
+                snapshot.encodeTopK(k, offset, buffer);
+                return EncodedPage.pooled(buffer, pool);
+            } catch (BufferOverflowException e) {
+                pool.release(buffer);
+                estimate = buffer.capacity() * 2;
+            } catch (RuntimeException e) {
+                pool.release(buffer);
+                throw e;
+            }
+        }
+    }
+
+    // Estimated rank of the user from the score histogram, with the range the exact rank falls
+    // in: only users whose scores are within approximateRankError of the user's are uncertain.
+    // The histogram is updated after each change is published, so while writes are in flight it
+    // can lag the snapshot by those changes and the bounds can be off by as many ranks. They
+    // hold once the board is quiescent.
+    // null if the user has no score on this leaderboard.
+    public ApproximateRank getApproximateRank(String userId) {
+        LeaderboardSnapshot snapshot = snapshot();
+        Integer score = snapshot.getScore(userId);
+        if (score == null) {
+            return null;
+        }
+        ScoreHistogram estimator = histogram(snapshot);
+        if (estimator == null) {
+            int rank = snapshot.getRank(userId);
+            return new ApproximateRank(rank, rank, rank, snapshot.size());
+        }
+        return estimate(estimator, score, 1, snapshot.size());
+    }
+
+    // Estimated rank a new entry with this score would get
+    public ApproximateRank estimateRank(int score) {
+        LeaderboardSnapshot snapshot = snapshot();
+        ScoreHistogram estimator = histogram(snapshot);
+        if (estimator == null) {
+            int above = snapshot.countAbove(score);
+            int tied = score == Integer.MIN_VALUE ? snapshot.size() : snapshot.countAbove(score - 1);
+            return new ApproximateRank(above + 1, above + 1, tied + 1, snapshot.size() + 1);
+        }
+        return estimate(estimator, score, 0, snapshot.size() + 1);
+    }
+
+    // self is 1 when the score is already counted in its bucket
+    private static ApproximateRank estimate(ScoreHistogram histogram, int score, int self, int total) {
+        long above = histogram.countAboveBucket(score);
+        long others = Math.max(0, histogram.countInBucket(score) - self);
+        long estimate = above + Math.round(histogram.fractionAboveInBucket(score) * others);
+        int best = (int) Math.min(above + 1, total);
+        int worst = (int) Math.min(above + others + 1, total);
+        return new ApproximateRank((int) Math.min(estimate + 1, total), best, Math.max(best, worst), total);
+    }
+
+    private ScoreHistogram histogram(LeaderboardSnapshot snapshot) {
+        ScoreHistogram tracked = histogram;
+        if (tracked == null && approximateRankError > 0 && state == LeaderboardState.ARCHIVED) {
+            synchronized (this) {
+                if (histogram == null && state == LeaderboardState.ARCHIVED) {
+                    histogram = ScoreHistogram.of(snapshot.getStore(), approximateRankError);
+                }
+                tracked = histogram;
+            }
+        }
+        return tracked;
+    }
+
+    public int countAbove(int score) {
+        return snapshot().countAbove(score);
+    }
 
-        // notify
+    public int size() {
+        return snapshot().size();
     }
-    
 
+    // Point-in-time copy; O(n), prefer the rank and page queries above
     public Map<String, Integer> getUserScores() {
-        return userScores;
+        return snapshot().toUserScores();
     }
 
+    // Point-in-time copy grouped by score, highest first; O(n)
     public TreeMap<Integer, Set<String>> getScoreToUser() {
-        return scoreToUser;
+        return snapshot().toScoreToUser();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,33 @@
+package com.phonepe.leaderboard.model;
+
+// Sees every board creation and every score change a Leaderboard publishes, after it is
+// visible to readers. A durable implementation returns only once the change is on disk, so a
+// write call that returns normally survives a restart.
+public interface LeaderboardChangeLog {
+    LeaderboardChangeLog NONE = new LeaderboardChangeLog() {
+        @Override
+        public void leaderboardCreated(Leaderboard leaderboard) {
+        }
+
+        @Override
+        public void scoreChanged(Leaderboard leaderboard, int userKey, int score) {
+        }
+
+        @Override
+        public void scoresChanged(Leaderboard leaderboard, int[] userKeys, int[] scores, boolean[] changed) {
+        }
+    };
+
+    // Throws if changes can no longer be logged. Boards call it before publishing a change, so a
+    // failed log rejects writes instead of serving scores it will lose on restart; only changes
+    // already past this check when the log fails are published and then reported as failed.
+    default void checkWritable() {
+    }
+
+    void leaderboardCreated(Leaderboard leaderboard);
+
+    void scoreChanged(Leaderboard leaderboard, int userKey, int score);
+
+    // Only the pairs whose changed[i] is set were applied
+    void scoresChanged(Leaderboard leaderboard, int[] userKeys, int[] scores, boolean[] changed);
+}
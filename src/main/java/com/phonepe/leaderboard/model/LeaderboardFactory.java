@@ -1,22 +1,122 @@
 package com.phonepe.leaderboard.model;
 
+import com.phonepe.leaderboard.config.LeaderboardConfig;
+import com.phonepe.leaderboard.index.ArchivedScoreStore;
+import com.phonepe.leaderboard.index.UserDictionary;
+import com.phonepe.leaderboard.metrics.MetricsRegistry;
 import com.phonepe.leaderboard.util.TimeProvider;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
 import java.util.UUID;
 
 public class LeaderboardFactory {
     private final TimeProvider timeProvider;
+    private final UserDictionary userDictionary;
+    private final LeaderboardChangeLog changeLog;
+    private final MetricsRegistry metrics;
+    private final TieBreak tieBreak;
 
     public LeaderboardFactory(TimeProvider timeProvider) {
+        this(timeProvider, new UserDictionary());
+    }
+
+    public LeaderboardFactory(TimeProvider timeProvider, UserDictionary userDictionary) {
+        this(timeProvider, userDictionary, LeaderboardChangeLog.NONE);
+    }
+
+    public LeaderboardFactory(TimeProvider timeProvider, UserDictionary userDictionary, LeaderboardChangeLog changeLog) {
+        this(timeProvider, userDictionary, changeLog, new MetricsRegistry());
+    }
+
+    // Every board made here counts its updates into metrics
+    public LeaderboardFactory(TimeProvider timeProvider, UserDictionary userDictionary, LeaderboardChangeLog changeLog,
+            MetricsRegistry metrics) {
+        this(timeProvider, userDictionary, changeLog, metrics,
+                LeaderboardConfig.FIRST_ACHIEVED_TIES ? TieBreak.FIRST_ACHIEVED : TieBreak.FIRST_SEEN);
+    }
+
+    // tieBreak orders tied users on every board made here, rollup boards aside
+    public LeaderboardFactory(TimeProvider timeProvider, UserDictionary userDictionary, LeaderboardChangeLog changeLog,
+            MetricsRegistry metrics, TieBreak tieBreak) {
         this.timeProvider = timeProvider;
+        this.userDictionary = userDictionary;
+        this.changeLog = changeLog;
+        this.metrics = metrics;
+        this.tieBreak = tieBreak;
     }
 
     public Leaderboard createLeaderboard(String gameId, long startTime, long endTime) {
+        return createLeaderboard(gameId, startTime, endTime, LeaderboardStorage.HEAP);
+    }
+
+    public Leaderboard createLeaderboard(String gameId, long startTime, long endTime, LeaderboardStorage storage) {
+        return createLeaderboard(gameId, startTime, endTime, storage, LeaderboardConfig.DEFAULT_PARTITIONS);
+    }
+
+    public Leaderboard createLeaderboard(String gameId, long startTime, long endTime, LeaderboardStorage storage, int partitions) {
+        return createLeaderboard(UUID.randomUUID().toString(), gameId, startTime, endTime, storage, partitions);
+    }
+
+    // Board with a known id, e.g. one being restored from disk
+    public Leaderboard createLeaderboard(String id, String gameId, long startTime, long endTime, LeaderboardStorage storage,
+            int partitions) {
         return new Leaderboard.Builder()
-                .id(UUID.randomUUID().toString())
+                .id(id)
                 .gameId(gameId)
                 .startTime(startTime)
                 .endTime(endTime)
                 .timeProvider(timeProvider)
+                .userDictionary(userDictionary)
+                .storage(storage)
+                .tieBreak(tieBreak)
+                .partitions(partitions)
+                .approximateRankError(LeaderboardConfig.APPROXIMATE_RANK_ERROR)
+                .changeLog(changeLog)
+                .metrics(metrics)
                 .build();
     }
-} 
\ No newline at end of file
+
+    // Board of one rollup window: heap-backed, unpartitioned and not written to the change log.
+    // With derived set it holds no scores of its own and is rebuilt from derived when read.
+    public Leaderboard createRollupLeaderboard(String id, String gameId, long startTime, long endTime, DerivedScores derived) {
+        Leaderboard.Builder builder = new Leaderboard.Builder()
+                .id(id)
+                .gameId(gameId)
+                .startTime(startTime)
+                .endTime(endTime)
+                .timeProvider(timeProvider)
+                .userDictionary(userDictionary)
+                .approximateRankError(LeaderboardConfig.APPROXIMATE_RANK_ERROR)
+                .metrics(metrics);
+        if (derived != null) {
+            builder.derived(derived, LeaderboardConfig.ROLLUP_REFRESH_MILLIS);
+        }
+        return builder.build();
+    }
+
+    // Archived board served from a file written by Leaderboard.archive, e.g. by an earlier process.
+    // Only the file is mapped; no entry is read until a query needs it.
+    public Leaderboard openArchivedLeaderboard(Path file) throws IOException {
+        ArchivedScoreStore archive = ArchivedScoreStore.open(file);
+        Map<String, String> metadata = archive.getMetadata();
+        try {
+            return new Leaderboard.Builder()
+                    .id(metadata.get(Leaderboard.ARCHIVE_ID))
+                    .gameId(metadata.get(Leaderboard.ARCHIVE_GAME_ID))
+                    .startTime(Long.parseLong(metadata.get(Leaderboard.ARCHIVE_START_TIME)))
+                    .endTime(Long.parseLong(metadata.get(Leaderboard.ARCHIVE_END_TIME)))
+                    .timeProvider(timeProvider)
+                    .userDictionary(userDictionary)
+                    .storage(LeaderboardStorage.valueOf(metadata.get(Leaderboard.ARCHIVE_STORAGE)))
+                    .partitions(Integer.parseInt(metadata.get(Leaderboard.ARCHIVE_PARTITIONS)))
+                    .approximateRankError(LeaderboardConfig.APPROXIMATE_RANK_ERROR)
+                    .changeLog(changeLog)
+                .metrics(metrics)
+                    .archive(archive)
+                    .build();
+        } catch (IllegalArgumentException | IllegalStateException | NullPointerException e) {
+            throw new IOException("Incomplete leaderboard archive metadata in " + file, e);
+        }
+    }
+}
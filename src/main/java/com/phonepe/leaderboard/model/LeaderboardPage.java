@@ -0,0 +1,30 @@
+package com.phonepe.leaderboard.model;
+
+import java.util.Collections;
+import java.util.List;
+
+// A window of ranked entries in rank order plus cursors for the neighbouring windows.
+// A cursor is null when there is nothing further in that direction.
+public class LeaderboardPage {
+    private final List<RankedEntry> entries;
+    private final String prevCursor;
+    private final String nextCursor;
+
+    public LeaderboardPage(List<RankedEntry> entries, String prevCursor, String nextCursor) {
+        this.entries = Collections.unmodifiableList(entries);
+        this.prevCursor = prevCursor;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<RankedEntry> getEntries() {
+        return entries;
+    }
+
+    public String getPrevCursor() {
+        return prevCursor;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,551 @@
+package com.phonepe.leaderboard.model;
+
+import com.phonepe.leaderboard.config.LeaderboardConfig;
+import com.phonepe.leaderboard.index.AchievementKeys;
+import com.phonepe.leaderboard.index.PartitionedScoreStore;
+import com.phonepe.leaderboard.index.RankIndex;
+import com.phonepe.leaderboard.index.ScoreStore;
+import com.phonepe.leaderboard.index.UserDictionary;
+import com.phonepe.leaderboard.index.UserKeys;
+import com.phonepe.leaderboard.index.UserScoreMap;
+import com.phonepe.leaderboard.wire.PageCodec;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Immutable, versioned view of a leaderboard. Scores and ranks come from the same
+// persistent structures, so any number of queries against one snapshot agree with each
+// other no matter how many updates are published in the meantime. Holding a snapshot
+// never blocks writers; it only keeps the nodes it references reachable.
+//
+// Users are stored by their interned id; the dictionary translates at the API boundary.
+// Where the entries physically live is up to the ScoreStore (see LeaderboardStorage), and a
+// store that carries its own user names translates for itself (see ScoreStore.userKeys).
+// Ties are in store key order. On a board that breaks ties by achievement the store keys are
+// AchievementKeys rather than interned ids; the int-keyed methods still take interned ids.
+//
+// A partitioned board publishes one snapshot per partition; its views combine the latest of
+// each. Every query against a combined view still agrees with the others, but a batch that
+// spans partitions can be half visible in a view taken while it is being published.
+public final class LeaderboardSnapshot {
+    private final UserDictionary dictionary;
+    private final long version;
+    private final ScoreStore store;
+    private final UserKeys keys;
+    private final AchievementKeys order; // store keys when ties go by achievement, else null
+    private final LeaderboardSnapshot[] parts; // partition snapshots this view combines, or null
+    // Materialized front page (up to TOP_K_CACHE_SIZE entries); built on first read and then
+    // carried forward by withScore so hot snapshots never rebuild it from the index
+    private volatile List<RankedEntry> topEntries;
+
+    private LeaderboardSnapshot(UserDictionary dictionary, long version, ScoreStore store, AchievementKeys order) {
+        this(dictionary, version, store, order, null);
+    }
+
+    private LeaderboardSnapshot(UserDictionary dictionary, long version, ScoreStore store, AchievementKeys order,
+            LeaderboardSnapshot[] parts) {
+        this.dictionary = dictionary;
+        this.version = version;
+        this.store = store;
+        this.keys = store.userKeys(order != null ? order : dictionary);
+        // A store with its own key space (an archive) has already fixed the order
+        this.order = keys == order ? order : null;
+        this.parts = parts;
+    }
+
+    static LeaderboardSnapshot empty(UserDictionary dictionary, ScoreStore store) {
+        return empty(dictionary, store, null);
+    }
+
+    // order is null for ties in interned-id order
+    static LeaderboardSnapshot empty(UserDictionary dictionary, ScoreStore store, AchievementKeys order) {
+        return new LeaderboardSnapshot(dictionary, 0, store, order);
+    }
+
+    // Read-only view over one snapshot per partition; its version is the sum of theirs, so it
+    // still moves forward with every published update
+    static LeaderboardSnapshot combine(UserDictionary dictionary, LeaderboardSnapshot[] parts) {
+        ScoreStore[] stores = new ScoreStore[parts.length];
+        AchievementKeys[] orders = new AchievementKeys[parts.length];
+        long version = 0;
+        for (int i = 0; i < parts.length; i++) {
+            stores[i] = parts[i].store;
+            orders[i] = parts[i].order;
+            version += parts[i].version;
+        }
+        AchievementKeys order = orders[0] != null ? AchievementKeys.combine(orders) : null;
+        return new LeaderboardSnapshot(dictionary, version, PartitionedScoreStore.of(stores), order, parts);
+    }
+
+    // Successor snapshot with the score applied, or this snapshot if the score is not an improvement
+    LeaderboardSnapshot withScore(int userKey, int score) {
+        int key = storeKey(userKey);
+        long currentScore = scoreOf(key);
+        if (currentScore != UserScoreMap.NO_SCORE && score <= currentScore) {
+            return this;
+        }
+        AchievementKeys nextOrder = order != null ? order.next(userKey) : null;
+        int nextKey = nextOrder != null ? nextOrder.keyOf(userKey) : userKey;
+        LeaderboardSnapshot next = new LeaderboardSnapshot(dictionary, version + 1,
+                moved(store, key, currentScore, nextKey, score), nextOrder);
+        List<RankedEntry> top = topEntries;
+        if (top != null) {
+            next.topEntries = updateTop(top, key, currentScore, nextKey, score);
+        }
+        return next;
+    }
+
+    // store with the entry under key, if any, replaced by one under nextKey
+    private static ScoreStore moved(ScoreStore store, int key, long currentScore, int nextKey, int score) {
+        if (key == nextKey) {
+            return store.withScore(key, currentScore, score);
+        }
+        ScoreStore retired = currentScore == UserScoreMap.NO_SCORE ? store : store.without(key, currentScore);
+        return retired.withScore(nextKey, UserScoreMap.NO_SCORE, score);
+    }
+
+    boolean needsCompaction() {
+        return store.needsCompaction();
+    }
+
+    // Same contents and version in the store's compact layout
+    LeaderboardSnapshot compacted() {
+        return withStore(store.compact());
+    }
+
+    // Same contents and version in a read-only layout
+    LeaderboardSnapshot frozen() {
+        return withStore(store.freeze());
+    }
+
+    ScoreStore getStore() {
+        return store;
+    }
+
+    // Translates store keys to user IDs
+    UserKeys getKeys() {
+        return keys;
+    }
+
+    // Same version over an equivalent store; the materialized front page carries over
+    LeaderboardSnapshot withStore(ScoreStore equivalent) {
+        LeaderboardSnapshot next = new LeaderboardSnapshot(dictionary, version, equivalent, order);
+        next.topEntries = topEntries;
+        return next;
+    }
+
+    // This snapshot's contents on top of compacted, which was built from source; null if this
+    // snapshot does not descend from source
+    LeaderboardSnapshot rebase(LeaderboardSnapshot source, LeaderboardSnapshot compacted) {
+        ScoreStore rebased = store.rebase(source.store, compacted.store);
+        if (rebased == null) {
+            return null;
+        }
+        return withStore(rebased);
+    }
+
+    // Successor snapshot with every improving (userKey, score) pair applied, or this snapshot if
+    // none of them improves. userKeys must be distinct; improved[i] is set for each pair applied.
+    // Ties that go by achievement rank the pairs of one batch in the order given.
+    LeaderboardSnapshot withScores(int[] userKeys, int[] scores, boolean[] improved) {
+        int count = 0;
+        int[] users = new int[userKeys.length];
+        int[] keys = new int[userKeys.length];
+        long[] currentScores = new long[userKeys.length];
+        int[] newScores = new int[userKeys.length];
+        for (int i = 0; i < userKeys.length; i++) {
+            int key = storeKey(userKeys[i]);
+            long currentScore = scoreOf(key);
+            improved[i] = currentScore == UserScoreMap.NO_SCORE || scores[i] > currentScore;
+            if (improved[i]) {
+                users[count] = userKeys[i];
+                keys[count] = key;
+                currentScores[count] = currentScore;
+                newScores[count++] = scores[i];
+            }
+        }
+        if (count == 0) {
+            return this;
+        }
+        ScoreStore nextStore;
+        AchievementKeys nextOrder = order;
+        int[] nextKeys = keys;
+        if (order == null) {
+            nextStore = store.withScores(keys, currentScores, newScores, count);
+        } else {
+            // Every entry changes key, so there is no bulk merge to share
+            nextStore = store;
+            nextKeys = new int[count];
+            for (int i = 0; i < count; i++) {
+                nextOrder = nextOrder.next(users[i]);
+                nextKeys[i] = nextOrder.keyOf(users[i]);
+                nextStore = moved(nextStore, keys[i], currentScores[i], nextKeys[i], newScores[i]);
+            }
+        }
+        List<RankedEntry> top = topEntries;
+        if (top != null) {
+            for (int i = 0; i < count; i++) {
+                top = updateTop(top, keys[i], currentScores[i], nextKeys[i], newScores[i]);
+            }
+        }
+        LeaderboardSnapshot next = new LeaderboardSnapshot(dictionary, version + 1, nextStore, nextOrder);
+        next.topEntries = top;
+        return next;
+    }
+
+    // The top list only changes if the user was already in it or now ranks above its last entry.
+    // Scores never decrease, so nobody outside the list can re-enter it any other way.
+    // oldKey and newKey are the user's store keys before and after the change.
+    private List<RankedEntry> updateTop(List<RankedEntry> top, int oldKey, long oldScore, int newKey, int newScore) {
+        int capacity = LeaderboardConfig.TOP_K_CACHE_SIZE;
+        int oldPosition = oldScore == UserScoreMap.NO_SCORE ? -1 : positionOf(top, (int) oldScore, oldKey);
+        int insertAt = -positionOf(top, newScore, newKey) - 1;
+        if (oldPosition < 0 && top.size() >= capacity && insertAt >= top.size()) {
+            return top;
+        }
+        List<RankedEntry> updated = new ArrayList<>(Math.min(top.size() + 1, capacity));
+        for (int i = 0; i < top.size() && updated.size() < capacity; i++) {
+            if (i == insertAt) {
+                updated.add(entry(newKey, newScore, updated.size() + 1));
+            }
+            if (i == oldPosition) {
+                continue;
+            }
+            RankedEntry entry = top.get(i);
+            int rank = updated.size() + 1;
+            updated.add(entry.getRank() == rank ? entry : entry(entry.getUserKey(), entry.getScore(), rank));
+        }
+        if (insertAt >= top.size() && updated.size() < capacity) {
+            updated.add(entry(newKey, newScore, updated.size() + 1));
+        }
+        return Collections.unmodifiableList(updated);
+    }
+
+    // Binary search in rank order; same contract as Collections.binarySearch
+    private static int positionOf(List<RankedEntry> top, int score, int userKey) {
+        int low = 0;
+        int high = top.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            RankedEntry entry = top.get(mid);
+            int cmp = score != entry.getScore()
+                    ? (score > entry.getScore() ? -1 : 1)
+                    : Integer.compare(userKey, entry.getUserKey());
+            if (cmp == 0) {
+                return mid;
+            }
+            if (cmp < 0) {
+                high = mid - 1;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return -(low + 1);
+    }
+
+    // Incremented by every published update; a batch publishes as one update
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    public Integer getScore(String userId) {
+        long score = scoreOf(userId);
+        return score == UserScoreMap.NO_SCORE ? null : (int) score;
+    }
+
+    // 1-based rank of the user, or -1 if the user has no score in this snapshot
+    public int getRank(String userId) {
+        return rankOfKey(keys.lookup(userId));
+    }
+
+    // userKey is the user's interned id
+    public int getRank(int userKey) {
+        return rankOfKey(storeKey(userKey));
+    }
+
+    private int rankOfKey(int key) {
+        long score = scoreOf(key);
+        if (score == UserScoreMap.NO_SCORE) {
+            return -1;
+        }
+        return store.countBefore((int) score, key) + 1;
+    }
+
+    // 1-based rank the user would hold with the given score, everyone else as in this snapshot
+    public int rankOf(String userId, int score) {
+        return rankOfKey(keys.lookup(userId), score);
+    }
+
+    // userKey is the user's interned id
+    public int rankOf(int userKey, int score) {
+        return rankOfKey(storeKey(userKey), score);
+    }
+
+    // Under an achievement tie-break a user reaching the score would rank after everyone already
+    // holding it; holding it already, they rank where they are
+    private int rankOfKey(int key, int score) {
+        long current = scoreOf(key);
+        if (current == score) {
+            return store.countBefore(score, key) + 1;
+        }
+        int ahead = store.countBefore(score, key == UserKeys.UNKNOWN || order != null ? Integer.MAX_VALUE : key);
+        // The user's own entry is ahead of the hypothetical one when it scores higher
+        return current != UserScoreMap.NO_SCORE && current > score ? ahead : ahead + 1;
+    }
+
+    // User holding the given 1-based rank, or null if the rank is out of range
+    public String getUserAtRank(int rank) {
+        RankIndex.Entry entry = store.entryAt(rank - 1);
+        return entry == null ? null : keys.userId(entry.getUserId());
+    }
+
+    public RankedEntry getEntry(String userId) {
+        int userKey = keys.lookup(userId);
+        long score = scoreOf(userKey);
+        if (score == UserScoreMap.NO_SCORE) {
+            return null;
+        }
+        return new RankedEntry(userId, userKey, (int) score, store.countBefore((int) score, userKey) + 1);
+    }
+
+    // Number of users with a score strictly higher than the given score
+    public int countAbove(int score) {
+        return store.countAbove(score);
+    }
+
+    // Up to k entries starting at the given 0-based offset, in rank order. Windows inside the
+    // materialized front page are served without touching the index.
+    public List<RankedEntry> topK(int k, int offset) {
+        if (k < 0 || offset < 0) {
+            throw new IllegalArgumentException("k and offset must be non-negative");
+        }
+        if ((long) offset + k <= LeaderboardConfig.TOP_K_CACHE_SIZE) {
+            List<RankedEntry> top = topEntries();
+            int from = Math.min(offset, top.size());
+            return top.subList(from, Math.min(offset + k, top.size()));
+        }
+        return Collections.unmodifiableList(entriesFrom(offset, k));
+    }
+
+    // topK(k, offset) in PageCodec's layout at the buffer's position. Windows beyond the front
+    // page go straight from the index into the buffer, with no entry objects in between.
+    // Throws BufferOverflowException if the page does not fit.
+    public void encodeTopK(int k, int offset, ByteBuffer out) {
+        if (k < 0 || offset < 0) {
+            throw new IllegalArgumentException("k and offset must be non-negative");
+        }
+        if ((long) offset + k <= LeaderboardConfig.TOP_K_CACHE_SIZE) {
+            PageCodec.encode(topK(k, offset), out);
+            return;
+        }
+        int count = Math.max(0, Math.min(k, store.size() - offset));
+        PageCodec page = new PageCodec(out, count, offset + 1);
+        store.forEachFrom(offset, count, (rank, score, userKey) -> page.add(keys.userId(userKey), score));
+        page.finish();
+    }
+
+    private List<RankedEntry> topEntries() {
+        List<RankedEntry> top = topEntries;
+        if (top == null) {
+            // Benign race: concurrent readers may both build the same list
+            top = Collections.unmodifiableList(parts != null ? mergeTopEntries() : entriesFrom(0, LeaderboardConfig.TOP_K_CACHE_SIZE));
+            topEntries = top;
+        }
+        return top;
+    }
+
+    // k-way merge of the partitions' materialized front pages, re-ranked globally. Each
+    // partition's page holds its best TOP_K_CACHE_SIZE users, so together they hold the board's.
+    private List<RankedEntry> mergeTopEntries() {
+        List<List<RankedEntry>> pages = new ArrayList<>(parts.length);
+        for (LeaderboardSnapshot part : parts) {
+            pages.add(part.topEntries());
+        }
+        int[] heads = new int[pages.size()];
+        List<RankedEntry> merged = new ArrayList<>(Math.min(store.size(), LeaderboardConfig.TOP_K_CACHE_SIZE));
+        while (merged.size() < LeaderboardConfig.TOP_K_CACHE_SIZE) {
+            int best = -1;
+            for (int i = 0; i < heads.length; i++) {
+                if (heads[i] < pages.get(i).size() && (best < 0
+                        || isAhead(pages.get(i).get(heads[i]), pages.get(best).get(heads[best])))) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            RankedEntry entry = pages.get(best).get(heads[best]++);
+            merged.add(new RankedEntry(entry.getUserId(), entry.getUserKey(), entry.getScore(), merged.size() + 1));
+        }
+        return merged;
+    }
+
+    private static boolean isAhead(RankedEntry entry, RankedEntry other) {
+        return entry.getScore() != other.getScore()
+                ? entry.getScore() > other.getScore()
+                : entry.getUserKey() < other.getUserKey();
+    }
+
+    // Up to count entries ranked immediately below the user, in rank order; empty if the user has no score
+    public LeaderboardPage pageAfterUser(String userId, int count) {
+        int userKey = keys.lookup(userId);
+        long score = scoreOf(userKey);
+        if (score == UserScoreMap.NO_SCORE) {
+            return emptyPage();
+        }
+        return pageAfter((int) score, userKey, count);
+    }
+
+    // Up to count entries ranked immediately above the user, in rank order; empty if the user has no score
+    public LeaderboardPage pageBeforeUser(String userId, int count) {
+        int userKey = keys.lookup(userId);
+        long score = scoreOf(userKey);
+        if (score == UserScoreMap.NO_SCORE) {
+            return emptyPage();
+        }
+        return pageBefore((int) score, userKey, count);
+    }
+
+    // Up to `above` entries ranked immediately above the user, the user, then up to `below`
+    // entries ranked immediately below, in rank order. The user is looked up and ranked once and
+    // both halves are read from their position in the index. Empty if the user has no score.
+    public AroundUserPage pageAroundUser(String userId, int above, int below) {
+        if (above < 0 || below < 0) {
+            throw new IllegalArgumentException("above and below must be non-negative");
+        }
+        int key = keys.lookup(userId);
+        long score = scoreOf(key);
+        if (score == UserScoreMap.NO_SCORE) {
+            return new AroundUserPage(new ArrayList<>(), -1, null, null);
+        }
+        int position = store.countBefore((int) score, key);
+        List<RankedEntry> entries = new ArrayList<>(Math.min(above, position) + 1 + Math.min(below, store.size() - position - 1));
+        store.forEachBeforeKey((int) score, key, position, above, (rank, entryScore, entryKey) -> entries.add(entry(entryKey, entryScore, rank + 1)));
+        int userIndex = entries.size();
+        store.forEachFromKey((int) score, key, position, below == Integer.MAX_VALUE ? below : below + 1,
+                (rank, entryScore, entryKey) -> entries.add(entry(entryKey, entryScore, rank + 1)));
+        LeaderboardPage page = page(entries);
+        return new AroundUserPage(entries, userIndex, page.getPrevCursor(), page.getNextCursor());
+    }
+
+    // Up to count entries ranked immediately below the cursor position, in rank order
+    public LeaderboardPage pageAfter(RankCursor cursor, int count) {
+        return pageAfter(cursor.getScore(), cursorKey(cursor), count);
+    }
+
+    // Up to count entries ranked immediately above the cursor position, in rank order
+    public LeaderboardPage pageBefore(RankCursor cursor, int count) {
+        return pageBefore(cursor.getScore(), cursorKey(cursor), count);
+    }
+
+    // Point-in-time copy; O(n), prefer the rank and page queries above
+    public Map<String, Integer> toUserScores() {
+        Map<String, Integer> copy = new HashMap<>(Math.max(16, store.size() * 2));
+        store.forEachScore((userKey, score) -> copy.put(keys.userId(userKey), score));
+        return Collections.unmodifiableMap(copy);
+    }
+
+    // Visits every entry in rank order
+    public void forEachEntry(EntryVisitor visitor) {
+        store.forEachFrom(0, store.size(), (rank, score, userKey) -> visitor.visit(keys.userId(userKey), score));
+    }
+
+    // Point-in-time copy grouped by score, highest first, each group in rank order; O(n)
+    public TreeMap<Integer, Set<String>> toScoreToUser() {
+        TreeMap<Integer, Set<String>> scoreToUser = new TreeMap<>((a, b) -> b.compareTo(a));
+        store.forEachFrom(0, store.size(), (rank, score, userKey) ->
+                scoreToUser.computeIfAbsent(score, k -> new LinkedHashSet<>()).add(keys.userId(userKey)));
+        return scoreToUser;
+    }
+
+    private long scoreOf(String userId) {
+        return scoreOf(keys.lookup(userId));
+    }
+
+    // Score of the interned user, or NO_SCORE
+    long findScore(int userKey) {
+        return scoreOf(storeKey(userKey));
+    }
+
+    private long scoreOf(int key) {
+        if (key == UserKeys.UNKNOWN) {
+            return UserScoreMap.NO_SCORE;
+        }
+        if (order != null && parts != null) {
+            // Partitions own users by interned id, which a key has to be translated back to
+            int userKey = order.userKeyOf(key);
+            return userKey == UserKeys.UNKNOWN ? UserScoreMap.NO_SCORE
+                    : parts[PartitionedScoreStore.partitionOf(userKey, parts.length)].store.find(key);
+        }
+        return store.find(key);
+    }
+
+    private int storeKey(int userKey) {
+        return order != null ? order.keyOf(userKey) : userKey;
+    }
+
+    // Users the dictionary has never seen sort after every known user at the same score
+    private int cursorKey(RankCursor cursor) {
+        int userKey = keys.lookup(cursor.getUserId());
+        return userKey == UserKeys.UNKNOWN ? Integer.MAX_VALUE : userKey;
+    }
+
+    // Both seek by key rather than by position, which partitioned stores answer far more cheaply
+    private LeaderboardPage pageAfter(int score, int userKey, int count) {
+        int start = store.countBefore(score, userKey);
+        int seekKey = userKey;
+        if (scoreOf(userKey) == score) {
+            start++;
+            seekKey++;
+        }
+        List<RankedEntry> entries = new ArrayList<>(Math.max(0, Math.min(count, store.size() - start)));
+        store.forEachFromKey(score, seekKey, start, count, (rank, entryScore, entryKey) -> entries.add(entry(entryKey, entryScore, rank + 1)));
+        return page(entries);
+    }
+
+    private LeaderboardPage pageBefore(int score, int userKey, int count) {
+        int end = store.countBefore(score, userKey);
+        List<RankedEntry> entries = new ArrayList<>(Math.max(0, Math.min(count, end)));
+        store.forEachBeforeKey(score, userKey, end, count, (rank, entryScore, entryKey) -> entries.add(entry(entryKey, entryScore, rank + 1)));
+        return page(entries);
+    }
+
+    private LeaderboardPage page(List<RankedEntry> entries) {
+        if (entries.isEmpty()) {
+            return emptyPage();
+        }
+        RankedEntry first = entries.get(0);
+        RankedEntry last = entries.get(entries.size() - 1);
+        String prevCursor = first.getRank() > 1 ? RankCursor.of(first).encode() : null;
+        String nextCursor = last.getRank() < store.size() ? RankCursor.of(last).encode() : null;
+        return new LeaderboardPage(entries, prevCursor, nextCursor);
+    }
+
+    private List<RankedEntry> entriesFrom(int start, int count) {
+        List<RankedEntry> entries = new ArrayList<>(Math.max(0, Math.min(count, store.size() - start)));
+        store.forEachFrom(start, count, (rank, score, userKey) -> entries.add(entry(userKey, score, rank + 1)));
+        return entries;
+    }
+
+    private RankedEntry entry(int userKey, int score, int rank) {
+        return new RankedEntry(keys.userId(userKey), userKey, score, rank);
+    }
+
+    private static LeaderboardPage emptyPage() {
+        return new LeaderboardPage(new ArrayList<>(), null, null);
+    }
+
+    public interface EntryVisitor {
+        void visit(String userId, int score);
+    }
+}
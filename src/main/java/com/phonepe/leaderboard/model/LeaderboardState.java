@@ -0,0 +1,13 @@
+package com.phonepe.leaderboard.model;
+
+// Lifecycle stage of a leaderboard. Boards only ever move forward through these stages.
+public enum LeaderboardState {
+    // Accepting scores (or waiting for its start time)
+    ACTIVE,
+    // Ended; contents compacted into a read-only, array-backed store
+    FROZEN,
+    // Contents offloaded to local disk and loaded again on the next read
+    ARCHIVED,
+    // Dropped from the repository; the board is empty
+    EVICTED
+}
@@ -0,0 +1,19 @@
+package com.phonepe.leaderboard.model;
+
+import com.phonepe.leaderboard.config.LeaderboardConfig;
+import com.phonepe.leaderboard.index.HeapScoreStore;
+import com.phonepe.leaderboard.index.OffHeapScoreStore;
+import com.phonepe.leaderboard.index.ScoreStore;
+
+// Where a leaderboard keeps its scores and rank order; chosen per board at creation time.
+public enum LeaderboardStorage {
+    // Persistent trees on the Java heap: cheapest access, the default
+    HEAP,
+    // Sorted runs in direct memory behind a bounded on-heap buffer of recent updates, for
+    // boards big enough that their heap footprint shows up in GC pauses
+    OFF_HEAP;
+
+    ScoreStore emptyStore() {
+        return this == OFF_HEAP ? OffHeapScoreStore.empty(LeaderboardConfig.OFF_HEAP_DELTA_LIMIT) : HeapScoreStore.EMPTY;
+    }
+}
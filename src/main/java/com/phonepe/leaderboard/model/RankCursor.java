@@ -0,0 +1,50 @@
+package com.phonepe.leaderboard.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Opaque paging token pinned to a (score, userId) position rather than a numeric offset,
+// so pages stay stable while other users move around the board.
+public class RankCursor {
+    private final int score;
+    private final String userId;
+
+    public RankCursor(int score, String userId) {
+        this.score = score;
+        this.userId = userId;
+    }
+
+    public static RankCursor of(RankedEntry entry) {
+        return new RankCursor(entry.getScore(), entry.getUserId());
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String encode() {
+        String raw = score + ":" + userId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static RankCursor decode(String token) {
+        if (token == null) {
+            throw new IllegalArgumentException("Cursor must not be null");
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Malformed cursor: " + token);
+            }
+            return new RankCursor(Integer.parseInt(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException and Base64 decoding errors are both IllegalArgumentExceptions
+            throw new IllegalArgumentException("Malformed cursor: " + token, e);
+        }
+    }
+}
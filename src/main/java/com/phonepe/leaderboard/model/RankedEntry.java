@@ -0,0 +1,78 @@
+package com.phonepe.leaderboard.model;
+
+import com.phonepe.leaderboard.index.UserDictionary;
+import java.util.Map;
+import java.util.Objects;
+
+// Immutable (userId, score) pair with its 1-based rank; usable wherever a Map.Entry<String, Integer> is expected.
+public class RankedEntry implements Map.Entry<String, Integer> {
+    private final String userId;
+    private final int userKey; // interned id, or UserDictionary.UNKNOWN
+    private final int score;
+    private final int rank;
+
+    public RankedEntry(String userId, int score, int rank) {
+        this(userId, UserDictionary.UNKNOWN, score, rank);
+    }
+
+    RankedEntry(String userId, int userKey, int score, int rank) {
+        this.userId = userId;
+        this.userKey = userKey;
+        this.score = score;
+        this.rank = rank;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    int getUserKey() {
+        return userKey;
+    }
+
+    @Override
+    public String getKey() {
+        return userId;
+    }
+
+    @Override
+    public Integer getValue() {
+        return score;
+    }
+
+    @Override
+    public Integer setValue(Integer value) {
+        throw new UnsupportedOperationException("RankedEntry is immutable");
+    }
+
+    // Same contract as Map.Entry so ranked entries compare equal to AbstractMap.SimpleEntry
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Map.Entry)) {
+            return false;
+        }
+        Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+        return Objects.equals(userId, other.getKey()) && Objects.equals(score, other.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(userId) ^ Integer.hashCode(score);
+    }
+
+    @Override
+    public String toString() {
+        return "#" + rank + " " + userId + "=" + score;
+    }
+}
@@ -0,0 +1,12 @@
+package com.phonepe.leaderboard.model;
+
+// Told about every score change a Leaderboard publishes, right after readers can see it, with
+// the user's previous score (UserScoreMap.NO_SCORE for a user new to the board). Runs on the
+// writer's thread, so implementations must be quick and must not throw.
+public interface ScoreListener {
+    void scoreChanged(Leaderboard leaderboard, int userKey, long previousScore, int score);
+
+    // The board was evicted and will never change again; it drops its listeners afterwards
+    default void leaderboardEvicted(Leaderboard leaderboard) {
+    }
+}
@@ -0,0 +1,25 @@
+package com.phonepe.leaderboard.model;
+
+// One score in a LeaderboardService.submitScores batch
+public class ScoreSubmission {
+    private final String userId;
+    private final int score;
+
+    public ScoreSubmission(String userId, int score) {
+        this.userId = userId;
+        this.score = score;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return userId + "=" + score;
+    }
+}
@@ -0,0 +1,17 @@
+package com.phonepe.leaderboard.model;
+
+// Outcome of one item in a LeaderboardService.submitScores batch
+public enum SubmissionResult {
+    // New best score on at least one active leaderboard
+    APPLIED,
+    // Valid, but no active leaderboard had a lower score for the user
+    NOT_IMPROVED,
+    // The same batch holds a higher (or equal, earlier) score for the user, so this one was skipped
+    SUPERSEDED,
+    // Score outside the valid range
+    INVALID_SCORE,
+    // Null submission or userId
+    INVALID_SUBMISSION,
+    // The game has no leaderboard accepting scores right now
+    NO_ACTIVE_LEADERBOARD
+}
@@ -0,0 +1,12 @@
+package com.phonepe.leaderboard.model;
+
+// How a leaderboard orders users with equal scores; chosen per board at creation time. Either
+// way the order is total and stable, and ties sit in the same index as everything else, so
+// paging through a large tie costs O(log n) to seek plus O(1) per entry.
+public enum TieBreak {
+    // In the order the repository first saw each user ID (its interned id): free, the default
+    FIRST_SEEN,
+    // In the order users reached the score on this board, earliest first. Each improvement takes
+    // a fresh store key, which costs a removal plus an insert instead of one in-place update.
+    FIRST_ACHIEVED
+}
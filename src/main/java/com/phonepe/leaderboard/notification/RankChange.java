@@ -0,0 +1,49 @@
+package com.phonepe.leaderboard.notification;
+
+// A user's rank moved from previousRank (-1 if the user was not on the board) to rank. Several
+// moves within one notification interval are coalesced into one, from the first rank to the last.
+public class RankChange {
+    private final String leaderboardId;
+    private final String userId;
+    private final int previousRank;
+    private final int rank;
+    private final int score;
+
+    public RankChange(String leaderboardId, String userId, int previousRank, int rank, int score) {
+        this.leaderboardId = leaderboardId;
+        this.userId = userId;
+        this.previousRank = previousRank;
+        this.rank = rank;
+        this.score = score;
+    }
+
+    public String getLeaderboardId() {
+        return leaderboardId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public int getPreviousRank() {
+        return previousRank;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    // The same user's later move, continuing this one
+    RankChange then(RankChange later) {
+        return new RankChange(leaderboardId, userId, previousRank, later.rank, later.score);
+    }
+
+    @Override
+    public String toString() {
+        return userId + " " + (previousRank < 0 ? "entered" : "#" + previousRank) + " -> #" + rank + " (" + score + ")";
+    }
+}
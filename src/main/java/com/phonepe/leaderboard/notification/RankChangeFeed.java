@@ -0,0 +1,277 @@
+package com.phonepe.leaderboard.notification;
+
+import com.phonepe.leaderboard.index.UserScoreMap;
+import com.phonepe.leaderboard.ingest.MpscRingBuffer;
+import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.model.LeaderboardSnapshot;
+import com.phonepe.leaderboard.model.LeaderboardState;
+import com.phonepe.leaderboard.model.RankedEntry;
+import com.phonepe.leaderboard.model.ScoreListener;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Push notifications of rank movements. Writers only append (board, user, old score, new score)
+// to a lock-free queue when a board has subscribers; a dispatcher thread drains it every
+// interval, coalesces each user's changes into one, and works out what moved by comparing the
+// board's snapshot at the previous dispatch with the current one. Snapshots are immutable, so
+// ranks are computed off the writers' path without blocking them.
+//
+// Three kinds of subscription:
+//   board - a RankChange for every user whose score changed and whose rank moved
+//   user  - a RankChange whenever one user's rank moves, including being overtaken
+//   top-K - a TopKChange whenever the first k entries change
+// If the queue overflows, changes are dropped and counted; board subscribers are told, while
+// user and top-K subscriptions are recomputed from the snapshot and lose nothing.
+public final class RankChangeFeed {
+    private final MpscRingBuffer<Change> queue;
+    private final Map<Leaderboard, BoardFeed> boards = new ConcurrentHashMap<>();
+    private final long intervalMillis;
+    private final ScheduledExecutorService dispatcher;
+    private final ExecutorService delivery;
+    private boolean started; // guarded by this
+    private volatile boolean closed;
+
+    // queueCapacity must be a power of two
+    public RankChangeFeed(int queueCapacity, long intervalMillis, int deliveryThreads) {
+        if (intervalMillis <= 0 || deliveryThreads <= 0) {
+            throw new IllegalArgumentException("intervalMillis and deliveryThreads must be positive");
+        }
+        this.queue = new MpscRingBuffer<>(queueCapacity);
+        this.intervalMillis = intervalMillis;
+        this.dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rank-change-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threads = new AtomicInteger();
+        this.delivery = Executors.newFixedThreadPool(deliveryThreads, runnable -> {
+            Thread thread = new Thread(runnable, "rank-change-delivery-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // RankChanges for every user whose score changes on the board
+    public Subscription subscribe(Leaderboard leaderboard, RankChangeListener listener) {
+        return add(leaderboard, listener, null, 0);
+    }
+
+    // RankChanges for one user, whether they scored or others passed them
+    public Subscription subscribeToUser(Leaderboard leaderboard, String userId, RankChangeListener listener) {
+        if (userId == null) {
+            throw new IllegalArgumentException("userId must not be null");
+        }
+        return add(leaderboard, listener, userId, 0);
+    }
+
+    // TopKChanges whenever the board's first k entries change
+    public Subscription subscribeToTopK(Leaderboard leaderboard, int k, RankChangeListener listener) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        return add(leaderboard, listener, null, k);
+    }
+
+    // Dispatches what is queued, then stops; batches already handed to listeners are delivered
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        dispatcher.shutdown();
+        try {
+            dispatcher.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dispatch();
+        for (BoardFeed board : boards.values()) {
+            board.detach();
+        }
+        delivery.shutdown();
+    }
+
+    private synchronized Subscription add(Leaderboard leaderboard, RankChangeListener listener, String userId, int k) {
+        if (closed) {
+            throw new IllegalStateException("Notification feed is closed");
+        }
+        if (leaderboard.getState() == LeaderboardState.EVICTED) {
+            throw new IllegalStateException("Leaderboard " + leaderboard.getId() + " was evicted");
+        }
+        if (leaderboard.isDerived()) {
+            throw new IllegalStateException("Leaderboard " + leaderboard.getId() + " is derived and reports no score changes");
+        }
+        BoardFeed board = boards.computeIfAbsent(leaderboard, BoardFeed::new);
+        Subscription subscription = new Subscription(this, leaderboard, listener, delivery, userId, k);
+        // Baselines come from the snapshot the next dispatch compares against
+        subscription.lastRank = subscription.isUser() ? board.last.getRank(userId) : -1;
+        subscription.lastTop = subscription.isTopK() ? board.last.topK(k, 0) : null;
+        board.subscriptions.add(subscription);
+        if (!started) {
+            started = true;
+            dispatcher.scheduleWithFixedDelay(this::dispatch, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+        return subscription;
+    }
+
+    synchronized void unsubscribe(Subscription subscription) {
+        BoardFeed board = boards.get(subscription.leaderboard);
+        if (board != null && board.subscriptions.remove(subscription) && board.subscriptions.isEmpty()) {
+            board.detach();
+        }
+    }
+
+    // Drains the queue and hands each subscription its events; runs on the dispatcher thread
+    synchronized void dispatch() {
+        Map<BoardFeed, Map<Integer, Change>> batch = new HashMap<>();
+        Change change;
+        for (int drained = 0; drained < queue.capacity() && (change = queue.poll()) != null; drained++) {
+            batch.computeIfAbsent(change.board, board -> new LinkedHashMap<>()).merge(change.userKey, change, Change::then);
+        }
+        for (BoardFeed board : boards.values()) {
+            if (board.evicted) {
+                board.subscriptions.forEach(Subscription::cancelled);
+                boards.remove(board.leaderboard, board);
+                continue;
+            }
+            Map<Integer, Change> changes = batch.getOrDefault(board, Collections.emptyMap());
+            long dropped = board.dropped.getAndSet(0);
+            if (!changes.isEmpty() || dropped > 0) {
+                // A failure on one board must not stop the others or the schedule
+                try {
+                    board.publish(changes.values(), dropped);
+                } catch (RuntimeException ignored) {
+                }
+            }
+        }
+    }
+
+    // Subscriptions of one board and the snapshot its last dispatch ended at
+    private final class BoardFeed implements ScoreListener {
+        final Leaderboard leaderboard;
+        final List<Subscription> subscriptions = new ArrayList<>(); // guarded by the feed
+        final AtomicLong dropped = new AtomicLong();
+        volatile boolean evicted;
+        LeaderboardSnapshot last;
+
+        BoardFeed(Leaderboard leaderboard) {
+            this.leaderboard = leaderboard;
+            leaderboard.addScoreListener(this);
+            this.last = leaderboard.snapshot();
+        }
+
+        @Override
+        public void scoreChanged(Leaderboard board, int userKey, long previousScore, int score) {
+            if (!queue.offer(new Change(this, userKey, previousScore, score))) {
+                dropped.incrementAndGet();
+            }
+        }
+
+        // Called under the board's lock, so the next dispatch does the cleanup instead of
+        // taking the feed's lock here; the board drops its listeners itself
+        @Override
+        public void leaderboardEvicted(Leaderboard board) {
+            evicted = true;
+        }
+
+        void detach() {
+            leaderboard.removeScoreListener(this);
+            boards.remove(leaderboard, this);
+        }
+
+        void publish(Collection<Change> changes, long dropped) {
+            LeaderboardSnapshot current = leaderboard.snapshot();
+            String id = leaderboard.getId();
+            List<RankChange> moves = null;
+            for (Subscription subscription : subscriptions) {
+                if (subscription.isUser()) {
+                    int rank = current.getRank(subscription.userId);
+                    if (rank != subscription.lastRank) {
+                        Integer score = current.getScore(subscription.userId);
+                        subscription.offer(Collections.singletonList(new RankChange(id, subscription.userId,
+                                subscription.lastRank, rank, score == null ? 0 : score)), null, 0);
+                        subscription.lastRank = rank;
+                    }
+                } else if (subscription.isTopK()) {
+                    if (dropped > 0 || mayChangeTop(changes, subscription.lastTop, subscription.k)) {
+                        List<RankedEntry> top = current.topK(subscription.k, 0);
+                        if (!Subscription.sameEntries(top, subscription.lastTop)) {
+                            subscription.offer(Collections.emptyList(),
+                                    new TopKChange(id, subscription.k, subscription.lastTop, top), 0);
+                            subscription.lastTop = top;
+                        }
+                    }
+                } else {
+                    if (moves == null) {
+                        moves = moves(changes, current);
+                    }
+                    subscription.offer(moves, null, dropped);
+                }
+            }
+            last = current;
+        }
+
+        // Each changed user's rank with their previous score among the others as of the last
+        // dispatch, against their rank now
+        private List<RankChange> moves(Collection<Change> changes, LeaderboardSnapshot current) {
+            List<RankChange> moves = new ArrayList<>(changes.size());
+            for (Change change : changes) {
+                int previousRank = change.previousScore == UserScoreMap.NO_SCORE ? -1
+                        : last.rankOf(change.userKey, (int) change.previousScore);
+                int rank = current.getRank(change.userKey);
+                if (previousRank != rank) {
+                    String userId = leaderboard.getUserDictionary().userId(change.userKey);
+                    moves.add(new RankChange(leaderboard.getId(), userId, previousRank, rank, change.score));
+                }
+            }
+            return moves;
+        }
+
+        // Only scores reaching the last of the first k entries can change them
+        private boolean mayChangeTop(Collection<Change> changes, List<RankedEntry> top, int k) {
+            if (top.size() < k) {
+                return true;
+            }
+            int lowest = top.get(k - 1).getScore();
+            for (Change change : changes) {
+                if (change.score >= lowest) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class Change {
+        final BoardFeed board;
+        final int userKey;
+        final long previousScore;
+        final int score;
+
+        Change(BoardFeed board, int userKey, long previousScore, int score) {
+            this.board = board;
+            this.userKey = userKey;
+            this.previousScore = previousScore;
+            this.score = score;
+        }
+
+        // The user's later change, folded into this one
+        Change then(Change later) {
+            return new Change(board, userKey, previousScore, later.score);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.phonepe.leaderboard.notification;
+
+import java.util.List;
+
+// Receives a subscription's events in batches, on a delivery thread, never concurrently with
+// itself. While a call is running, newer events for the same subscription are coalesced rather
+// than queued, so a slow listener gets fewer, larger batches.
+public interface RankChangeListener {
+    default void ranksChanged(List<RankChange> changes) {
+    }
+
+    default void topKChanged(TopKChange change) {
+    }
+
+    // Score changes were dropped because the dispatcher fell behind, so the RankChanges of a
+    // board subscription may have missed some moves; user and top-K subscriptions stay exact
+    default void changesDropped(String leaderboardId, long dropped) {
+    }
+}
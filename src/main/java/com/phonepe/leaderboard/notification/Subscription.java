@@ -0,0 +1,126 @@
+package com.phonepe.leaderboard.notification;
+
+import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.model.RankedEntry;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+// Handle for one subscription made through a RankChangeFeed. Events the dispatcher hands over
+// are held here until the listener is free, merging with anything still undelivered.
+public final class Subscription {
+    private final RankChangeFeed feed;
+    final Leaderboard leaderboard;
+    private final RankChangeListener listener;
+    private final Executor delivery;
+    final String userId; // set for a user subscription
+    final int k; // set for a top-K subscription
+
+    // Dispatcher only: what the listener has been told
+    int lastRank;
+    List<RankedEntry> lastTop;
+
+    private final Map<String, RankChange> pendingRanks = new LinkedHashMap<>();
+    private TopKChange pendingTop;
+    private long pendingDropped;
+    private boolean scheduled;
+    private volatile boolean cancelled;
+
+    Subscription(RankChangeFeed feed, Leaderboard leaderboard, RankChangeListener listener, Executor delivery, String userId,
+            int k) {
+        this.feed = feed;
+        this.leaderboard = leaderboard;
+        this.listener = listener;
+        this.delivery = delivery;
+        this.userId = userId;
+        this.k = k;
+    }
+
+    public String getLeaderboardId() {
+        return leaderboard.getId();
+    }
+
+    // Stops delivery; a batch already being delivered still completes
+    public void cancel() {
+        cancelled = true;
+        feed.unsubscribe(this);
+    }
+
+    // Cancelled by cancel(), or because the board was evicted
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    void cancelled() {
+        cancelled = true;
+    }
+
+    boolean isUser() {
+        return userId != null;
+    }
+
+    boolean isTopK() {
+        return k > 0;
+    }
+
+    synchronized void offer(List<RankChange> changes, TopKChange top, long dropped) {
+        for (RankChange change : changes) {
+            RankChange earlier = pendingRanks.remove(change.getUserId());
+            RankChange merged = earlier == null ? change : earlier.then(change);
+            if (merged.getPreviousRank() != merged.getRank()) {
+                pendingRanks.put(change.getUserId(), merged);
+            }
+        }
+        if (top != null) {
+            pendingTop = pendingTop == null ? top : pendingTop.then(top);
+            if (sameEntries(pendingTop.getPrevious(), pendingTop.getEntries())) {
+                pendingTop = null;
+            }
+        }
+        pendingDropped += dropped;
+        if (!scheduled && (!pendingRanks.isEmpty() || pendingTop != null || pendingDropped > 0)) {
+            scheduled = true;
+            delivery.execute(this::deliver);
+        }
+    }
+
+    private void deliver() {
+        while (true) {
+            List<RankChange> changes;
+            TopKChange top;
+            long dropped;
+            synchronized (this) {
+                if (cancelled || (pendingRanks.isEmpty() && pendingTop == null && pendingDropped == 0)) {
+                    scheduled = false;
+                    return;
+                }
+                changes = new ArrayList<>(pendingRanks.values());
+                top = pendingTop;
+                dropped = pendingDropped;
+                pendingRanks.clear();
+                pendingTop = null;
+                pendingDropped = 0;
+            }
+            // A failing listener only loses its own batch
+            try {
+                if (dropped > 0) {
+                    listener.changesDropped(leaderboard.getId(), dropped);
+                }
+                if (!changes.isEmpty()) {
+                    listener.ranksChanged(changes);
+                }
+                if (top != null) {
+                    listener.topKChanged(top);
+                }
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    // Same users with the same scores, in the same order
+    static boolean sameEntries(List<RankedEntry> entries, List<RankedEntry> others) {
+        return entries.equals(others);
+    }
+}
@@ -0,0 +1,45 @@
+package com.phonepe.leaderboard.notification;
+
+import com.phonepe.leaderboard.model.RankedEntry;
+import java.util.List;
+
+// The first k entries of a board changed: a user entered, left or moved within them, or one of
+// them improved. Coalesced like RankChange, so previous is what the subscriber was last told.
+public class TopKChange {
+    private final String leaderboardId;
+    private final int k;
+    private final List<RankedEntry> previous;
+    private final List<RankedEntry> entries;
+
+    public TopKChange(String leaderboardId, int k, List<RankedEntry> previous, List<RankedEntry> entries) {
+        this.leaderboardId = leaderboardId;
+        this.k = k;
+        this.previous = previous;
+        this.entries = entries;
+    }
+
+    public String getLeaderboardId() {
+        return leaderboardId;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public List<RankedEntry> getPrevious() {
+        return previous;
+    }
+
+    public List<RankedEntry> getEntries() {
+        return entries;
+    }
+
+    TopKChange then(TopKChange later) {
+        return new TopKChange(leaderboardId, k, previous, later.entries);
+    }
+
+    @Override
+    public String toString() {
+        return "top-" + k + " of " + leaderboardId + ": " + entries;
+    }
+}
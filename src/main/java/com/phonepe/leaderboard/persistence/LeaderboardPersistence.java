@@ -0,0 +1,321 @@
+package com.phonepe.leaderboard.persistence;
+
+import com.phonepe.leaderboard.index.UserDictionary;
+import com.phonepe.leaderboard.metrics.MetricNames;
+import com.phonepe.leaderboard.metrics.MetricsRegistry;
+import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.model.LeaderboardChangeLog;
+import com.phonepe.leaderboard.model.LeaderboardSnapshot;
+import com.phonepe.leaderboard.model.LeaderboardState;
+import com.phonepe.leaderboard.model.LeaderboardStorage;
+import com.phonepe.leaderboard.model.TieBreak;
+import com.phonepe.leaderboard.repository.LeaderboardRepository;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Durability for a LeaderboardRepository. Every board creation and score change is appended to
+// a write-ahead log before the write call returns; checkpoints write each board to a snapshot
+// file and drop the log segments the snapshots cover.
+//
+// Checkpoints roll the log first and snapshot afterwards. Changes are logged after they are
+// published, so anything in a segment before the roll is already in the snapshots; a change
+// that lands in both is harmless because replaying a score that doesn't beat the user's best
+// is a no-op. The same property lets recovery replay each board's log tail independently.
+//
+// Boards that break ties by achievement come back with ties in snapshot and log order, which
+// is achievement order for writes that completed one after another. Two writers tying at the
+// same moment may be logged in the opposite order to the one they were ranked in, so their
+// order after a restart is best-effort.
+//
+// Layout under the data directory: wal/ holds log segments, snapshots/ one file per board.
+// Archived boards need neither: their archive file is final and self-describing, so recovery
+// maps it back in place and checkpoints stop tracking them.
+public final class LeaderboardPersistence implements LeaderboardChangeLog, Closeable {
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final int RESTORE_BATCH = 1 << 16;
+
+    private final Path logDirectory;
+    private final Path snapshotDirectory;
+    private final WriteAheadLog log;
+    private final Map<String, LoggedBoard> boards = new ConcurrentHashMap<>(); // leaderboardId -> handle and board
+    private final AtomicInteger nextHandle = new AtomicInteger();
+    private final ScheduledExecutorService checkpointer;
+    private volatile boolean recovering;
+    private volatile Exception lastCheckpointFailure;
+
+    private LeaderboardPersistence(Path dataDirectory) throws IOException {
+        this.logDirectory = dataDirectory.resolve("wal");
+        this.snapshotDirectory = dataDirectory.resolve("snapshots");
+        Files.createDirectories(snapshotDirectory);
+        this.log = WriteAheadLog.open(logDirectory);
+        this.checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "leaderboard-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static LeaderboardPersistence open(Path dataDirectory) throws IOException {
+        return new LeaderboardPersistence(dataDirectory);
+    }
+
+    @Override
+    public void leaderboardCreated(Leaderboard leaderboard) {
+        if (recovering) {
+            return;
+        }
+        int handle = nextHandle.getAndIncrement();
+        boards.put(leaderboard.getId(), new LoggedBoard(handle, leaderboard));
+        log.appendCreate(handle, leaderboard.getId(), leaderboard.getGameId(), leaderboard.getStartTime(),
+                leaderboard.getEndTime(), leaderboard.getStorage(), leaderboard.getPartitions());
+    }
+
+    @Override
+    public void checkWritable() {
+        if (!recovering) {
+            log.checkWritable();
+        }
+    }
+
+    @Override
+    public void scoreChanged(Leaderboard leaderboard, int userKey, int score) {
+        LoggedBoard board = boards.get(leaderboard.getId());
+        if (board == null || recovering) {
+            return;
+        }
+        log.appendScores(board.handle, new String[] {leaderboard.getUserDictionary().userId(userKey)}, new int[] {score}, 1);
+    }
+
+    @Override
+    public void scoresChanged(Leaderboard leaderboard, int[] userKeys, int[] scores, boolean[] changed) {
+        LoggedBoard board = boards.get(leaderboard.getId());
+        if (board == null || recovering) {
+            return;
+        }
+        UserDictionary dictionary = leaderboard.getUserDictionary();
+        String[] changedUsers = new String[userKeys.length];
+        int[] changedScores = new int[userKeys.length];
+        int count = 0;
+        for (int i = 0; i < userKeys.length; i++) {
+            if (changed[i]) {
+                changedUsers[count] = dictionary.userId(userKeys[i]);
+                changedScores[count++] = scores[i];
+            }
+        }
+        if (count > 0) {
+            log.appendScores(board.handle, changedUsers, changedScores, count);
+        }
+    }
+
+    // Rebuilds every board into an empty repository: archived boards are mapped from their
+    // archive files, then snapshots load one board per task, then the log tail is read in order
+    // but applied to each board in parallel. Call before the repository takes any writes.
+    public RecoveryReport recover(LeaderboardRepository repository) throws IOException {
+        recovering = true;
+        try {
+            long start = System.nanoTime();
+            int archived = repository.restoreArchivedLeaderboards().size();
+            Map<Integer, Leaderboard> byHandle = new ConcurrentHashMap<>();
+            long snapshotEntries;
+            try {
+                snapshotEntries = snapshotFiles().parallelStream()
+                        .mapToLong(file -> restoreSnapshot(repository, file, byHandle))
+                        .sum();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            long snapshotsDone = System.nanoTime();
+
+            Map<Integer, ScoreBuffer> tail = new HashMap<>();
+            long records = WriteAheadLog.replay(logDirectory, new WriteAheadLog.RecordVisitor() {
+                @Override
+                public void created(int handle, String id, String gameId, long startTime, long endTime, LeaderboardStorage storage,
+                        int partitions) {
+                    if (!byHandle.containsKey(handle)) {
+                        restore(repository, handle, id, gameId, startTime, endTime, storage, partitions, byHandle);
+                    }
+                }
+
+                @Override
+                public void scores(int handle, String[] userIds, int[] scores) {
+                    tail.computeIfAbsent(handle, h -> new ScoreBuffer()).add(userIds, scores);
+                }
+            });
+            long logScores = tail.entrySet().parallelStream()
+                    .filter(entry -> byHandle.containsKey(entry.getKey()) && isWritable(byHandle.get(entry.getKey())))
+                    .mapToLong(entry -> apply(byHandle.get(entry.getKey()), entry.getValue().userIds, entry.getValue().scores,
+                            entry.getValue().size))
+                    .sum();
+            nextHandle.set(byHandle.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1);
+            long done = System.nanoTime();
+            return new RecoveryReport(repository.getAllLeaderboards().size(), archived, snapshotEntries, records, logScores,
+                    TimeUnit.NANOSECONDS.toMillis(snapshotsDone - start), TimeUnit.NANOSECONDS.toMillis(done - snapshotsDone));
+        } finally {
+            recovering = false;
+        }
+    }
+
+    // Snapshots every board that changed since its last snapshot, then deletes the log
+    // segments and snapshot files that are no longer needed
+    public synchronized void checkpoint() throws IOException {
+        long segment = log.roll();
+        for (LoggedBoard board : boards.values()) {
+            Leaderboard leaderboard = board.leaderboard;
+            if (leaderboard.getState() == LeaderboardState.ARCHIVED || leaderboard.getState() == LeaderboardState.EVICTED) {
+                boards.remove(leaderboard.getId());
+                continue;
+            }
+            LeaderboardSnapshot snapshot = leaderboard.snapshot();
+            if (snapshot.getVersion() != board.snapshotVersion) {
+                SnapshotFile.write(snapshotFile(leaderboard.getId()), board.handle, leaderboard, snapshot);
+                board.snapshotVersion = snapshot.getVersion();
+            }
+        }
+        for (Path file : snapshotFiles()) {
+            String name = file.getFileName().toString();
+            if (!boards.containsKey(name.substring(0, name.length() - SNAPSHOT_SUFFIX.length()))) {
+                Files.deleteIfExists(file);
+            }
+        }
+        log.deleteSegmentsBefore(segment);
+    }
+
+    // Checkpoints in the background. A failed checkpoint is counted under CHECKPOINT_FAILURES in
+    // metrics and retried at the next interval; the log still holds everything, but it is not
+    // trimmed until a checkpoint succeeds.
+    public void scheduleCheckpoints(long intervalSeconds, MetricsRegistry metrics) {
+        LongAdder failures = metrics.counter(MetricNames.CHECKPOINT_FAILURES);
+        checkpointer.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+                lastCheckpointFailure = null;
+            } catch (IOException | RuntimeException e) {
+                failures.increment();
+                lastCheckpointFailure = e;
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    // Why the latest background checkpoint failed, or null if it succeeded or none has run yet
+    public Exception getLastCheckpointFailure() {
+        return lastCheckpointFailure;
+    }
+
+    // Stops checkpointing and closes the log; everything already logged is on disk
+    @Override
+    public void close() {
+        checkpointer.shutdownNow();
+        try {
+            checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+    }
+
+    private long restoreSnapshot(LeaderboardRepository repository, Path file, Map<Integer, Leaderboard> byHandle) {
+        SnapshotFile snapshot;
+        try {
+            snapshot = SnapshotFile.read(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Leaderboard leaderboard = restore(repository, snapshot.handle, snapshot.id, snapshot.gameId, snapshot.startTime,
+                snapshot.endTime, snapshot.storage, snapshot.partitions, byHandle);
+        if (!isWritable(leaderboard)) {
+            // Archived since this snapshot was taken; the archive already holds everything
+            return 0;
+        }
+        return apply(leaderboard, snapshot.userIds, snapshot.scores, snapshot.userIds.length);
+    }
+
+    private Leaderboard restore(LeaderboardRepository repository, int handle, String id, String gameId, long startTime,
+            long endTime, LeaderboardStorage storage, int partitions, Map<Integer, Leaderboard> byHandle) {
+        Leaderboard leaderboard = repository.restoreLeaderboard(id, gameId, startTime, endTime, storage, partitions);
+        boards.put(id, new LoggedBoard(handle, leaderboard));
+        byHandle.put(handle, leaderboard);
+        return leaderboard;
+    }
+
+    private static boolean isWritable(Leaderboard leaderboard) {
+        return leaderboard.getState() == LeaderboardState.ACTIVE;
+    }
+
+    // Applies the first count scores in large batches; returns count. A batch on a partitioned
+    // board publishes partition by partition, which would reorder achievement ties across
+    // partitions, so those boards take the scores one at a time in the order given.
+    private static long apply(Leaderboard leaderboard, String[] userIds, int[] scores, int count) {
+        UserDictionary dictionary = leaderboard.getUserDictionary();
+        if (leaderboard.getTieBreak() == TieBreak.FIRST_ACHIEVED && leaderboard.getPartitions() > 1) {
+            for (int i = 0; i < count; i++) {
+                leaderboard.updateScore(dictionary.intern(userIds[i]), scores[i]);
+            }
+            return count;
+        }
+        for (int from = 0; from < count; from += RESTORE_BATCH) {
+            int to = Math.min(count, from + RESTORE_BATCH);
+            int[] userKeys = new int[to - from];
+            for (int i = from; i < to; i++) {
+                userKeys[i - from] = dictionary.intern(userIds[i]);
+            }
+            leaderboard.updateScores(userKeys, Arrays.copyOfRange(scores, from, to));
+        }
+        return count;
+    }
+
+    private List<Path> snapshotFiles() throws IOException {
+        try (Stream<Path> files = Files.list(snapshotDirectory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SNAPSHOT_SUFFIX))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private Path snapshotFile(String leaderboardId) {
+        return snapshotDirectory.resolve(leaderboardId + SNAPSHOT_SUFFIX);
+    }
+
+    private static final class LoggedBoard {
+        final int handle;
+        final Leaderboard leaderboard;
+        long snapshotVersion = -1; // checkpoint thread only
+
+        LoggedBoard(int handle, Leaderboard leaderboard) {
+            this.handle = handle;
+            this.leaderboard = leaderboard;
+        }
+    }
+
+    // One board's log tail, concatenated across records
+    private static final class ScoreBuffer {
+        String[] userIds = new String[16];
+        int[] scores = new int[16];
+        int size;
+
+        void add(String[] moreUserIds, int[] moreScores) {
+            if (size + moreUserIds.length > userIds.length) {
+                int capacity = Math.max(userIds.length * 2, size + moreUserIds.length);
+                userIds = Arrays.copyOf(userIds, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+            }
+            System.arraycopy(moreUserIds, 0, userIds, size, moreUserIds.length);
+            System.arraycopy(moreScores, 0, scores, size, moreScores.length);
+            size += moreUserIds.length;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.phonepe.leaderboard.persistence;
+
+// What LeaderboardPersistence.recover rebuilt and how long each phase took
+public class RecoveryReport {
+    private final int leaderboards;
+    private final int archivedLeaderboards;
+    private final long snapshotEntries;
+    private final long logRecords;
+    private final long logScores;
+    private final long snapshotMillis;
+    private final long logMillis;
+
+    RecoveryReport(int leaderboards, int archivedLeaderboards, long snapshotEntries, long logRecords, long logScores, long snapshotMillis, long logMillis) {
+        this.leaderboards = leaderboards;
+        this.archivedLeaderboards = archivedLeaderboards;
+        this.snapshotEntries = snapshotEntries;
+        this.logRecords = logRecords;
+        this.logScores = logScores;
+        this.snapshotMillis = snapshotMillis;
+        this.logMillis = logMillis;
+    }
+
+    public int getLeaderboards() {
+        return leaderboards;
+    }
+
+    // Of those, boards reopened from their memory-mapped archives without loading any entries
+    public int getArchivedLeaderboards() {
+        return archivedLeaderboards;
+    }
+
+    // Entries loaded from snapshot files
+    public long getSnapshotEntries() {
+        return snapshotEntries;
+    }
+
+    // Write-ahead log records read after the snapshots
+    public long getLogRecords() {
+        return logRecords;
+    }
+
+    // Scores those records carried, each replayed onto its board
+    public long getLogScores() {
+        return logScores;
+    }
+
+    public long getSnapshotMillis() {
+        return snapshotMillis;
+    }
+
+    public long getLogMillis() {
+        return logMillis;
+    }
+
+    public long getTotalMillis() {
+        return snapshotMillis + logMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "RecoveryReport{" +
+                "leaderboards=" + leaderboards +
+                ", archivedLeaderboards=" + archivedLeaderboards +
+                ", snapshotEntries=" + snapshotEntries +
+                ", logRecords=" + logRecords +
+                ", logScores=" + logScores +
+                ", snapshotMillis=" + snapshotMillis +
+                ", logMillis=" + logMillis +
+                '}';
+    }
+}
@@ -0,0 +1,101 @@
+package com.phonepe.leaderboard.persistence;
+
+import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.model.LeaderboardSnapshot;
+import com.phonepe.leaderboard.model.LeaderboardStorage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+// One board's metadata and entries, in rank order. Unlike archive files, entries carry the
+// user id itself rather than the process-local interned key, so a snapshot outlives the
+// process that wrote it.
+final class SnapshotFile {
+    private static final int MAGIC = 0x4C42534E; // "LBSN"
+    private static final int VERSION = 1;
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    final int handle;
+    final String id;
+    final String gameId;
+    final long startTime;
+    final long endTime;
+    final LeaderboardStorage storage;
+    final int partitions;
+    final String[] userIds;
+    final int[] scores;
+
+    private SnapshotFile(int handle, String id, String gameId, long startTime, long endTime, LeaderboardStorage storage,
+            int partitions, String[] userIds, int[] scores) {
+        this.handle = handle;
+        this.id = id;
+        this.gameId = gameId;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.storage = storage;
+        this.partitions = partitions;
+        this.userIds = userIds;
+        this.scores = scores;
+    }
+
+    // Writes the snapshot to file, replacing anything already there
+    static void write(Path file, int handle, Leaderboard leaderboard, LeaderboardSnapshot snapshot) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_BYTES))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(handle);
+            out.writeUTF(leaderboard.getId());
+            out.writeUTF(leaderboard.getGameId());
+            out.writeLong(leaderboard.getStartTime());
+            out.writeLong(leaderboard.getEndTime());
+            out.writeByte(leaderboard.getStorage().ordinal());
+            out.writeInt(leaderboard.getPartitions());
+            out.writeInt(snapshot.size());
+            snapshot.forEachEntry((userId, score) -> {
+                try {
+                    out.writeInt(score);
+                    out.writeUTF(userId);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static SnapshotFile read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_BYTES))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a leaderboard snapshot: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported leaderboard snapshot version " + version + ": " + file);
+            }
+            int handle = in.readInt();
+            String id = in.readUTF();
+            String gameId = in.readUTF();
+            long startTime = in.readLong();
+            long endTime = in.readLong();
+            LeaderboardStorage storage = LeaderboardStorage.values()[in.readByte()];
+            int partitions = in.readInt();
+            int size = in.readInt();
+            String[] userIds = new String[size];
+            int[] scores = new int[size];
+            for (int i = 0; i < size; i++) {
+                scores[i] = in.readInt();
+                userIds[i] = in.readUTF();
+            }
+            return new SnapshotFile(handle, id, gameId, startTime, endTime, storage, partitions, userIds, scores);
+        }
+    }
+}
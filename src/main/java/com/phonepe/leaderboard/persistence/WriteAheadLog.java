@@ -0,0 +1,404 @@
+package com.phonepe.leaderboard.persistence;
+
+import com.phonepe.leaderboard.model.LeaderboardStorage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Append-only binary log of board creations and score changes, split into numbered segment
+// files. Appenders encode their record, copy it into a shared buffer and wait; one flusher
+// thread writes everything that has accumulated with a single FileChannel write and force.
+// Appenders that arrive while a force is running share the next one (group commit), so the
+// fsync cost is paid per flush, not per record.
+//
+// Record layout: int payload length, int CRC32 of the payload, payload. A crash can leave a
+// torn record at the end of the segment being written, and reading that segment stops there.
+// Reopening never appends to an existing segment, so such a segment can later be followed by
+// newer ones. An unreadable record anywhere before the end of a segment fails replay instead.
+public final class WriteAheadLog implements Closeable {
+    static final byte CREATE = 1;
+    static final byte SCORES = 2;
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition dataAvailable = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final Thread flusher;
+
+    // Guarded by lock
+    private ByteBuffer pending = ByteBuffer.allocate(1 << 16);
+    private long appended; // records handed to the log
+    private long durable; // records forced to disk
+    private int rollAt = -1; // position in pending where a new segment starts
+    private long openSegment; // segment the flusher is writing
+    private volatile IOException failure; // set once; volatile so checkWritable can skip the lock
+    private volatile boolean closed; // likewise
+
+    private FileChannel channel; // flusher thread only after construction
+
+    private WriteAheadLog(Path directory, long segment) throws IOException {
+        this.directory = directory;
+        this.openSegment = segment;
+        this.channel = openSegment(segment);
+        this.flusher = new Thread(this::flushUntilClosed, "leaderboard-wal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // Never appends to an existing segment, whose tail may be torn; new records go to a new one
+    public static WriteAheadLog open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        List<Long> existing = segments(directory);
+        return new WriteAheadLog(directory, existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1);
+    }
+
+    public void appendCreate(int handle, String id, String gameId, long startTime, long endTime, LeaderboardStorage storage,
+            int partitions) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(CREATE);
+            out.writeInt(handle);
+            out.writeUTF(id);
+            out.writeUTF(gameId);
+            out.writeLong(startTime);
+            out.writeLong(endTime);
+            out.writeByte(storage.ordinal());
+            out.writeInt(partitions);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        append(bytes.toByteArray());
+    }
+
+    // Logs the first count (userId, score) pairs for the board with the given handle
+    public void appendScores(int handle, String[] userIds, int[] scores, int count) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + count * 24);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(SCORES);
+            out.writeInt(handle);
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                out.writeInt(scores[i]);
+                out.writeUTF(userIds[i]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        append(bytes.toByteArray());
+    }
+
+    // Throws if records can no longer be appended: a write or force failed, or the log is closed
+    public void checkWritable() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+    }
+
+    // Starts a new segment: everything appended before this call lands in older segments and
+    // everything after in the new one. Returns the new segment's number once it is open.
+    public long roll() {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Write-ahead log is closed");
+            }
+            while (rollAt >= 0) {
+                awaitFlushOrFailure();
+            }
+            long target = openSegment + 1;
+            rollAt = pending.position();
+            dataAvailable.signal();
+            while (openSegment < target) {
+                awaitFlushOrFailure();
+            }
+            return target;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Deletes segments numbered below the given one, i.e. those a checkpoint has covered
+    public void deleteSegmentsBefore(long segment) throws IOException {
+        for (long number : segments(directory)) {
+            if (number < segment) {
+                Files.deleteIfExists(segmentFile(directory, number));
+            }
+        }
+    }
+
+    // Writes out what has been appended and stops the flusher
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            dataAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Visits every intact record of every segment in the directory, oldest first. Throws if a
+    // segment is corrupt before its tail.
+    public static long replay(Path directory, RecordVisitor visitor) throws IOException {
+        long records = 0;
+        if (!Files.isDirectory(directory)) {
+            return records;
+        }
+        for (long segment : segments(directory)) {
+            records += replaySegment(segmentFile(directory, segment), visitor);
+        }
+        return records;
+    }
+
+    private void append(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        lock.lock();
+        try {
+            checkWritable();
+            ensureCapacity(HEADER_BYTES + payload.length);
+            pending.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+            long record = ++appended;
+            dataAvailable.signal();
+            while (durable < record && failure == null) {
+                awaitFlush();
+            }
+            if (durable < record) {
+                throw new UncheckedIOException("Write-ahead log failed", failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitFlush() {
+        flushed.awaitUninterruptibly();
+    }
+
+    private void awaitFlushOrFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log failed", failure);
+        }
+        awaitFlush();
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (pending.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+    }
+
+    private void flushUntilClosed() {
+        ByteBuffer writing = ByteBuffer.allocate(pending.capacity());
+        while (true) {
+            long upTo;
+            int roll;
+            lock.lock();
+            try {
+                while (pending.position() == 0 && rollAt < 0 && !closed) {
+                    dataAvailable.awaitUninterruptibly();
+                }
+                if (pending.position() == 0 && rollAt < 0) {
+                    break;
+                }
+                ByteBuffer full = pending;
+                pending = writing;
+                writing = full;
+                upTo = appended;
+                roll = rollAt;
+                rollAt = -1;
+            } finally {
+                lock.unlock();
+            }
+
+            long segment = openSegment;
+            try {
+                writing.flip();
+                if (roll >= 0) {
+                    ByteBuffer before = writing.duplicate();
+                    before.limit(roll);
+                    write(before);
+                    channel.close();
+                    segment++;
+                    channel = openSegment(segment);
+                    writing.position(roll);
+                }
+                write(writing);
+                writing.clear();
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    failure = e;
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+
+            lock.lock();
+            try {
+                durable = upTo;
+                openSegment = segment;
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Everything appended was already forced
+        }
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    private FileChannel openSegment(long segment) throws IOException {
+        return FileChannel.open(segmentFile(directory, segment),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // Stops quietly at a torn tail: a record running past the end of the file, a bad record
+    // that ends exactly there, or zeros through to the end. A bad record with data after it is
+    // corruption, and replaying the records beyond it over the gap would be wrong.
+    private static long replaySegment(Path file, RecordVisitor visitor) throws IOException {
+        long records = 0;
+        long size = Files.size(file);
+        long offset = 0; // start of the record being read
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    long remaining = size - offset - HEADER_BYTES;
+                    // A torn header can hold any length; one past the end of the file is the tail
+                    if (length > remaining) {
+                        return records;
+                    }
+                    if (length <= 0) {
+                        if (length == 0 && checksum == 0 && zerosToEnd(in)) {
+                            return records;
+                        }
+                        throw corrupt(file, offset);
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    CRC32 crc = new CRC32();
+                    crc.update(payload);
+                    if ((int) crc.getValue() != checksum) {
+                        if (length == remaining) {
+                            return records;
+                        }
+                        throw corrupt(file, offset);
+                    }
+                    offset += HEADER_BYTES + length;
+                } catch (EOFException e) {
+                    return records;
+                }
+                visit(new DataInputStream(new ByteArrayInputStream(payload)), visitor);
+                records++;
+            }
+        }
+    }
+
+    private static boolean zerosToEnd(DataInputStream in) throws IOException {
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static IOException corrupt(Path file, long offset) {
+        return new IOException("Corrupt write-ahead log record at offset " + offset + " of " + file
+                + " with intact data after it");
+    }
+
+    private static void visit(DataInputStream record, RecordVisitor visitor) throws IOException {
+        byte type = record.readByte();
+        int handle = record.readInt();
+        if (type == CREATE) {
+            String id = record.readUTF();
+            String gameId = record.readUTF();
+            long startTime = record.readLong();
+            long endTime = record.readLong();
+            LeaderboardStorage storage = LeaderboardStorage.values()[record.readByte()];
+            int partitions = record.readInt();
+            visitor.created(handle, id, gameId, startTime, endTime, storage, partitions);
+        } else if (type == SCORES) {
+            int count = record.readInt();
+            String[] userIds = new String[count];
+            int[] scores = new int[count];
+            for (int i = 0; i < count; i++) {
+                scores[i] = record.readInt();
+                userIds[i] = record.readUTF();
+            }
+            visitor.scores(handle, userIds, scores);
+        } else {
+            throw new IOException("Unknown write-ahead log record type " + type);
+        }
+    }
+
+    private static List<Long> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private static Path segmentFile(Path directory, long segment) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    public interface RecordVisitor {
+        void created(int handle, String id, String gameId, long startTime, long endTime, LeaderboardStorage storage, int partitions);
+
+        void scores(int handle, String[] userIds, int[] scores);
+    }
+}
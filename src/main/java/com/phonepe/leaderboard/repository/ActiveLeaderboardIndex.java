@@ -0,0 +1,110 @@
+package com.phonepe.leaderboard.repository;
+
+import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.util.TimeProvider;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Routing table from gameId to the boards currently accepting scores. The table is an immutable
+// map of arrays, rebuilt only when a board is added or removed or a start/end boundary passes,
+// so a lookup is one volatile read and one clock read, with no allocation.
+//
+// The scheduler rebuilds the table as each boundary passes. The clock check on lookup keeps
+// routing exact to the second even if the scheduled refresh runs late.
+class ActiveLeaderboardIndex {
+    private static final Leaderboard[] NONE = new Leaderboard[0];
+
+    private final TimeProvider timeProvider;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, List<Leaderboard>> boardsByGame = new HashMap<>(); // guarded by this
+    private volatile Routes routes;
+    private ScheduledFuture<?> pendingRefresh; // guarded by this
+
+    private static final class Routes {
+        final Map<String, Leaderboard[]> active;
+        final long validFrom;
+        final long validUntil; // first second at which some board starts or stops being active
+
+        Routes(Map<String, Leaderboard[]> active, long validFrom, long validUntil) {
+            this.active = active;
+            this.validFrom = validFrom;
+            this.validUntil = validUntil;
+        }
+    }
+
+    ActiveLeaderboardIndex(TimeProvider timeProvider, ScheduledExecutorService scheduler) {
+        this.timeProvider = timeProvider;
+        this.scheduler = scheduler;
+        this.routes = new Routes(new HashMap<>(), Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    // Boards active right now; the array is shared and must not be modified
+    Leaderboard[] activeFor(String gameId) {
+        Routes current = routes;
+        long now = timeProvider.getCurrentTimeInSeconds();
+        if (now < current.validFrom || now >= current.validUntil) {
+            current = refresh();
+        }
+        return current.active.getOrDefault(gameId, NONE);
+    }
+
+    synchronized void add(Leaderboard leaderboard) {
+        boardsByGame.computeIfAbsent(leaderboard.getGameId(), k -> new ArrayList<>()).add(leaderboard);
+        refresh();
+    }
+
+    synchronized void remove(Leaderboard leaderboard) {
+        List<Leaderboard> boards = boardsByGame.get(leaderboard.getGameId());
+        if (boards != null && boards.remove(leaderboard)) {
+            if (boards.isEmpty()) {
+                boardsByGame.remove(leaderboard.getGameId());
+            }
+            refresh();
+        }
+    }
+
+    // Recomputes the table for the current time and schedules the next rebuild
+    synchronized Routes refresh() {
+        long now = timeProvider.getCurrentTimeInSeconds();
+        Map<String, Leaderboard[]> active = new HashMap<>();
+        long next = Long.MAX_VALUE;
+        for (Map.Entry<String, List<Leaderboard>> game : boardsByGame.entrySet()) {
+            List<Leaderboard> live = new ArrayList<>();
+            for (Leaderboard leaderboard : game.getValue()) {
+                long start = leaderboard.getStartTime();
+                long end = leaderboard.getEndTime();
+                if (start > now) {
+                    next = Math.min(next, start);
+                } else if (end >= now) {
+                    live.add(leaderboard);
+                    // Same inclusive window as Leaderboard.isActive: the board closes once end has passed
+                    if (end < Long.MAX_VALUE) {
+                        next = Math.min(next, end + 1);
+                    }
+                }
+            }
+            if (!live.isEmpty()) {
+                active.put(game.getKey(), live.toArray(NONE));
+            }
+        }
+        Routes updated = new Routes(active, now, next);
+        routes = updated;
+        scheduleRefresh(now, next);
+        return updated;
+    }
+
+    private void scheduleRefresh(long now, long next) {
+        if (pendingRefresh != null) {
+            pendingRefresh.cancel(false);
+            pendingRefresh = null;
+        }
+        if (next != Long.MAX_VALUE && !scheduler.isShutdown()) {
+            pendingRefresh = scheduler.schedule(this::refresh, next - now, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.phonepe.leaderboard.repository;
+
+import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.model.LeaderboardState;
+import com.phonepe.leaderboard.util.TimeProvider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Moves ended boards through FROZEN -> ARCHIVED -> EVICTED based on how long ago they ended,
+// so a repository's memory tracks its live boards rather than every board it ever created.
+// The repository runs sweep() on its maintenance thread; sweeps are idempotent and a board
+// that was due for several stages jumps straight to the last one.
+public class LeaderboardLifecycleManager {
+    private static final String ARCHIVE_SUFFIX = ".lb";
+
+    private final LeaderboardRepository repository;
+    private final TimeProvider timeProvider;
+    private final Path archiveDirectory;
+    private final long freezeAfterSeconds;
+    private final long archiveAfterSeconds;
+    private final long evictAfterSeconds;
+    private final LongAdder failures;
+
+    // failures counts board transitions that threw
+    LeaderboardLifecycleManager(LeaderboardRepository repository, TimeProvider timeProvider, Path archiveDirectory,
+            long freezeAfterSeconds, long archiveAfterSeconds, long evictAfterSeconds, LongAdder failures) {
+        if (freezeAfterSeconds > archiveAfterSeconds || archiveAfterSeconds > evictAfterSeconds) {
+            throw new IllegalArgumentException("Lifecycle stages must be in order: freeze <= archive <= evict");
+        }
+        this.repository = repository;
+        this.timeProvider = timeProvider;
+        this.archiveDirectory = archiveDirectory;
+        this.freezeAfterSeconds = freezeAfterSeconds;
+        this.archiveAfterSeconds = archiveAfterSeconds;
+        this.evictAfterSeconds = evictAfterSeconds;
+        this.failures = failures;
+    }
+
+    // Applies every transition that is due. A board whose transition fails stays where it was
+    // and is retried on the next sweep while the sweep carries on with the other boards. Each
+    // failure is counted; the first is rethrown at the end.
+    public synchronized void sweep() {
+        long now = timeProvider.getCurrentTimeInSeconds();
+        Exception failure = null;
+        for (Leaderboard leaderboard : repository.getAllLeaderboards()) {
+            if (now <= leaderboard.getEndTime()) {
+                continue;
+            }
+            long endedFor = now - leaderboard.getEndTime();
+            try {
+                if (endedFor >= evictAfterSeconds) {
+                    evict(leaderboard);
+                } else if (endedFor >= archiveAfterSeconds) {
+                    if (leaderboard.getState() != LeaderboardState.ARCHIVED) {
+                        Files.createDirectories(archiveDirectory);
+                        leaderboard.archive(archiveFile(leaderboard));
+                    }
+                } else if (endedFor >= freezeAfterSeconds) {
+                    leaderboard.freeze();
+                }
+            } catch (IOException | RuntimeException e) {
+                failures.increment();
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure instanceof IOException) {
+            throw new UncheckedIOException("Failed to archive leaderboard", (IOException) failure);
+        }
+        if (failure != null) {
+            throw (RuntimeException) failure;
+        }
+    }
+
+    Path archiveFile(Leaderboard leaderboard) {
+        return archiveDirectory.resolve(leaderboard.getId() + ARCHIVE_SUFFIX);
+    }
+
+    // Every complete archive in the directory; temp files of interrupted writes are skipped
+    List<Path> archiveFiles() throws IOException {
+        if (!Files.isDirectory(archiveDirectory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(archiveDirectory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(ARCHIVE_SUFFIX))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    // Removes the archive directory and everything in it
+    void deleteArchiveDirectory() throws IOException {
+        if (!Files.exists(archiveDirectory)) {
+            return;
+        }
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(archiveDirectory)) {
+            paths = walk.collect(Collectors.toCollection(ArrayList::new));
+        }
+        Collections.reverse(paths);
+        for (Path path : paths) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private void evict(Leaderboard leaderboard) throws IOException {
+        repository.remove(leaderboard);
+        leaderboard.evict();
+        Files.deleteIfExists(archiveFile(leaderboard));
+    }
+}
@@ -1,28 +1,172 @@
 package com.phonepe.leaderboard.repository;
 
+import com.phonepe.leaderboard.config.LeaderboardConfig;
+import com.phonepe.leaderboard.index.UserDictionary;
+import com.phonepe.leaderboard.metrics.MetricNames;
+import com.phonepe.leaderboard.metrics.MetricsRegistry;
+import com.phonepe.leaderboard.model.DerivedScores;
 import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.model.LeaderboardChangeLog;
 import com.phonepe.leaderboard.model.LeaderboardFactory;
+import com.phonepe.leaderboard.model.LeaderboardState;
+import com.phonepe.leaderboard.model.LeaderboardStorage;
+import com.phonepe.leaderboard.model.TieBreak;
 import com.phonepe.leaderboard.util.TimeProvider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class LeaderboardRepository {
     private final Map<String, Leaderboard> leaderboards; // leaderboardId -> Leaderboard
     private final Map<String, Set<String>> gameLeaderboards; // gameId -> Set of leaderboardIds
+    private final UserDictionary userDictionary; // userId <-> int, shared by every leaderboard
     private final LeaderboardFactory leaderboardFactory;
+    private final ScheduledExecutorService scheduler; // background maintenance: routing refreshes, lifecycle sweeps
+    private final ActiveLeaderboardIndex activeIndex; // gameId -> boards accepting scores right now
+    private final LeaderboardLifecycleManager lifecycleManager;
+    private final LeaderboardChangeLog changeLog;
+    private final MetricsRegistry metrics;
+    private final boolean temporaryArchive; // the archive directory is this instance's own, deleted on shutdown
 
+    // Archives into a directory of its own under java.io.tmpdir, created on first use and
+    // deleted by shutdown()
     public LeaderboardRepository(TimeProvider timeProvider) {
+        this(timeProvider, new MetricsRegistry());
+    }
+
+    // As above, recording into metrics
+    public LeaderboardRepository(TimeProvider timeProvider, MetricsRegistry metrics) {
+        this(timeProvider, Paths.get(System.getProperty("java.io.tmpdir"), "leaderboard-archive-" + UUID.randomUUID()),
+                LeaderboardChangeLog.NONE, metrics,
+                LeaderboardConfig.FIRST_ACHIEVED_TIES ? TieBreak.FIRST_ACHIEVED : TieBreak.FIRST_SEEN, true);
+    }
+
+    // archiveDirectory holds boards that ended more than ARCHIVE_AFTER_SECONDS ago
+    public LeaderboardRepository(TimeProvider timeProvider, Path archiveDirectory) {
+        this(timeProvider, archiveDirectory, LeaderboardChangeLog.NONE);
+    }
+
+    // changeLog records board creations and score changes, e.g. to a write-ahead log
+    public LeaderboardRepository(TimeProvider timeProvider, Path archiveDirectory, LeaderboardChangeLog changeLog) {
+        this(timeProvider, archiveDirectory, changeLog, new MetricsRegistry());
+    }
+
+    // metrics receives the boards' update counters and the repository's board, entry and memory gauges
+    public LeaderboardRepository(TimeProvider timeProvider, Path archiveDirectory, LeaderboardChangeLog changeLog,
+            MetricsRegistry metrics) {
+        this(timeProvider, archiveDirectory, changeLog, metrics,
+                LeaderboardConfig.FIRST_ACHIEVED_TIES ? TieBreak.FIRST_ACHIEVED : TieBreak.FIRST_SEEN, false);
+    }
+
+    // tieBreak applies to every board created or restored here; a durable repository must be
+    // reopened with the one it ran with
+    public LeaderboardRepository(TimeProvider timeProvider, Path archiveDirectory, LeaderboardChangeLog changeLog,
+            MetricsRegistry metrics, TieBreak tieBreak) {
+        this(timeProvider, archiveDirectory, changeLog, metrics, tieBreak, false);
+    }
+
+    private LeaderboardRepository(TimeProvider timeProvider, Path archiveDirectory, LeaderboardChangeLog changeLog,
+            MetricsRegistry metrics, TieBreak tieBreak, boolean temporaryArchive) {
+        this.temporaryArchive = temporaryArchive;
         this.leaderboards = new ConcurrentHashMap<>();
         this.gameLeaderboards = new ConcurrentHashMap<>();
-        this.leaderboardFactory = new LeaderboardFactory(timeProvider);
+        this.userDictionary = new UserDictionary();
+        this.changeLog = changeLog;
+        this.metrics = metrics;
+        this.leaderboardFactory = new LeaderboardFactory(timeProvider, userDictionary, changeLog, metrics, tieBreak);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "leaderboard-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.activeIndex = new ActiveLeaderboardIndex(timeProvider, scheduler);
+        this.lifecycleManager = new LeaderboardLifecycleManager(this, timeProvider, archiveDirectory,
+                LeaderboardConfig.FREEZE_AFTER_SECONDS, LeaderboardConfig.ARCHIVE_AFTER_SECONDS, LeaderboardConfig.EVICT_AFTER_SECONDS,
+                metrics.counter(MetricNames.LIFECYCLE_FAILURES));
+        scheduler.scheduleWithFixedDelay(this::runLifecycleSweep, LeaderboardConfig.LIFECYCLE_SWEEP_INTERVAL_SECONDS,
+                LeaderboardConfig.LIFECYCLE_SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        registerGauges();
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    public UserDictionary getUserDictionary() {
+        return userDictionary;
+    }
+
+    public LeaderboardLifecycleManager getLifecycleManager() {
+        return lifecycleManager;
     }
 
     public Leaderboard createLeaderboard(String gameId, long startTime, long endTime) {
-        Leaderboard leaderboard = leaderboardFactory.createLeaderboard(gameId, startTime, endTime);
-        
+        return createLeaderboard(gameId, startTime, endTime, LeaderboardStorage.HEAP);
+    }
+
+    public Leaderboard createLeaderboard(String gameId, long startTime, long endTime, LeaderboardStorage storage) {
+        return createLeaderboard(gameId, startTime, endTime, storage, LeaderboardConfig.DEFAULT_PARTITIONS);
+    }
+
+    public Leaderboard createLeaderboard(String gameId, long startTime, long endTime, LeaderboardStorage storage, int partitions) {
+        Leaderboard leaderboard = leaderboardFactory.createLeaderboard(gameId, startTime, endTime, storage, partitions);
+        // Logged before it is routable, so no score for it can reach the log ahead of its creation
+        changeLog.leaderboardCreated(leaderboard);
+        return register(leaderboard, true);
+    }
+
+    // Board of a rollup window under a caller-chosen id, or the one already registered under it.
+    // It is not routed: the rollup feeds it, so game submissions must not reach it directly.
+    public synchronized Leaderboard createRollupLeaderboard(String id, String gameId, long startTime, long endTime,
+            DerivedScores derived) {
+        Leaderboard existing = leaderboards.get(id);
+        if (existing != null) {
+            return existing;
+        }
+        return register(leaderboardFactory.createRollupLeaderboard(id, gameId, startTime, endTime, derived), false);
+    }
+
+    // Re-creates a board recovered from disk under its original id without logging it again.
+    // Returns the board already registered under that id, if any.
+    public synchronized Leaderboard restoreLeaderboard(String id, String gameId, long startTime, long endTime,
+            LeaderboardStorage storage, int partitions) {
+        Leaderboard existing = leaderboards.get(id);
+        if (existing != null) {
+            return existing;
+        }
+        return register(leaderboardFactory.createLeaderboard(id, gameId, startTime, endTime, storage, partitions), true);
+    }
+
+    // Reopens every board archived into the archive directory by an earlier process. They come
+    // back ARCHIVED and memory-mapped, so this costs one mmap per board however large it is.
+    // Boards already registered are skipped; returns the ones added.
+    public synchronized List<Leaderboard> restoreArchivedLeaderboards() throws IOException {
+        List<Leaderboard> restored = new ArrayList<>();
+        for (Path file : lifecycleManager.archiveFiles()) {
+            Leaderboard leaderboard = leaderboardFactory.openArchivedLeaderboard(file);
+            if (!leaderboards.containsKey(leaderboard.getId())) {
+                restored.add(register(leaderboard, true));
+            }
+        }
+        return restored;
+    }
+
+    private Leaderboard register(Leaderboard leaderboard, boolean routed) {
         leaderboards.put(leaderboard.getId(), leaderboard);
-        gameLeaderboards.computeIfAbsent(gameId, k -> new HashSet<>()).add(leaderboard.getId());
-        
+        metrics.gauge(MetricNames.boardEntries(leaderboard.getId()), leaderboard::size);
+        gameLeaderboards.computeIfAbsent(leaderboard.getGameId(), k -> ConcurrentHashMap.newKeySet()).add(leaderboard.getId());
+        // A board restored as archived takes no more scores, whatever its time window says
+        if (routed && leaderboard.getState() == LeaderboardState.ACTIVE) {
+            activeIndex.add(leaderboard);
+        }
         return leaderboard;
     }
 
@@ -35,20 +179,86 @@ public class LeaderboardRepository {
     }
 
     public List<Leaderboard> getActiveLeaderboardsForGame(String gameId) {
-        Set<String> leaderboardIds = gameLeaderboards.getOrDefault(gameId, new HashSet<>());
-        List<Leaderboard> activeLeaderboards = new ArrayList<>();
-        
-        for (String leaderboardId : leaderboardIds) {
-            Leaderboard leaderboard = leaderboards.get(leaderboardId);
-            if (leaderboard != null && leaderboard.isActive()) {
-                activeLeaderboards.add(leaderboard);
-            }
-        }
-        
-        return activeLeaderboards;
+        return new ArrayList<>(Arrays.asList(activeIndex.activeFor(gameId)));
+    }
+
+    // Allocation-free variant for the submit path; the returned array is shared, don't modify it
+    public Leaderboard[] getActiveLeaderboards(String gameId) {
+        return activeIndex.activeFor(gameId);
     }
 
     public List<Leaderboard> getAllLeaderboards() {
         return new ArrayList<>(leaderboards.values());
     }
+
+    // Drops an evicted board from every lookup
+    void remove(Leaderboard leaderboard) {
+        leaderboards.remove(leaderboard.getId());
+        metrics.removeGauge(MetricNames.boardEntries(leaderboard.getId()));
+        Set<String> ids = gameLeaderboards.get(leaderboard.getGameId());
+        if (ids != null) {
+            ids.remove(leaderboard.getId());
+        }
+        activeIndex.remove(leaderboard);
+    }
+
+    // Gauges walk the registered boards, so they cost nothing until a snapshot is taken
+    private void registerGauges() {
+        metrics.gauge(MetricNames.BOARDS_ACTIVE, () -> countBoards(LeaderboardState.ACTIVE));
+        metrics.gauge(MetricNames.BOARDS_FROZEN, () -> countBoards(LeaderboardState.FROZEN));
+        metrics.gauge(MetricNames.BOARDS_ARCHIVED, () -> countBoards(LeaderboardState.ARCHIVED));
+        metrics.gauge(MetricNames.ENTRIES, () -> {
+            long entries = 0;
+            for (Leaderboard leaderboard : leaderboards.values()) {
+                entries += leaderboard.size();
+            }
+            return entries;
+        });
+        metrics.gauge(MetricNames.HEAP_USED, () -> ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                metrics.gauge(MetricNames.DIRECT_USED, pool::getMemoryUsed);
+            } else if (pool.getName().equals("mapped")) {
+                metrics.gauge(MetricNames.MAPPED_USED, pool::getMemoryUsed);
+            }
+        }
+    }
+
+    private long countBoards(LeaderboardState state) {
+        long count = 0;
+        for (Leaderboard leaderboard : leaderboards.values()) {
+            if (leaderboard.getState() == state) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void runLifecycleSweep() {
+        try {
+            lifecycleManager.sweep();
+        } catch (RuntimeException e) {
+            // Already counted under LIFECYCLE_FAILURES; rethrowing would cancel the periodic task,
+            // and the failed boards are retried on the next sweep
+        }
+    }
+
+    // Stops background maintenance; the repository stays readable and routing falls back to
+    // on-demand refreshes. A repository archiving into its own temporary directory deletes it,
+    // so boards it archived must not be read afterwards.
+    public void shutdown() {
+        scheduler.shutdownNow();
+        if (!temporaryArchive) {
+            return;
+        }
+        try {
+            // A sweep may still be writing an archive
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            lifecycleManager.deleteArchiveDirectory();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete temporary archive directory", e);
+        }
+    }
 } 
\ No newline at end of file
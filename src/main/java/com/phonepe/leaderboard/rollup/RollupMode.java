@@ -0,0 +1,12 @@
+package com.phonepe.leaderboard.rollup;
+
+// How the board of a rollup window is kept
+public enum RollupMode {
+    // A regular board, updated whenever a score becomes a user's best in the window. Pays the
+    // rank-index update on the write path; reads, caching and notifications work as usual.
+    INCREMENTAL,
+    // No per-user state beyond the shared bests: rebuilt from them when read, at most once per
+    // ROLLUP_REFRESH_MILLIS, and materialized when the window ends. Cheap to write and to keep;
+    // reads may lag by the refresh interval and bypass the query cache and notifications.
+    ON_DEMAND
+}
@@ -0,0 +1,55 @@
+package com.phonepe.leaderboard.rollup;
+
+// One level of a rollup hierarchy: windows of lengthSeconds laid end to end from the season's
+// start. The season itself is the top level, one window spanning it.
+public final class RollupWindow {
+    public static final String SEASON = "season";
+
+    private final String name;
+    private final long lengthSeconds; // 0 for the season
+    private final RollupMode mode;
+
+    public RollupWindow(String name, long lengthSeconds, RollupMode mode) {
+        if (name == null || mode == null) {
+            throw new IllegalArgumentException("name and mode must not be null");
+        }
+        if (lengthSeconds <= 0 && !(SEASON.equals(name) && lengthSeconds == 0)) {
+            throw new IllegalArgumentException("lengthSeconds must be positive");
+        }
+        this.name = name;
+        this.lengthSeconds = lengthSeconds;
+        this.mode = mode;
+    }
+
+    public static RollupWindow hourly(RollupMode mode) {
+        return new RollupWindow("hour", 3_600, mode);
+    }
+
+    public static RollupWindow daily(RollupMode mode) {
+        return new RollupWindow("day", 86_400, mode);
+    }
+
+    public static RollupWindow weekly(RollupMode mode) {
+        return new RollupWindow("week", 7 * 86_400, mode);
+    }
+
+    public static RollupWindow season(RollupMode mode) {
+        return new RollupWindow(SEASON, 0, mode);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getLengthSeconds() {
+        return lengthSeconds;
+    }
+
+    public RollupMode getMode() {
+        return mode;
+    }
+
+    public boolean isSeason() {
+        return lengthSeconds == 0;
+    }
+}
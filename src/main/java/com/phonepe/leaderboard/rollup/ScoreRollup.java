@@ -0,0 +1,235 @@
+package com.phonepe.leaderboard.rollup;
+
+import com.phonepe.leaderboard.index.FrozenScoreStore;
+import com.phonepe.leaderboard.index.ScoreStore;
+import com.phonepe.leaderboard.model.DerivedScores;
+import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.repository.LeaderboardRepository;
+import com.phonepe.leaderboard.util.TimeProvider;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+// A game's window hierarchy (e.g. hour -> day -> week -> season) fed by one ingest path. Every
+// submission updates the user's shared best-score record level by level, smallest window first.
+// Windows nest, so a user's best in the current hour can never exceed their best in the current
+// day: once a score fails to beat the best of one level it cannot beat any larger one, and the
+// submission stops there. Most submissions therefore cost one record read, however many levels
+// there are, and only the levels a score actually improves touch their boards.
+//
+// Each window has a board registered in the repository under a predictable id (see boardId), so
+// every leaderboard query works on it. Boards are created as their window is first reached and
+// follow the usual lifecycle once it ends.
+public final class ScoreRollup {
+    private final LeaderboardRepository repository;
+    private final TimeProvider timeProvider;
+    private final String gameId;
+    private final long seasonStart;
+    private final long seasonEnd;
+    private final Level[] levels;
+    private final UserBestTable bests;
+
+    // windows run from the smallest to the largest, each length dividing the next, with the
+    // season, if given, last. The season is [seasonStart, seasonEnd], inclusive like a board's window.
+    public ScoreRollup(LeaderboardRepository repository, TimeProvider timeProvider, String gameId, long seasonStart,
+            long seasonEnd, List<RollupWindow> windows) {
+        if (seasonStart >= seasonEnd) {
+            throw new IllegalArgumentException("Season start must be before its end");
+        }
+        if (windows.isEmpty()) {
+            throw new IllegalArgumentException("A rollup needs at least one window");
+        }
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < windows.size(); i++) {
+            RollupWindow window = windows.get(i);
+            if (!names.add(window.getName())) {
+                throw new IllegalArgumentException("Duplicate window name: " + window.getName());
+            }
+            if (window.isSeason() && i != windows.size() - 1) {
+                throw new IllegalArgumentException("The season must be the largest window");
+            }
+            if (i > 0 && !window.isSeason() && window.getLengthSeconds() % windows.get(i - 1).getLengthSeconds() != 0) {
+                throw new IllegalArgumentException("Window " + window.getName() + " is not a multiple of "
+                        + windows.get(i - 1).getName());
+            }
+        }
+        this.repository = repository;
+        this.timeProvider = timeProvider;
+        this.gameId = gameId;
+        this.seasonStart = seasonStart;
+        this.seasonEnd = seasonEnd;
+        this.levels = new Level[windows.size()];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = new Level(i, windows.get(i));
+        }
+        this.bests = new UserBestTable(levels.length);
+    }
+
+    public String getGameId() {
+        return gameId;
+    }
+
+    public List<RollupWindow> getWindows() {
+        List<RollupWindow> windows = new ArrayList<>(levels.length);
+        for (Level level : levels) {
+            windows.add(level.window);
+        }
+        return windows;
+    }
+
+    // Applies the score to the current window of every level it improves. Returns whether it
+    // became the user's best in the smallest window; scores outside the season are ignored.
+    public boolean submit(int userKey, int score) {
+        long now = timeProvider.getCurrentTimeInSeconds();
+        if (now < seasonStart || now > seasonEnd) {
+            return false;
+        }
+        for (Level level : levels) {
+            int window = level.windowAt(now);
+            Leaderboard board = level.boardFor(window);
+            // A submission that lost the race with its window's end counts for no level
+            if (board == null || !bests.offer(userKey, level.index, window, score)) {
+                return level.index > 0;
+            }
+            if (level.incremental) {
+                board.updateScore(userKey, score);
+            } else {
+                level.changes.increment();
+            }
+        }
+        return true;
+    }
+
+    // Id of the board of the named window covering epochSeconds, or null if that window has no
+    // board: it has not started, or it passed without a score
+    public String getLeaderboardId(String windowName, long epochSeconds) {
+        Level level = levelNamed(windowName);
+        if (epochSeconds < seasonStart || epochSeconds > seasonEnd) {
+            return null;
+        }
+        int window = level.windowAt(epochSeconds);
+        String id = boardId(level, window);
+        if (repository.getLeaderboard(id) != null) {
+            return id;
+        }
+        long now = timeProvider.getCurrentTimeInSeconds();
+        if (now >= seasonStart && now <= seasonEnd && level.windowAt(now) == window) {
+            Leaderboard board = level.boardFor(window);
+            return board == null ? null : board.getId();
+        }
+        return null;
+    }
+
+    private Level levelNamed(String windowName) {
+        for (Level level : levels) {
+            if (level.window.getName().equals(windowName)) {
+                return level;
+            }
+        }
+        throw new IllegalArgumentException("No window " + windowName + " in the rollup of " + gameId);
+    }
+
+    // <gameId>:<window name>:<window start in epoch seconds>
+    private String boardId(Level level, int window) {
+        return gameId + ":" + level.window.getName() + ":" + level.startOf(window);
+    }
+
+    private final class Level {
+        final int index;
+        final RollupWindow window;
+        final long length;
+        final boolean incremental;
+        final LongAdder changes = new LongAdder(); // bests improved at this level, for on-demand boards
+        private volatile Current current;
+
+        Level(int index, RollupWindow window) {
+            this.index = index;
+            this.window = window;
+            this.length = window.isSeason() ? seasonEnd - seasonStart + 1 : window.getLengthSeconds();
+            this.incremental = window.getMode() == RollupMode.INCREMENTAL;
+        }
+
+        int windowAt(long epochSeconds) {
+            return (int) ((epochSeconds - seasonStart) / length);
+        }
+
+        long startOf(int window) {
+            return seasonStart + window * length;
+        }
+
+        // Board of the window, creating it as the level moves on to it. null for a window the
+        // level has already left.
+        Leaderboard boardFor(int window) {
+            Current latest = current;
+            if (latest != null && latest.window == window) {
+                return latest.board;
+            }
+            if (latest != null && latest.window > window) {
+                return null;
+            }
+            return advance(window);
+        }
+
+        private synchronized Leaderboard advance(int window) {
+            Current latest = current;
+            if (latest == null || latest.window < window) {
+                // Bests of the new window overwrite the old one's, so an on-demand board keeps
+                // what it has before any of them is written
+                if (latest != null && !incremental) {
+                    latest.board.freeze();
+                }
+                long start = startOf(window);
+                long end = Math.min(start + length - 1, seasonEnd);
+                Leaderboard board = repository.createRollupLeaderboard(boardId(this, window), gameId, start, end,
+                        incremental ? null : new WindowScores(this, window));
+                latest = new Current(window, board);
+                current = latest;
+            }
+            return latest.window == window ? latest.board : null;
+        }
+    }
+
+    private static final class Current {
+        final int window;
+        final Leaderboard board;
+
+        Current(int window, Leaderboard board) {
+            this.window = window;
+            this.board = board;
+        }
+    }
+
+    // Contents of an on-demand board: the bests recorded for its window
+    private final class WindowScores implements DerivedScores {
+        private final Level level;
+        private final int window;
+
+        WindowScores(Level level, int window) {
+            this.level = level;
+            this.window = window;
+        }
+
+        @Override
+        public long version() {
+            return level.changes.sum();
+        }
+
+        @Override
+        public ScoreStore build() {
+            int[][] pairs = {new int[1024], new int[1024]};
+            int[] count = new int[1];
+            bests.forEach(level.index, window, (userKey, score) -> {
+                if (count[0] == pairs[0].length) {
+                    pairs[0] = Arrays.copyOf(pairs[0], count[0] * 2);
+                    pairs[1] = Arrays.copyOf(pairs[1], count[0] * 2);
+                }
+                pairs[0][count[0]] = userKey;
+                pairs[1][count[0]++] = score;
+            });
+            return FrozenScoreStore.of(pairs[0], pairs[1], count[0]);
+        }
+    }
+}
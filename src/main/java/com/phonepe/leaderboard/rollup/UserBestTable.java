@@ -0,0 +1,95 @@
+package com.phonepe.leaderboard.rollup;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Each user's best score in the current window of every rollup level, side by side in one
+// record: the levels of userKey are consecutive longs, so a submission reads and updates a
+// single cache line. A slot packs the window index (plus one; zero means empty) above the score,
+// so a best from an earlier window reads as absent without ever being cleared.
+//
+// Indexed directly by userKey in chunks allocated on first use, since keys are dense ints from
+// the repository's UserDictionary. The chunk directory is copied on the rare growth, so lookups
+// take no lock.
+final class UserBestTable {
+    private static final int CHUNK_USERS_BITS = 14;
+    private static final int CHUNK_USERS = 1 << CHUNK_USERS_BITS;
+
+    private final int levels;
+    private volatile AtomicLongArray[] chunks = new AtomicLongArray[0];
+
+    UserBestTable(int levels) {
+        this.levels = levels;
+    }
+
+    // Records score as the user's best in window of level if it beats the best already there.
+    // Returns false if it does not, or if the slot already belongs to a later window.
+    boolean offer(int userKey, int level, int window, int score) {
+        AtomicLongArray chunk = chunkFor(userKey);
+        int slot = (userKey & (CHUNK_USERS - 1)) * levels + level;
+        long packed = pack(window, score);
+        while (true) {
+            long current = chunk.get(slot);
+            int currentWindow = windowOf(current);
+            if (currentWindow > window || (currentWindow == window && scoreOf(current) >= score)) {
+                return false;
+            }
+            if (chunk.compareAndSet(slot, current, packed)) {
+                return true;
+            }
+        }
+    }
+
+    // Every user with a best in window of level
+    void forEach(int level, int window, BestConsumer consumer) {
+        AtomicLongArray[] all = chunks;
+        for (int c = 0; c < all.length; c++) {
+            AtomicLongArray chunk = all[c];
+            if (chunk == null) {
+                continue;
+            }
+            for (int user = 0; user < CHUNK_USERS; user++) {
+                long packed = chunk.get(user * levels + level);
+                if (windowOf(packed) == window) {
+                    consumer.accept((c << CHUNK_USERS_BITS) | user, scoreOf(packed));
+                }
+            }
+        }
+    }
+
+    private AtomicLongArray chunkFor(int userKey) {
+        int index = userKey >>> CHUNK_USERS_BITS;
+        AtomicLongArray[] all = chunks;
+        if (index < all.length && all[index] != null) {
+            return all[index];
+        }
+        return addChunk(index);
+    }
+
+    private synchronized AtomicLongArray addChunk(int index) {
+        AtomicLongArray[] all = chunks;
+        if (index < all.length && all[index] != null) {
+            return all[index];
+        }
+        AtomicLongArray[] grown = Arrays.copyOf(all, Math.max(all.length, index + 1));
+        grown[index] = new AtomicLongArray(CHUNK_USERS * levels);
+        chunks = grown;
+        return grown[index];
+    }
+
+    private static long pack(int window, int score) {
+        return ((long) (window + 1) << 32) | (score & 0xFFFFFFFFL);
+    }
+
+    private static int windowOf(long packed) {
+        return (int) (packed >>> 32) - 1;
+    }
+
+    private static int scoreOf(long packed) {
+        return (int) packed;
+    }
+
+    interface BestConsumer {
+        void accept(int userKey, int score);
+    }
+}
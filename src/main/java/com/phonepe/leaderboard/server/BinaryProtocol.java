@@ -0,0 +1,175 @@
+package com.phonepe.leaderboard.server;
+
+import com.phonepe.leaderboard.model.RankedEntry;
+import com.phonepe.leaderboard.model.ScoreSubmission;
+import com.phonepe.leaderboard.model.SubmissionResult;
+import com.phonepe.leaderboard.wire.PageCodec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Binary framing for bulk ingest and ranking pages. A connection that opens with MAGIC speaks
+// frames instead of HTTP for the rest of its life; frames may be pipelined and are answered in order.
+//
+//   frame          int payload length, byte type, payload (big-endian)
+//   SUBMIT_BATCH   short length + UTF-8 gameId, int count, count x (short length + UTF-8 userId, int score)
+//   RESULTS        int count, count x byte SubmissionResult ordinal, in the batch's order
+//   TOP_K          short length + UTF-8 leaderboardId, int k, int offset
+//   PAGE           the page in PageCodec's layout
+//   ERROR          UTF-8 message; the request was not applied
+public final class BinaryProtocol {
+    public static final int MAGIC = 0x4C424231; // "LBB1"
+    public static final byte SUBMIT_BATCH = 1;
+    public static final byte TOP_K = 2;
+    public static final byte RESULTS = (byte) 0x81;
+    public static final byte PAGE = (byte) 0x82;
+    public static final byte ERROR = (byte) 0xFF;
+
+    static final int HEADER_BYTES = 5;
+    private static final SubmissionResult[] RESULT_VALUES = SubmissionResult.values();
+
+    private BinaryProtocol() {
+    }
+
+    public static ByteBuffer handshake() {
+        ByteBuffer magic = ByteBuffer.allocate(4).putInt(MAGIC);
+        magic.flip();
+        return magic;
+    }
+
+    public static ByteBuffer encodeSubmitBatch(String gameId, Collection<ScoreSubmission> submissions) {
+        byte[] game = gameId.getBytes(StandardCharsets.UTF_8);
+        List<byte[]> users = new ArrayList<>(submissions.size());
+        int length = 2 + game.length + 4;
+        for (ScoreSubmission submission : submissions) {
+            byte[] user = submission.getUserId().getBytes(StandardCharsets.UTF_8);
+            users.add(user);
+            length += 2 + user.length + 4;
+        }
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + length);
+        frame.putInt(length).put(SUBMIT_BATCH);
+        putString(frame, game);
+        frame.putInt(submissions.size());
+        int i = 0;
+        for (ScoreSubmission submission : submissions) {
+            putString(frame, users.get(i++));
+            frame.putInt(submission.getScore());
+        }
+        frame.flip();
+        return frame;
+    }
+
+    public static ByteBuffer encodeTopK(String leaderboardId, int k, int offset) {
+        byte[] id = leaderboardId.getBytes(StandardCharsets.UTF_8);
+        int length = 2 + id.length + 8;
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + length);
+        frame.putInt(length).put(TOP_K);
+        putString(frame, id);
+        frame.putInt(k).putInt(offset);
+        frame.flip();
+        return frame;
+    }
+
+    // Reads a PAGE frame like readResults reads a RESULTS frame
+    public static List<RankedEntry> readPage(ByteBuffer in) {
+        ByteBuffer payload = readFrame(in, Integer.MAX_VALUE);
+        if (payload == null) {
+            return null;
+        }
+        byte type = payload.get();
+        if (type == ERROR) {
+            throw new IllegalStateException(StandardCharsets.UTF_8.decode(payload).toString());
+        }
+        if (type != PAGE) {
+            throw new IllegalStateException("Unexpected frame type " + type);
+        }
+        return PageCodec.decode(payload);
+    }
+
+    // Reads a RESULTS frame from the buffer's position, or returns null and leaves the buffer as
+    // it was if the frame is not complete yet. An ERROR frame throws IllegalStateException with
+    // the server's message.
+    public static List<SubmissionResult> readResults(ByteBuffer in) {
+        ByteBuffer payload = readFrame(in, Integer.MAX_VALUE);
+        if (payload == null) {
+            return null;
+        }
+        byte type = payload.get();
+        if (type == ERROR) {
+            throw new IllegalStateException(StandardCharsets.UTF_8.decode(payload).toString());
+        }
+        if (type != RESULTS) {
+            throw new IllegalStateException("Unexpected frame type " + type);
+        }
+        int count = payload.getInt();
+        List<SubmissionResult> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(RESULT_VALUES[payload.get()]);
+        }
+        return results;
+    }
+
+    // The frame starting at the buffer's position as a slice holding its type byte and payload,
+    // moving past it; null if it is not complete yet
+    static ByteBuffer readFrame(ByteBuffer in, int maxPayloadBytes) {
+        if (in.remaining() < HEADER_BYTES) {
+            return null;
+        }
+        int length = in.getInt(in.position());
+        if (length < 0 || length > maxPayloadBytes) {
+            throw new IllegalArgumentException("Frame of " + length + " bytes exceeds the limit of " + maxPayloadBytes);
+        }
+        if (in.remaining() < HEADER_BYTES + length) {
+            return null;
+        }
+        ByteBuffer frame = in.duplicate();
+        frame.position(in.position() + 4).limit(in.position() + HEADER_BYTES + length);
+        in.position(in.position() + HEADER_BYTES + length);
+        return frame.slice();
+    }
+
+    static String readString(ByteBuffer payload) {
+        int length = payload.getShort() & 0xFFFF;
+        if (length > payload.remaining()) {
+            throw new IllegalArgumentException("Truncated string");
+        }
+        String value = new String(payload.array(), payload.arrayOffset() + payload.position(), length, StandardCharsets.UTF_8);
+        payload.position(payload.position() + length);
+        return value;
+    }
+
+    static ByteBuffer results(List<SubmissionResult> results) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + 4 + results.size());
+        frame.putInt(4 + results.size()).put(RESULTS).putInt(results.size());
+        for (SubmissionResult result : results) {
+            frame.put((byte) result.ordinal());
+        }
+        frame.flip();
+        return frame;
+    }
+
+    // Header of a PAGE frame; the encoded page follows it on the wire as it is
+    static ByteBuffer pageHeader(int pageBytes) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(pageBytes).put(PAGE);
+        header.flip();
+        return header;
+    }
+
+    static ByteBuffer error(String message) {
+        byte[] text = String.valueOf(message).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + text.length);
+        frame.putInt(text.length).put(ERROR).put(text);
+        frame.flip();
+        return frame;
+    }
+
+    private static void putString(ByteBuffer frame, byte[] value) {
+        if (value.length > 0xFFFF) {
+            throw new IllegalArgumentException("String of " + value.length + " bytes is too long for a frame");
+        }
+        frame.putShort((short) value.length).put(value);
+    }
+}
@@ -0,0 +1,267 @@
+package com.phonepe.leaderboard.server;
+
+import com.phonepe.leaderboard.config.LeaderboardConfig;
+import com.phonepe.leaderboard.wire.EncodedPage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// One client connection. The selector thread reads into the input buffer and writes queued
+// responses out; a handler task parses every complete request in the buffer, runs them in order
+// and queues their responses, so pipelined requests are answered in order with one write per
+// round. At most one handler task runs per connection at a time.
+final class Connection {
+    private static final int INITIAL_BUFFER_BYTES = 16 * 1024;
+    private static final int MAX_REQUESTS_PER_ROUND = 64;
+
+    private enum Protocol { UNKNOWN, HTTP, BINARY }
+
+    private final LeaderboardServer server;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    // All state below is guarded by this
+    private ByteBuffer input = ByteBuffer.allocate(INITIAL_BUFFER_BYTES); // write mode
+    private final ArrayDeque<ByteBuffer> output = new ArrayDeque<>();
+    private final Map<ByteBuffer, EncodedPage> leases = new IdentityHashMap<>(); // queued pages to release once written
+    private long pendingBytes;
+    private Protocol protocol = Protocol.UNKNOWN;
+    private boolean processing; // a handler task owns the input
+    private boolean waitingForDrain; // processing stopped until the client reads its responses
+    private boolean readPaused; // input buffer full at its maximum size
+    private boolean inputClosed;
+    private boolean closeAfterFlush;
+    private boolean writeInterest;
+    private boolean closed;
+
+    Connection(LeaderboardServer server, SocketChannel channel, SelectionKey key) {
+        this.server = server;
+        this.channel = channel;
+        this.key = key;
+    }
+
+    // Selector thread: the channel is readable
+    synchronized void read() throws IOException {
+        if (closed || inputClosed || closeAfterFlush) {
+            return;
+        }
+        if (!input.hasRemaining()) {
+            if (input.capacity() >= LeaderboardConfig.SERVER_MAX_REQUEST_BYTES) {
+                readPaused = true;
+                updateInterest();
+                return;
+            }
+            ByteBuffer larger = ByteBuffer.allocate(Math.min(input.capacity() * 2, LeaderboardConfig.SERVER_MAX_REQUEST_BYTES));
+            input.flip();
+            input = larger.put(input);
+        }
+        if (channel.read(input) < 0) {
+            inputClosed = true;
+            updateInterest();
+        }
+        if (!processing && !waitingForDrain) {
+            processing = true;
+            server.execute(this::process);
+        }
+    }
+
+    // Selector thread: the channel is writable again
+    synchronized void writable() throws IOException {
+        flush();
+    }
+
+    // Handler thread: runs the buffered requests round by round until none is complete
+    void process() {
+        try {
+            while (true) {
+                List<Object> requests = new ArrayList<>();
+                ByteBuffer fatal = null;
+                synchronized (this) {
+                    if (closed) {
+                        processing = false;
+                        return;
+                    }
+                    if (pendingBytes > LeaderboardConfig.SERVER_MAX_PENDING_RESPONSE_BYTES) {
+                        processing = false;
+                        waitingForDrain = true;
+                        return;
+                    }
+                    input.flip();
+                    try {
+                        parse(requests);
+                    } catch (IllegalArgumentException e) {
+                        fatal = protocol == Protocol.BINARY ? BinaryProtocol.error(e.getMessage())
+                                : RequestRouter.response(400, "{\"error\":\"Malformed request\"}", false);
+                    }
+                    if (fatal == null && requests.isEmpty() && input.remaining() >= LeaderboardConfig.SERVER_MAX_REQUEST_BYTES) {
+                        fatal = protocol == Protocol.BINARY ? BinaryProtocol.error("Frame too large")
+                                : RequestRouter.response(413, "{\"error\":\"Request too large\"}", false);
+                    }
+                    input.compact();
+                    if (readPaused && input.hasRemaining()) {
+                        readPaused = false;
+                        updateInterest();
+                    }
+                    if (requests.isEmpty() && fatal == null) {
+                        processing = false;
+                        if (inputClosed) {
+                            closeAfterFlush = true;
+                            flush();
+                        }
+                        return;
+                    }
+                }
+
+                List<ByteBuffer> responses = new ArrayList<>(requests.size() + 1);
+                Map<ByteBuffer, EncodedPage> leased = new IdentityHashMap<>();
+                boolean keepAlive = fatal == null;
+                for (Object request : requests) {
+                    if (request instanceof HttpRequest) {
+                        responses.add(server.router().handle((HttpRequest) request));
+                        keepAlive &= ((HttpRequest) request).isKeepAlive();
+                    } else {
+                        server.router().handle((ByteBuffer) request, responses, leased);
+                    }
+                }
+                if (fatal != null) {
+                    responses.add(fatal);
+                }
+
+                synchronized (this) {
+                    if (closed) {
+                        leased.values().forEach(EncodedPage::close);
+                        processing = false;
+                        return;
+                    }
+                    leases.putAll(leased);
+                    for (ByteBuffer response : responses) {
+                        output.add(response);
+                        pendingBytes += response.remaining();
+                    }
+                    if (!keepAlive) {
+                        closeAfterFlush = true;
+                    }
+                    flush();
+                    if (closeAfterFlush || closed) {
+                        processing = false;
+                        return;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+        }
+    }
+
+    // Complete requests from the flipped input buffer; the first non-keep-alive HTTP request
+    // ends the connection, so nothing after it is parsed
+    private void parse(List<Object> requests) {
+        while (requests.size() < MAX_REQUESTS_PER_ROUND) {
+            if (protocol == Protocol.UNKNOWN) {
+                if (input.remaining() < 4) {
+                    return;
+                }
+                if (input.getInt(input.position()) == BinaryProtocol.MAGIC) {
+                    input.position(input.position() + 4);
+                    protocol = Protocol.BINARY;
+                } else {
+                    protocol = Protocol.HTTP;
+                }
+            }
+            if (protocol == Protocol.HTTP) {
+                HttpRequest request = HttpRequest.parse(input);
+                if (request == null) {
+                    return;
+                }
+                requests.add(request);
+                if (!request.isKeepAlive()) {
+                    input.position(input.limit());
+                    return;
+                }
+            } else {
+                ByteBuffer frame = BinaryProtocol.readFrame(input, LeaderboardConfig.SERVER_MAX_REQUEST_BYTES);
+                if (frame == null) {
+                    return;
+                }
+                // Copied out, as the input buffer is compacted over it
+                ByteBuffer copy = ByteBuffer.allocate(frame.remaining()).put(frame);
+                copy.flip();
+                requests.add(copy);
+            }
+        }
+    }
+
+    // Writes what the socket takes now and asks the selector for the rest. Caller holds the lock.
+    private void flush() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (!output.isEmpty()) {
+            channel.write(output.toArray(new ByteBuffer[0]));
+            while (!output.isEmpty() && !output.peek().hasRemaining()) {
+                ByteBuffer written = output.poll();
+                pendingBytes -= written.limit();
+                EncodedPage page = leases.remove(written);
+                if (page != null) {
+                    page.close();
+                }
+            }
+        }
+        if (!output.isEmpty()) {
+            if (!writeInterest) {
+                writeInterest = true;
+                updateInterest();
+            }
+            return;
+        }
+        if (closeAfterFlush) {
+            close();
+            return;
+        }
+        if (writeInterest) {
+            writeInterest = false;
+            updateInterest();
+        }
+        if (waitingForDrain) {
+            waitingForDrain = false;
+            processing = true;
+            server.execute(this::process);
+        }
+    }
+
+    private void updateInterest() {
+        server.updateInterest(this);
+    }
+
+    // Selector thread: applies the interest set the connection's state calls for
+    synchronized void applyInterest() {
+        if (closed || !key.isValid()) {
+            return;
+        }
+        int ops = writeInterest ? SelectionKey.OP_WRITE : 0;
+        if (!readPaused && !inputClosed && !closeAfterFlush) {
+            ops |= SelectionKey.OP_READ;
+        }
+        key.interestOps(ops);
+    }
+
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        key.cancel();
+        leases.values().forEach(EncodedPage::close);
+        leases.clear();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        server.closed(this);
+    }
+}
@@ -0,0 +1,126 @@
+package com.phonepe.leaderboard.server;
+
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// An HTTP/1.1 request with a Content-Length body, parsed straight from a connection's buffer
+final class HttpRequest {
+    private final String method;
+    private final String path;
+    private final Map<String, String> query;
+    private final String body;
+    private final boolean keepAlive;
+
+    private HttpRequest(String method, String path, Map<String, String> query, String body, boolean keepAlive) {
+        this.method = method;
+        this.path = path;
+        this.query = query;
+        this.body = body;
+        this.keepAlive = keepAlive;
+    }
+
+    // Parses the request starting at the buffer's position and moves past it, or returns null
+    // and leaves the buffer as it was if the request is not complete yet. Malformed requests
+    // throw IllegalArgumentException.
+    static HttpRequest parse(ByteBuffer in) {
+        int start = in.position();
+        int headerEnd = indexOfBlankLine(in, start);
+        if (headerEnd < 0) {
+            return null;
+        }
+        String[] lines = new String(in.array(), in.arrayOffset() + start, headerEnd - start, StandardCharsets.ISO_8859_1)
+                .split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+            throw new IllegalArgumentException("Malformed request line");
+        }
+        boolean keepAlive = !requestLine[2].equals("HTTP/1.0");
+        int contentLength = 0;
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Malformed header");
+            }
+            String name = lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = lines[i].substring(colon + 1).trim();
+            if (name.equals("content-length")) {
+                try {
+                    contentLength = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Malformed Content-Length");
+                }
+                if (contentLength < 0) {
+                    throw new IllegalArgumentException("Malformed Content-Length");
+                }
+            } else if (name.equals("connection")) {
+                keepAlive = value.equalsIgnoreCase("keep-alive") || (keepAlive && !value.equalsIgnoreCase("close"));
+            } else if (name.equals("transfer-encoding")) {
+                throw new IllegalArgumentException("Only Content-Length bodies are supported");
+            }
+        }
+        int bodyStart = headerEnd + 4;
+        if (in.limit() - bodyStart < contentLength) {
+            return null;
+        }
+        String body = new String(in.array(), in.arrayOffset() + bodyStart, contentLength, StandardCharsets.UTF_8);
+        in.position(bodyStart + contentLength);
+
+        String target = requestLine[1];
+        int questionMark = target.indexOf('?');
+        String path = questionMark < 0 ? target : target.substring(0, questionMark);
+        Map<String, String> query = questionMark < 0 ? Collections.emptyMap() : parseQuery(target.substring(questionMark + 1));
+        return new HttpRequest(requestLine[0], path, query, body, keepAlive);
+    }
+
+    private static int indexOfBlankLine(ByteBuffer in, int from) {
+        byte[] bytes = in.array();
+        int offset = in.arrayOffset();
+        for (int i = from; i + 3 < in.limit(); i++) {
+            if (bytes[offset + i] == '\r' && bytes[offset + i + 1] == '\n' && bytes[offset + i + 2] == '\r'
+                    && bytes[offset + i + 3] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    String getMethod() {
+        return method;
+    }
+
+    String getPath() {
+        return path;
+    }
+
+    String getBody() {
+        return body;
+    }
+
+    boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    // The query parameter, or null if absent
+    String parameter(String name) {
+        return query.get(name);
+    }
+}
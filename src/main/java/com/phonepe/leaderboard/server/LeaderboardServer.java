@@ -0,0 +1,217 @@
+package com.phonepe.leaderboard.server;
+
+import com.phonepe.leaderboard.config.LeaderboardConfig;
+import com.phonepe.leaderboard.service.LeaderboardService;
+import com.phonepe.leaderboard.util.SystemTimeProvider;
+import com.phonepe.leaderboard.validation.RangeScoreValidationStrategy;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Network front end for a LeaderboardService: HTTP/1.1 with JSON bodies for queries and single
+// submissions (routes in RequestRouter), and BinaryProtocol frames for bulk ingest, on one port.
+//
+// One selector thread accepts connections and moves bytes; it never runs a service call. Each
+// connection's complete requests are handed to a handler task, which runs them in order and
+// queues their responses, so a client may pipeline as many requests as it likes without holding
+// a thread while it waits. Handlers run on virtual threads when the JVM has them (Java 21+), and
+// on SERVER_HANDLER_THREADS platform threads otherwise.
+public final class LeaderboardServer implements Closeable {
+    private final InetSocketAddress address;
+    private final ExecutorService handlers;
+    private final RequestRouter router;
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final Queue<Connection> interestUpdates = new ConcurrentLinkedQueue<>();
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    // port 0 picks a free port; see getPort
+    public LeaderboardServer(LeaderboardService service, int port) {
+        this(service, new InetSocketAddress(port), defaultHandlers());
+    }
+
+    public LeaderboardServer(LeaderboardService service, InetSocketAddress address, ExecutorService handlers) {
+        this.address = address;
+        this.handlers = handlers;
+        this.router = new RequestRouter(service);
+    }
+
+    // Virtual threads where available: a handler blocked on a durable write costs no platform thread
+    static ExecutorService defaultHandlers() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threads = new AtomicInteger();
+            return Executors.newFixedThreadPool(LeaderboardConfig.SERVER_HANDLER_THREADS, runnable -> {
+                Thread thread = new Thread(runnable, "leaderboard-server-handler-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public synchronized void start() throws IOException {
+        if (running) {
+            throw new IllegalStateException("Server already started");
+        }
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        selectorThread = new Thread(this::run, "leaderboard-server-selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    // Stops accepting, drops open connections and stops the handlers; the service stays up
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+        }
+        selector.wakeup();
+        try {
+            selectorThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        handlers.shutdown();
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                break;
+            }
+            Connection pending;
+            while ((pending = interestUpdates.poll()) != null) {
+                pending.applyInterest();
+            }
+            Set<SelectionKey> selected = selector.selectedKeys();
+            for (SelectionKey key : selected) {
+                if (!key.isValid()) {
+                    continue;
+                }
+                if (key.isAcceptable()) {
+                    accept();
+                    continue;
+                }
+                Connection connection = (Connection) key.attachment();
+                try {
+                    if (key.isReadable()) {
+                        connection.read();
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        connection.writable();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    connection.close();
+                }
+            }
+            selected.clear();
+        }
+    }
+
+    private void accept() {
+        SocketChannel channel;
+        try {
+            while ((channel = serverChannel.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                Connection connection = new Connection(this, channel, key);
+                key.attach(connection);
+                connections.add(connection);
+            }
+        } catch (IOException ignored) {
+            // The client gave up before it was accepted
+        }
+    }
+
+    RequestRouter router() {
+        return router;
+    }
+
+    void execute(Runnable task) {
+        try {
+            handlers.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Shutting down; close() drops the connection
+        }
+    }
+
+    // Interest sets are only changed on the selector thread
+    void updateInterest(Connection connection) {
+        if (Thread.currentThread() == selectorThread) {
+            connection.applyInterest();
+        } else {
+            interestUpdates.add(connection);
+            selector.wakeup();
+        }
+    }
+
+    void closed(Connection connection) {
+        connections.remove(connection);
+    }
+
+    // Usage: LeaderboardServer [port] [gameId...]
+    // Serves an in-memory service supporting the given games until the process is stopped.
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        LeaderboardService service = new LeaderboardService(new SystemTimeProvider(),
+                new RangeScoreValidationStrategy(LeaderboardConfig.MIN_SCORE, LeaderboardConfig.MAX_SCORE));
+        for (int i = 1; i < args.length; i++) {
+            service.addSupportedGame(args[i]);
+        }
+        LeaderboardServer server = new LeaderboardServer(service, port);
+        server.start();
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            service.shutdown();
+            stopped.countDown();
+        }));
+        System.out.println("Leaderboard server listening on port " + server.getPort());
+        stopped.await();
+    }
+}
@@ -0,0 +1,308 @@
+package com.phonepe.leaderboard.server;
+
+import com.phonepe.leaderboard.exception.IngestionRejectedException;
+import com.phonepe.leaderboard.exception.LeaderboardException;
+import com.phonepe.leaderboard.exception.LeaderboardNotFoundException;
+import com.phonepe.leaderboard.model.AroundUserPage;
+import com.phonepe.leaderboard.model.LeaderboardPage;
+import com.phonepe.leaderboard.model.RankedEntry;
+import com.phonepe.leaderboard.model.ScoreSubmission;
+import com.phonepe.leaderboard.service.LeaderboardService;
+import com.phonepe.leaderboard.wire.EncodedPage;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Maps requests onto LeaderboardService calls and renders their responses. Supported games are
+// configured in-process (LeaderboardService.addSupportedGame), not over the network.
+//
+//   POST /leaderboards               {"gameId", "startTime", "endTime"} -> {"leaderboardId"}
+//   POST /scores                     {"gameId", "userId", "score"}      -> 204
+//   GET  /leaderboards/{id}/rank?userId=                                -> {"userId", "rank"}
+//   GET  /leaderboards/{id}/top?k=&offset=                              -> {"entries"}
+//   GET  /leaderboards/{id}/next?userId=&n=  (and /prev)                -> {"entries", "prevCursor", "nextCursor"}
+//   GET  /leaderboards/{id}/next?cursor=&n=  (and /prev)                -> the page after (before) the cursor
+//   GET  /leaderboards/{id}/around?userId=&above=&below=               -> {"userId", "rank", "entries", cursors}
+final class RequestRouter {
+    private static final String LEADERBOARDS = "/leaderboards/";
+
+    private final LeaderboardService service;
+
+    RequestRouter(LeaderboardService service) {
+        this.service = service;
+    }
+
+    ByteBuffer handle(HttpRequest request) {
+        int status = 200;
+        String body;
+        try {
+            body = route(request);
+            if (body == null) {
+                status = 204;
+            }
+        } catch (LeaderboardNotFoundException e) {
+            status = 404;
+            body = error(e.getMessage());
+        } catch (IngestionRejectedException e) {
+            status = 503;
+            body = error(e.getMessage());
+        } catch (LeaderboardException e) {
+            status = 422;
+            body = error(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            body = error(e.getMessage());
+        } catch (HttpError e) {
+            status = e.status;
+            body = error(e.getMessage());
+        } catch (RuntimeException e) {
+            status = 500;
+            body = error(e.toString());
+        }
+        return response(status, body, request.isKeepAlive());
+    }
+
+    // Adds the frame's response to responses. A page goes out as its own buffer, straight after
+    // its header; pages on loan from the service's pool are added to leases until written.
+    void handle(ByteBuffer frame, List<ByteBuffer> responses, Map<ByteBuffer, EncodedPage> leases) {
+        byte type = frame.get();
+        if (type == BinaryProtocol.SUBMIT_BATCH) {
+            responses.add(submitBatch(frame));
+        } else if (type == BinaryProtocol.TOP_K) {
+            EncodedPage page;
+            try {
+                String leaderboardId = BinaryProtocol.readString(frame);
+                page = service.getTopKEncoded(leaderboardId, frame.getInt(), frame.getInt());
+            } catch (RuntimeException e) {
+                responses.add(BinaryProtocol.error(e.getMessage()));
+                return;
+            }
+            responses.add(BinaryProtocol.pageHeader(page.size()));
+            responses.add(page.getBuffer());
+            if (!page.isShared()) {
+                leases.put(page.getBuffer(), page);
+            }
+        } else {
+            responses.add(BinaryProtocol.error("Unknown frame type " + type));
+        }
+    }
+
+    private ByteBuffer submitBatch(ByteBuffer frame) {
+        try {
+            String gameId = BinaryProtocol.readString(frame);
+            int count = frame.getInt();
+            if (count < 0 || count > frame.remaining() / 6) {
+                return BinaryProtocol.error("Malformed batch");
+            }
+            List<ScoreSubmission> submissions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                submissions.add(new ScoreSubmission(BinaryProtocol.readString(frame), frame.getInt()));
+            }
+            return BinaryProtocol.results(service.submitScores(gameId, submissions));
+        } catch (RuntimeException e) {
+            return BinaryProtocol.error(e.getMessage());
+        }
+    }
+
+    // The response body, or null for 204 No Content
+    private String route(HttpRequest request) {
+        String path = request.getPath();
+        String method = request.getMethod();
+        if (path.equals("/scores")) {
+            Map<String, Object> body = body(request, "POST");
+            service.submitScore(string(body, "gameId"), string(body, "userId"), integer(body, "score"));
+            return null;
+        }
+        if (path.equals("/leaderboards")) {
+            Map<String, Object> body = body(request, "POST");
+            String id = service.createLeaderboard(string(body, "gameId"), integer(body, "startTime"), integer(body, "endTime"));
+            StringBuilder out = new StringBuilder("{\"leaderboardId\":");
+            Json.appendString(out, id);
+            return out.append('}').toString();
+        }
+        if (!path.startsWith(LEADERBOARDS)) {
+            throw new HttpError(404, "No route for " + path);
+        }
+        int slash = path.lastIndexOf('/');
+        if (slash <= LEADERBOARDS.length()) {
+            throw new HttpError(404, "No route for " + path);
+        }
+        String leaderboardId = path.substring(LEADERBOARDS.length(), slash);
+        String query = path.substring(slash + 1);
+        if (!method.equals("GET")) {
+            throw new HttpError(405, method + " not allowed on " + path);
+        }
+        switch (query) {
+            case "rank": {
+                String userId = required(request, "userId");
+                StringBuilder out = new StringBuilder("{\"userId\":");
+                Json.appendString(out, userId);
+                return out.append(",\"rank\":").append(service.getRank(leaderboardId, userId)).append('}').toString();
+            }
+            case "top":
+                return entries(service.getTopK(leaderboardId, intParameter(request, "k", 10), intParameter(request, "offset", 0)));
+            case "next":
+            case "prev": {
+                // Continues from a cursor a previous page returned, else starts next to the user
+                int n = intParameter(request, "n", 10);
+                String cursor = request.parameter("cursor");
+                LeaderboardPage page;
+                if (cursor != null) {
+                    page = query.equals("next") ? service.listPlayersNext(leaderboardId, cursor, n)
+                            : service.listPlayersPrev(leaderboardId, cursor, n);
+                } else {
+                    String userId = required(request, "userId");
+                    page = query.equals("next") ? service.getPageAfterUser(leaderboardId, userId, n)
+                            : service.getPageBeforeUser(leaderboardId, userId, n);
+                }
+                return appendCursors(appendEntries(new StringBuilder("{"), page.getEntries()), page).append('}').toString();
+            }
+            case "around": {
+                String userId = required(request, "userId");
+                AroundUserPage page = service.getAroundUser(leaderboardId, userId, intParameter(request, "above", 5),
+                        intParameter(request, "below", 5));
+                StringBuilder out = new StringBuilder("{\"userId\":");
+                Json.appendString(out, userId);
+                out.append(",\"rank\":").append(page.getUser() == null ? -1 : page.getUser().getRank()).append(',');
+                return appendCursors(appendEntries(out, page.getEntries()), page).append('}').toString();
+            }
+            default:
+                throw new HttpError(404, "No route for " + path);
+        }
+    }
+
+    private static Map<String, Object> body(HttpRequest request, String method) {
+        if (!request.getMethod().equals(method)) {
+            throw new HttpError(405, request.getMethod() + " not allowed on " + request.getPath());
+        }
+        return Json.parseObject(request.getBody());
+    }
+
+    private static String string(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("\"" + name + "\" must be a string");
+        }
+        return (String) value;
+    }
+
+    private static int integer(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (!(value instanceof Long) || (Long) value != ((Long) value).intValue()) {
+            throw new IllegalArgumentException("\"" + name + "\" must be a 32-bit integer");
+        }
+        return ((Long) value).intValue();
+    }
+
+    private static String required(HttpRequest request, String name) {
+        String value = request.parameter(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing query parameter " + name);
+        }
+        return value;
+    }
+
+    private static int intParameter(HttpRequest request, String name, int defaultValue) {
+        String value = request.parameter(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Query parameter " + name + " must be an integer");
+        }
+    }
+
+    private static String entries(List<RankedEntry> entries) {
+        return appendEntries(new StringBuilder(32 + entries.size() * 48).append('{'), entries).append('}').toString();
+    }
+
+    private static StringBuilder appendEntries(StringBuilder out, List<RankedEntry> entries) {
+        out.append("\"entries\":[");
+        for (int i = 0; i < entries.size(); i++) {
+            RankedEntry entry = entries.get(i);
+            out.append(i == 0 ? "{\"userId\":" : ",{\"userId\":");
+            Json.appendString(out, entry.getUserId());
+            out.append(",\"score\":").append(entry.getScore()).append(",\"rank\":").append(entry.getRank()).append('}');
+        }
+        return out.append(']');
+    }
+
+    private static StringBuilder appendCursors(StringBuilder out, LeaderboardPage page) {
+        out.append(",\"prevCursor\":");
+        appendNullable(out, page.getPrevCursor());
+        out.append(",\"nextCursor\":");
+        appendNullable(out, page.getNextCursor());
+        return out;
+    }
+
+    private static void appendNullable(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+        } else {
+            Json.appendString(out, value);
+        }
+    }
+
+    private static String error(String message) {
+        StringBuilder out = new StringBuilder("{\"error\":");
+        Json.appendString(out, String.valueOf(message));
+        return out.append('}').toString();
+    }
+
+    static ByteBuffer response(int status, String body, boolean keepAlive) {
+        byte[] content = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+        StringBuilder head = new StringBuilder(128).append("HTTP/1.1 ").append(status).append(' ').append(reason(status));
+        if (status != 204) {
+            // RFC 9110 forbids Content-Length on 204 responses
+            head.append("\r\nContent-Length: ").append(content.length);
+        }
+        if (body != null) {
+            head.append("\r\nContent-Type: application/json");
+        }
+        if (!keepAlive) {
+            head.append("\r\nConnection: close");
+        }
+        byte[] header = head.append("\r\n\r\n").toString().getBytes(StandardCharsets.ISO_8859_1);
+        ByteBuffer response = ByteBuffer.allocate(header.length + content.length).put(header).put(content);
+        response.flip();
+        return response;
+    }
+
+    private static String reason(int status) {
+        switch (status) {
+            case 200:
+                return "OK";
+            case 204:
+                return "No Content";
+            case 400:
+                return "Bad Request";
+            case 404:
+                return "Not Found";
+            case 405:
+                return "Method Not Allowed";
+            case 413:
+                return "Payload Too Large";
+            case 422:
+                return "Unprocessable Entity";
+            case 503:
+                return "Service Unavailable";
+            default:
+                return "Internal Server Error";
+        }
+    }
+
+    private static final class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message, null, false, false);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.phonepe.leaderboard.service;
+
+import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.model.LeaderboardState;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+// Applies one score to every active board of a game. The boards are independent, so with at
+// least minBoards of them the submitting thread works through the list together with up to
+// `helpers` pool threads, each taking the next board not yet claimed; below that it is a plain
+// loop. Every board is attempted even if one fails, and the first failure is rethrown once all
+// are done. A board that left ACTIVE after it was routed to is skipped: its window closed
+// before the score arrived. Only improvements apply, so secondaries finishing out of order
+// across submissions still converge on each user's best.
+final class BoardFanOut {
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    private final Executor executor;
+    private final int helpers;
+    private final int minBoards;
+
+    BoardFanOut(Executor executor, int helpers, int minBoards) {
+        this.executor = executor;
+        this.helpers = helpers;
+        this.minBoards = minBoards;
+    }
+
+    // Returns once every board has the score
+    void apply(Leaderboard[] boards, int userKey, int score) {
+        if (boards.length < Math.max(2, minBoards) || helpers == 0) {
+            RuntimeException failure = null;
+            for (Leaderboard board : boards) {
+                try {
+                    update(board, userKey, score);
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return;
+        }
+        Task task = new Task(boards, 0, userKey, score, Thread.currentThread());
+        fork(task, Math.min(helpers, boards.length - 1));
+        task.run();
+        task.await();
+        task.rethrow();
+    }
+
+    // Returns once boards[0], the primary, has the score (and, on a durable service, its log
+    // record is on disk); the future completes when the other boards have it too
+    CompletableFuture<Void> applyAfterPrimary(Leaderboard[] boards, int userKey, int score) {
+        update(boards[0], userKey, score);
+        if (boards.length == 1) {
+            return DONE;
+        }
+        Task task = new Task(boards, 1, userKey, score, null);
+        if (!fork(task, Math.max(1, Math.min(helpers, boards.length - 1)))) {
+            task.run();
+        }
+        return task.done;
+    }
+
+    private static void update(Leaderboard board, int userKey, int score) {
+        try {
+            board.updateScore(userKey, score);
+        } catch (IllegalStateException e) {
+            if (board.getState() == LeaderboardState.ACTIVE) {
+                throw e;
+            }
+        }
+    }
+
+    // false if the pool is shut down; the caller then does the work itself
+    private boolean fork(Task task, int count) {
+        try {
+            for (int i = 0; i < count; i++) {
+                executor.execute(task);
+            }
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    // Shared by every thread working on one submission; each run() claims boards until none is left
+    private static final class Task implements Runnable {
+        final Leaderboard[] boards;
+        final int userKey;
+        final int score;
+        final Thread waiter; // parked in await, or null for an asynchronous fan-out
+        final CompletableFuture<Void> done;
+        final AtomicInteger next;
+        final AtomicInteger remaining;
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        Task(Leaderboard[] boards, int from, int userKey, int score, Thread waiter) {
+            this.boards = boards;
+            this.userKey = userKey;
+            this.score = score;
+            this.waiter = waiter;
+            this.done = waiter == null ? new CompletableFuture<>() : null;
+            this.next = new AtomicInteger(from);
+            this.remaining = new AtomicInteger(boards.length - from);
+        }
+
+        @Override
+        public void run() {
+            int i;
+            while ((i = next.getAndIncrement()) < boards.length) {
+                try {
+                    update(boards[i], userKey, score);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    finished();
+                }
+            }
+        }
+
+        private void finished() {
+            if (waiter != null) {
+                LockSupport.unpark(waiter);
+            } else if (failure.get() != null) {
+                done.completeExceptionally(failure.get());
+            } else {
+                done.complete(null);
+            }
+        }
+
+        void await() {
+            while (remaining.get() > 0) {
+                LockSupport.park(this);
+            }
+        }
+
+        void rethrow() {
+            RuntimeException e = failure.get();
+            if (e != null) {
+                throw e;
+            }
+        }
+    }
+}
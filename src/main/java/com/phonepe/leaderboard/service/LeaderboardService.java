@@ -1,23 +1,159 @@
 package com.phonepe.leaderboard.service;
 
+import com.phonepe.leaderboard.cache.CacheStats;
+import com.phonepe.leaderboard.cache.QueryCache;
+import com.phonepe.leaderboard.config.LeaderboardConfig;
 import com.phonepe.leaderboard.exception.GameNotSupportedException;
 import com.phonepe.leaderboard.exception.InvalidScoreException;
+import com.phonepe.leaderboard.exception.LeaderboardNotFoundException;
+import com.phonepe.leaderboard.ingest.ScoreIngestor;
+import com.phonepe.leaderboard.metrics.MetricsExporter;
+import com.phonepe.leaderboard.metrics.MetricsRegistry;
+import com.phonepe.leaderboard.metrics.MetricsSnapshot;
+import com.phonepe.leaderboard.model.AckMode;
+import com.phonepe.leaderboard.model.ApproximateRank;
+import com.phonepe.leaderboard.model.AroundUserPage;
 import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.model.LeaderboardPage;
+import com.phonepe.leaderboard.model.LeaderboardSnapshot;
+import com.phonepe.leaderboard.model.LeaderboardStorage;
+import com.phonepe.leaderboard.model.RankCursor;
+import com.phonepe.leaderboard.model.RankedEntry;
+import com.phonepe.leaderboard.model.ScoreSubmission;
+import com.phonepe.leaderboard.model.SubmissionResult;
+import com.phonepe.leaderboard.notification.RankChangeFeed;
+import com.phonepe.leaderboard.notification.RankChangeListener;
+import com.phonepe.leaderboard.notification.Subscription;
+import com.phonepe.leaderboard.persistence.LeaderboardPersistence;
+import com.phonepe.leaderboard.persistence.RecoveryReport;
 import com.phonepe.leaderboard.repository.LeaderboardRepository;
+import com.phonepe.leaderboard.rollup.RollupWindow;
+import com.phonepe.leaderboard.rollup.ScoreRollup;
 import com.phonepe.leaderboard.util.TimeProvider;
 import com.phonepe.leaderboard.validation.ScoreValidationStrategy;
+import com.phonepe.leaderboard.wire.BufferPool;
+import com.phonepe.leaderboard.wire.EncodedPage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class LeaderboardService {
     private final LeaderboardRepository repository;
     private final Set<String> supportedGames;
     private final ScoreValidationStrategy scoreValidationStrategy;
+    private final Map<String, ScoreIngestor> ingestors = new ConcurrentHashMap<>(); // leaderboardId -> async writer
+    private final LeaderboardPersistence persistence; // null unless the service is durable
+    private final RecoveryReport recoveryReport;
+    private final QueryCache cache = new QueryCache(LeaderboardConfig.QUERY_CACHE_CAPACITY);
+    private final RankChangeFeed notifications = new RankChangeFeed(LeaderboardConfig.NOTIFICATION_QUEUE_CAPACITY,
+            LeaderboardConfig.NOTIFICATION_INTERVAL_MILLIS, LeaderboardConfig.NOTIFICATION_DELIVERY_THREADS);
+    private final ServiceMetrics metrics;
+    private final Map<String, ScoreRollup> rollups = new ConcurrentHashMap<>(); // gameId -> window hierarchy
+    private final TimeProvider timeProvider;
+    private final ExecutorService fanOutPool = newFanOutPool();
+    private final BoardFanOut fanOut;
+    private final BufferPool pagePool = new BufferPool(LeaderboardConfig.ENCODED_PAGE_MAX_POOLED_BYTES,
+            LeaderboardConfig.ENCODED_PAGE_POOL_BUFFERS);
 
     public LeaderboardService(TimeProvider timeProvider, ScoreValidationStrategy scoreValidationStrategy) {
-        this.repository = new LeaderboardRepository(timeProvider);
-        this.supportedGames = new HashSet<>();
+        this(timeProvider, scoreValidationStrategy, new MetricsRegistry());
+    }
+
+    // In-memory service recording into metrics, e.g. MetricsRegistry.disabled() to run without them
+    public LeaderboardService(TimeProvider timeProvider, ScoreValidationStrategy scoreValidationStrategy,
+            MetricsRegistry metrics) {
+        this.repository = new LeaderboardRepository(timeProvider, metrics);
+        this.timeProvider = timeProvider;
+        this.metrics = new ServiceMetrics(repository.getMetrics(), cache);
+        this.supportedGames = ConcurrentHashMap.newKeySet();
         this.scoreValidationStrategy = scoreValidationStrategy;
+        this.persistence = null;
+        this.recoveryReport = null;
+        this.fanOut = newFanOut(false);
+    }
+
+    // Durable service: boards and score changes are logged under dataDirectory and rebuilt from
+    // it here, so a restart loses nothing that a returned write call reported. Each write waits
+    // for its log record to be forced to disk, shared with concurrent writers (group commit).
+    public LeaderboardService(TimeProvider timeProvider, ScoreValidationStrategy scoreValidationStrategy, Path dataDirectory) {
+        try {
+            this.persistence = LeaderboardPersistence.open(dataDirectory);
+            this.repository = new LeaderboardRepository(timeProvider, dataDirectory.resolve("archive"), persistence);
+            this.metrics = new ServiceMetrics(repository.getMetrics(), cache);
+            this.recoveryReport = persistence.recover(repository);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to recover leaderboards from " + dataDirectory, e);
+        }
+        this.timeProvider = timeProvider;
+        this.supportedGames = ConcurrentHashMap.newKeySet();
+        this.scoreValidationStrategy = scoreValidationStrategy;
+        this.fanOut = newFanOut(true);
+        persistence.scheduleCheckpoints(LeaderboardConfig.CHECKPOINT_INTERVAL_SECONDS, metrics.registry);
+    }
+
+    private static ExecutorService newFanOutPool() {
+        AtomicInteger threads = new AtomicInteger();
+        return Executors.newFixedThreadPool(LeaderboardConfig.FAN_OUT_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "leaderboard-fanout-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Board updates are CPU-bound on a single core, so there they only run in parallel when
+    // each one waits for its log record to be forced
+    private BoardFanOut newFanOut(boolean durable) {
+        boolean parallel = durable || Runtime.getRuntime().availableProcessors() > 1;
+        return new BoardFanOut(fanOutPool, parallel ? LeaderboardConfig.FAN_OUT_THREADS : 0, LeaderboardConfig.FAN_OUT_MIN_BOARDS);
+    }
+
+    // What the durable constructor recovered, or null for an in-memory service
+    public RecoveryReport getRecoveryReport() {
+        return recoveryReport;
+    }
+
+    // Why the latest background checkpoint failed, or null if it succeeded or the service is
+    // in-memory; failures are also counted under MetricNames.CHECKPOINT_FAILURES
+    public Exception getLastCheckpointFailure() {
+        return persistence == null ? null : persistence.getLastCheckpointFailure();
+    }
+
+    // Snapshots every board and trims the write-ahead log; a no-op for an in-memory service
+    public void checkpoint() {
+        if (persistence == null) {
+            return;
+        }
+        try {
+            persistence.checkpoint();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Checkpoint failed", e);
+        }
+    }
+
+    // Applies every accepted async submission and every board update still fanning out, then
+    // stops the ingestion writers, the checkpoints, rank-change notifications, metrics exporters
+    // and the repository's background maintenance thread
+    public void shutdown() {
+        ingestors.values().forEach(ScoreIngestor::close);
+        fanOutPool.shutdown();
+        try {
+            fanOutPool.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        notifications.close();
+        metrics.registry.close();
+        if (persistence != null) {
+            persistence.close();
+        }
+        repository.shutdown();
     }
 
     public void addSupportedGame(String gameId) {
@@ -29,6 +165,18 @@ public class LeaderboardService {
     }
 
     public String createLeaderboard(String gameId, int startEpochSeconds, int endEpochSeconds) {
+        return createLeaderboard(gameId, startEpochSeconds, endEpochSeconds, LeaderboardStorage.HEAP);
+    }
+
+    // OFF_HEAP is meant for season-long boards with tens of millions of players
+    public String createLeaderboard(String gameId, int startEpochSeconds, int endEpochSeconds, LeaderboardStorage storage) {
+        return createLeaderboard(gameId, startEpochSeconds, endEpochSeconds, storage, LeaderboardConfig.DEFAULT_PARTITIONS);
+    }
+
+    // Hash-partitions the board's users so writers to different partitions never contend; every
+    // query works the same, at the cost of combining the partitions on each read
+    public String createLeaderboard(String gameId, int startEpochSeconds, int endEpochSeconds, LeaderboardStorage storage,
+            int partitions) {
         if (!supportedGames.contains(gameId)) {
             throw new GameNotSupportedException("Game not supported: " + gameId);
         }
@@ -37,92 +185,469 @@ public class LeaderboardService {
             throw new IllegalArgumentException("Start time must be before end time");
         }
 
-        Leaderboard leaderboard = repository.createLeaderboard(gameId, startEpochSeconds, endEpochSeconds);
+        if (partitions < 1) {
+            throw new IllegalArgumentException("partitions must be positive");
+        }
+
+        Leaderboard leaderboard = repository.createLeaderboard(gameId, startEpochSeconds, endEpochSeconds, storage, partitions);
         return leaderboard.getId();
     }
 
-    public Map<String, Integer> getLeaderboard(String leaderboardId) {
-        Leaderboard leaderboard = repository.getLeaderboard(leaderboardId);
-        if (leaderboard == null) {
-            throw new IllegalArgumentException("Leaderboard not found: " + leaderboardId);
+    // Rollup boards for the game's window hierarchy over the season, e.g. hourly(INCREMENTAL),
+    // daily(INCREMENTAL), weekly(ON_DEMAND), season(ON_DEMAND): every submission for the game
+    // then also updates the user's best in each window through one shared record. Boards are
+    // created per window as it starts; find them with getRollupLeaderboardId. Rollup boards live
+    // in memory only, even on a durable service.
+    public void createRollup(String gameId, int seasonStartEpochSeconds, int seasonEndEpochSeconds, RollupWindow... windows) {
+        if (!supportedGames.contains(gameId)) {
+            throw new GameNotSupportedException("Game not supported: " + gameId);
+        }
+        ScoreRollup rollup = new ScoreRollup(repository, timeProvider, gameId, seasonStartEpochSeconds,
+                seasonEndEpochSeconds, Arrays.asList(windows));
+        if (rollups.putIfAbsent(gameId, rollup) != null) {
+            throw new IllegalArgumentException("Game " + gameId + " already has a rollup");
+        }
+    }
+
+    // Id of the rollup board of the named window covering epochSeconds, or null if that window
+    // has no board
+    public String getRollupLeaderboardId(String gameId, String windowName, int epochSeconds) {
+        ScoreRollup rollup = rollups.get(gameId);
+        if (rollup == null) {
+            throw new IllegalArgumentException("Game " + gameId + " has no rollup");
         }
-        return leaderboard.getUserScores();
+        return rollup.getLeaderboardId(windowName, epochSeconds);
+    }
+
+    // Unordered point-in-time copy of every score; use getTopK for ranked views
+    @Deprecated
+    public Map<String, Integer> getLeaderboard(String leaderboardId) {
+        return getLeaderboardOrThrow(leaderboardId).getUserScores();
+    }
+
+    // k entries starting at the 0-based offset, in rank order
+    public List<RankedEntry> getTopK(String leaderboardId, int k, int offset) {
+        long start = metrics.topKLatency.startTimer();
+        List<RankedEntry> top = cache.get(getLeaderboardOrThrow(leaderboardId), Arrays.asList("top", k, offset), snapshot -> {
+            List<RankedEntry> entries = snapshot.topK(k, offset);
+            RankedEntry last = entries.isEmpty() ? null : entries.get(entries.size() - 1);
+            return QueryCache.Window.positional(entries, last == null || entries.size() < k ? QueryCache.Window.OPEN_BELOW : last.getScore(),
+                    entries.isEmpty() ? QueryCache.Window.OPEN_ABOVE : entries.get(0).getScore(), entries.size());
+        });
+        metrics.topKLatency.stopTimer(start);
+        return top;
+    }
+
+    // getTopK in PageCodec's binary layout, written from the board's index without building
+    // entries; close the page once it has been written out to return its buffer
+    public EncodedPage getTopKEncoded(String leaderboardId, int k, int offset) {
+        long start = metrics.topKLatency.startTimer();
+        EncodedPage page = getLeaderboardOrThrow(leaderboardId).encodeTopK(k, offset, pagePool);
+        metrics.topKLatency.stopTimer(start);
+        return page;
+    }
+
+    // Pushes rank moves of every user whose score changes on the leaderboard, coalesced per
+    // NOTIFICATION_INTERVAL_MILLIS; cancel the returned subscription to stop
+    public Subscription subscribe(String leaderboardId, RankChangeListener listener) {
+        return notifications.subscribe(getLeaderboardOrThrow(leaderboardId), listener);
+    }
+
+    // Pushes the user's rank moves, including being passed by others
+    public Subscription subscribeToUser(String leaderboardId, String userId, RankChangeListener listener) {
+        return notifications.subscribeToUser(getLeaderboardOrThrow(leaderboardId), userId, listener);
+    }
+
+    // Pushes the first k entries whenever they change
+    public Subscription subscribeToTopK(String leaderboardId, int k, RankChangeListener listener) {
+        return notifications.subscribeToTopK(getLeaderboardOrThrow(leaderboardId), k, listener);
+    }
+
+    // Hits, misses and invalidations of the cache behind getTopK, getAroundUser and the listPlayers queries
+    public CacheStats getCacheStats() {
+        return cache.getStats();
+    }
+
+    // Counters, latencies and gauges of the service, its repository and boards; see MetricNames
+    public MetricsSnapshot getMetrics() {
+        return metrics.registry.snapshot();
     }
 
+    // Pushes getMetrics() to the exporter every periodMillis until shutdown
+    public void addMetricsExporter(MetricsExporter exporter, long periodMillis) {
+        metrics.registry.addExporter(exporter, periodMillis);
+    }
+
+    // Consistent view for callers combining several rank/page queries
+    public LeaderboardSnapshot getSnapshot(String leaderboardId) {
+        return getLeaderboardOrThrow(leaderboardId).snapshot();
+    }
+
+    public int getRank(String leaderboardId, String userId) {
+        long start = metrics.rankLatency.startTimer();
+        int rank = getLeaderboardOrThrow(leaderboardId).getRank(userId);
+        metrics.rankLatency.stopTimer(start);
+        return rank;
+    }
+
+    // Cheaper rank for display ("top 3.2%"); see Leaderboard.getApproximateRank. null if the
+    // user has no score on the leaderboard.
+    public ApproximateRank getApproximateRank(String leaderboardId, String userId) {
+        long start = metrics.approximateRankLatency.startTimer();
+        ApproximateRank rank = getLeaderboardOrThrow(leaderboardId).getApproximateRank(userId);
+        metrics.approximateRankLatency.stopTimer(start);
+        return rank;
+    }
+
+    // Updates every active board of the game before returning. From FAN_OUT_MIN_BOARDS boards on,
+    // the calling thread shares the boards with the fan-out pool rather than going through them
+    // one by one.
     public void submitScore(String gameId, String userId, int score) {
-        if (!supportedGames.contains(gameId)) {
-            throw new GameNotSupportedException("Game not supported: " + gameId);
+        long start = metrics.submitLatency.startTimer();
+        checkSubmission(gameId, score);
+
+        Leaderboard[] activeLeaderboards = repository.getActiveLeaderboards(gameId);
+        ScoreRollup rollup = rollups.get(gameId);
+        if (activeLeaderboards.length > 0 || rollup != null) {
+            int userKey = repository.getUserDictionary().intern(userId);
+            fanOut.apply(activeLeaderboards, userKey, score);
+            if (rollup != null) {
+                rollup.submit(userKey, score);
+            }
         }
+        metrics.submitLatency.stopTimer(start);
+    }
 
-        if (!scoreValidationStrategy.isValid(score)) {
-            throw new InvalidScoreException(scoreValidationStrategy.getErrorMessage());
+    // submitScore returning at the given acknowledgement point. With PRIMARY_BOARD it returns
+    // once the game's earliest-created active board has the score; the returned future completes
+    // when every other board has it too, or with the first board's failure. The rollup, if any,
+    // is updated before the call returns.
+    public CompletableFuture<Void> submitScore(String gameId, String userId, int score, AckMode ack) {
+        if (ack == AckMode.ALL_BOARDS) {
+            submitScore(gameId, userId, score);
+            return CompletableFuture.completedFuture(null);
         }
+        long start = metrics.submitLatency.startTimer();
+        checkSubmission(gameId, score);
 
-        List<Leaderboard> activeLeaderboards = repository.getActiveLeaderboardsForGame(gameId);
-        for (Leaderboard leaderboard : activeLeaderboards) {
-            leaderboard.updateScore(userId, score);
+        Leaderboard[] activeLeaderboards = repository.getActiveLeaderboards(gameId);
+        ScoreRollup rollup = rollups.get(gameId);
+        CompletableFuture<Void> rest = CompletableFuture.completedFuture(null);
+        if (activeLeaderboards.length > 0 || rollup != null) {
+            int userKey = repository.getUserDictionary().intern(userId);
+            if (activeLeaderboards.length > 0) {
+                rest = fanOut.applyAfterPrimary(activeLeaderboards, userKey, score);
+            }
+            if (rollup != null) {
+                rollup.submit(userKey, score);
+            }
         }
+        metrics.submitLatency.stopTimer(start);
+        return rest;
     }
 
-    public List<Map.Entry<String, Integer>> listPlayersNext(String gameId, String leaderboardId, String userId, int nPlayers) {
-        Leaderboard leaderboard = repository.getLeaderboard(leaderboardId);
-        if (leaderboard == null) {
-            throw new IllegalArgumentException("Leaderboard not found: " + leaderboardId);
+    // Async variant of submitScore: the score is queued on each active board's single writer and
+    // the call returns without touching the boards. The future completes with APPLIED or
+    // NOT_IMPROVED once every board has applied it, or fails with IngestionRejectedException if
+    // a board's queue is full. Game and score are still validated synchronously, and the game's
+    // rollup, if any, is updated before the call returns.
+    public CompletableFuture<SubmissionResult> submitScoreAsync(String gameId, String userId, int score) {
+        checkSubmission(gameId, score);
+        Leaderboard[] activeLeaderboards = repository.getActiveLeaderboards(gameId);
+        ScoreRollup rollup = rollups.get(gameId);
+        if (activeLeaderboards.length == 0 && rollup == null) {
+            return CompletableFuture.completedFuture(SubmissionResult.NO_ACTIVE_LEADERBOARD);
         }
+        int userKey = repository.getUserDictionary().intern(userId);
+        boolean rolledUp = rollup != null && rollup.submit(userKey, score);
+        if (activeLeaderboards.length == 0) {
+            return CompletableFuture.completedFuture(rolledUp ? SubmissionResult.APPLIED : SubmissionResult.NOT_IMPROVED);
+        }
+        List<CompletableFuture<Boolean>> perBoard = new ArrayList<>(activeLeaderboards.length);
+        for (Leaderboard leaderboard : activeLeaderboards) {
+            perBoard.add(ingestorFor(leaderboard).submit(userKey, score));
+        }
+        return CompletableFuture.allOf(perBoard.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            if (rolledUp) {
+                return SubmissionResult.APPLIED;
+            }
+            for (CompletableFuture<Boolean> improved : perBoard) {
+                if (improved.join()) {
+                    return SubmissionResult.APPLIED;
+                }
+            }
+            return SubmissionResult.NOT_IMPROVED;
+        });
+    }
 
-        TreeMap<Integer, Set<String>> scoreToUser = leaderboard.getScoreToUser();
-        Integer userScore = leaderboard.getUserScores().get(userId);
-        if (userScore == null) {
-            return new ArrayList<>();
+    // Fire-and-forget variant: returns false when a board's queue is full, in which case the
+    // caller should back off and retry. Boards that had room still apply the score.
+    public boolean offerScore(String gameId, String userId, int score) {
+        checkSubmission(gameId, score);
+        Leaderboard[] activeLeaderboards = repository.getActiveLeaderboards(gameId);
+        ScoreRollup rollup = rollups.get(gameId);
+        if (activeLeaderboards.length == 0 && rollup == null) {
+            return true;
+        }
+        int userKey = repository.getUserDictionary().intern(userId);
+        if (rollup != null) {
+            rollup.submit(userKey, score);
         }
+        boolean accepted = true;
+        for (Leaderboard leaderboard : activeLeaderboards) {
+            accepted &= ingestorFor(leaderboard).offer(userKey, score);
+        }
+        return accepted;
+    }
 
-        // 100 - [user1, user2, user3]
-        // userscore - 100
+    // Validates the whole batch up front, keeps each user's best score and applies it to every
+    // active leaderboard in one CAS per board. Results line up with the input order; an
+    // unsupported game fails the whole batch like submitScore does.
+    public List<SubmissionResult> submitScores(String gameId, Collection<ScoreSubmission> submissions) {
+        long start = metrics.submitLatency.startTimer();
+        metrics.submissions.add(submissions.size());
+        if (!supportedGames.contains(gameId)) {
+            metrics.unsupportedGames.add(submissions.size());
+            throw new GameNotSupportedException("Game not supported: " + gameId);
+        }
 
-        List<Map.Entry<String, Integer>> result = new ArrayList<>();
-        for (Map.Entry<Integer, Set<String>> entry : scoreToUser.entrySet()) {
-            if (entry.getKey() < userScore) {
-                for (String user : entry.getValue()) {
-                    if (result.size() >= nPlayers) break;
-                    result.add(new AbstractMap.SimpleEntry<>(user, entry.getKey()));
+        ScoreSubmission[] items = submissions.toArray(new ScoreSubmission[0]);
+        SubmissionResult[] results = new SubmissionResult[items.length];
+        Map<String, Integer> bestByUser = new HashMap<>(); // userId -> index of the user's best item
+        for (int i = 0; i < items.length; i++) {
+            ScoreSubmission item = items[i];
+            if (item == null || item.getUserId() == null) {
+                results[i] = SubmissionResult.INVALID_SUBMISSION;
+            } else if (!scoreValidationStrategy.isValid(item.getScore())) {
+                metrics.invalidScores.increment();
+                results[i] = SubmissionResult.INVALID_SCORE;
+            } else {
+                Integer best = bestByUser.get(item.getUserId());
+                if (best == null) {
+                    bestByUser.put(item.getUserId(), i);
+                } else if (item.getScore() > items[best].getScore()) {
+                    results[best] = SubmissionResult.SUPERSEDED;
+                    bestByUser.put(item.getUserId(), i);
+                } else {
+                    results[i] = SubmissionResult.SUPERSEDED;
                 }
             }
-            if (result.size() >= nPlayers) break;
         }
-        return result;
+
+        Leaderboard[] activeLeaderboards = repository.getActiveLeaderboards(gameId);
+        ScoreRollup rollup = rollups.get(gameId);
+        boolean applies = activeLeaderboards.length > 0 || rollup != null;
+        int[] positions = new int[bestByUser.size()];
+        int[] userKeys = new int[positions.length];
+        int[] scores = new int[positions.length];
+        int n = 0;
+        for (int position : bestByUser.values()) {
+            positions[n] = position;
+            if (applies) {
+                userKeys[n] = repository.getUserDictionary().intern(items[position].getUserId());
+            }
+            scores[n++] = items[position].getScore();
+        }
+
+        boolean[] improved = new boolean[positions.length];
+        for (Leaderboard leaderboard : activeLeaderboards) {
+            boolean[] boardImproved = leaderboard.updateScores(userKeys, scores);
+            for (int i = 0; i < improved.length; i++) {
+                improved[i] |= boardImproved[i];
+            }
+        }
+        if (rollup != null) {
+            for (int i = 0; i < improved.length; i++) {
+                improved[i] |= rollup.submit(userKeys[i], scores[i]);
+            }
+        }
+        for (int i = 0; i < positions.length; i++) {
+            results[positions[i]] = !applies ? SubmissionResult.NO_ACTIVE_LEADERBOARD
+                    : improved[i] ? SubmissionResult.APPLIED : SubmissionResult.NOT_IMPROVED;
+        }
+        metrics.submitLatency.stopTimer(start);
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    public List<Map.Entry<String, Integer>> listPlayersNext(String gameId, String leaderboardId, String userId, int nPlayers) {
+        return new ArrayList<>(getPageAfterUser(leaderboardId, userId, nPlayers).getEntries());
     }
 
     public List<Map.Entry<String, Integer>> listPlayersPrev(String gameId, String leaderboardId, String userId, int nPlayers) {
+        // Page comes back in rank order; callers expect the player just above userId first
+        List<Map.Entry<String, Integer>> result = new ArrayList<>(getPageBeforeUser(leaderboardId, userId, nPlayers).getEntries());
+        Collections.reverse(result);
+        return result;
+    }
+
+    // Up to nPlayers ranked just below the user, in rank order, with cursors to page on; the
+    // user is found and the page read in one snapshot. Empty if the user has no score.
+    public LeaderboardPage getPageAfterUser(String leaderboardId, String userId, int nPlayers) {
+        long start = metrics.pageLatency.startTimer();
+        Leaderboard leaderboard = getLeaderboardOrThrow(leaderboardId);
+        LeaderboardPage page = cachedPage(leaderboard, Arrays.asList("next", userId, nPlayers), snapshot -> {
+            Integer score = snapshot.getScore(userId);
+            LeaderboardPage after = snapshot.pageAfterUser(userId, nPlayers);
+            // The page of a user without a score changes as soon as they get one
+            return score == null ? QueryCache.Window.anchored(after, QueryCache.Window.OPEN_BELOW, QueryCache.Window.OPEN_ABOVE, 1)
+                    : below(after, after.getEntries(), score, nPlayers, snapshot.size());
+        });
+        metrics.pageLatency.stopTimer(start);
+        return page;
+    }
+
+    // Up to nPlayers ranked just above the user, in rank order; see getPageAfterUser
+    public LeaderboardPage getPageBeforeUser(String leaderboardId, String userId, int nPlayers) {
+        long start = metrics.pageLatency.startTimer();
+        Leaderboard leaderboard = getLeaderboardOrThrow(leaderboardId);
+        LeaderboardPage page = cachedPage(leaderboard, Arrays.asList("prev", userId, nPlayers), snapshot -> {
+            Integer score = snapshot.getScore(userId);
+            LeaderboardPage before = snapshot.pageBeforeUser(userId, nPlayers);
+            return score == null ? QueryCache.Window.anchored(before, QueryCache.Window.OPEN_BELOW, QueryCache.Window.OPEN_ABOVE, 1)
+                    : above(before, before.getEntries(), score, nPlayers);
+        });
+        metrics.pageLatency.stopTimer(start);
+        return page;
+    }
+
+    // "above, me, below" in one call: the user's own entry (with their rank) and its neighbours,
+    // all from one snapshot; empty if the user has no score on this leaderboard
+    public AroundUserPage getAroundUser(String leaderboardId, String userId, int above, int below) {
+        long start = metrics.pageLatency.startTimer();
+        Leaderboard leaderboard = getLeaderboardOrThrow(leaderboardId);
+        LeaderboardPage page = cachedPage(leaderboard, Arrays.asList("around", userId, above, below), snapshot -> {
+            AroundUserPage around = snapshot.pageAroundUser(userId, above, below);
+            List<RankedEntry> entries = around.getEntries();
+            if (around.getUser() == null) {
+                return QueryCache.Window.anchored(around, QueryCache.Window.OPEN_BELOW, QueryCache.Window.OPEN_ABOVE, 1);
+            }
+            // Spans both halves: open on a side that came up short or reaches the end of the board
+            RankedEntry first = entries.get(0);
+            RankedEntry last = entries.get(entries.size() - 1);
+            long highScore = around.getUserIndex() < above || first.getRank() == 1 ? QueryCache.Window.OPEN_ABOVE : first.getScore();
+            long lowScore = entries.size() - around.getUserIndex() - 1 < below || last.getRank() == snapshot.size()
+                    ? QueryCache.Window.OPEN_BELOW : last.getScore();
+            return QueryCache.Window.anchored(around, lowScore, highScore, entries.size());
+        });
+        metrics.pageLatency.stopTimer(start);
+        return (AroundUserPage) page;
+    }
+
+    // Cursor positioned on the user, or null if the user has no score on this leaderboard
+    public String getCursor(String leaderboardId, String userId) {
+        RankedEntry entry = getLeaderboardOrThrow(leaderboardId).getEntry(userId);
+        return entry == null ? null : RankCursor.of(entry).encode();
+    }
+
+    public LeaderboardPage listPlayersNext(String leaderboardId, String cursor, int nPlayers) {
+        long start = metrics.pageLatency.startTimer();
+        RankCursor position = RankCursor.decode(cursor);
+        Leaderboard leaderboard = getLeaderboardOrThrow(leaderboardId);
+        LeaderboardPage page = cachedPage(leaderboard, Arrays.asList("next", position.getScore(), position.getUserId(), nPlayers),
+                snapshot -> {
+                    LeaderboardPage after = snapshot.pageAfter(position, nPlayers);
+                    return below(after, after.getEntries(), position.getScore(), nPlayers, snapshot.size());
+                });
+        metrics.pageLatency.stopTimer(start);
+        return page;
+    }
+
+    public LeaderboardPage listPlayersPrev(String leaderboardId, String cursor, int nPlayers) {
+        long start = metrics.pageLatency.startTimer();
+        RankCursor position = RankCursor.decode(cursor);
+        Leaderboard leaderboard = getLeaderboardOrThrow(leaderboardId);
+        LeaderboardPage page = cachedPage(leaderboard, Arrays.asList("prev", position.getScore(), position.getUserId(), nPlayers),
+                snapshot -> {
+                    LeaderboardPage before = snapshot.pageBefore(position, nPlayers);
+                    return above(before, before.getEntries(), position.getScore(), nPlayers);
+                });
+        metrics.pageLatency.stopTimer(start);
+        return page;
+    }
+
+    // Page of up to count entries ranked below an anchor at highScore. Its members only change
+    // when a score lands between the anchor and its last entry, or anywhere below if the page
+    // reaches the bottom of the board.
+    private static QueryCache.Window<LeaderboardPage> below(LeaderboardPage page, List<RankedEntry> entries, long highScore,
+            int count, int size) {
+        RankedEntry last = entries.isEmpty() ? null : entries.get(entries.size() - 1);
+        long lowScore = last == null || entries.size() < count || last.getRank() == size
+                ? QueryCache.Window.OPEN_BELOW : last.getScore();
+        return QueryCache.Window.anchored(page, lowScore, highScore, entries.size());
+    }
+
+    // Page of up to count entries ranked above an anchor at lowScore
+    private static QueryCache.Window<LeaderboardPage> above(LeaderboardPage page, List<RankedEntry> entries, long lowScore,
+            int count) {
+        RankedEntry first = entries.isEmpty() ? null : entries.get(0);
+        long highScore = first == null || entries.size() < count || first.getRank() == 1
+                ? QueryCache.Window.OPEN_ABOVE : first.getScore();
+        return QueryCache.Window.anchored(page, lowScore, highScore, entries.size());
+    }
+
+    // Anchored pages come from the cache; a page it kept keeps its members while users jump
+    // over it, but its ranks shift by however many did, so it is renumbered from its first
+    // entry's current rank. Freshly loaded pages are returned as they are.
+    private LeaderboardPage cachedPage(Leaderboard leaderboard, List<Object> query, QueryCache.Loader<LeaderboardPage> loader) {
+        LeaderboardPage[] loaded = new LeaderboardPage[1];
+        LeaderboardPage page = cache.get(leaderboard, query, snapshot -> {
+            QueryCache.Window<LeaderboardPage> window = loader.load(snapshot);
+            loaded[0] = window.getValue();
+            return window;
+        });
+        return page == loaded[0] ? page : renumber(page, leaderboard);
+    }
+
+    private static LeaderboardPage renumber(LeaderboardPage page, Leaderboard leaderboard) {
+        List<RankedEntry> entries = page.getEntries();
+        if (entries.isEmpty()) {
+            return page;
+        }
+        int rank = leaderboard.getRank(entries.get(0).getUserId());
+        if (rank < 0 || rank == entries.get(0).getRank()) {
+            return page;
+        }
+        List<RankedEntry> renumbered = new ArrayList<>(entries.size());
+        for (RankedEntry entry : entries) {
+            renumbered.add(new RankedEntry(entry.getUserId(), entry.getScore(), rank++));
+        }
+        if (page instanceof AroundUserPage) {
+            return new AroundUserPage(renumbered, ((AroundUserPage) page).getUserIndex(), page.getPrevCursor(), page.getNextCursor());
+        }
+        return new LeaderboardPage(renumbered, page.getPrevCursor(), page.getNextCursor());
+    }
+
+    private Leaderboard getLeaderboardOrThrow(String leaderboardId) {
         Leaderboard leaderboard = repository.getLeaderboard(leaderboardId);
         if (leaderboard == null) {
-            throw new IllegalArgumentException("Leaderboard not found: " + leaderboardId);
+            throw new LeaderboardNotFoundException("Leaderboard not found: " + leaderboardId);
         }
+        return leaderboard;
+    }
 
-        TreeMap<Integer, Set<String>> scoreToUser = leaderboard.getScoreToUser();
-        Integer userScore = leaderboard.getUserScores().get(userId);
-        if (userScore == null) {
-            return new ArrayList<>(); // User not found on leaderboard
+    private void checkSubmission(String gameId, int score) {
+        metrics.submissions.increment();
+        if (!supportedGames.contains(gameId)) {
+            metrics.unsupportedGames.increment();
+            throw new GameNotSupportedException("Game not supported: " + gameId);
         }
 
-        List<Map.Entry<String, Integer>> allHigherPlayers = new ArrayList<>();
-        // scoreToUser iterates from highest score to lowest
-        for (Map.Entry<Integer, Set<String>> entry : scoreToUser.entrySet()) {
-            if (entry.getKey() > userScore) {
-                for (String user : entry.getValue()) {
-                    // Add all users with scores higher than the target user
-                    allHigherPlayers.add(new AbstractMap.SimpleEntry<>(user, entry.getKey()));
-                }
-            } else {
-                // Since the map is sorted descending, we can stop once we reach scores <= userScore
-                break;
-            }
+        if (!scoreValidationStrategy.isValid(score)) {
+            metrics.invalidScores.increment();
+            throw new InvalidScoreException(scoreValidationStrategy.getErrorMessage());
         }
+    }
 
-        // Reverse the list to sort from just-above-userScore upwards
-        Collections.reverse(allHigherPlayers);
-
-        // Return the first nPlayers (the page immediately preceding the user)
-        int endIndex = Math.min(nPlayers, allHigherPlayers.size());
-        return allHigherPlayers.subList(0, endIndex);
+    // Writers start on a board's first async submission and stop once the board leaves ACTIVE
+    private ScoreIngestor ingestorFor(Leaderboard leaderboard) {
+        ScoreIngestor ingestor = ingestors.get(leaderboard.getId());
+        if (ingestor != null && !ingestor.isClosed()) {
+            return ingestor;
+        }
+        ingestor = ingestors.compute(leaderboard.getId(), (id, existing) -> existing == null || existing.isClosed()
+                ? new ScoreIngestor(leaderboard, LeaderboardConfig.INGEST_QUEUE_CAPACITY, LeaderboardConfig.INGEST_MAX_BATCH)
+                : existing);
+        ingestors.values().removeIf(ScoreIngestor::isClosed);
+        return ingestor;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,34 @@
+package com.phonepe.leaderboard.service;
+
+import com.phonepe.leaderboard.cache.QueryCache;
+import com.phonepe.leaderboard.metrics.LatencyHistogram;
+import com.phonepe.leaderboard.metrics.MetricNames;
+import com.phonepe.leaderboard.metrics.MetricsRegistry;
+import java.util.concurrent.atomic.LongAdder;
+
+// The service's counters and latencies, looked up once so the request path only records
+class ServiceMetrics {
+    final MetricsRegistry registry;
+    final LongAdder submissions;
+    final LongAdder invalidScores;
+    final LongAdder unsupportedGames;
+    final LatencyHistogram submitLatency;
+    final LatencyHistogram rankLatency;
+    final LatencyHistogram approximateRankLatency;
+    final LatencyHistogram topKLatency;
+    final LatencyHistogram pageLatency;
+
+    ServiceMetrics(MetricsRegistry registry, QueryCache cache) {
+        this.registry = registry;
+        this.submissions = registry.counter(MetricNames.SUBMISSIONS);
+        this.invalidScores = registry.counter(MetricNames.REJECTED_INVALID_SCORE);
+        this.unsupportedGames = registry.counter(MetricNames.REJECTED_GAME_NOT_SUPPORTED);
+        this.submitLatency = registry.latency(MetricNames.SUBMIT_LATENCY);
+        this.rankLatency = registry.latency(MetricNames.RANK_LATENCY);
+        this.approximateRankLatency = registry.latency(MetricNames.APPROXIMATE_RANK_LATENCY);
+        this.topKLatency = registry.latency(MetricNames.TOP_K_LATENCY);
+        this.pageLatency = registry.latency(MetricNames.PAGE_LATENCY);
+        registry.gauge(MetricNames.CACHE_HITS, () -> cache.getStats().getHits());
+        registry.gauge(MetricNames.CACHE_MISSES, () -> cache.getStats().getMisses());
+    }
+}
@@ -0,0 +1,84 @@
+package com.phonepe.leaderboard.wire;
+
+import java.nio.ByteBuffer;
+
+// Direct buffers in power-of-two size classes, handed back after use so that encoding a page
+// allocates no buffer once the pool is warm. Requests above the largest class get an unpooled
+// buffer, which release drops.
+public final class BufferPool {
+    private static final int MIN_SHIFT = 10; // 1KB
+
+    private final SizeClass[] classes;
+
+    public BufferPool(int maxPooledBytes, int buffersPerClass) {
+        int maxShift = Math.max(MIN_SHIFT, 32 - Integer.numberOfLeadingZeros(Math.max(1, maxPooledBytes) - 1));
+        classes = new SizeClass[maxShift - MIN_SHIFT + 1];
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = new SizeClass(1 << (MIN_SHIFT + i), buffersPerClass);
+        }
+    }
+
+    // Cleared direct buffer of at least minBytes
+    public ByteBuffer acquire(int minBytes) {
+        int index = classIndex(minBytes);
+        if (index >= classes.length) {
+            return ByteBuffer.allocateDirect(minBytes);
+        }
+        ByteBuffer buffer = classes[index].poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(classes[index].bytes);
+    }
+
+    // Returns a buffer from acquire; the caller must not touch it afterwards
+    public void release(ByteBuffer buffer) {
+        int index = classIndex(buffer.capacity());
+        if (buffer.isDirect() && !buffer.isReadOnly() && index < classes.length && classes[index].bytes == buffer.capacity()) {
+            buffer.clear();
+            classes[index].offer(buffer);
+        }
+    }
+
+    // Buffers waiting in the pool, across all size classes
+    public int getPooledBuffers() {
+        int pooled = 0;
+        for (SizeClass sizeClass : classes) {
+            pooled += sizeClass.size();
+        }
+        return pooled;
+    }
+
+    private static int classIndex(int bytes) {
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(1, bytes) - 1);
+        return Math.max(0, shift - MIN_SHIFT);
+    }
+
+    // A bounded stack; an array rather than a concurrent queue, so recycling allocates nothing
+    private static final class SizeClass {
+        final int bytes;
+        private final ByteBuffer[] free;
+        private int size;
+
+        SizeClass(int bytes, int capacity) {
+            this.bytes = bytes;
+            this.free = new ByteBuffer[capacity];
+        }
+
+        synchronized ByteBuffer poll() {
+            if (size == 0) {
+                return null;
+            }
+            ByteBuffer buffer = free[--size];
+            free[size] = null;
+            return buffer;
+        }
+
+        synchronized void offer(ByteBuffer buffer) {
+            if (size < free.length) {
+                free[size++] = buffer;
+            }
+        }
+
+        synchronized int size() {
+            return size;
+        }
+    }
+}
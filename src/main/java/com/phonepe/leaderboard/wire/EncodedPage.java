@@ -0,0 +1,56 @@
+package com.phonepe.leaderboard.wire;
+
+import java.nio.ByteBuffer;
+
+// A page in PageCodec's layout, from position 0 to the limit of getBuffer(), which can be handed
+// to a channel as it is. A shared page is a read-only view of a buffer encoded once and kept;
+// any other page is on loan from a BufferPool until it is closed.
+public final class EncodedPage implements AutoCloseable {
+    private final ByteBuffer buffer;
+    private final ByteBuffer pooled; // null for a shared page
+    private final BufferPool pool;
+    private boolean closed;
+
+    private EncodedPage(ByteBuffer buffer, ByteBuffer pooled, BufferPool pool) {
+        this.buffer = buffer;
+        this.pooled = pooled;
+        this.pool = pool;
+    }
+
+    // View of a page kept by its owner; closing it releases nothing
+    public static EncodedPage shared(ByteBuffer page) {
+        ByteBuffer view = page.asReadOnlyBuffer();
+        view.clear();
+        return new EncodedPage(view, null, null);
+    }
+
+    // The page written from 0 to the buffer's position; closing it returns the buffer to the pool
+    public static EncodedPage pooled(ByteBuffer buffer, BufferPool pool) {
+        ByteBuffer view = buffer.duplicate();
+        view.flip();
+        return new EncodedPage(view, buffer, pool);
+    }
+
+    // The same buffer on every call; reading it moves its position
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    public int size() {
+        return buffer.limit();
+    }
+
+    public boolean isShared() {
+        return pooled == null;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            if (pooled != null) {
+                pool.release(pooled);
+            }
+        }
+    }
+}
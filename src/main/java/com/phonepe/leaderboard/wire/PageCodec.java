@@ -0,0 +1,180 @@
+package com.phonepe.leaderboard.wire;
+
+import com.phonepe.leaderboard.model.RankedEntry;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Compact binary form of a ranking page: a run of consecutive ranks in rank order.
+//
+//   byte    VERSION
+//   varint  entry count
+//   varint  rank of the first entry; the rest follow it one by one
+//   varint  first score, zigzag-encoded, then each further entry's drop from the previous score
+//   userIds per entry: varint UTF-8 bytes shared with the previous ID, varint suffix length, suffix
+//
+// Scores never rise down a page and neighbouring IDs tend to share prefixes, so a top-100 page
+// of short IDs takes a few bytes per entry. A writer fills its buffer straight from the index;
+// a full buffer throws BufferOverflowException, and the caller starts over with a larger one.
+public final class PageCodec {
+    public static final byte VERSION = 1;
+
+    private final ByteBuffer out;
+    private final String[] userIds;
+    private int added;
+    private int previousScore;
+
+    // Starts a page of count entries, the first ranked firstRank, at the buffer's position
+    public PageCodec(ByteBuffer out, int count, int firstRank) {
+        this.out = out;
+        this.userIds = new String[count];
+        out.put(VERSION);
+        putVarint(out, count);
+        putVarint(out, firstRank);
+    }
+
+    // Next entry down the page; scores must not rise
+    public void add(String userId, int score) {
+        if (added == userIds.length) {
+            throw new IllegalStateException("Page holds " + userIds.length + " entries");
+        }
+        if (added == 0) {
+            putVarint(out, ((long) score << 1) ^ (score >> 31));
+        } else if (score > previousScore) {
+            throw new IllegalArgumentException("Scores must not rise down a page");
+        } else {
+            putVarint(out, (long) previousScore - score);
+        }
+        previousScore = score;
+        userIds[added++] = userId;
+    }
+
+    // Writes the user ID block; the page ends at the buffer's position
+    public void finish() {
+        if (added != userIds.length) {
+            throw new IllegalStateException("Page has " + added + " of " + userIds.length + " entries");
+        }
+        String previous = "";
+        for (String userId : userIds) {
+            int shared = sharedPrefix(previous, userId);
+            putVarint(out, utf8Length(userId, 0, shared));
+            putUtf8(userId, shared);
+            previous = userId;
+        }
+    }
+
+    public static void encode(List<RankedEntry> entries, ByteBuffer out) {
+        PageCodec page = new PageCodec(out, entries.size(), entries.isEmpty() ? 1 : entries.get(0).getRank());
+        for (RankedEntry entry : entries) {
+            page.add(entry.getUserId(), entry.getScore());
+        }
+        page.finish();
+    }
+
+    // Reads the page at the buffer's position and moves past it
+    public static List<RankedEntry> decode(ByteBuffer in) {
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported page version " + version);
+        }
+        int count = (int) getVarint(in);
+        int firstRank = (int) getVarint(in);
+        if (count < 0 || count > in.remaining()) {
+            throw new IllegalArgumentException("Malformed page");
+        }
+        int[] scores = new int[count];
+        for (int i = 0; i < count; i++) {
+            long value = getVarint(in);
+            scores[i] = i == 0 ? (int) ((value >>> 1) ^ -(value & 1)) : (int) (scores[i - 1] - value);
+        }
+        List<RankedEntry> entries = new ArrayList<>(count);
+        byte[] previous = new byte[0];
+        for (int i = 0; i < count; i++) {
+            int shared = (int) getVarint(in);
+            int suffix = (int) getVarint(in);
+            if (shared > previous.length || suffix < 0 || suffix > in.remaining()) {
+                throw new IllegalArgumentException("Malformed page");
+            }
+            byte[] userId = new byte[shared + suffix];
+            System.arraycopy(previous, 0, userId, 0, shared);
+            in.get(userId, shared, suffix);
+            entries.add(new RankedEntry(new String(userId, StandardCharsets.UTF_8), scores[i], firstRank + i));
+            previous = userId;
+        }
+        return entries;
+    }
+
+    // Shared chars, not splitting a surrogate pair, so the prefix is also a whole number of UTF-8 bytes
+    private static int sharedPrefix(String a, String b) {
+        int limit = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < limit && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (i > 0 && i < b.length() && Character.isHighSurrogate(b.charAt(i - 1))) {
+            i--;
+        }
+        return i;
+    }
+
+    private static int utf8Length(String value, int from, int to) {
+        int bytes = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(value.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                bytes++; // unpaired; String.getBytes writes '?'
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    // The suffix from char from onwards as a varint length and its bytes; ASCII is copied without
+    // an intermediate array
+    private void putUtf8(String value, int from) {
+        int length = value.length();
+        boolean ascii = true;
+        for (int i = from; i < length && ascii; i++) {
+            ascii = value.charAt(i) < 0x80;
+        }
+        if (ascii) {
+            putVarint(out, length - from);
+            for (int i = from; i < length; i++) {
+                out.put((byte) value.charAt(i));
+            }
+        } else {
+            byte[] bytes = value.substring(from).getBytes(StandardCharsets.UTF_8);
+            putVarint(out, bytes.length);
+            out.put(bytes);
+        }
+    }
+
+    static void putVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static long getVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
@@ -0,0 +1,98 @@
+package com.phonepe.leaderboard.benchmark;
+
+import com.phonepe.leaderboard.config.LeaderboardConfig;
+import com.phonepe.leaderboard.model.ScoreSubmission;
+import com.phonepe.leaderboard.service.LeaderboardService;
+import com.phonepe.leaderboard.util.SystemTimeProvider;
+import com.phonepe.leaderboard.validation.RangeScoreValidationStrategy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// Submissions per second through LeaderboardService.submitScore versus submitScores, with
+// three active boards for the game (e.g. daily, weekly and season).
+//
+// Usage: BatchSubmitBenchmark [threads] [batchSize] [users] [secondsPerRun]
+public class BatchSubmitBenchmark {
+    private static final String GAME_ID = "bench-game";
+    private static final int BOARDS = 3;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int users = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+        System.out.printf("threads=%d batchSize=%d users=%d boards=%d%n", threads, batchSize, users, BOARDS);
+        System.out.printf("%-6s %-8s %18s%n", "round", "mode", "submissions/s");
+        // Modes alternate so neither one always runs on a colder JIT or a fuller heap
+        for (int round = 1; round <= ROUNDS; round++) {
+            double single = run(false, threads, batchSize, users, seconds);
+            System.out.printf("%-6d %-8s %18.0f%n", round, "single", single);
+            double batch = run(true, threads, batchSize, users, seconds);
+            System.out.printf("%-6d %-8s %18.0f %8.2fx%n", round, "batch", batch, batch / single);
+        }
+    }
+
+    private static double run(boolean batched, int threads, int batchSize, int users, int seconds) throws InterruptedException {
+        LeaderboardService service = new LeaderboardService(new SystemTimeProvider(),
+                new RangeScoreValidationStrategy(LeaderboardConfig.MIN_SCORE, LeaderboardConfig.MAX_SCORE));
+        service.addSupportedGame(GAME_ID);
+        int now = (int) (System.currentTimeMillis() / 1000);
+        for (int b = 0; b < BOARDS; b++) {
+            service.createLeaderboard(GAME_ID, now - 60, now + 86_400);
+        }
+        String[] userIds = new String[users];
+        for (int u = 0; u < users; u++) {
+            userIds[u] = "user" + u;
+        }
+
+        LongAdder submissions = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + (seconds + 1) * 1_000_000_000L;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                List<ScoreSubmission> batch = new ArrayList<>(batchSize);
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                while (System.nanoTime() < deadline) {
+                    // Match results: random players, scores drawn from the full valid range
+                    if (batched) {
+                        batch.clear();
+                        for (int i = 0; i < batchSize; i++) {
+                            batch.add(new ScoreSubmission(userIds[random.nextInt(users)], random.nextInt(LeaderboardConfig.MAX_SCORE)));
+                        }
+                        service.submitScores(GAME_ID, batch);
+                    } else {
+                        for (int i = 0; i < batchSize; i++) {
+                            service.submitScore(GAME_ID, userIds[random.nextInt(users)], random.nextInt(LeaderboardConfig.MAX_SCORE));
+                        }
+                    }
+                    submissions.add(batchSize);
+                }
+            });
+            workers[t].start();
+        }
+
+        // First second is warm-up
+        start.countDown();
+        Thread.sleep(1_000);
+        long warmup = submissions.sum();
+        long measureStart = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - measureStart;
+        service.shutdown();
+        return (submissions.sum() - warmup) * 1e9 / elapsed;
+    }
+}
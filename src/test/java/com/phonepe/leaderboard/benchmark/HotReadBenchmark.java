@@ -0,0 +1,110 @@
+package com.phonepe.leaderboard.benchmark;
+
+import com.phonepe.leaderboard.cache.CacheStats;
+import com.phonepe.leaderboard.config.LeaderboardConfig;
+import com.phonepe.leaderboard.model.LeaderboardSnapshot;
+import com.phonepe.leaderboard.service.LeaderboardService;
+import com.phonepe.leaderboard.util.SystemTimeProvider;
+import com.phonepe.leaderboard.validation.RangeScoreValidationStrategy;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Live-event reads: half the queries fetch the top-100 page, the rest page around one of a few
+// thousand streamers, while a writer keeps submitting scores. Compares the service's cached
+// queries with the same queries computed from a fresh snapshot every time.
+//
+// Usage: HotReadBenchmark [users] [streamers] [writesPerSecond] [secondsPerRun]
+public class HotReadBenchmark {
+    private static final String GAME_ID = "bench-game";
+    private static final int PAGE = 10;
+
+    public static void main(String[] args) throws InterruptedException {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int streamers = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        int writesPerSecond = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        LeaderboardService service = new LeaderboardService(new SystemTimeProvider(),
+                new RangeScoreValidationStrategy(LeaderboardConfig.MIN_SCORE, LeaderboardConfig.MAX_SCORE));
+        service.addSupportedGame(GAME_ID);
+        int now = (int) (System.currentTimeMillis() / 1000);
+        String leaderboardId = service.createLeaderboard(GAME_ID, now - 60, now + 86_400);
+        String[] userIds = new String[users];
+        for (int u = 0; u < users; u++) {
+            userIds[u] = "user" + u;
+            service.submitScore(GAME_ID, userIds[u], ThreadLocalRandom.current().nextInt(1_000_000));
+        }
+
+        System.out.printf("users=%d streamers=%d writes/s=%d%n", users, streamers, writesPerSecond);
+        System.out.printf("%-6s %-8s %12s %10s%n", "round", "mode", "reads/s", "hitRate");
+        for (int round = 1; round <= 3; round++) {
+            for (boolean cached : new boolean[] {false, true}) {
+                CacheStats before = service.getCacheStats();
+                double reads = run(service, leaderboardId, userIds, streamers, writesPerSecond, seconds, cached);
+                CacheStats after = service.getCacheStats();
+                long hits = after.getHits() - before.getHits();
+                long lookups = hits + after.getMisses() - before.getMisses();
+                System.out.printf("%-6d %-8s %12.0f %10s%n", round, cached ? "cached" : "direct", reads,
+                        cached ? String.format("%.3f", (double) hits / lookups) : "-");
+            }
+        }
+        System.out.println(service.getCacheStats());
+        service.shutdown();
+    }
+
+    private static double run(LeaderboardService service, String leaderboardId, String[] userIds, int streamers,
+            int writesPerSecond, int seconds, boolean cached) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long interval = 1_000_000_000L / Math.max(1, writesPerSecond);
+            long next = System.nanoTime();
+            while (running.get()) {
+                // Paced in small bursts so the writer keeps its rate on a busy core
+                if (System.nanoTime() < next) {
+                    Thread.yield();
+                    continue;
+                }
+                for (int i = 0; i < 100; i++) {
+                    service.submitScore(GAME_ID, userIds[random.nextInt(userIds.length)], random.nextInt(1_000_000));
+                }
+                next += 100 * interval;
+            }
+        });
+        writer.start();
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long reads = 0;
+        long start = System.nanoTime();
+        long deadline = start + seconds * 1_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < 100; i++) {
+                int query = random.nextInt(4);
+                String streamer = userIds[random.nextInt(streamers)];
+                if (cached) {
+                    if (query < 2) {
+                        service.getTopK(leaderboardId, 100, 0);
+                    } else if (query == 2) {
+                        service.listPlayersNext(GAME_ID, leaderboardId, streamer, PAGE);
+                    } else {
+                        service.listPlayersPrev(GAME_ID, leaderboardId, streamer, PAGE);
+                    }
+                } else {
+                    LeaderboardSnapshot snapshot = service.getSnapshot(leaderboardId);
+                    if (query < 2) {
+                        snapshot.topK(100, 0);
+                    } else if (query == 2) {
+                        snapshot.pageAfterUser(streamer, PAGE);
+                    } else {
+                        snapshot.pageBeforeUser(streamer, PAGE);
+                    }
+                }
+            }
+            reads += 100;
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        running.set(false);
+        writer.join();
+        return reads / elapsed;
+    }
+}
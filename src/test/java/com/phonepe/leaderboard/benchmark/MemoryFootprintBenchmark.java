@@ -0,0 +1,119 @@
+package com.phonepe.leaderboard.benchmark;
+
+import com.phonepe.leaderboard.index.UserDictionary;
+import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.model.LeaderboardStorage;
+import com.phonepe.leaderboard.util.SystemTimeProvider;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Retained heap per (user, board) entry for the original String/boxed layout versus
+// interned ids over persistent int structures. Every user is on every board, with
+// scores drawn uniformly from the validation range (mostly distinct scores).
+//
+// Usage: MemoryFootprintBenchmark [users] [boards]
+// Run with a fixed heap (e.g. -Xms2g -Xmx2g) for stable numbers. Off-heap boards are compacted
+// before measuring, so their row shows the heap they keep besides the direct buffers.
+public class MemoryFootprintBenchmark {
+
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int boards = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        String[] userIds = new String[users];
+        for (int u = 0; u < users; u++) {
+            userIds[u] = "player-" + u;
+        }
+        long entries = (long) users * boards;
+
+        long before = usedHeap();
+        List<Object> legacy = buildLegacy(userIds, boards);
+        long legacyBytes = usedHeap() - before;
+        keepAlive(legacy);
+        legacy = null;
+
+        before = usedHeap();
+        List<Object> interned = buildInterned(userIds, boards, LeaderboardStorage.HEAP);
+        long internedBytes = usedHeap() - before;
+        keepAlive(interned);
+        interned = null;
+
+        before = usedHeap();
+        List<Object> offHeap = buildInterned(userIds, boards, LeaderboardStorage.OFF_HEAP);
+        long offHeapBytes = usedHeap() - before;
+        keepAlive(offHeap);
+
+        System.out.printf("users=%d boards=%d (user ID strings excluded, shared by all layouts)%n", users, boards);
+        System.out.printf("%-34s %12s %16s%n", "layout", "total MB", "bytes/entry");
+        System.out.printf("%-34s %12.1f %16.1f%n", "HashMap + TreeMap<Integer, HashSet>", legacyBytes / 1e6, (double) legacyBytes / entries);
+        System.out.printf("%-34s %12.1f %16.1f%n", "interned ids + persistent int", internedBytes / 1e6, (double) internedBytes / entries);
+        System.out.printf("%-34s %12.1f %16.1f%n", "off-heap storage (heap only)", offHeapBytes / 1e6, (double) offHeapBytes / entries);
+    }
+
+    // The layout Leaderboard used before interning: userId -> Integer and score -> HashSet<userId>
+    private static List<Object> buildLegacy(String[] userIds, int boards) {
+        List<Object> retained = new ArrayList<>();
+        for (int b = 0; b < boards; b++) {
+            Random random = new Random(b);
+            Map<String, Integer> userScores = new ConcurrentHashMap<>();
+            TreeMap<Integer, Set<String>> scoreToUser = new TreeMap<>((x, y) -> y.compareTo(x));
+            for (String userId : userIds) {
+                int score = random.nextInt(1_000_000_000);
+                userScores.put(userId, score);
+                scoreToUser.computeIfAbsent(score, k -> new HashSet<>()).add(userId);
+            }
+            retained.add(userScores);
+            retained.add(scoreToUser);
+        }
+        return retained;
+    }
+
+    private static List<Object> buildInterned(String[] userIds, int boards, LeaderboardStorage storage) {
+        List<Object> retained = new ArrayList<>();
+        UserDictionary dictionary = new UserDictionary();
+        retained.add(dictionary);
+        for (int b = 0; b < boards; b++) {
+            Random random = new Random(b);
+            Leaderboard leaderboard = new Leaderboard.Builder()
+                    .id("board-" + b)
+                    .gameId("game")
+                    .startTime(0)
+                    .endTime(Long.MAX_VALUE)
+                    .timeProvider(new SystemTimeProvider())
+                    .userDictionary(dictionary)
+                    .storage(storage)
+                    .build();
+            for (String userId : userIds) {
+                leaderboard.updateScore(userId, random.nextInt(1_000_000_000));
+            }
+            leaderboard.compact();
+            retained.add(leaderboard);
+        }
+        return retained;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void keepAlive(List<Object> retained) {
+        if (retained.hashCode() == 42) {
+            System.out.println();
+        }
+    }
+}
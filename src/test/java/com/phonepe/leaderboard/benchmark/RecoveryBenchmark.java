@@ -0,0 +1,93 @@
+package com.phonepe.leaderboard.benchmark;
+
+import com.phonepe.leaderboard.config.LeaderboardConfig;
+import com.phonepe.leaderboard.model.ScoreSubmission;
+import com.phonepe.leaderboard.persistence.RecoveryReport;
+import com.phonepe.leaderboard.service.LeaderboardService;
+import com.phonepe.leaderboard.util.SystemTimeProvider;
+import com.phonepe.leaderboard.validation.RangeScoreValidationStrategy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+// Restart time of a durable service. Writes `entries` (user, board) scores spread over
+// `boards` boards, checkpointing after the first half so recovery loads snapshots for half the
+// data and replays the log for the rest, then times a fresh service recovering the directory.
+// Needs a heap of roughly 300 bytes per entry, e.g. -Xmx4g for 10M.
+//
+// Usage: RecoveryBenchmark [entries] [boards] [dataDirectory]
+public class RecoveryBenchmark {
+    private static final String GAME_ID = "bench-game";
+    private static final int BATCH = 10_000;
+
+    public static void main(String[] args) throws IOException {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int boards = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        Path directory = args.length > 2 ? Paths.get(args[2]) : Files.createTempDirectory("leaderboard-recovery");
+        deleteRecursively(directory);
+        RangeScoreValidationStrategy validation = new RangeScoreValidationStrategy(LeaderboardConfig.MIN_SCORE, LeaderboardConfig.MAX_SCORE);
+
+        long writeStart = System.nanoTime();
+        LeaderboardService service = new LeaderboardService(new SystemTimeProvider(), validation, directory);
+        service.addSupportedGame(GAME_ID);
+        int now = (int) (System.currentTimeMillis() / 1000);
+        for (int b = 0; b < boards; b++) {
+            service.createLeaderboard(GAME_ID, now - 60, now + 86_400);
+        }
+        // Every submission lands on every board, so entries / boards users
+        int users = entries / boards;
+        write(service, 0, users / 2);
+        service.checkpoint();
+        write(service, users / 2, users);
+        service.shutdown();
+        System.out.printf("wrote %d entries on %d boards in %d ms (%d MB on disk)%n", (long) users * boards, boards,
+                (System.nanoTime() - writeStart) / 1_000_000, size(directory) >> 20);
+
+        System.gc();
+        long recoverStart = System.nanoTime();
+        LeaderboardService recovered = new LeaderboardService(new SystemTimeProvider(), validation, directory);
+        long elapsed = (System.nanoTime() - recoverStart) / 1_000_000;
+        RecoveryReport report = recovered.getRecoveryReport();
+        System.out.println(report);
+        System.out.printf("recovered in %d ms (%.0f entries/s)%n", elapsed,
+                (report.getSnapshotEntries() + report.getLogScores()) * 1000.0 / Math.max(1, elapsed));
+        recovered.shutdown();
+        deleteRecursively(directory);
+    }
+
+    private static void write(LeaderboardService service, int fromUser, int toUser) {
+        Random random = new Random(fromUser);
+        List<ScoreSubmission> batch = new ArrayList<>(BATCH);
+        for (int u = fromUser; u < toUser; u++) {
+            batch.add(new ScoreSubmission("user" + u, random.nextInt(LeaderboardConfig.MAX_SCORE)));
+            if (batch.size() == BATCH) {
+                service.submitScores(GAME_ID, batch);
+                batch.clear();
+            }
+        }
+        service.submitScores(GAME_ID, batch);
+    }
+
+    private static long size(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.phonepe.leaderboard.benchmark;
+
+import com.phonepe.leaderboard.config.LeaderboardConfig;
+import com.phonepe.leaderboard.metrics.LatencyHistogram;
+import com.phonepe.leaderboard.metrics.LatencySnapshot;
+import com.phonepe.leaderboard.model.ScoreSubmission;
+import com.phonepe.leaderboard.server.BinaryProtocol;
+import com.phonepe.leaderboard.server.LeaderboardServer;
+import com.phonepe.leaderboard.service.LeaderboardService;
+import com.phonepe.leaderboard.validation.RangeScoreValidationStrategy;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Drives a LeaderboardServer over the network. HTTP phase: every connection keeps `depth`
+// requests in flight (half submissions, 40% rank lookups, 10% top-10 reads), sending each round
+// in one write, and records each request's latency from the round's send to its response.
+// Binary phase: every connection keeps `depth` batches of 1,000 submissions in flight.
+// Closed loop: a slow server slows the senders, so latencies are those of a saturated server.
+//
+// Usage: ServerLoadGenerator [connections] [depth] [secondsPerRun] [users] [host:port leaderboardId]
+// Without an address it starts an in-process server with one board of `users` players.
+public class ServerLoadGenerator {
+    private static final String GAME = "load-game";
+    private static final int BATCH = 1_000;
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int users = args.length > 3 ? Integer.parseInt(args[3]) : 100_000;
+
+        LeaderboardService service = null;
+        LeaderboardServer server = null;
+        String host;
+        int port;
+        String leaderboardId;
+        if (args.length > 5) {
+            host = args[4].substring(0, args[4].lastIndexOf(':'));
+            port = Integer.parseInt(args[4].substring(args[4].lastIndexOf(':') + 1));
+            leaderboardId = args[5];
+        } else {
+            service = new LeaderboardService(() -> 1_500L,
+                    new RangeScoreValidationStrategy(LeaderboardConfig.MIN_SCORE, LeaderboardConfig.MAX_SCORE));
+            service.addSupportedGame(GAME);
+            leaderboardId = service.createLeaderboard(GAME, 1_000, 2_000);
+            Random random = new Random(42);
+            for (int u = 0; u < users; u++) {
+                service.submitScore(GAME, "player-" + u, random.nextInt(1_000_000_000));
+            }
+            server = new LeaderboardServer(service, 0);
+            server.start();
+            host = "localhost";
+            port = server.getPort();
+        }
+
+        System.out.printf("connections=%d depth=%d users=%d seconds=%d%n", connections, depth, users, seconds);
+        run("warm-up", connections, () -> new HttpLoad(host, port, depth, users, leaderboardId), Math.max(1, seconds / 2));
+        run("http mixed", connections, () -> new HttpLoad(host, port, depth, users, leaderboardId), seconds);
+        run("binary ingest", connections, () -> new BinaryLoad(host, port, depth, users), seconds);
+
+        if (server != null) {
+            server.close();
+            service.shutdown();
+        }
+    }
+
+    private interface LoadFactory {
+        Load open() throws IOException;
+    }
+
+    private abstract static class Load implements AutoCloseable {
+        final Socket socket;
+        final InputStream in;
+        final OutputStream out;
+        final Random random = new Random();
+
+        Load(String host, int port) throws IOException {
+            socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+            out = socket.getOutputStream();
+        }
+
+        // Sends one round, waits for all of its responses and returns the operations completed
+        abstract long round(LatencyHistogram latencies) throws IOException;
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    private static final class HttpLoad extends Load {
+        private final int depth;
+        private final int users;
+        private final String leaderboardId;
+
+        HttpLoad(String host, int port, int depth, int users, String leaderboardId) throws IOException {
+            super(host, port);
+            this.depth = depth;
+            this.users = users;
+            this.leaderboardId = leaderboardId;
+        }
+
+        @Override
+        long round(LatencyHistogram latencies) throws IOException {
+            StringBuilder requests = new StringBuilder(depth * 128);
+            for (int i = 0; i < depth; i++) {
+                int pick = random.nextInt(10);
+                String userId = "player-" + random.nextInt(users);
+                if (pick < 5) {
+                    String body = "{\"gameId\":\"" + GAME + "\",\"userId\":\"" + userId + "\",\"score\":"
+                            + random.nextInt(1_000_000_000) + "}";
+                    requests.append("POST /scores HTTP/1.1\r\nContent-Length: ").append(body.length()).append("\r\n\r\n").append(body);
+                } else if (pick < 9) {
+                    requests.append("GET /leaderboards/").append(leaderboardId).append("/rank?userId=").append(userId)
+                            .append(" HTTP/1.1\r\n\r\n");
+                } else {
+                    requests.append("GET /leaderboards/").append(leaderboardId).append("/top?k=10 HTTP/1.1\r\n\r\n");
+                }
+            }
+            long sent = System.nanoTime();
+            out.write(requests.toString().getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            for (int i = 0; i < depth; i++) {
+                int status = readResponse();
+                if (status >= 400) {
+                    throw new IOException("Request failed with status " + status);
+                }
+                latencies.record(System.nanoTime() - sent);
+            }
+            return depth;
+        }
+
+        private int readResponse() throws IOException {
+            String statusLine = readLine();
+            int status = Integer.parseInt(statusLine.substring(9, 12));
+            int length = 0;
+            String line;
+            while (!(line = readLine()).isEmpty()) {
+                if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    length = Integer.parseInt(line.substring(15).trim());
+                }
+            }
+            in.readNBytes(length);
+            return status;
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder(64);
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b < 0) {
+                    throw new IOException("Connection closed");
+                }
+                if (b != '\r') {
+                    line.append((char) b);
+                }
+            }
+            return line.toString();
+        }
+    }
+
+    private static final class BinaryLoad extends Load {
+        private final int depth;
+        private final int users;
+        private ByteBuffer pending = ByteBuffer.allocate(0);
+
+        BinaryLoad(String host, int port, int depth, int users) throws IOException {
+            super(host, port);
+            this.depth = depth;
+            this.users = users;
+            ByteBuffer magic = BinaryProtocol.handshake();
+            out.write(magic.array(), 0, magic.remaining());
+        }
+
+        @Override
+        long round(LatencyHistogram latencies) throws IOException {
+            for (int i = 0; i < depth; i++) {
+                List<ScoreSubmission> batch = new ArrayList<>(BATCH);
+                for (int j = 0; j < BATCH; j++) {
+                    batch.add(new ScoreSubmission("player-" + random.nextInt(users), random.nextInt(1_000_000_000)));
+                }
+                ByteBuffer frame = BinaryProtocol.encodeSubmitBatch(GAME, batch);
+                out.write(frame.array(), 0, frame.remaining());
+            }
+            long sent = System.nanoTime();
+            out.flush();
+            for (int i = 0; i < depth; i++) {
+                while (BinaryProtocol.readResults(pending) == null) {
+                    byte[] chunk = new byte[16 * 1024];
+                    int n = in.read(chunk);
+                    if (n < 0) {
+                        throw new IOException("Connection closed");
+                    }
+                    ByteBuffer grown = ByteBuffer.allocate(pending.remaining() + n);
+                    grown.put(pending).put(chunk, 0, n).flip();
+                    pending = grown;
+                }
+                latencies.record(System.nanoTime() - sent);
+            }
+            return (long) depth * BATCH;
+        }
+    }
+
+    private static void run(String phase, int connections, LoadFactory factory, int seconds) throws Exception {
+        LatencyHistogram latencies = new LatencyHistogram();
+        LongAdder operations = new LongAdder();
+        AtomicBoolean stop = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int c = 0; c < connections; c++) {
+            Load load = factory.open();
+            Thread thread = new Thread(() -> {
+                try (Load connection = load) {
+                    while (!stop.get()) {
+                        operations.add(connection.round(latencies));
+                    }
+                } catch (Exception e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            }, "load-" + c);
+            threads.add(thread);
+        }
+        long start = System.nanoTime();
+        threads.forEach(Thread::start);
+        Thread.sleep(seconds * 1_000L);
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException(phase + " failed", failures.get(0));
+        }
+        LatencySnapshot snapshot = latencies.snapshot();
+        System.out.printf("%-14s %12.0f ops/s   p50 %8.0f us   p99 %8.0f us   p99.9 %8.0f us   max %8.0f us%n", phase,
+                operations.sum() / elapsed, snapshot.getPercentile(50) / 1e3, snapshot.getPercentile(99) / 1e3,
+                snapshot.getPercentile(99.9) / 1e3, snapshot.getMax() / 1e3);
+    }
+}
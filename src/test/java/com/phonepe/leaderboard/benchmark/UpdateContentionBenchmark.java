@@ -0,0 +1,98 @@
+package com.phonepe.leaderboard.benchmark;
+
+import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.util.SystemTimeProvider;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// Measures Leaderboard.updateScore throughput from 1 thread up to maxThreads.
+//
+// Two workloads are reported:
+//   improving - every submission beats the user's best, so every call publishes a new state
+//   steady    - a pre-filled board where most submissions don't beat the user's best
+//
+// Usage: UpdateContentionBenchmark [maxThreads] [users] [secondsPerRun] [partitions]
+public class UpdateContentionBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int users = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int partitions = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+
+        System.out.printf("partitions=%d%n", partitions);
+        System.out.printf("%-10s %8s %15s %10s%n", "workload", "threads", "ops/s", "scaling");
+        for (String workload : new String[] {"improving", "steady"}) {
+            double single = 0;
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                double opsPerSecond = run(workload, threads, users, seconds, partitions);
+                if (threads == 1) {
+                    single = opsPerSecond;
+                }
+                System.out.printf("%-10s %8d %15.0f %9.2fx%n", workload, threads, opsPerSecond, opsPerSecond / single);
+            }
+        }
+    }
+
+    private static double run(String workload, int threads, int users, int seconds, int partitions) throws InterruptedException {
+        Leaderboard leaderboard = new Leaderboard.Builder()
+                .id("bench")
+                .gameId("bench-game")
+                .startTime(0)
+                .endTime(Long.MAX_VALUE)
+                .timeProvider(new SystemTimeProvider())
+                .partitions(partitions)
+                .build();
+        boolean improving = "improving".equals(workload);
+        if (!improving) {
+            for (int u = 0; u < users; u++) {
+                leaderboard.updateScore("user" + u, ThreadLocalRandom.current().nextInt(1_000_000));
+            }
+        }
+
+        String[] userIds = new String[users];
+        for (int u = 0; u < users; u++) {
+            userIds[u] = "user" + u;
+        }
+
+        LongAdder ops = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + (seconds + 1) * 1_000_000_000L;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int threadId = t;
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int counter = 0;
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                while (System.nanoTime() < deadline) {
+                    for (int i = 0; i < 1_000; i++) {
+                        String userId = userIds[random.nextInt(users)];
+                        // Monotonic per-thread scores guarantee improvements; interleave threads to keep them distinct
+                        int score = improving ? (++counter) * threads + threadId : random.nextInt(1_000_000);
+                        leaderboard.updateScore(userId, score);
+                    }
+                    ops.add(1_000);
+                }
+            });
+            workers[t].start();
+        }
+
+        // First second is warm-up
+        start.countDown();
+        Thread.sleep(1_000);
+        long warmupOps = ops.sum();
+        long measureStart = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - measureStart;
+        return (ops.sum() - warmupOps) * 1e9 / elapsed;
+    }
+}
@@ -0,0 +1,191 @@
+package com.phonepe.leaderboard.cache;
+
+import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.model.RankedEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class QueryCacheTest {
+    private Leaderboard leaderboard;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        leaderboard = new Leaderboard.Builder()
+                .id("board")
+                .gameId("game")
+                .startTime(0)
+                .endTime(Long.MAX_VALUE)
+                .timeProvider(() -> 1L)
+                .build();
+        for (int i = 1; i <= 100; i++) {
+            leaderboard.updateScore("user" + i, i * 10);
+        }
+    }
+
+    @Test
+    void testHitsUntilAnOverlappingChange() {
+        QueryCache cache = new QueryCache(1_000);
+
+        // Ranks 11-20 hold scores 900 down to 810
+        topK(cache, 10, 10);
+        List<RankedEntry> window = topK(cache, 10, 10);
+        assertSame(window, topK(cache, 10, 10));
+        assertEquals(2, loads.get());
+
+        // Below the window, and within the window's range
+        leaderboard.updateScore("user5", 60);
+        assertSame(window, topK(cache, 10, 10));
+        leaderboard.updateScore("user5", 850);
+        List<RankedEntry> reloaded = topK(cache, 10, 10);
+        assertNotSame(window, reloaded);
+        assertEquals(3, loads.get());
+        assertEquals(leaderboard.getTopK(10, 10), reloaded);
+
+        // A move above the window leaves its ranks alone; one from below into the window does not
+        leaderboard.updateScore("user95", 990);
+        assertSame(reloaded, topK(cache, 10, 10));
+        leaderboard.updateScore("new-user", 5_000);
+        assertNotSame(reloaded, topK(cache, 10, 10));
+
+        CacheStats stats = cache.getStats();
+        assertEquals(3, stats.getHits());
+        assertEquals(4, stats.getMisses());
+        assertEquals(3 / 7.0, stats.getHitRate());
+        assertEquals(2, stats.getInvalidations());
+        assertEquals(1, stats.getWindows());
+        assertEquals(10, stats.getEntries());
+    }
+
+    @Test
+    void testCachesQueriesFromTheirSecondMiss() {
+        QueryCache cache = new QueryCache(1_000);
+        List<RankedEntry> once = topK(cache, 10, 0);
+        assertEquals(0, cache.getStats().getWindows());
+
+        List<RankedEntry> twice = topK(cache, 10, 0);
+        assertNotSame(once, twice);
+        assertSame(twice, topK(cache, 10, 0));
+        assertEquals(1, cache.getStats().getWindows());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testNewUsersOnlyInvalidateWindowsAtOrBelowTheirScore() {
+        QueryCache cache = new QueryCache(1_000);
+        topK(cache, 10, 0);
+        topK(cache, 10, 90);
+        List<RankedEntry> top = topK(cache, 10, 0);
+        List<RankedEntry> bottom = topK(cache, 10, 90);
+
+        leaderboard.updateScore("newcomer", 15);
+        assertSame(top, topK(cache, 10, 0));
+        assertNotSame(bottom, topK(cache, 10, 90));
+        assertEquals(leaderboard.getTopK(10, 90), topK(cache, 10, 90));
+    }
+
+    @Test
+    void testAnchoredWindowsOnlyFollowTheirMembers() {
+        QueryCache cache = new QueryCache(1_000);
+        // The five users ranked after user50 (scores 490 down to 450)
+        pageAfter(cache, "user50");
+        Object page = pageAfter(cache, "user50");
+        assertSame(page, pageAfter(cache, "user50"));
+
+        // Jumping over the page, or moving outside it, leaves its members alone
+        leaderboard.updateScore("user10", 900);
+        leaderboard.updateScore("user60", 700);
+        leaderboard.updateScore("late", 20);
+        assertSame(page, pageAfter(cache, "user50"));
+
+        // Landing inside it, leaving it, or moving the anchor does not
+        leaderboard.updateScore("user20", 470);
+        Object landed = pageAfter(cache, "user50");
+        assertNotSame(page, landed);
+        leaderboard.updateScore("user47", 2_000);
+        Object left = pageAfter(cache, "user50");
+        assertNotSame(landed, left);
+        leaderboard.updateScore("user50", 505);
+        assertNotSame(left, pageAfter(cache, "user50"));
+        assertEquals(leaderboard.getPageAfterUser("user50", 5).getEntries(), pageAfter(cache, "user50"));
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedByEntries() {
+        // One segment's worth of room for each window at most
+        QueryCache cache = new QueryCache(16 * 20);
+        for (int offset = 0; offset < 100; offset += 10) {
+            topK(cache, 10, offset);
+            topK(cache, 10, offset);
+        }
+        CacheStats stats = cache.getStats();
+        assertTrue(stats.getEntries() <= 16 * 20);
+        assertTrue(stats.getWindows() > 0);
+        assertEquals(stats.getEntries(), stats.getWindows() * 10);
+
+        QueryCache disabled = new QueryCache(0);
+        List<RankedEntry> first = topK(disabled, 10, 0);
+        assertNotSame(first, topK(disabled, 10, 0));
+        assertEquals(0, disabled.getStats().getHits());
+    }
+
+    @Test
+    void testDropsWindowsOfEvictedBoards() {
+        QueryCache cache = new QueryCache(1_000);
+        topK(cache, 10, 0);
+        topK(cache, 10, 0);
+        assertEquals(1, cache.getStats().getWindows());
+        leaderboard.evict();
+
+        assertEquals(0, cache.getStats().getWindows());
+        assertTrue(topK(cache, 10, 0).isEmpty());
+    }
+
+    @Test
+    void testConcurrentWritersNeverLeaveStaleWindows() throws InterruptedException {
+        QueryCache cache = new QueryCache(10_000);
+        Thread[] writers = new Thread[2];
+        for (int t = 0; t < writers.length; t++) {
+            int thread = t;
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    leaderboard.updateScore("user" + (i % 150) + "-" + thread, i / 10);
+                }
+            });
+            writers[t].start();
+        }
+        while (writers[0].isAlive() || writers[1].isAlive()) {
+            for (int offset = 0; offset < 300; offset += 25) {
+                topK(cache, 25, offset);
+            }
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        for (int offset = 0; offset < 300; offset += 25) {
+            assertEquals(leaderboard.getTopK(25, offset), topK(cache, 25, offset));
+        }
+    }
+
+    private List<RankedEntry> pageAfter(QueryCache cache, String userId) {
+        return cache.get(leaderboard, Arrays.asList("next", userId), snapshot -> {
+            List<RankedEntry> entries = snapshot.pageAfterUser(userId, 5).getEntries();
+            return QueryCache.Window.anchored(entries, entries.get(entries.size() - 1).getScore(), snapshot.getScore(userId), entries.size());
+        });
+    }
+
+    private List<RankedEntry> topK(QueryCache cache, int k, int offset) {
+        return cache.get(leaderboard, Arrays.asList("top", k, offset), snapshot -> {
+            loads.incrementAndGet();
+            List<RankedEntry> entries = snapshot.topK(k, offset);
+            long high = entries.isEmpty() ? QueryCache.Window.OPEN_ABOVE : entries.get(0).getScore();
+            long low = entries.size() < k ? QueryCache.Window.OPEN_BELOW : entries.get(entries.size() - 1).getScore();
+            return QueryCache.Window.positional(entries, low, high, entries.size());
+        });
+    }
+}
@@ -0,0 +1,50 @@
+package com.phonepe.leaderboard.index;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AchievementKeysTest {
+
+    @Test
+    void testEachImprovementTakesALaterKey() {
+        UserDictionary dictionary = new UserDictionary();
+        int alice = dictionary.intern("alice");
+        int bob = dictionary.intern("bob");
+        AchievementKeys empty = AchievementKeys.empty(dictionary);
+        assertEquals(UserKeys.UNKNOWN, empty.keyOf(alice));
+
+        AchievementKeys keys = empty.next(bob).next(alice);
+        int bobFirst = keys.keyOf(bob);
+        assertTrue(bobFirst < keys.keyOf(alice));
+        keys = keys.next(bob);
+        assertTrue(keys.keyOf(bob) > keys.keyOf(alice));
+
+        // Earlier versions keep their keys; every key still names its user
+        assertEquals(UserKeys.UNKNOWN, empty.keyOf(bob));
+        assertEquals("bob", keys.userId(bobFirst));
+        assertEquals(bob, keys.userKeyOf(keys.keyOf(bob)));
+        assertEquals(keys.keyOf(alice), keys.lookup("alice"));
+        assertEquals(UserKeys.UNKNOWN, keys.lookup("carol"));
+        assertEquals(UserKeys.UNKNOWN, keys.userKeyOf(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void testCombinedKeysRouteByPartition() {
+        UserDictionary dictionary = new UserDictionary();
+        AchievementKeys root = AchievementKeys.empty(dictionary);
+        AchievementKeys[] parts = {root, root, root};
+        for (int i = 0; i < 10_000; i++) {
+            int userKey = dictionary.intern("user" + i);
+            int partition = PartitionedScoreStore.partitionOf(userKey, parts.length);
+            parts[partition] = parts[partition].next(userKey);
+        }
+        AchievementKeys combined = AchievementKeys.combine(parts);
+        for (int i = 0; i < 10_000; i++) {
+            int userKey = dictionary.lookup("user" + i);
+            // Keys come from one counter, in the order handed out across partitions
+            assertEquals(i, combined.keyOf(userKey));
+            assertEquals("user" + i, combined.userId(i));
+        }
+        assertThrows(IllegalStateException.class, () -> combined.next(0));
+    }
+}
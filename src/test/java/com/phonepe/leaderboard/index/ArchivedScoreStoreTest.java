@@ -0,0 +1,87 @@
+package com.phonepe.leaderboard.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Random;
+
+public class ArchivedScoreStoreTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void testServesEntriesAndNamesFromTheMappedFile() throws IOException {
+        ScoreStore source = FrozenScoreStoreTest.randomStore(new Random(9), 200);
+        UserDictionary dictionary = dictionary(200);
+        ArchivedScoreStore archived = ArchivedScoreStore.write(source, dictionary,
+                Collections.singletonMap("id", "board"), directory.resolve("board.lb"));
+
+        assertTrue(Files.exists(archived.getFile()));
+        assertEquals("board", archived.getMetadata().get("id"));
+        assertSame(archived, archived.userKeys(dictionary));
+        assertSameContents(source, dictionary, archived);
+        assertEquals(UserKeys.UNKNOWN, archived.lookup("nobody"));
+        assertEquals(UserScoreMap.NO_SCORE, archived.find(archived.size()));
+        assertNull(archived.entryAt(archived.size()));
+        assertThrows(IllegalStateException.class, () -> archived.withScore(1, 1, 2));
+    }
+
+    @Test
+    void testReopensWithoutTheWritersDictionary() throws IOException {
+        UserDictionary dictionary = new UserDictionary();
+        ScoreStore source = HeapScoreStore.EMPTY;
+        String[] names = {"zoë", "adam", "ådne", "bo", "李雷", ""};
+        int[] scores = {50, 70, 50, 50, 90, 10};
+        for (int i = 0; i < names.length; i++) {
+            source = source.withScore(dictionary.intern(names[i]), UserScoreMap.NO_SCORE, scores[i]);
+        }
+        Path file = directory.resolve("board.lb");
+        ArchivedScoreStore.write(source, dictionary, Collections.emptyMap(), file);
+
+        ArchivedScoreStore reopened = ArchivedScoreStore.open(file);
+
+        assertSameContents(source, dictionary, reopened);
+        assertEquals("李雷", reopened.userId(reopened.entryAt(0).getUserId()));
+        // Ties keep the order they had when archived
+        assertEquals(2, reopened.lookup("zoë"));
+        assertEquals(3, reopened.lookup("ådne"));
+        assertEquals(4, reopened.lookup("bo"));
+        assertEquals(5, reopened.lookup(""));
+    }
+
+    @Test
+    void testRejectsFilesThatAreNotArchives() throws IOException {
+        Path file = directory.resolve("other.lb");
+        Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13});
+
+        assertThrows(IOException.class, () -> ArchivedScoreStore.open(file));
+    }
+
+    private static UserDictionary dictionary(int users) {
+        UserDictionary dictionary = new UserDictionary();
+        for (int i = 0; i < users; i++) {
+            dictionary.intern("user" + i);
+        }
+        return dictionary;
+    }
+
+    // Archived keys are rank positions, so entries are compared by name rather than by key
+    private static void assertSameContents(ScoreStore expected, UserKeys expectedKeys, ArchivedScoreStore actual) {
+        assertEquals(expected.size(), actual.size());
+        expected.forEachFrom(0, expected.size(), (rank, score, userId) -> {
+            String name = expectedKeys.userId(userId);
+            RankIndex.Entry entry = actual.entryAt(rank);
+            assertEquals(name, actual.userId(entry.getUserId()));
+            assertEquals(score, entry.getScore());
+            assertEquals(rank, actual.lookup(name));
+            assertEquals(score, actual.find(rank));
+            assertEquals(rank, actual.countBefore(score, rank));
+            assertEquals(expected.countAbove(score), actual.countAbove(score));
+        });
+    }
+}
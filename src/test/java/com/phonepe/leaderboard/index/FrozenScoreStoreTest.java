@@ -0,0 +1,90 @@
+package com.phonepe.leaderboard.index;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+public class FrozenScoreStoreTest {
+
+    @Test
+    void testMatchesSourceStore() {
+        ScoreStore source = randomStore(new Random(3), 400);
+        FrozenScoreStore frozen = FrozenScoreStore.of(source);
+
+        assertSameContents(source, frozen);
+        assertEquals(UserScoreMap.NO_SCORE, frozen.find(10_000));
+        assertNull(frozen.entryAt(frozen.size()));
+    }
+
+    @Test
+    void testBuildsFromUnorderedPairs() {
+        ScoreStore source = randomStore(new Random(4), 400).withScore(5_000, UserScoreMap.NO_SCORE, -7);
+        int[] userIds = new int[source.size() + 1];
+        int[] scores = new int[source.size() + 1];
+        int[] count = new int[1];
+        source.forEachScore((userId, score) -> {
+            userIds[count[0]] = userId;
+            scores[count[0]++] = score;
+        });
+
+        assertSameContents(source, FrozenScoreStore.of(userIds, scores, count[0]));
+    }
+
+    @Test
+    void testRejectsUpdates() {
+        FrozenScoreStore frozen = FrozenScoreStore.of(HeapScoreStore.EMPTY.withScore(1, UserScoreMap.NO_SCORE, 10));
+
+        assertThrows(IllegalStateException.class, () -> frozen.withScore(1, 10, 20));
+        assertSame(frozen, frozen.freeze());
+    }
+
+    @Test
+    void testWriteAndReadBack() throws IOException {
+        ScoreStore source = randomStore(new Random(5), 300);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            FrozenScoreStore.write(source, out);
+        }
+
+        FrozenScoreStore read = FrozenScoreStore.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertSameContents(source, read);
+    }
+
+    @Test
+    void testRejectsForeignData() {
+        byte[] garbage = {1, 2, 3, 4, 5, 6, 7, 8};
+        assertThrows(IOException.class, () -> FrozenScoreStore.readFrom(new DataInputStream(new ByteArrayInputStream(garbage))));
+    }
+
+    static ScoreStore randomStore(Random random, int users) {
+        ScoreStore store = HeapScoreStore.EMPTY;
+        for (int i = 0; i < users * 3; i++) {
+            int userId = random.nextInt(users);
+            int score = random.nextInt(1_000);
+            long current = store.find(userId);
+            if (current == UserScoreMap.NO_SCORE || score > current) {
+                store = store.withScore(userId, current, score);
+            }
+        }
+        return store;
+    }
+
+    static void assertSameContents(ScoreStore expected, ScoreStore actual) {
+        assertEquals(expected.size(), actual.size());
+        expected.forEachFrom(0, expected.size(), (rank, score, userId) -> {
+            RankIndex.Entry entry = actual.entryAt(rank);
+            assertEquals(userId, entry.getUserId());
+            assertEquals(score, entry.getScore());
+            assertEquals(score, actual.find(userId));
+            assertEquals(rank, actual.countBefore(score, userId));
+            assertEquals(expected.countAbove(score), actual.countAbove(score));
+        });
+    }
+}
@@ -0,0 +1,163 @@
+package com.phonepe.leaderboard.index;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class OffHeapScoreStoreTest {
+
+    @Test
+    void testEmptyStore() {
+        ScoreStore store = OffHeapScoreStore.empty(4);
+
+        assertEquals(0, store.size());
+        assertEquals(UserScoreMap.NO_SCORE, store.find(1));
+        assertNull(store.entryAt(0));
+        assertEquals(0, store.countAbove(0));
+        assertEquals(0, store.compact().size());
+    }
+
+    @Test
+    void testUpdatesAcrossCompaction() {
+        ScoreStore store = OffHeapScoreStore.empty(4);
+        store = put(store, 1, 100);
+        store = put(store, 2, 300);
+        store = put(store, 3, 200);
+        store = store.compact();
+
+        // User 1 moves from last to first; the base entry must stop counting
+        store = put(store, 1, 400);
+
+        assertEquals(3, store.size());
+        assertEquals(400, store.find(1));
+        assertEquals(1, store.entryAt(0).getUserId());
+        assertEquals(2, store.entryAt(1).getUserId());
+        assertEquals(3, store.entryAt(2).getUserId());
+        assertNull(store.entryAt(3));
+        assertEquals(1, store.countBefore(300, 2));
+        assertEquals(2, store.countAbove(200));
+    }
+
+    @Test
+    void testNeedsCompactionAtDeltaLimit() {
+        ScoreStore store = OffHeapScoreStore.empty(2);
+        store = put(store, 1, 10);
+        assertFalse(store.needsCompaction());
+        store = put(store, 2, 20);
+        assertTrue(store.needsCompaction());
+        assertFalse(store.compact().needsCompaction());
+    }
+
+    @Test
+    void testMatchesHeapStore() {
+        Random random = new Random(7);
+        ScoreStore heap = HeapScoreStore.EMPTY;
+        ScoreStore offHeap = OffHeapScoreStore.empty(64);
+
+        for (int i = 0; i < 5_000; i++) {
+            int userId = random.nextInt(500);
+            int score = random.nextInt(2_000);
+            long current = heap.find(userId);
+            if (current != UserScoreMap.NO_SCORE && score <= current) {
+                continue;
+            }
+            heap = put(heap, userId, score);
+            offHeap = put(offHeap, userId, score);
+            if (offHeap.needsCompaction()) {
+                offHeap = offHeap.compact();
+            }
+            if (i % 500 == 0) {
+                assertSameContents(heap, offHeap);
+            }
+        }
+        assertSameContents(heap, offHeap);
+        assertSameContents(heap, offHeap.compact());
+    }
+
+    @Test
+    void testRebaseReplaysUpdatesMadeDuringCompaction() {
+        ScoreStore source = OffHeapScoreStore.empty(16);
+        for (int u = 0; u < 10; u++) {
+            source = put(source, u, u * 10);
+        }
+        ScoreStore compacted = source.compact();
+
+        ScoreStore latest = put(source, 3, 500);
+        latest = put(latest, 42, 5);
+        ScoreStore rebased = latest.rebase(source, compacted);
+
+        assertSameContents(latest, rebased);
+        assertNull(compacted.rebase(source, compacted.compact()));
+    }
+
+    @Test
+    void testRemovalsMatchHeapStoreAcrossCompactionAndRebase() {
+        Random random = new Random(11);
+        ScoreStore heap = HeapScoreStore.EMPTY;
+        ScoreStore offHeap = OffHeapScoreStore.empty(32);
+        for (int i = 0; i < 4_000; i++) {
+            int userId = random.nextInt(300);
+            long current = heap.find(userId);
+            if (current != UserScoreMap.NO_SCORE && random.nextInt(3) == 0) {
+                heap = heap.without(userId, current);
+                offHeap = offHeap.without(userId, current);
+            } else {
+                int score = random.nextInt(1_000);
+                heap = put(heap, userId, score);
+                offHeap = put(offHeap, userId, score);
+            }
+            if (offHeap.needsCompaction()) {
+                ScoreStore source = offHeap;
+                // A removal and an update land while the compaction runs
+                ScoreStore latest = source;
+                long removedScore = latest.find(userId);
+                if (removedScore != UserScoreMap.NO_SCORE) {
+                    latest = latest.without(userId, removedScore);
+                    heap = heap.without(userId, removedScore);
+                }
+                latest = put(latest, 1_000 + i, i);
+                heap = put(heap, 1_000 + i, i);
+                offHeap = latest.rebase(source, source.compact());
+            }
+            if (i % 400 == 0) {
+                assertSameContents(heap, offHeap);
+            }
+        }
+        assertSameContents(heap, offHeap);
+        assertSameContents(heap, offHeap.freeze());
+    }
+
+    private static ScoreStore put(ScoreStore store, int userId, int score) {
+        return store.withScore(userId, store.find(userId), score);
+    }
+
+    private static void assertSameContents(ScoreStore expected, ScoreStore actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(entries(expected, 0, expected.size()), entries(actual, 0, actual.size()));
+        assertEquals(scores(expected), scores(actual));
+        for (int rank = 0; rank < expected.size(); rank += 37) {
+            assertEquals(entries(expected, rank, 5), entries(actual, rank, 5));
+            RankIndex.Entry entry = expected.entryAt(rank);
+            assertEquals(entry.getUserId(), actual.entryAt(rank).getUserId());
+            assertEquals(rank, actual.countBefore(entry.getScore(), entry.getUserId()));
+            assertEquals(expected.countAbove(entry.getScore()), actual.countAbove(entry.getScore()));
+        }
+    }
+
+    private static List<Long> entries(ScoreStore store, int rank, int limit) {
+        List<Long> entries = new ArrayList<>();
+        store.forEachFrom(rank, limit, (position, score, userId) -> entries.add(((long) position << 40) | ((long) score << 20) | userId));
+        return entries;
+    }
+
+    private static Map<Integer, Integer> scores(ScoreStore store) {
+        Map<Integer, Integer> scores = new HashMap<>();
+        store.forEachScore(scores::put);
+        return scores;
+    }
+}
@@ -0,0 +1,93 @@
+package com.phonepe.leaderboard.index;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class PartitionedScoreStoreTest {
+
+    @Test
+    void testMatchesUnpartitionedStore() {
+        ScoreStore whole = FrozenScoreStoreTest.randomStore(new Random(5), 3_000);
+        PartitionedScoreStore partitioned = split(whole, 4);
+
+        assertEquals(4, partitioned.partitions());
+        FrozenScoreStoreTest.assertSameContents(whole, partitioned);
+        assertEquals(UserScoreMap.NO_SCORE, partitioned.find(10_000));
+        assertNull(partitioned.entryAt(partitioned.size()));
+        assertEquals(whole.countBefore(500, 7), partitioned.countBefore(500, 7));
+    }
+
+    @Test
+    void testMergesPagesAcrossPartitionsAndChunks() {
+        ScoreStore whole = FrozenScoreStoreTest.randomStore(new Random(6), 5_000);
+        PartitionedScoreStore partitioned = split(whole, 7);
+
+        for (int[] window : new int[][] {{0, 10}, {0, whole.size()}, {1234, 2500}, {whole.size() - 3, 10}, {4000, 1}}) {
+            assertEquals(entries(whole, window[0], window[1]), entries(partitioned, window[0], window[1]));
+        }
+        assertTrue(entries(partitioned, whole.size(), 10).isEmpty());
+    }
+
+    @Test
+    void testSeeksByKeyLikeTheDefaultImplementation() {
+        ScoreStore whole = FrozenScoreStoreTest.randomStore(new Random(7), 4_000);
+        PartitionedScoreStore partitioned = split(whole, 5);
+
+        for (int rank : new int[] {0, 1, 999, 2500, whole.size() - 1}) {
+            RankIndex.Entry at = whole.entryAt(rank);
+            for (int limit : new int[] {1, 10, 1500}) {
+                assertEquals(fromKey(whole, at, rank, limit), fromKey(partitioned, at, rank, limit));
+                assertEquals(beforeKey(whole, at, rank, limit), beforeKey(partitioned, at, rank, limit));
+            }
+        }
+        // A key nobody holds, past the last entry
+        assertEquals(beforeKey(whole, new RankIndex.Entry(Integer.MAX_VALUE, Integer.MIN_VALUE), whole.size(), 20),
+                beforeKey(partitioned, new RankIndex.Entry(Integer.MAX_VALUE, Integer.MIN_VALUE), whole.size(), 20));
+    }
+
+    @Test
+    void testEmptyPartitions() {
+        ScoreStore whole = HeapScoreStore.EMPTY.withScore(1, UserScoreMap.NO_SCORE, 10);
+        PartitionedScoreStore partitioned = split(whole, 16);
+
+        assertEquals(1, partitioned.size());
+        assertEquals(List.of("0:1=10"), entries(partitioned, 0, 5));
+        assertThrows(IllegalStateException.class, () -> partitioned.withScore(2, UserScoreMap.NO_SCORE, 5));
+    }
+
+    private static PartitionedScoreStore split(ScoreStore whole, int partitions) {
+        ScoreStore[] parts = new ScoreStore[partitions];
+        for (int p = 0; p < partitions; p++) {
+            parts[p] = HeapScoreStore.EMPTY;
+        }
+        whole.forEachScore((userId, score) -> {
+            int p = PartitionedScoreStore.partitionOf(userId, partitions);
+            parts[p] = parts[p].withScore(userId, UserScoreMap.NO_SCORE, score);
+        });
+        return PartitionedScoreStore.of(parts);
+    }
+
+    private static List<String> entries(ScoreStore store, int rank, int limit) {
+        List<String> entries = new ArrayList<>();
+        store.forEachFrom(rank, limit, (position, score, userId) -> entries.add(position + ":" + userId + "=" + score));
+        return entries;
+    }
+
+    private static List<String> fromKey(ScoreStore store, RankIndex.Entry key, int rank, int limit) {
+        List<String> entries = new ArrayList<>();
+        store.forEachFromKey(key.getScore(), key.getUserId(), rank, limit,
+                (position, score, userId) -> entries.add(position + ":" + userId + "=" + score));
+        return entries;
+    }
+
+    private static List<String> beforeKey(ScoreStore store, RankIndex.Entry key, int rank, int limit) {
+        List<String> entries = new ArrayList<>();
+        store.forEachBeforeKey(key.getScore(), key.getUserId(), rank, limit,
+                (position, score, userId) -> entries.add(position + ":" + userId + "=" + score));
+        return entries;
+    }
+}
@@ -0,0 +1,169 @@
+package com.phonepe.leaderboard.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class RankIndexTest {
+    private static final int USER_A = 1;
+    private static final int USER_B = 2;
+    private static final int USER_C = 3;
+    private RankIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = RankIndex.EMPTY;
+    }
+
+    @Test
+    void testEmptyIndex() {
+        assertEquals(0, index.size());
+        assertEquals(-1, index.rankOf(100, 1));
+        assertNull(index.entryAt(0));
+        assertEquals(0, index.countAbove(0));
+    }
+
+    @Test
+    void testRankOrdering() {
+        index = index.insert(1000, 1);
+        index = index.insert(2000, 2);
+        index = index.insert(1500, 3);
+
+        assertEquals(3, index.size());
+        assertEquals(0, index.rankOf(2000, 2));
+        assertEquals(1, index.rankOf(1500, 3));
+        assertEquals(2, index.rankOf(1000, 1));
+        assertEquals(2, index.entryAt(0).getUserId());
+        assertEquals(1000, index.entryAt(2).getScore());
+    }
+
+    @Test
+    void testTiesOrderedByInternedId() {
+        index = index.insert(1000, USER_B);
+        index = index.insert(1000, USER_A);
+        index = index.insert(1000, USER_C);
+
+        assertEquals(USER_A, index.entryAt(0).getUserId());
+        assertEquals(USER_B, index.entryAt(1).getUserId());
+        assertEquals(USER_C, index.entryAt(2).getUserId());
+        assertEquals(0, index.countAbove(1000));
+        assertEquals(3, index.countAbove(999));
+    }
+
+    @Test
+    void testRemove() {
+        index = index.insert(1000, 1);
+        index = index.insert(2000, 2);
+        index = index.remove(2000, 2);
+
+        assertEquals(1, index.size());
+        assertEquals(-1, index.rankOf(2000, 2));
+        assertEquals(0, index.rankOf(1000, 1));
+    }
+
+    @Test
+    void testForEachFromPosition() {
+        for (int i = 1; i <= 5; i++) {
+            index = index.insert(i * 10, i);
+        }
+        List<String> visited = new ArrayList<>();
+        // visitor receives (rank, score, interned userId)
+        index.forEachFrom(1, 3, (rank, score, userId) -> visited.add(rank + ":user" + userId));
+        assertEquals(List.of("1:user4", "2:user3", "3:user2"), visited);
+
+        visited.clear();
+        index.forEachDescendingFrom(3, 10, (rank, score, userId) -> visited.add(rank + ":user" + userId));
+        assertEquals(List.of("3:user2", "2:user3", "1:user4", "0:user5"), visited);
+
+        assertEquals(2, index.countBefore(30, 3));
+        assertEquals(2, index.countBefore(35, 99));
+    }
+
+    @Test
+    void testUpdatesLeaveEarlierVersionsUntouched() {
+        RankIndex before = index.insert(1000, 1);
+        RankIndex after = before.insert(2000, 2).remove(1000, 1);
+
+        assertEquals(1, before.size());
+        assertEquals(0, before.rankOf(1000, 1));
+        assertEquals(1, after.size());
+        assertEquals(-1, after.rankOf(1000, 1));
+        assertSame(after, after.remove(1234, 99));
+    }
+
+    @Test
+    void testLargeIndexMatchesSortedOrder() {
+        int n = 10_000;
+        for (int i = 0; i < n; i++) {
+            index = index.insert(i % 997, i);
+        }
+        for (int rank = 1; rank < n; rank++) {
+            RankIndex.Entry prev = index.entryAt(rank - 1);
+            RankIndex.Entry curr = index.entryAt(rank);
+            assertTrue(prev.getScore() > curr.getScore()
+                    || (prev.getScore() == curr.getScore() && prev.getUserId() < curr.getUserId()));
+            assertEquals(rank, index.rankOf(curr.getScore(), curr.getUserId()));
+        }
+    }
+
+    @Test
+    void testBulkOperationsMatchSingleUpdates() {
+        Random random = new Random(42);
+        int n = 5_000;
+        for (int i = 0; i < n; i++) {
+            index = index.insert(random.nextInt(1000), i);
+        }
+        // Move a batch of users, including extreme scores and ids, the way a batch update would
+        int m = 700;
+        int[] oldScores = new int[m];
+        int[] newScores = new int[m];
+        int[] userIds = new int[m];
+        RankIndex expected = index;
+        for (int i = 0; i < m; i++) {
+            userIds[i] = i * 7;
+            oldScores[i] = scoreOf(index, userIds[i]);
+            newScores[i] = i % 50 == 0 ? (i % 100 == 0 ? Integer.MAX_VALUE : Integer.MIN_VALUE) : random.nextInt(2000) - 500;
+            expected = expected.remove(oldScores[i], userIds[i]).insert(newScores[i], userIds[i]);
+        }
+        expected = expected.insert(7, -3).insert(7, Integer.MIN_VALUE);
+
+        RankIndex bulk = index.difference(RankIndex.build(oldScores, userIds, m))
+                .union(RankIndex.build(newScores, userIds, m))
+                .union(RankIndex.build(new int[] {7, 7}, new int[] {-3, Integer.MIN_VALUE}, 2));
+
+        assertEquals(expected.size(), bulk.size());
+        for (int rank = 0; rank < expected.size(); rank++) {
+            RankIndex.Entry want = expected.entryAt(rank);
+            RankIndex.Entry got = bulk.entryAt(rank);
+            assertEquals(want.getScore(), got.getScore());
+            assertEquals(want.getUserId(), got.getUserId());
+        }
+        // The source index is untouched
+        assertEquals(n, index.size());
+    }
+
+    @Test
+    void testUnionKeepsSharedEntriesOnce() {
+        index = index.insert(100, 1).insert(200, 2);
+        RankIndex merged = index.union(RankIndex.build(new int[] {200, 300}, new int[] {2, 3}, 2));
+
+        assertEquals(3, merged.size());
+        assertEquals(0, merged.rankOf(300, 3));
+        assertEquals(2, merged.rankOf(100, 1));
+        assertEquals(1, merged.difference(index).size());
+    }
+
+    private static int scoreOf(RankIndex index, int userId) {
+        int[] found = new int[1];
+        index.forEachFrom(0, index.size(), (rank, score, id) -> {
+            if (id == userId) {
+                found[0] = score;
+            }
+        });
+        return found[0];
+    }
+}
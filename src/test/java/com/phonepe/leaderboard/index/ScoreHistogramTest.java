@@ -0,0 +1,77 @@
+package com.phonepe.leaderboard.index;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+public class ScoreHistogramTest {
+
+    @Test
+    void testBucketsAreOrderedAndSpanTheRelativeError() {
+        ScoreHistogram histogram = new ScoreHistogram(0.01);
+        double gamma = 1.01 / 0.99;
+        Random random = new Random(11);
+        for (int i = 0; i < 100_000; i++) {
+            int a = random.nextInt(1_000_000_000) + 1;
+            int b = random.nextInt(1_000_000_000) + 1;
+            int low = Math.min(a, b);
+            int high = Math.max(a, b);
+            assertTrue(histogram.bucket(low) <= histogram.bucket(high));
+            if (histogram.bucket(low) == histogram.bucket(high)) {
+                assertTrue((double) high / low <= gamma * (1 + 1e-9), low + " and " + high);
+            }
+        }
+        assertTrue(histogram.bucket(-5) < histogram.bucket(0));
+        assertTrue(histogram.bucket(0) < histogram.bucket(1));
+        assertTrue(histogram.bucket(Integer.MIN_VALUE) >= 0);
+        assertTrue(histogram.bucket(Integer.MAX_VALUE) < histogram.buckets());
+    }
+
+    @Test
+    void testCountsFollowMoves() {
+        ScoreHistogram histogram = new ScoreHistogram(0.05);
+        histogram.move(UserScoreMap.NO_SCORE, 100);
+        histogram.move(UserScoreMap.NO_SCORE, 10_000);
+        histogram.move(UserScoreMap.NO_SCORE, 101);
+
+        assertEquals(2, histogram.countInBucket(100));
+        assertEquals(1, histogram.countAboveBucket(100));
+        assertEquals(0, histogram.countAboveBucket(20_000));
+
+        histogram.move(100, 50_000);
+        assertEquals(1, histogram.countInBucket(101));
+        assertEquals(2, histogram.countAboveBucket(101));
+        assertEquals(0, histogram.countInBucket(20_000));
+    }
+
+    @Test
+    void testInterpolatesWithinTheBucket() {
+        ScoreHistogram histogram = new ScoreHistogram(0.2);
+        int b = histogram.bucket(1_000);
+        int low = 1_000;
+        while (histogram.bucket(low - 1) == b) {
+            low--;
+        }
+        int high = 1_000;
+        while (histogram.bucket(high + 1) == b) {
+            high++;
+        }
+        assertTrue(histogram.fractionAboveInBucket(low) > histogram.fractionAboveInBucket(high));
+        assertEquals(1.0, histogram.fractionAboveInBucket(low), 0.01);
+        assertEquals(0.0, histogram.fractionAboveInBucket(high), 0.01);
+        assertEquals(0.0, histogram.fractionAboveInBucket(0));
+    }
+
+    @Test
+    void testSeededFromAStore() {
+        ScoreStore store = FrozenScoreStoreTest.randomStore(new Random(12), 2_000);
+        ScoreHistogram histogram = ScoreHistogram.of(store, 0.01);
+
+        assertEquals(store.size(), histogram.countAboveBucket(Integer.MIN_VALUE) + histogram.countInBucket(Integer.MIN_VALUE));
+        RankIndex.Entry middle = store.entryAt(store.size() / 2);
+        assertTrue(histogram.countAboveBucket(middle.getScore()) <= store.countAbove(middle.getScore()));
+        assertThrows(IllegalArgumentException.class, () -> new ScoreHistogram(0));
+        assertThrows(IllegalArgumentException.class, () -> new ScoreHistogram(1));
+    }
+}
@@ -0,0 +1,55 @@
+package com.phonepe.leaderboard.index;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class UserDictionaryTest {
+    private final UserDictionary dictionary = new UserDictionary();
+
+    @Test
+    void testInternIsDenseAndStable() {
+        assertEquals(0, dictionary.intern("user1"));
+        assertEquals(1, dictionary.intern("user2"));
+        assertEquals(0, dictionary.intern("user1"));
+
+        assertEquals("user2", dictionary.userId(1));
+        assertEquals(1, dictionary.lookup("user2"));
+        assertEquals(UserDictionary.UNKNOWN, dictionary.lookup("user3"));
+        assertEquals(2, dictionary.size());
+    }
+
+    @Test
+    void testGrowsAcrossChunks() {
+        for (int i = 0; i < 100_000; i++) {
+            assertEquals(i, dictionary.intern("user" + i));
+        }
+        assertEquals("user99999", dictionary.userId(99_999));
+        assertEquals("user4096", dictionary.userId(4096));
+    }
+
+    @Test
+    void testConcurrentIntern() throws InterruptedException {
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    ids.add(dictionary.intern("user" + i));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(10_000, ids.size());
+        assertEquals(10_000, dictionary.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals("user" + i, dictionary.userId(dictionary.lookup("user" + i)));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.phonepe.leaderboard.index;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class UserScoreMapTest {
+
+    @Test
+    void testPutAndFind() {
+        UserScoreMap map = UserScoreMap.EMPTY.put(1, 1000).put(2, 2000);
+
+        assertEquals(2, map.size());
+        assertEquals(1000, map.find(1));
+        assertEquals(2000, map.find(2));
+        assertEquals(UserScoreMap.NO_SCORE, map.find(3));
+    }
+
+    @Test
+    void testPutIsPersistent() {
+        UserScoreMap before = UserScoreMap.EMPTY.put(1, 1000);
+        UserScoreMap after = before.put(1, 1500);
+
+        assertEquals(1000, before.find(1));
+        assertEquals(1500, after.find(1));
+        assertEquals(1, after.size());
+        assertSame(after, after.put(1, 1500));
+    }
+
+    @Test
+    void testNegativeAndExtremeValues() {
+        UserScoreMap map = UserScoreMap.EMPTY.put(0, Integer.MIN_VALUE).put(Integer.MAX_VALUE, -1);
+
+        assertEquals(Integer.MIN_VALUE, map.find(0));
+        assertEquals(-1, map.find(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void testManyEntries() {
+        UserScoreMap map = UserScoreMap.EMPTY;
+        for (int i = 0; i < 200_000; i++) {
+            map = map.put(i, i * 3);
+        }
+        assertEquals(200_000, map.size());
+
+        Map<Integer, Integer> copy = new HashMap<>();
+        map.forEach(copy::put);
+        assertEquals(200_000, copy.size());
+        for (int i = 0; i < 200_000; i += 997) {
+            assertEquals(i * 3, map.find(i));
+            assertEquals(i * 3, copy.get(i));
+        }
+    }
+
+    @Test
+    void testRemoveIsPersistentAndCollapsesSubTries() {
+        UserScoreMap map = UserScoreMap.EMPTY;
+        for (int i = 0; i < 50_000; i++) {
+            map = map.put(i, i);
+        }
+        UserScoreMap full = map;
+        for (int i = 0; i < 50_000; i += 2) {
+            map = map.remove(i);
+        }
+        assertSame(map, map.remove(0));
+        assertEquals(25_000, map.size());
+        assertEquals(50_000, full.size());
+        for (int i = 0; i < 50_000; i++) {
+            assertEquals(i % 2 == 0 ? UserScoreMap.NO_SCORE : i, map.find(i));
+            assertEquals(i, full.find(i));
+        }
+
+        for (int i = 1; i < 50_000; i += 2) {
+            map = map.remove(i);
+        }
+        assertEquals(0, map.size());
+        int[] visited = new int[1];
+        map.forEach((userId, score) -> visited[0]++);
+        assertEquals(0, visited[0]);
+        // Re-inserting into the emptied map works as on a fresh one
+        assertEquals(7, map.put(3, 7).find(3));
+    }
+}
@@ -0,0 +1,111 @@
+package com.phonepe.leaderboard.ingest;
+
+import com.phonepe.leaderboard.exception.IngestionRejectedException;
+import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.util.TimeProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class ScoreIngestorTest {
+    private static final long START_TIME = 1000L;
+    private static final long END_TIME = 2000L;
+
+    private MockTimeProvider timeProvider;
+    private Leaderboard leaderboard;
+    private ScoreIngestor ingestor;
+
+    private static class MockTimeProvider implements TimeProvider {
+        private volatile long currentTime = START_TIME + 500;
+
+        @Override
+        public long getCurrentTimeInSeconds() {
+            return currentTime;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        timeProvider = new MockTimeProvider();
+        leaderboard = new Leaderboard.Builder()
+                .id("ingest-board")
+                .gameId("test-game")
+                .startTime(START_TIME)
+                .endTime(END_TIME)
+                .timeProvider(timeProvider)
+                .build();
+        ingestor = new ScoreIngestor(leaderboard, 1024, 64);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ingestor.close();
+    }
+
+    @Test
+    void testSubmitCompletesOnceApplied() throws Exception {
+        int user = leaderboard.getUserDictionary().intern("user1");
+
+        assertTrue(ingestor.submit(user, 100).get(5, TimeUnit.SECONDS));
+        assertEquals(100, leaderboard.getScore("user1"));
+        assertFalse(ingestor.submit(user, 50).get(5, TimeUnit.SECONDS));
+        assertEquals(100, leaderboard.getScore("user1"));
+    }
+
+    @Test
+    void testConcurrentProducersAreAllApplied() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 5_000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    int user = leaderboard.getUserDictionary().intern("user" + (producer * perProducer + i));
+                    while (!ingestor.offer(user, i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        ingestor.close();
+
+        assertEquals(producers * perProducer, leaderboard.size());
+        assertEquals(perProducer - 1, leaderboard.getScore("user" + (perProducer - 1)));
+    }
+
+    @Test
+    void testCloseAppliesAcceptedSubmissionsAndRejectsNewOnes() throws Exception {
+        int user = leaderboard.getUserDictionary().intern("user1");
+        CompletableFuture<Boolean> accepted = ingestor.submit(user, 100);
+        ingestor.close();
+
+        assertTrue(accepted.isDone());
+        assertEquals(100, leaderboard.getScore("user1"));
+        assertTrue(ingestor.isClosed());
+        assertFalse(ingestor.offer(user, 200));
+        ExecutionException rejected = assertThrows(ExecutionException.class, () -> ingestor.submit(user, 200).get());
+        assertTrue(rejected.getCause() instanceof IngestionRejectedException);
+    }
+
+    @Test
+    void testWriterStopsOnceBoardIsFrozen() throws Exception {
+        leaderboard.freeze();
+
+        ExecutionException failed = assertThrows(ExecutionException.class,
+                () -> ingestor.submit(leaderboard.getUserDictionary().intern("user1"), 100).get(5, TimeUnit.SECONDS));
+        assertTrue(failed.getCause() instanceof IngestionRejectedException || failed.getCause() instanceof IllegalStateException);
+        ingestor.close();
+        assertTrue(ingestor.isClosed());
+        assertEquals(0, leaderboard.size());
+    }
+}
@@ -0,0 +1,70 @@
+package com.phonepe.leaderboard.metrics;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    void testBucketsCoverEveryValueWithinTheirPrecision() {
+        int previous = -1;
+        for (long value = 0; value < 1 << 20; value++) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(bucket == previous || bucket == previous + 1, "buckets skip at " + value);
+            assertTrue(LatencyHistogram.highestIn(bucket) >= value);
+            // Every value in a bucket is within 1/32 of its highest value
+            assertTrue(LatencyHistogram.highestIn(bucket) - value <= value / 32, "too coarse at " + value);
+            previous = bucket;
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(LatencyHistogram.MAX_VALUE));
+        assertEquals(LatencyHistogram.MAX_VALUE, LatencyHistogram.highestIn(LatencyHistogram.BUCKETS - 1));
+    }
+
+    @Test
+    void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.snapshot().getPercentile(99));
+        for (long micros = 1; micros <= 1_000; micros++) {
+            histogram.record(micros * 1_000);
+        }
+
+        LatencySnapshot snapshot = histogram.snapshot();
+        assertEquals(1_000, snapshot.getCount());
+        assertEquals(500_500, snapshot.getMean(), 1e-6);
+        assertEquals(1_000_000, snapshot.getMax());
+        assertEquals(500_000, snapshot.getPercentile(50), 500_000 / 32.0);
+        assertEquals(990_000, snapshot.getPercentile(99), 990_000 / 32.0);
+        assertEquals(1_000_000, snapshot.getPercentile(100));
+        assertTrue(snapshot.getPercentile(50) >= 500_000);
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getPercentile(101));
+    }
+
+    @Test
+    void testTimersSampleOneCallInSampleRate() {
+        LatencyHistogram every = new LatencyHistogram();
+        every.stopTimer(every.startTimer());
+        every.stopTimer(LatencyHistogram.NOT_SAMPLED);
+        assertEquals(1, every.snapshot().getCount());
+
+        LatencyHistogram sampled = new LatencyHistogram(4);
+        for (int i = 0; i < 10_000; i++) {
+            sampled.stopTimer(sampled.startTimer());
+        }
+        LatencySnapshot snapshot = sampled.snapshot();
+        assertEquals(4, snapshot.getSampleRate());
+        assertEquals(2_500, snapshot.getCount(), 300);
+        assertThrows(IllegalArgumentException.class, () -> new LatencyHistogram(0));
+    }
+
+    @Test
+    void testOutOfRangeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        LatencySnapshot snapshot = histogram.snapshot();
+        assertEquals(2, snapshot.getCount());
+        assertEquals(0, snapshot.getPercentile(50));
+        assertEquals(LatencyHistogram.MAX_VALUE, snapshot.getMax());
+    }
+}
@@ -0,0 +1,81 @@
+package com.phonepe.leaderboard.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MetricsRegistryTest {
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    @AfterEach
+    void tearDown() {
+        registry.close();
+    }
+
+    @Test
+    void testSnapshotReadsEveryKindOfMetric() {
+        registry.counter("requests").add(3);
+        registry.counter("requests").increment();
+        AtomicLong size = new AtomicLong(7);
+        registry.gauge("size", size::get);
+        registry.gauge("broken", () -> {
+            throw new IllegalStateException();
+        });
+        registry.latency("query").record(1_000);
+
+        MetricsSnapshot snapshot = registry.snapshot();
+        assertEquals(4, snapshot.getCounter("requests"));
+        assertEquals(0, snapshot.getCounter("unknown"));
+        assertEquals(7L, snapshot.getGauge("size"));
+        assertNull(snapshot.getGauge("broken"));
+        assertEquals(1, snapshot.getLatency("query").getCount());
+
+        // Gauges are read per snapshot; earlier snapshots keep their values
+        size.set(9);
+        registry.removeGauge("broken");
+        assertEquals(9L, registry.snapshot().getGauge("size"));
+        assertEquals(7L, snapshot.getGauge("size"));
+        assertTrue(snapshot.toString().contains("requests 4"));
+    }
+
+    @Test
+    void testDisabledRegistryRecordsNothing() {
+        MetricsRegistry disabled = MetricsRegistry.disabled();
+        disabled.counter("requests").add(3);
+        disabled.counter("requests").increment();
+        disabled.gauge("size", () -> 7);
+        LatencyHistogram query = disabled.latency("query");
+        query.stopTimer(query.startTimer());
+        query.record(1_000);
+
+        MetricsSnapshot snapshot = disabled.snapshot();
+        assertEquals(0, snapshot.getCounter("requests"));
+        assertEquals(7L, snapshot.getGauge("size"));
+        assertEquals(0, snapshot.getLatency("query").getCount());
+        assertEquals(LatencyHistogram.NOT_SAMPLED, query.startTimer());
+    }
+
+    @Test
+    void testExportersReceiveSnapshotsUntilClosed() throws InterruptedException {
+        BlockingQueue<MetricsSnapshot> exported = new LinkedBlockingQueue<>();
+        registry.counter("requests").increment();
+        registry.addExporter(snapshot -> {
+            throw new IllegalStateException("exporter down");
+        }, 10);
+        registry.addExporter(exported::add, 10);
+
+        MetricsSnapshot snapshot = exported.poll(5, TimeUnit.SECONDS);
+        assertNotNull(snapshot);
+        assertEquals(1, snapshot.getCounter("requests"));
+        assertNotNull(exported.poll(5, TimeUnit.SECONDS), "a failing exporter stopped the others");
+
+        registry.close();
+        assertThrows(IllegalStateException.class, () -> registry.addExporter(exported::add, 10));
+        assertThrows(IllegalArgumentException.class, () -> new MetricsRegistry().addExporter(exported::add, 0));
+    }
+}
@@ -1,10 +1,15 @@
 package com.phonepe.leaderboard.model;
 
+import com.phonepe.leaderboard.config.LeaderboardConfig;
 import com.phonepe.leaderboard.util.TimeProvider;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 public class LeaderboardFactoryTest {
     private LeaderboardFactory factory;
     private static final String GAME_ID = "test-game";
@@ -32,6 +37,21 @@ public class LeaderboardFactoryTest {
         assertEquals(GAME_ID, leaderboard.getGameId());
         assertEquals(START_TIME, leaderboard.getStartTime());
         assertEquals(END_TIME, leaderboard.getEndTime());
+        assertEquals(LeaderboardConfig.DEFAULT_PARTITIONS, leaderboard.getPartitions());
+    }
+
+    @Test
+    void testCreateOffHeapLeaderboard() {
+        Leaderboard heap = factory.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        Leaderboard offHeap = factory.createLeaderboard(GAME_ID, START_TIME, END_TIME, LeaderboardStorage.OFF_HEAP);
+        offHeap.updateScore("user1", 100);
+        offHeap.updateScore("user2", 200);
+
+        assertEquals(LeaderboardStorage.HEAP, heap.getStorage());
+        assertEquals(LeaderboardStorage.OFF_HEAP, offHeap.getStorage());
+        assertSame(heap.getUserDictionary(), offHeap.getUserDictionary());
+        assertEquals(1, offHeap.getRank("user2"));
+        assertEquals("user1", offHeap.getUserAtRank(2));
     }
 
     @Test
@@ -43,4 +63,36 @@ public class LeaderboardFactoryTest {
         assertNotNull(leaderboard2.getId());
         assertNotEquals(leaderboard1.getId(), leaderboard2.getId());
     }
-} 
\ No newline at end of file
+
+    @Test
+    void testOpenArchivedLeaderboardInAnotherFactory(@TempDir Path directory) throws IOException {
+        Leaderboard original = factory.createLeaderboard(GAME_ID, START_TIME, END_TIME, LeaderboardStorage.OFF_HEAP);
+        for (int i = 0; i < 300; i++) {
+            original.updateScore("user" + i, i / 2);
+        }
+        Path file = directory.resolve(original.getId() + ".lb");
+        original.archive(file);
+
+        // A fresh factory stands in for a restarted process with an empty dictionary
+        Leaderboard reopened = new LeaderboardFactory(new MockTimeProvider()).openArchivedLeaderboard(file);
+
+        assertEquals(original.getId(), reopened.getId());
+        assertEquals(GAME_ID, reopened.getGameId());
+        assertEquals(START_TIME, reopened.getStartTime());
+        assertEquals(END_TIME, reopened.getEndTime());
+        assertEquals(LeaderboardStorage.OFF_HEAP, reopened.getStorage());
+        assertEquals(LeaderboardState.ARCHIVED, reopened.getState());
+        assertEquals(0, reopened.getUserDictionary().size());
+
+        assertEquals(300, reopened.size());
+        assertEquals(original.getTopK(300, 0), reopened.getTopK(300, 0));
+        assertEquals(original.getRank("user137"), reopened.getRank("user137"));
+        assertEquals(original.getPageAfterUser("user137", 5).getEntries(), reopened.getPageAfterUser("user137", 5).getEntries());
+        LeaderboardPage above = reopened.getPageBeforeUser("user137", 3);
+        assertEquals(original.getPageBefore(RankCursor.decode(above.getPrevCursor()), 4).getEntries(),
+                reopened.getPageBefore(RankCursor.decode(above.getPrevCursor()), 4).getEntries());
+        assertEquals(-1, reopened.getRank("stranger"));
+        assertEquals(0, reopened.getUserDictionary().size());
+        assertThrows(IllegalStateException.class, () -> reopened.updateScore("user1", 1_000));
+    }
+}
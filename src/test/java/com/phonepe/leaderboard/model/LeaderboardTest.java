@@ -1,13 +1,31 @@
 package com.phonepe.leaderboard.model;
 
+import com.phonepe.leaderboard.index.FrozenScoreStore;
+import com.phonepe.leaderboard.index.PartitionedScoreStore;
+import com.phonepe.leaderboard.index.ScoreStore;
+import com.phonepe.leaderboard.index.UserDictionary;
 import com.phonepe.leaderboard.util.TimeProvider;
+import com.phonepe.leaderboard.wire.BufferPool;
+import com.phonepe.leaderboard.wire.EncodedPage;
+import com.phonepe.leaderboard.wire.PageCodec;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.TreeMap;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 public class LeaderboardTest {
     private Leaderboard leaderboard;
@@ -66,18 +84,18 @@ public class LeaderboardTest {
         // Test initial score update
         leaderboard.updateScore("user1", 1000);
         assertEquals(1000, leaderboard.getUserScores().get("user1"));
-        assertEquals("user1", leaderboard.getScoreToUser().get(1000));
+        assertEquals(Set.of("user1"), leaderboard.getScoreToUser().get(1000));
 
         // Test higher score update
         leaderboard.updateScore("user1", 2000);
         assertEquals(2000, leaderboard.getUserScores().get("user1"));
-        assertEquals("user1", leaderboard.getScoreToUser().get(2000));
+        assertEquals(Set.of("user1"), leaderboard.getScoreToUser().get(2000));
         assertNull(leaderboard.getScoreToUser().get(1000));
 
         // Test lower score update (should not update)
         leaderboard.updateScore("user1", 1500);
         assertEquals(2000, leaderboard.getUserScores().get("user1"));
-        assertEquals("user1", leaderboard.getScoreToUser().get(2000));
+        assertEquals(Set.of("user1"), leaderboard.getScoreToUser().get(2000));
     }
 
     @Test
@@ -102,6 +120,139 @@ public class LeaderboardTest {
         assertTrue(scoreToUser.get(1000).contains("user1"));
     }
 
+    @Test
+    void testRankLookups() {
+        leaderboard.updateScore("user1", 1000);
+        leaderboard.updateScore("user2", 2000);
+        leaderboard.updateScore("user3", 1500);
+
+        assertEquals(1, leaderboard.getRank("user2"));
+        assertEquals(2, leaderboard.getRank("user3"));
+        assertEquals(3, leaderboard.getRank("user1"));
+        assertEquals(-1, leaderboard.getRank("unknown"));
+
+        assertEquals("user2", leaderboard.getUserAtRank(1));
+        assertEquals("user1", leaderboard.getUserAtRank(3));
+        assertNull(leaderboard.getUserAtRank(4));
+
+        assertEquals(0, leaderboard.countAbove(2000));
+        assertEquals(2, leaderboard.countAbove(1000));
+
+        // Improving a score moves the user up
+        leaderboard.updateScore("user1", 3000);
+        assertEquals(1, leaderboard.getRank("user1"));
+        assertEquals(3, leaderboard.size());
+
+        // Hypothetical ranks count everyone but the user themselves
+        LeaderboardSnapshot snapshot = leaderboard.snapshot();
+        assertEquals(3, snapshot.rankOf("user1", 1000));
+        assertEquals(2, snapshot.rankOf("user2", 1700));
+        assertEquals(1, snapshot.rankOf("unknown", 5000));
+        assertEquals(4, snapshot.rankOf("unknown", 0));
+    }
+
+    @Test
+    void testSnapshotIsolation() {
+        leaderboard.updateScore("user1", 1000);
+        leaderboard.updateScore("user2", 2000);
+        LeaderboardSnapshot snapshot = leaderboard.snapshot();
+
+        leaderboard.updateScore("user1", 3000);
+        leaderboard.updateScore("user3", 2500);
+
+        // The earlier snapshot is unaffected by later updates
+        assertEquals(2, snapshot.size());
+        assertEquals(2, snapshot.getRank("user1"));
+        assertEquals(1000, snapshot.getScore("user1"));
+        assertNull(snapshot.getScore("user3"));
+
+        LeaderboardSnapshot latest = leaderboard.snapshot();
+        assertEquals(snapshot.getVersion() + 2, latest.getVersion());
+        assertEquals(1, latest.getRank("user1"));
+        assertEquals(2, latest.getRank("user3"));
+
+        // A non-improving update publishes nothing
+        leaderboard.updateScore("user2", 10);
+        assertSame(latest, leaderboard.snapshot());
+    }
+
+    @Test
+    void testReadersSeeConsistentPagesDuringWrites() throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                leaderboard.updateScore("user" + (i % 500), i);
+            }
+            running.set(false);
+        });
+        Thread reader = new Thread(() -> {
+            try {
+                while (running.get()) {
+                    LeaderboardSnapshot snapshot = leaderboard.snapshot();
+                    String top = snapshot.getUserAtRank(1);
+                    if (top == null) {
+                        continue;
+                    }
+                    List<RankedEntry> page = snapshot.pageAfterUser(top, 50).getEntries();
+                    int expectedRank = 2;
+                    int previousScore = snapshot.getScore(top);
+                    for (RankedEntry entry : page) {
+                        assertEquals(expectedRank++, entry.getRank());
+                        assertTrue(entry.getScore() <= previousScore);
+                        assertEquals(entry.getScore(), snapshot.getScore(entry.getUserId()));
+                        previousScore = entry.getScore();
+                    }
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        writer.start();
+        reader.start();
+        writer.join();
+        reader.join();
+        assertNull(failure.get());
+    }
+
+    @Test
+    void testTopK() {
+        for (int i = 1; i <= 5; i++) {
+            leaderboard.updateScore("user" + i, i * 100);
+        }
+
+        List<RankedEntry> top = leaderboard.getTopK(3, 0);
+        assertEquals(3, top.size());
+        assertEquals("user5", top.get(0).getUserId());
+        assertEquals(1, top.get(0).getRank());
+        assertEquals("user3", top.get(2).getUserId());
+
+        List<RankedEntry> secondPage = leaderboard.getTopK(3, 3);
+        assertEquals(2, secondPage.size());
+        assertEquals(4, secondPage.get(0).getRank());
+        assertTrue(leaderboard.getTopK(3, 10).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> leaderboard.getTopK(-1, 0));
+    }
+
+    @Test
+    void testTopKStaysInSyncWithIndex() {
+        Random random = new Random(42);
+        leaderboard.getTopK(10, 0); // materialize so later snapshots maintain it incrementally
+        for (int i = 0; i < 5_000; i++) {
+            leaderboard.updateScore("user" + random.nextInt(300), random.nextInt(10_000));
+            if (i % 250 == 0) {
+                LeaderboardSnapshot snapshot = leaderboard.snapshot();
+                // offset + k beyond the cached window forces a walk of the index
+                List<RankedEntry> fromIndex = snapshot.topK(101, 0);
+                List<RankedEntry> cached = snapshot.topK(100, 0);
+                assertEquals(fromIndex.subList(0, Math.min(100, fromIndex.size())), cached);
+                for (int r = 0; r < cached.size(); r++) {
+                    assertEquals(r + 1, cached.get(r).getRank());
+                }
+            }
+        }
+    }
+
     @Test
     void testIsActive() {
         // Mock current time to be within the leaderboard period
@@ -164,7 +315,8 @@ public class LeaderboardTest {
         // Update user1's score
         leaderboard.updateScore("user1", 2000);
         
-        // Verify user1 moved to higher score
+        // Verify user1 moved to higher score (getScoreToUser returns a point-in-time copy)
+        scoreToUser = leaderboard.getScoreToUser();
         assertEquals(2, scoreToUser.size());
         assertEquals(1, scoreToUser.get(1000).size());
         assertEquals(2, scoreToUser.get(2000).size());
@@ -199,6 +351,608 @@ public class LeaderboardTest {
         }
     }
 
+    @Test
+    void testConcurrentImprovementsKeepIndexConsistent() throws InterruptedException {
+        int numThreads = 8;
+        int numUsers = 50;
+        int numUpdatesPerThread = 2_000;
+        Thread[] threads = new Thread[numThreads];
+
+        for (int i = 0; i < numThreads; i++) {
+            final int threadId = i;
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < numUpdatesPerThread; j++) {
+                    leaderboard.updateScore("user" + (j % numUsers), j * numThreads + threadId);
+                }
+            });
+            threads[i].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Every user appears exactly once in the rank index, at their best score
+        assertEquals(numUsers, leaderboard.size());
+        for (int u = 0; u < numUsers; u++) {
+            String userId = "user" + u;
+            int lastJ = numUpdatesPerThread - numUsers + u;
+            assertEquals(lastJ * numThreads + numThreads - 1, leaderboard.getScore(userId));
+            assertEquals(userId, leaderboard.getUserAtRank(leaderboard.getRank(userId)));
+        }
+    }
+
+    @Test
+    void testOffHeapBoardMatchesHeapBoardAcrossCompactions() throws InterruptedException {
+        Leaderboard offHeap = new Leaderboard.Builder()
+                .id("off-heap")
+                .gameId(GAME_ID)
+                .startTime(START_TIME)
+                .endTime(END_TIME)
+                .timeProvider(mockTimeProvider)
+                .userDictionary(leaderboard.getUserDictionary())
+                .storage(LeaderboardStorage.OFF_HEAP)
+                .build();
+        int numThreads = 4;
+        int numUpdatesPerThread = 5_000;
+        Thread[] threads = new Thread[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            final int threadId = i;
+            threads[i] = new Thread(() -> {
+                Random random = new Random(threadId);
+                for (int j = 0; j < numUpdatesPerThread; j++) {
+                    String userId = "user" + random.nextInt(300);
+                    int score = random.nextInt(100_000);
+                    offHeap.updateScore(userId, score);
+                    leaderboard.updateScore(userId, score);
+                }
+            });
+            threads[i].start();
+        }
+        // Compactions race with the writers; updates published meanwhile must be replayed, not lost
+        while (threads[0].isAlive()) {
+            offHeap.compact();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(LeaderboardStorage.OFF_HEAP, offHeap.getStorage());
+        assertEquals(leaderboard.getUserScores(), offHeap.getUserScores());
+        assertEquals(leaderboard.getTopK(leaderboard.size(), 0), offHeap.getTopK(offHeap.size(), 0));
+        offHeap.compact();
+        assertEquals(leaderboard.getTopK(leaderboard.size(), 0), offHeap.getTopK(offHeap.size(), 0));
+        assertEquals(leaderboard.getRank("user7"), offHeap.getRank("user7"));
+    }
+
+    @Test
+    void testUpdateScoresPublishesBatchOnce() {
+        leaderboard.updateScore("user1", 500);
+        long version = leaderboard.snapshot().getVersion();
+        UserDictionary dictionary = leaderboard.getUserDictionary();
+        int[] userKeys = {dictionary.intern("user1"), dictionary.intern("user2"), dictionary.intern("user3"), dictionary.intern("user2")};
+
+        boolean[] improved = leaderboard.updateScores(userKeys, new int[] {400, 2000, 1500, 2500});
+
+        assertArrayEquals(new boolean[] {false, false, true, true}, improved);
+        assertEquals(version + 1, leaderboard.snapshot().getVersion());
+        assertEquals(2500, leaderboard.getScore("user2"));
+        assertEquals("user3", leaderboard.getUserAtRank(2));
+        assertEquals("user1", leaderboard.getTopK(3, 0).get(2).getUserId());
+
+        // Nothing improves: nothing is published
+        LeaderboardSnapshot latest = leaderboard.snapshot();
+        assertArrayEquals(new boolean[] {false}, leaderboard.updateScores(new int[] {userKeys[0]}, new int[] {1}));
+        assertSame(latest, leaderboard.snapshot());
+    }
+
+    @Test
+    void testFreezeKeepsReadsAndRejectsUpdates() {
+        leaderboard.updateScore("user1", 100);
+        leaderboard.updateScore("user2", 200);
+        long version = leaderboard.snapshot().getVersion();
+
+        leaderboard.freeze();
+
+        assertEquals(LeaderboardState.FROZEN, leaderboard.getState());
+        assertEquals(version, leaderboard.snapshot().getVersion());
+        assertEquals(1, leaderboard.getRank("user2"));
+        assertEquals("user1", leaderboard.getUserAtRank(2));
+        assertThrows(IllegalStateException.class, () -> leaderboard.updateScore("user1", 50));
+        assertThrows(IllegalStateException.class, () -> leaderboard.updateScore("user3", 300));
+    }
+
+    @Test
+    void testEncodedPagesMatchTopKAndFrozenFrontPagesAreShared() {
+        for (int i = 0; i < 300; i++) {
+            leaderboard.updateScore("user" + i, i * 7);
+        }
+        BufferPool pool = new BufferPool(1 << 16, 4);
+        for (int[] window : new int[][]{{10, 0}, {50, 50}, {100, 150}, {20, 290}, {5, 400}}) {
+            try (EncodedPage page = leaderboard.encodeTopK(window[0], window[1], pool)) {
+                assertFalse(page.isShared());
+                List<RankedEntry> expected = leaderboard.getTopK(window[0], window[1]);
+                List<RankedEntry> decoded = PageCodec.decode(page.getBuffer());
+                assertEquals(expected, decoded);
+                assertEquals(expected.isEmpty() ? List.of() : List.of(expected.get(0).getRank()),
+                        decoded.isEmpty() ? List.of() : List.of(decoded.get(0).getRank()));
+            }
+        }
+        assertTrue(pool.getPooledBuffers() > 0);
+        // A tiny first guess grows until the page fits
+        try (EncodedPage page = leaderboard.encodeTopK(300, 0, new BufferPool(1024, 1))) {
+            assertEquals(leaderboard.getTopK(300, 0), PageCodec.decode(page.getBuffer()));
+        }
+
+        leaderboard.freeze();
+        EncodedPage first = leaderboard.encodeTopK(10, 0, pool);
+        EncodedPage second = leaderboard.encodeTopK(10, 0, pool);
+        assertTrue(first.isShared());
+        assertEquals(leaderboard.getTopK(10, 0), PageCodec.decode(first.getBuffer()));
+        assertEquals(leaderboard.getTopK(10, 0), PageCodec.decode(second.getBuffer()));
+        // Past the front page the frozen board still borrows
+        try (EncodedPage deep = leaderboard.encodeTopK(10, 200, pool)) {
+            assertFalse(deep.isShared());
+        }
+        assertThrows(IllegalArgumentException.class, () -> leaderboard.encodeTopK(-1, 0, pool));
+    }
+
+    @Test
+    void testArchiveOffloadsToDisk(@TempDir Path directory) throws IOException {
+        for (int i = 0; i < 200; i++) {
+            leaderboard.updateScore("user" + i, i);
+        }
+        List<RankedEntry> expected = leaderboard.getTopK(200, 0);
+        Path file = directory.resolve("board.lb");
+
+        leaderboard.archive(file);
+
+        assertEquals(LeaderboardState.ARCHIVED, leaderboard.getState());
+        assertTrue(Files.exists(file));
+        assertEquals(expected, leaderboard.getTopK(200, 0));
+        assertEquals(200, leaderboard.getRank("user0"));
+        assertEquals(150, leaderboard.getScore("user150"));
+
+        leaderboard.evict();
+        assertEquals(LeaderboardState.EVICTED, leaderboard.getState());
+        assertEquals(0, leaderboard.size());
+        assertNull(leaderboard.getScore("user150"));
+    }
+
+    @Test
+    void testPartitionedBoardAnswersLikeASingleBoard() {
+        UserDictionary dictionary = new UserDictionary();
+        Leaderboard single = board(dictionary, 1);
+        Leaderboard partitioned = board(dictionary, 8);
+        Random random = new Random(15);
+        for (int i = 0; i < 3_000; i++) {
+            String userId = "user" + random.nextInt(1_000);
+            int score = random.nextInt(500);
+            single.updateScore(userId, score);
+            partitioned.updateScore(userId, score);
+        }
+        int[] userKeys = new int[200];
+        int[] scores = new int[200];
+        for (int i = 0; i < userKeys.length; i++) {
+            userKeys[i] = dictionary.intern("user" + random.nextInt(1_200));
+            scores[i] = random.nextInt(600);
+        }
+        assertArrayEquals(single.updateScores(userKeys, scores), partitioned.updateScores(userKeys, scores));
+
+        assertEquals(8, partitioned.getPartitions());
+        assertEquals(single.size(), partitioned.size());
+        assertEquals(single.getTopK(100, 0), partitioned.getTopK(100, 0));
+        assertEquals(single.getTopK(50, 120), partitioned.getTopK(50, 120));
+        assertEquals(single.countAbove(250), partitioned.countAbove(250));
+        for (int i = 0; i < 1_200; i += 7) {
+            String userId = "user" + i;
+            assertEquals(single.getRank(userId), partitioned.getRank(userId));
+            assertEquals(single.getUserAtRank(i + 1), partitioned.getUserAtRank(i + 1));
+        }
+        assertEquals(single.getPageAfterUser("user500", 10).getEntries(), partitioned.getPageAfterUser("user500", 10).getEntries());
+        assertEquals(single.getPageBeforeUser("user500", 10).getEntries(), partitioned.getPageBeforeUser("user500", 10).getEntries());
+        assertEquals(single.getUserScores(), partitioned.getUserScores());
+
+        long version = partitioned.snapshot().getVersion();
+        partitioned.updateScore("newcomer", 10_000);
+        assertEquals(version + 1, partitioned.snapshot().getVersion());
+        assertEquals(1, partitioned.getRank("newcomer"));
+        assertEquals("newcomer", partitioned.getTopK(1, 0).get(0).getUserId());
+    }
+
+    @Test
+    void testPartitionedBoardConcurrentWriters() throws InterruptedException {
+        Leaderboard partitioned = board(new UserDictionary(), 4);
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            int thread = t;
+            writers[t] = new Thread(() -> {
+                for (int score = 1; score <= 500; score++) {
+                    partitioned.updateScore("user" + (score % 50), score * writers.length + thread);
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertEquals(50, partitioned.size());
+        // user0 last saw score 500 from every thread; thread 3's is the highest
+        assertEquals(500 * 4 + 3, partitioned.getScore("user0"));
+        assertEquals("user0", partitioned.getUserAtRank(1));
+    }
+
+    @Test
+    void testPartitionedBoardFreezesAndArchivesAsOne(@TempDir Path directory) throws IOException {
+        Leaderboard partitioned = board(new UserDictionary(), 4);
+        for (int i = 0; i < 300; i++) {
+            partitioned.updateScore("user" + i, i);
+        }
+        List<RankedEntry> expected = partitioned.getTopK(300, 0);
+
+        partitioned.freeze();
+        assertEquals(expected, partitioned.getTopK(300, 0));
+        assertThrows(IllegalStateException.class, () -> partitioned.updateScore("user1", 1_000));
+
+        partitioned.archive(directory.resolve("board.lb"));
+        assertEquals(LeaderboardState.ARCHIVED, partitioned.getState());
+        assertEquals(expected, partitioned.getTopK(300, 0));
+        assertEquals(300, partitioned.getRank("user0"));
+    }
+
+    @Test
+    void testApproximateRankBracketsTheExactRank(@TempDir Path directory) throws IOException {
+        Leaderboard approximate = new Leaderboard.Builder()
+                .id(LEADERBOARD_ID)
+                .gameId(GAME_ID)
+                .startTime(START_TIME)
+                .endTime(END_TIME)
+                .timeProvider(mockTimeProvider)
+                .partitions(2)
+                .approximateRankError(0.01)
+                .build();
+        Random random = new Random(21);
+        int[] keys = new int[5_000];
+        int[] scores = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = approximate.getUserDictionary().intern("user" + i);
+            scores[i] = random.nextInt(1_000_000);
+        }
+        approximate.updateScores(keys, scores);
+        for (int i = 0; i < 2_000; i++) {
+            approximate.updateScore("user" + random.nextInt(7_000), random.nextInt(1_000_000));
+        }
+
+        assertBracketsExactRanks(approximate, random);
+        ApproximateRank top = approximate.estimateRank(2_000_000);
+        assertEquals(1, top.getRank());
+        assertEquals(1, approximate.getApproximateRank(approximate.getUserAtRank(1)).getBestRank());
+        assertNull(approximate.getApproximateRank("nobody"));
+
+        // Rebuilt from the archive on first use
+        approximate.archive(directory.resolve("board.lb"));
+        assertBracketsExactRanks(approximate, random);
+    }
+
+    private static void assertBracketsExactRanks(Leaderboard board, Random random) {
+        for (int i = 0; i < 500; i++) {
+            String userId = board.getUserAtRank(1 + random.nextInt(board.size()));
+            int exact = board.getRank(userId);
+            ApproximateRank approximate = board.getApproximateRank(userId);
+            assertTrue(approximate.getBestRank() <= exact && exact <= approximate.getWorstRank(), exact + " vs " + approximate);
+            assertTrue(approximate.getBestRank() <= approximate.getRank() && approximate.getRank() <= approximate.getWorstRank());
+            // Buckets 2% wide hold ~2% of a uniform board at most
+            assertTrue(Math.abs(approximate.getRank() - exact) <= board.size() / 50 + 1, exact + " vs " + approximate);
+            assertEquals(board.size(), approximate.getTotal());
+        }
+    }
+
+    @Test
+    void testDerivedBoardRebuildsFromItsSourceAndMaterializesOnFreeze() {
+        UserDictionary dictionary = new UserDictionary();
+        int[] userKeys = {dictionary.intern("alice"), dictionary.intern("bob")};
+        int[] scores = {30, 0};
+        long[] version = {0};
+        DerivedScores source = new DerivedScores() {
+            @Override
+            public long version() {
+                return version[0];
+            }
+
+            @Override
+            public ScoreStore build() {
+                return FrozenScoreStore.of(userKeys.clone(), scores.clone(), 2);
+            }
+        };
+        Leaderboard derived = new Leaderboard.Builder()
+                .id("derived")
+                .gameId(GAME_ID)
+                .startTime(START_TIME)
+                .endTime(END_TIME)
+                .timeProvider(mockTimeProvider)
+                .userDictionary(dictionary)
+                .derived(source, 0)
+                .build();
+
+        assertTrue(derived.isDerived());
+        assertEquals(1, derived.getRank("alice"));
+        assertThrows(IllegalStateException.class, () -> derived.updateScore("bob", 10));
+
+        scores[1] = 50;
+        assertEquals(1, derived.getRank("alice"), "unchanged version reuses the last build");
+        version[0]++;
+        assertEquals(2, derived.getRank("alice"));
+
+        scores[0] = 70;
+        derived.freeze();
+        scores[0] = 10;
+        version[0]++;
+        assertEquals(LeaderboardState.FROZEN, derived.getState());
+        assertEquals(70, derived.getScore("alice"));
+        assertEquals(1, derived.getRank("alice"));
+    }
+
+    @Test
+    void testApproximateRankIsExactWithoutAHistogram() {
+        for (int i = 0; i < 50; i++) {
+            leaderboard.updateScore("user" + i, i % 10);
+        }
+
+        ApproximateRank rank = leaderboard.getApproximateRank("user25");
+        assertEquals(leaderboard.getRank("user25"), rank.getRank());
+        assertEquals(rank.getRank(), rank.getBestRank());
+        assertEquals(rank.getRank(), rank.getWorstRank());
+        ApproximateRank estimate = leaderboard.estimateRank(5);
+        assertEquals(leaderboard.countAbove(5) + 1, estimate.getBestRank());
+        assertEquals(leaderboard.countAbove(4) + 1, estimate.getWorstRank());
+    }
+
+    @Test
+    void testFirstAchievedTieBreakRanksTiesByArrival(@TempDir Path directory) throws IOException {
+        UserDictionary dictionary = new UserDictionary();
+        Leaderboard board = achievementBoard(dictionary, LeaderboardStorage.HEAP, 1);
+        assertEquals(TieBreak.FIRST_ACHIEVED, board.getTieBreak());
+        // c is seen first, so first-seen order would put it ahead of its ties
+        board.updateScore("c", 10);
+        board.updateScore("a", 100);
+        board.updateScore("b", 100);
+        board.updateScore("c", 100);
+        assertEquals(List.of("a", "b", "c"), userIds(board.getTopK(10, 0)));
+
+        board.updateScore("b", 150);
+        board.updateScore("a", 150);
+        board.updateScore("a", 120); // not an improvement: a keeps its place
+        assertEquals(List.of("b", "a", "c"), userIds(board.getTopK(10, 0)));
+        assertEquals(2, board.getRank("a"));
+        assertEquals(2, board.snapshot().getRank(dictionary.lookup("a")));
+        assertEquals("c", board.getUserAtRank(3));
+        assertEquals(List.of("b", "a"), List.copyOf(board.getScoreToUser().get(150)));
+        assertEquals(List.of("a", "c"), userIds(board.getPageAfterUser("b", 5).getEntries()));
+        assertEquals(List.of("b", "a"), userIds(board.getPageBeforeUser("c", 5).getEntries()));
+        LeaderboardPage first = board.getPageAfter(new RankCursor(Integer.MAX_VALUE, ""), 1);
+        assertEquals(List.of("a"), userIds(board.getPageAfter(RankCursor.decode(first.getNextCursor()), 1).getEntries()));
+        // Whoever reaches a score next ranks after everyone holding it
+        assertEquals(3, board.snapshot().rankOf("d", 150));
+        assertEquals(2, board.snapshot().rankOf("a", 150));
+
+        // A batch ranks its ties in submission order, whatever the interned ids
+        board.updateScores(new int[] {dictionary.intern("e"), dictionary.intern("d")}, new int[] {100, 100});
+        List<String> expected = List.of("b", "a", "c", "e", "d");
+        assertEquals(expected, userIds(board.getTopK(10, 0)));
+
+        board.freeze();
+        assertEquals(expected, userIds(board.getTopK(10, 0)));
+        assertEquals(4, board.getRank("e"));
+        board.archive(directory.resolve("board.lb"));
+        assertEquals(expected, userIds(board.getTopK(10, 0)));
+        assertEquals(5, board.getRank("d"));
+    }
+
+    @Test
+    void testFirstAchievedBoardsMatchAReferenceAcrossStoragesAndPartitions() {
+        for (LeaderboardStorage storage : LeaderboardStorage.values()) {
+            for (int partitions : new int[] {1, 3}) {
+                UserDictionary dictionary = new UserDictionary();
+                Leaderboard board = achievementBoard(dictionary, storage, partitions);
+                Map<String, long[]> reference = new HashMap<>(); // userId -> {score, arrival}
+                long[] arrivals = new long[1];
+                Random random = new Random(storage.ordinal() * 10 + partitions);
+                for (int round = 0; round < 3_000; round++) {
+                    if (round % 100 == 99) {
+                        int[] userKeys = new int[20];
+                        int[] scores = new int[20];
+                        for (int i = 0; i < userKeys.length; i++) {
+                            userKeys[i] = dictionary.intern("user" + (i * 7 + round) % 400);
+                            scores[i] = random.nextInt(50);
+                        }
+                        // Each partition publishes its share of the batch in turn, in submission order
+                        for (int partition = 0; partition < partitions; partition++) {
+                            for (int i = 0; i < userKeys.length; i++) {
+                                if (PartitionedScoreStore.partitionOf(userKeys[i], partitions) == partition) {
+                                    offer(reference, arrivals, dictionary.userId(userKeys[i]), scores[i]);
+                                }
+                            }
+                        }
+                        board.updateScores(userKeys, scores);
+                    } else {
+                        String userId = "user" + random.nextInt(400);
+                        int score = random.nextInt(50);
+                        offer(reference, arrivals, userId, score);
+                        board.updateScore(userId, score);
+                    }
+                    if (round % 700 == 0) {
+                        board.compact();
+                    }
+                }
+
+                List<String> expected = new ArrayList<>(reference.keySet());
+                expected.sort((x, y) -> reference.get(x)[0] != reference.get(y)[0]
+                        ? Long.compare(reference.get(y)[0], reference.get(x)[0])
+                        : Long.compare(reference.get(x)[1], reference.get(y)[1]));
+                String label = storage + "/" + partitions;
+                assertEquals(expected, userIds(board.getTopK(expected.size(), 0)), label);
+                LeaderboardSnapshot snapshot = board.snapshot();
+                for (int rank = 1; rank <= expected.size(); rank += 13) {
+                    String userId = expected.get(rank - 1);
+                    assertEquals(rank, snapshot.getRank(userId), label);
+                    assertEquals(rank, snapshot.getRank(dictionary.lookup(userId)), label);
+                    assertEquals((int) reference.get(userId)[0], snapshot.getScore(userId), label);
+                    assertEquals(expected.subList(rank, Math.min(expected.size(), rank + 5)),
+                            userIds(snapshot.pageAfterUser(userId, 5).getEntries()), label);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testPageAroundUserIsTheRankedListAroundTheUser() {
+        for (LeaderboardStorage storage : LeaderboardStorage.values()) {
+            for (int partitions : new int[] {1, 3}) {
+                for (TieBreak tieBreak : TieBreak.values()) {
+                    UserDictionary dictionary = new UserDictionary();
+                    Leaderboard board = new Leaderboard.Builder()
+                            .id(LEADERBOARD_ID)
+                            .gameId(GAME_ID)
+                            .startTime(START_TIME)
+                            .endTime(END_TIME)
+                            .timeProvider(mockTimeProvider)
+                            .userDictionary(dictionary)
+                            .storage(storage)
+                            .partitions(partitions)
+                            .tieBreak(tieBreak)
+                            .build();
+                    Random random = new Random(storage.ordinal() * 10 + partitions);
+                    for (int i = 0; i < 2_000; i++) {
+                        board.updateScore("user" + random.nextInt(300), random.nextInt(40));
+                    }
+
+                    String label = storage + "/" + partitions + "/" + tieBreak;
+                    LeaderboardSnapshot snapshot = board.snapshot();
+                    List<String> ranked = userIds(snapshot.topK(snapshot.size(), 0));
+                    for (int rank = 1; rank <= ranked.size(); rank += 7) {
+                        String userId = ranked.get(rank - 1);
+                        int above = random.nextInt(8);
+                        int below = random.nextInt(8);
+                        AroundUserPage page = snapshot.pageAroundUser(userId, above, below);
+                        int from = Math.max(0, rank - 1 - above);
+                        assertEquals(ranked.subList(from, Math.min(ranked.size(), rank + below)), userIds(page.getEntries()), label);
+                        assertEquals(userId, page.getUser().getUserId(), label);
+                        assertEquals(rank, page.getUser().getRank(), label);
+                        assertEquals(rank - 1 - from, page.getUserIndex(), label);
+                        for (int i = 0; i < page.getEntries().size(); i++) {
+                            assertEquals(from + i + 1, page.getEntries().get(i).getRank(), label);
+                        }
+                        assertEquals(from > 0, page.getPrevCursor() != null, label);
+                        assertEquals(rank + below < ranked.size(), page.getNextCursor() != null, label);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testUnwritableChangeLogRejectsWritesBeforePublishing() {
+        AtomicBoolean failed = new AtomicBoolean();
+        List<String> logged = new ArrayList<>();
+        UserDictionary dictionary = new UserDictionary();
+        Leaderboard board = new Leaderboard.Builder()
+                .id(LEADERBOARD_ID)
+                .gameId(GAME_ID)
+                .startTime(START_TIME)
+                .endTime(END_TIME)
+                .timeProvider(mockTimeProvider)
+                .userDictionary(dictionary)
+                .changeLog(new LeaderboardChangeLog() {
+                    @Override
+                    public void checkWritable() {
+                        if (failed.get()) {
+                            throw new IllegalStateException("log failed");
+                        }
+                    }
+
+                    @Override
+                    public void leaderboardCreated(Leaderboard leaderboard) {
+                    }
+
+                    @Override
+                    public void scoreChanged(Leaderboard leaderboard, int userKey, int score) {
+                        logged.add(dictionary.userId(userKey) + "=" + score);
+                    }
+
+                    @Override
+                    public void scoresChanged(Leaderboard leaderboard, int[] userKeys, int[] scores, boolean[] changed) {
+                    }
+                })
+                .build();
+        board.updateScore("user1", 100);
+        long version = board.snapshot().getVersion();
+
+        failed.set(true);
+        assertThrows(IllegalStateException.class, () -> board.updateScore("user1", 200));
+        assertThrows(IllegalStateException.class,
+                () -> board.updateScores(new int[] {dictionary.intern("user2")}, new int[] {50}));
+        // Nothing was published, and a submission that doesn't improve never needs the log
+        board.updateScore("user1", 10);
+        assertEquals(100, board.getScore("user1"));
+        assertNull(board.getScore("user2"));
+        assertEquals(version, board.snapshot().getVersion());
+        assertEquals(List.of("user1=100"), logged);
+    }
+
+    @Test
+    void testPageAroundUserWithoutAScoreIsEmpty() {
+        leaderboard.updateScore("user1", 100);
+
+        AroundUserPage page = leaderboard.getPageAroundUser("user2", 5, 5);
+        assertTrue(page.getEntries().isEmpty());
+        assertNull(page.getUser());
+        assertEquals(-1, page.getUserIndex());
+        assertNull(page.getNextCursor());
+
+        page = leaderboard.getPageAroundUser("user1", 0, 0);
+        assertEquals(List.of("user1"), userIds(page.getEntries()));
+        assertEquals(1, page.getUser().getRank());
+        assertThrows(IllegalArgumentException.class, () -> leaderboard.getPageAroundUser("user1", -1, 5));
+    }
+
+    private static void offer(Map<String, long[]> reference, long[] arrivals, String userId, int score) {
+        long[] current = reference.get(userId);
+        if (current == null || score > current[0]) {
+            reference.put(userId, new long[] {score, arrivals[0]++});
+        }
+    }
+
+    private static List<String> userIds(List<RankedEntry> entries) {
+        return entries.stream().map(RankedEntry::getUserId).collect(Collectors.toList());
+    }
+
+    private Leaderboard achievementBoard(UserDictionary dictionary, LeaderboardStorage storage, int partitions) {
+        return new Leaderboard.Builder()
+                .id(LEADERBOARD_ID)
+                .gameId(GAME_ID)
+                .startTime(START_TIME)
+                .endTime(END_TIME)
+                .timeProvider(mockTimeProvider)
+                .userDictionary(dictionary)
+                .storage(storage)
+                .partitions(partitions)
+                .tieBreak(TieBreak.FIRST_ACHIEVED)
+                .build();
+    }
+
+    private Leaderboard board(UserDictionary dictionary, int partitions) {
+        return new Leaderboard.Builder()
+                .id(LEADERBOARD_ID)
+                .gameId(GAME_ID)
+                .startTime(START_TIME)
+                .endTime(END_TIME)
+                .timeProvider(mockTimeProvider)
+                .userDictionary(dictionary)
+                .partitions(partitions)
+                .build();
+    }
+
     @Test
     void testConcurrentScoreUpdatesWithSameScore() throws InterruptedException {
         int numThreads = 10;
@@ -0,0 +1,212 @@
+package com.phonepe.leaderboard.notification;
+
+import com.phonepe.leaderboard.model.Leaderboard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class RankChangeFeedTest {
+    private static final long HOUR_MILLIS = 3_600_000;
+
+    private Leaderboard leaderboard;
+    private RankChangeFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        leaderboard = new Leaderboard.Builder()
+                .id("board")
+                .gameId("game")
+                .startTime(0)
+                .endTime(Long.MAX_VALUE)
+                .timeProvider(() -> 1L)
+                .build();
+        // user1..user10 hold ranks 10..1
+        for (int i = 1; i <= 10; i++) {
+            leaderboard.updateScore("user" + i, i * 10);
+        }
+        // The scheduled dispatch never comes within a test; tests dispatch by hand
+        feed = new RankChangeFeed(1 << 10, HOUR_MILLIS, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        feed.close();
+    }
+
+    @Test
+    void testBoardSubscriptionCoalescesMovesPerUser() throws InterruptedException {
+        Recorder recorder = new Recorder();
+        feed.subscribe(leaderboard, recorder);
+
+        leaderboard.updateScore("user1", 55);
+        leaderboard.updateScore("user1", 200);
+        leaderboard.updateScore("newcomer", 5);
+        feed.dispatch();
+
+        List<RankChange> changes = recorder.nextRanks();
+        assertEquals(2, changes.size());
+        assertEquals("user1", changes.get(0).getUserId());
+        assertEquals(10, changes.get(0).getPreviousRank());
+        assertEquals(1, changes.get(0).getRank());
+        assertEquals(200, changes.get(0).getScore());
+        assertEquals("newcomer", changes.get(1).getUserId());
+        assertEquals(-1, changes.get(1).getPreviousRank());
+        assertEquals(11, changes.get(1).getRank());
+    }
+
+    @Test
+    void testUserSubscriptionSeesBeingOvertaken() throws InterruptedException {
+        Recorder recorder = new Recorder();
+        feed.subscribeToUser(leaderboard, "user9", recorder);
+
+        leaderboard.updateScore("user3", 35); // below user9
+        feed.dispatch();
+        leaderboard.updateScore("user4", 95);
+        leaderboard.updateScore("user5", 500);
+        feed.dispatch();
+
+        RankChange change = recorder.nextRanks().get(0);
+        assertEquals("user9", change.getUserId());
+        assertEquals(2, change.getPreviousRank());
+        assertEquals(4, change.getRank());
+        assertEquals(90, change.getScore());
+        assertTrue(recorder.events.isEmpty());
+    }
+
+    @Test
+    void testTopKSubscriptionOnlyFiresWhenTheTopChanges() throws InterruptedException {
+        Recorder recorder = new Recorder();
+        feed.subscribeToTopK(leaderboard, 3, recorder);
+
+        leaderboard.updateScore("user1", 75);
+        feed.dispatch();
+        leaderboard.updateScore("user2", 95);
+        feed.dispatch();
+
+        TopKChange change = recorder.nextTop();
+        assertEquals(3, change.getK());
+        assertEquals("user10", change.getPrevious().get(0).getKey());
+        assertEquals("user8", change.getPrevious().get(2).getKey());
+        assertEquals("user9", change.getEntries().get(2).getKey());
+        assertEquals("user2", change.getEntries().get(1).getKey());
+        assertTrue(recorder.events.isEmpty());
+    }
+
+    @Test
+    void testSlowListenersGetCoalescedBatches() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Recorder recorder = new Recorder() {
+            @Override
+            public void ranksChanged(List<RankChange> changes) {
+                super.ranksChanged(changes);
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        feed.subscribe(leaderboard, recorder);
+
+        leaderboard.updateScore("user1", 25);
+        feed.dispatch();
+        assertEquals("user1", recorder.nextRanks().get(0).getUserId());
+
+        // Three dispatches while the listener is stuck arrive as one batch, one move per user.
+        // Moves are reported as of their dispatch: user3 later passes user2 without user2 scoring.
+        leaderboard.updateScore("user2", 150);
+        feed.dispatch();
+        leaderboard.updateScore("user2", 250);
+        leaderboard.updateScore("user3", 35);
+        feed.dispatch();
+        leaderboard.updateScore("user3", 300);
+        feed.dispatch();
+        release.countDown();
+
+        List<RankChange> batch = recorder.nextRanks();
+        assertEquals(2, batch.size());
+        assertEquals("user2", batch.get(0).getUserId());
+        assertEquals(10, batch.get(0).getPreviousRank());
+        assertEquals(1, batch.get(0).getRank());
+        assertEquals("user3", batch.get(1).getUserId());
+        assertEquals(9, batch.get(1).getPreviousRank());
+        assertEquals(1, batch.get(1).getRank());
+    }
+
+    @Test
+    void testOverflowIsReportedAndSnapshotBasedSubscriptionsStayExact() throws InterruptedException {
+        RankChangeFeed small = new RankChangeFeed(2, HOUR_MILLIS, 1);
+        Recorder board = new Recorder();
+        Recorder user = new Recorder();
+        small.subscribe(leaderboard, board);
+        small.subscribeToUser(leaderboard, "user10", user);
+
+        for (int i = 1; i <= 5; i++) {
+            leaderboard.updateScore("user" + i, 1_000 + i);
+        }
+        small.dispatch();
+
+        assertEquals(3L, board.events.poll(5, TimeUnit.SECONDS));
+        assertEquals(2, board.nextRanks().size());
+        assertEquals(6, user.nextRanks().get(0).getRank());
+        small.close();
+    }
+
+    @Test
+    void testCancelledAndEvictedSubscriptionsStopDelivering() throws InterruptedException {
+        Recorder cancelled = new Recorder();
+        Recorder evicted = new Recorder();
+        feed.subscribe(leaderboard, cancelled).cancel();
+        Subscription subscription = feed.subscribeToTopK(leaderboard, 1, evicted);
+
+        leaderboard.updateScore("user1", 500);
+        leaderboard.evict();
+        feed.dispatch();
+
+        assertTrue(subscription.isCancelled());
+        assertNull(cancelled.events.poll(100, TimeUnit.MILLISECONDS));
+        assertNull(evicted.events.poll(100, TimeUnit.MILLISECONDS));
+        assertThrows(IllegalStateException.class, () -> feed.subscribe(leaderboard, new Recorder()));
+    }
+
+    private static class Recorder implements RankChangeListener {
+        final BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+
+        @Override
+        public void ranksChanged(List<RankChange> changes) {
+            events.add(changes);
+        }
+
+        @Override
+        public void topKChanged(TopKChange change) {
+            events.add(change);
+        }
+
+        @Override
+        public void changesDropped(String leaderboardId, long dropped) {
+            events.add(dropped);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<RankChange> nextRanks() throws InterruptedException {
+            return (List<RankChange>) next();
+        }
+
+        TopKChange nextTop() throws InterruptedException {
+            return (TopKChange) next();
+        }
+
+        private Object next() throws InterruptedException {
+            Object event = events.poll(5, TimeUnit.SECONDS);
+            assertNotNull(event, "no event delivered");
+            return event;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.phonepe.leaderboard.persistence;
+
+import com.phonepe.leaderboard.index.UserDictionary;
+import com.phonepe.leaderboard.metrics.MetricNames;
+import com.phonepe.leaderboard.metrics.MetricsRegistry;
+import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.model.LeaderboardState;
+import com.phonepe.leaderboard.model.LeaderboardStorage;
+import com.phonepe.leaderboard.model.TieBreak;
+import com.phonepe.leaderboard.repository.LeaderboardRepository;
+import com.phonepe.leaderboard.util.TimeProvider;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+public class LeaderboardPersistenceTest {
+    private static final long START_TIME = 1000L;
+    private static final long END_TIME = 2000L;
+
+    @TempDir
+    Path directory;
+
+    private final TimeProvider timeProvider = () -> START_TIME + 500;
+
+    @Test
+    void testRecoversFromLogAlone() throws IOException {
+        String id;
+        try (Durable durable = new Durable()) {
+            Leaderboard leaderboard = durable.repository.createLeaderboard("game", START_TIME, END_TIME);
+            id = leaderboard.getId();
+            leaderboard.updateScore("user1", 100);
+            leaderboard.updateScore("user2", 300);
+            leaderboard.updateScore("user1", 50); // not an improvement, not logged
+            UserDictionary dictionary = leaderboard.getUserDictionary();
+            leaderboard.updateScores(new int[] {dictionary.intern("user3"), dictionary.intern("user1")}, new int[] {200, 400});
+        }
+
+        try (Durable durable = new Durable()) {
+            RecoveryReport report = durable.report;
+            assertEquals(1, report.getLeaderboards());
+            assertEquals(0, report.getSnapshotEntries());
+            assertEquals(4, report.getLogScores());
+
+            Leaderboard recovered = durable.repository.getLeaderboard(id);
+            assertEquals("game", recovered.getGameId());
+            assertEquals(END_TIME, recovered.getEndTime());
+            assertEquals("user1", recovered.getUserAtRank(1));
+            assertEquals(400, recovered.getScore("user1"));
+            assertEquals(3, recovered.getRank("user3"));
+            assertEquals(1, durable.repository.getActiveLeaderboards("game").length);
+        }
+    }
+
+    @Test
+    void testCheckpointTrimsLogAndRecoveryCombinesSnapshotWithTail() throws IOException {
+        String heapId;
+        String offHeapId;
+        try (Durable durable = new Durable()) {
+            Leaderboard heap = durable.repository.createLeaderboard("game", START_TIME, END_TIME);
+            Leaderboard offHeap = durable.repository.createLeaderboard("game", START_TIME, END_TIME, LeaderboardStorage.OFF_HEAP);
+            heapId = heap.getId();
+            offHeapId = offHeap.getId();
+            for (int i = 0; i < 1000; i++) {
+                heap.updateScore("user" + i, i);
+                offHeap.updateScore("user" + i, 2 * i);
+            }
+
+            durable.persistence.checkpoint();
+            assertEquals(1, count(directory.resolve("wal")));
+            assertEquals(2, count(directory.resolve("snapshots")));
+
+            heap.updateScore("user0", 5000);
+            durable.repository.createLeaderboard("other-game", START_TIME, END_TIME).updateScore("user0", 1);
+        }
+
+        try (Durable durable = new Durable()) {
+            RecoveryReport report = durable.report;
+            assertEquals(3, report.getLeaderboards());
+            assertEquals(2000, report.getSnapshotEntries());
+            assertEquals(2, report.getLogScores());
+
+            Leaderboard heap = durable.repository.getLeaderboard(heapId);
+            Leaderboard offHeap = durable.repository.getLeaderboard(offHeapId);
+            assertEquals(1000, heap.size());
+            assertEquals("user0", heap.getUserAtRank(1));
+            assertEquals(LeaderboardStorage.OFF_HEAP, offHeap.getStorage());
+            assertEquals(1998, offHeap.getScore("user999"));
+            assertEquals(1, durable.repository.getActiveLeaderboards("other-game").length);
+
+            // Boards created after recovery get fresh handles and survive the next restart too
+            durable.repository.createLeaderboard("new-game", START_TIME, END_TIME).updateScore("user1", 7);
+            durable.persistence.checkpoint();
+        }
+
+        try (Durable durable = new Durable()) {
+            assertEquals(4, durable.report.getLeaderboards());
+            assertEquals(0, durable.report.getLogScores());
+            assertEquals(7, durable.repository.getActiveLeaderboards("new-game")[0].getScore("user1"));
+        }
+    }
+
+    @Test
+    void testPartitionCountSurvivesRestart() throws IOException {
+        String id;
+        try (Durable durable = new Durable()) {
+            Leaderboard leaderboard = durable.repository.createLeaderboard("game", START_TIME, END_TIME, LeaderboardStorage.HEAP, 4);
+            id = leaderboard.getId();
+            for (int i = 0; i < 100; i++) {
+                leaderboard.updateScore("user" + i, i);
+            }
+        }
+
+        try (Durable durable = new Durable()) {
+            Leaderboard recovered = durable.repository.getLeaderboard(id);
+            assertEquals(4, recovered.getPartitions());
+            assertEquals(100, recovered.size());
+            durable.persistence.checkpoint();
+        }
+
+        try (Durable durable = new Durable()) {
+            Leaderboard recovered = durable.repository.getLeaderboard(id);
+            assertEquals(100, durable.report.getSnapshotEntries());
+            assertEquals(4, recovered.getPartitions());
+            assertEquals("user99", recovered.getUserAtRank(1));
+        }
+    }
+
+    @Test
+    void testFirstAchievedTiesKeepTheirOrderAcrossRestarts() throws IOException {
+        // Tied users spread over the partitions, submitted out of lexical order, half of them
+        // before a checkpoint and half in the log tail
+        String[] order = {"user7", "user2", "user5", "user0", "user6", "user3", "user1", "user4"};
+        String id;
+        try (Durable durable = new Durable(TieBreak.FIRST_ACHIEVED)) {
+            Leaderboard leaderboard = durable.repository.createLeaderboard("game", START_TIME, END_TIME,
+                    LeaderboardStorage.HEAP, 4);
+            id = leaderboard.getId();
+            leaderboard.updateScore("leader", 200);
+            for (int i = 0; i < order.length; i++) {
+                if (i == order.length / 2) {
+                    durable.persistence.checkpoint();
+                }
+                leaderboard.updateScore(order[i], 100);
+            }
+        }
+
+        for (int restart = 0; restart < 2; restart++) {
+            try (Durable durable = new Durable(TieBreak.FIRST_ACHIEVED)) {
+                Leaderboard recovered = durable.repository.getLeaderboard(id);
+                assertEquals(TieBreak.FIRST_ACHIEVED, recovered.getTieBreak());
+                for (int i = 0; i < order.length; i++) {
+                    assertEquals(order[i], recovered.getUserAtRank(i + 2));
+                }
+                durable.persistence.checkpoint();
+            }
+        }
+    }
+
+    @Test
+    void testCheckpointDropsEvictedBoards() throws IOException {
+        try (Durable durable = new Durable()) {
+            Leaderboard leaderboard = durable.repository.createLeaderboard("game", START_TIME, END_TIME);
+            leaderboard.updateScore("user1", 1);
+            durable.persistence.checkpoint();
+            leaderboard.evict();
+            durable.persistence.checkpoint();
+            assertEquals(0, count(directory.resolve("snapshots")));
+        }
+
+        try (Durable durable = new Durable()) {
+            assertEquals(0, durable.report.getLeaderboards());
+        }
+    }
+
+    @Test
+    void testArchivedBoardsComeBackMappedWithoutSnapshotOrLog() throws IOException {
+        Path archiveDirectory = directory.resolve("archive");
+        String id;
+        try (Durable durable = new Durable()) {
+            Leaderboard leaderboard = durable.repository.createLeaderboard("game", START_TIME, END_TIME);
+            id = leaderboard.getId();
+            for (int i = 0; i < 100; i++) {
+                leaderboard.updateScore("user" + i, i);
+            }
+            durable.persistence.checkpoint();
+            Files.createDirectories(archiveDirectory);
+            leaderboard.archive(archiveDirectory.resolve(id + ".lb"));
+            durable.persistence.checkpoint();
+            assertEquals(0, count(directory.resolve("snapshots")));
+        }
+
+        try (Durable durable = new Durable()) {
+            assertEquals(1, durable.report.getLeaderboards());
+            assertEquals(1, durable.report.getArchivedLeaderboards());
+            assertEquals(0, durable.report.getSnapshotEntries());
+            assertEquals(0, durable.report.getLogScores());
+
+            Leaderboard recovered = durable.repository.getLeaderboard(id);
+            assertEquals(LeaderboardState.ARCHIVED, recovered.getState());
+            assertEquals("user99", recovered.getUserAtRank(1));
+            assertEquals(100, recovered.getRank("user0"));
+            assertEquals(0, durable.repository.getActiveLeaderboards("game").length);
+        }
+    }
+
+    @Test
+    void testClosedLogRejectsWritesWithoutPublishingThem() throws IOException {
+        try (Durable durable = new Durable()) {
+            Leaderboard leaderboard = durable.repository.createLeaderboard("game", START_TIME, END_TIME);
+            leaderboard.updateScore("user1", 100);
+            durable.persistence.close();
+
+            assertThrows(IllegalStateException.class, () -> leaderboard.updateScore("user1", 200));
+            assertEquals(100, leaderboard.getScore("user1"));
+        }
+    }
+
+    @Test
+    void testFailingBackgroundCheckpointsAreCountedAndKept() throws Exception {
+        try (Durable durable = new Durable()) {
+            durable.repository.createLeaderboard("game", START_TIME, END_TIME).updateScore("user1", 1);
+            // Snapshots can no longer be written once their directory is a file
+            Files.delete(directory.resolve("snapshots"));
+            Files.createFile(directory.resolve("snapshots"));
+
+            MetricsRegistry metrics = new MetricsRegistry();
+            durable.persistence.scheduleCheckpoints(1, metrics);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (durable.persistence.getLastCheckpointFailure() == null && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertInstanceOf(IOException.class, durable.persistence.getLastCheckpointFailure());
+            assertTrue(metrics.snapshot().getCounter(MetricNames.CHECKPOINT_FAILURES) >= 1);
+        }
+    }
+
+    private static long count(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    // A repository wired to persistence in the data directory, as the durable service does it
+    private final class Durable implements AutoCloseable {
+        final LeaderboardPersistence persistence;
+        final LeaderboardRepository repository;
+        final RecoveryReport report;
+
+        Durable() throws IOException {
+            this(TieBreak.FIRST_SEEN);
+        }
+
+        Durable(TieBreak tieBreak) throws IOException {
+            persistence = LeaderboardPersistence.open(directory);
+            repository = new LeaderboardRepository(timeProvider, directory.resolve("archive"), persistence,
+                    new MetricsRegistry(), tieBreak);
+            report = persistence.recover(repository);
+        }
+
+        @Override
+        public void close() {
+            persistence.close();
+            repository.shutdown();
+        }
+    }
+}
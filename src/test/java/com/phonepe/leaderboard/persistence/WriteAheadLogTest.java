@@ -0,0 +1,161 @@
+package com.phonepe.leaderboard.persistence;
+
+import com.phonepe.leaderboard.model.LeaderboardStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class WriteAheadLogTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void testReplaysRecordsInOrder() throws IOException {
+        try (WriteAheadLog log = WriteAheadLog.open(directory)) {
+            log.appendCreate(0, "board-0", "game", 10, 20, LeaderboardStorage.OFF_HEAP, 4);
+            log.appendScores(0, new String[] {"user1", "user2", "unused"}, new int[] {100, 200, 300}, 2);
+            log.appendScores(0, new String[] {"user1"}, new int[] {150}, 1);
+        }
+
+        List<String> replayed = replay(directory);
+        assertEquals(List.of("create 0 board-0 game 10 20 OFF_HEAP x4", "scores 0 user1=100 user2=200", "scores 0 user1=150"), replayed);
+    }
+
+    @Test
+    void testConcurrentAppendersAreAllDurable() throws Exception {
+        int threads = 4;
+        int perThread = 500;
+        try (WriteAheadLog log = WriteAheadLog.open(directory)) {
+            Thread[] appenders = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                appenders[t] = new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        log.appendScores(thread, new String[] {"user" + i}, new int[] {i}, 1);
+                    }
+                });
+                appenders[t].start();
+            }
+            for (Thread appender : appenders) {
+                appender.join();
+            }
+            // Durable on return: readable before close
+            assertEquals(threads * perThread, replay(directory).size());
+        }
+    }
+
+    @Test
+    void testRollStartsNewSegmentAndOldOnesCanBeDeleted() throws IOException {
+        try (WriteAheadLog log = WriteAheadLog.open(directory)) {
+            log.appendScores(0, new String[] {"before"}, new int[] {1}, 1);
+            long segment = log.roll();
+            log.appendScores(0, new String[] {"after"}, new int[] {2}, 1);
+
+            assertEquals(2, segmentCount());
+            log.deleteSegmentsBefore(segment);
+        }
+        assertEquals(List.of("scores 0 after=2"), replay(directory));
+    }
+
+    @Test
+    void testTornTailIsIgnoredAndReopenUsesNewSegment() throws IOException {
+        try (WriteAheadLog log = WriteAheadLog.open(directory)) {
+            log.appendScores(0, new String[] {"user1"}, new int[] {1}, 1);
+            log.appendScores(0, new String[] {"user2"}, new int[] {2}, 1);
+        }
+        Path segment = segmentFiles().get(0);
+        long length = Files.size(segment);
+        // Half of a record's header and payload, as a crash mid-write would leave
+        Files.write(segment, new byte[] {0, 0, 0, 20, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (WriteAheadLog log = WriteAheadLog.open(directory)) {
+            log.appendScores(0, new String[] {"user3"}, new int[] {3}, 1);
+        }
+        assertEquals(length + 7, Files.size(segment));
+        assertEquals(List.of("scores 0 user1=1", "scores 0 user2=2", "scores 0 user3=3"), replay(directory));
+    }
+
+    @Test
+    void testTornHeaderWithAHugeLengthEndsReplay() throws IOException {
+        try (WriteAheadLog log = WriteAheadLog.open(directory)) {
+            log.appendScores(0, new String[] {"user1"}, new int[] {1}, 1);
+        }
+        // Length 0x7FFFFFF0 and a checksum, followed by far fewer bytes than that
+        Files.write(segmentFiles().get(0), new byte[] {0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xF0, 1, 2, 3, 4, 5, 6},
+                StandardOpenOption.APPEND);
+
+        try (WriteAheadLog log = WriteAheadLog.open(directory)) {
+            log.appendScores(0, new String[] {"user2"}, new int[] {2}, 1);
+        }
+        assertEquals(List.of("scores 0 user1=1", "scores 0 user2=2"), replay(directory));
+    }
+
+    @Test
+    void testCorruptionBeforeTheEndOfARolledSegmentFailsReplay() throws IOException {
+        try (WriteAheadLog log = WriteAheadLog.open(directory)) {
+            log.appendScores(0, new String[] {"user1"}, new int[] {1}, 1);
+            log.appendScores(0, new String[] {"user2"}, new int[] {2}, 1);
+            log.appendScores(0, new String[] {"user3"}, new int[] {3}, 1);
+            log.roll();
+            log.appendScores(0, new String[] {"user4"}, new int[] {4}, 1);
+        }
+        Path segment = segmentFiles().get(0);
+        byte[] bytes = Files.readAllBytes(segment);
+        // Last byte of the second record's payload (each record holds the same number of bytes)
+        bytes[2 * bytes.length / 3 - 1] ^= 1;
+        Files.write(segment, bytes);
+
+        IOException e = assertThrows(IOException.class, () -> replay(directory));
+        assertTrue(e.getMessage().contains(segment.getFileName().toString()), e.getMessage());
+    }
+
+    @Test
+    void testZeroFilledTailEndsReplayQuietly() throws IOException {
+        try (WriteAheadLog log = WriteAheadLog.open(directory)) {
+            log.appendScores(0, new String[] {"user1"}, new int[] {1}, 1);
+        }
+        Files.write(segmentFiles().get(0), new byte[4096], StandardOpenOption.APPEND);
+
+        assertEquals(List.of("scores 0 user1=1"), replay(directory));
+    }
+
+    private static List<String> replay(Path directory) throws IOException {
+        List<String> records = new ArrayList<>();
+        WriteAheadLog.replay(directory, new WriteAheadLog.RecordVisitor() {
+            @Override
+            public void created(int handle, String id, String gameId, long startTime, long endTime, LeaderboardStorage storage,
+                    int partitions) {
+                records.add("create " + handle + " " + id + " " + gameId + " " + startTime + " " + endTime + " " + storage + " x" + partitions);
+            }
+
+            @Override
+            public void scores(int handle, String[] userIds, int[] scores) {
+                StringBuilder record = new StringBuilder("scores " + handle);
+                for (int i = 0; i < userIds.length; i++) {
+                    record.append(' ').append(userIds[i]).append('=').append(scores[i]);
+                }
+                records.add(record.toString());
+            }
+        });
+        return records;
+    }
+
+    private int segmentCount() throws IOException {
+        return segmentFiles().size();
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+}
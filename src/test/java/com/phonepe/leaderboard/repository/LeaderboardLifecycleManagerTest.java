@@ -0,0 +1,138 @@
+package com.phonepe.leaderboard.repository;
+
+import com.phonepe.leaderboard.config.LeaderboardConfig;
+import com.phonepe.leaderboard.metrics.MetricNames;
+import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.model.LeaderboardState;
+import com.phonepe.leaderboard.model.ScoreListener;
+import com.phonepe.leaderboard.util.TimeProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class LeaderboardLifecycleManagerTest {
+    private static final String GAME_ID = "test-game";
+    private static final long START_TIME = 1000L;
+    private static final long END_TIME = 2000L;
+
+    @TempDir
+    Path archiveDirectory;
+    private MockTimeProvider mockTimeProvider;
+    private LeaderboardRepository repository;
+    private LeaderboardLifecycleManager lifecycleManager;
+
+    private static class MockTimeProvider implements TimeProvider {
+        private long currentTime = START_TIME + 500;
+
+        @Override
+        public long getCurrentTimeInSeconds() {
+            return currentTime;
+        }
+
+        public void setCurrentTime(long time) {
+            this.currentTime = time;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        mockTimeProvider = new MockTimeProvider();
+        repository = new LeaderboardRepository(mockTimeProvider, archiveDirectory);
+        lifecycleManager = repository.getLifecycleManager();
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.shutdown();
+    }
+
+    @Test
+    void testActiveBoardsAreLeftAlone() {
+        Leaderboard leaderboard = repository.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+
+        mockTimeProvider.setCurrentTime(END_TIME);
+        lifecycleManager.sweep();
+
+        assertEquals(LeaderboardState.ACTIVE, leaderboard.getState());
+    }
+
+    @Test
+    void testBoardMovesThroughEveryStage() {
+        Leaderboard leaderboard = repository.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        leaderboard.updateScore("user1", 100);
+        leaderboard.updateScore("user2", 200);
+        Path archiveFile = lifecycleManager.archiveFile(leaderboard);
+
+        mockTimeProvider.setCurrentTime(END_TIME + LeaderboardConfig.FREEZE_AFTER_SECONDS);
+        lifecycleManager.sweep();
+        assertEquals(LeaderboardState.FROZEN, leaderboard.getState());
+        assertFalse(Files.exists(archiveFile));
+
+        mockTimeProvider.setCurrentTime(END_TIME + LeaderboardConfig.ARCHIVE_AFTER_SECONDS);
+        lifecycleManager.sweep();
+        assertEquals(LeaderboardState.ARCHIVED, leaderboard.getState());
+        assertTrue(Files.exists(archiveFile));
+        assertEquals(1, repository.getLeaderboard(leaderboard.getId()).getRank("user2"));
+
+        mockTimeProvider.setCurrentTime(END_TIME + LeaderboardConfig.EVICT_AFTER_SECONDS);
+        lifecycleManager.sweep();
+        assertEquals(LeaderboardState.EVICTED, leaderboard.getState());
+        assertFalse(Files.exists(archiveFile));
+        assertNull(repository.getLeaderboard(leaderboard.getId()));
+        assertFalse(repository.getLeaderboardIdsForGame(GAME_ID).contains(leaderboard.getId()));
+        assertTrue(repository.getAllLeaderboards().isEmpty());
+    }
+
+    @Test
+    void testOverdueBoardSkipsStraightToArchive() {
+        Leaderboard leaderboard = repository.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        leaderboard.updateScore("user1", 100);
+
+        mockTimeProvider.setCurrentTime(END_TIME + LeaderboardConfig.ARCHIVE_AFTER_SECONDS + 1);
+        lifecycleManager.sweep();
+
+        assertEquals(LeaderboardState.ARCHIVED, leaderboard.getState());
+        assertEquals(100, leaderboard.getScore("user1"));
+    }
+
+    @Test
+    void testEvictedBoardIsNoLongerRouted() {
+        Leaderboard ended = repository.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        Leaderboard current = repository.createLeaderboard(GAME_ID, START_TIME, END_TIME + LeaderboardConfig.EVICT_AFTER_SECONDS * 2L);
+
+        mockTimeProvider.setCurrentTime(END_TIME + LeaderboardConfig.EVICT_AFTER_SECONDS);
+        lifecycleManager.sweep();
+
+        assertNull(repository.getLeaderboard(ended.getId()));
+        assertArrayEquals(new Leaderboard[] {current}, repository.getActiveLeaderboards(GAME_ID));
+        assertEquals(LeaderboardState.ACTIVE, current.getState());
+    }
+
+    @Test
+    void testFailingBoardIsCountedAndDoesNotHoldUpTheOthers() {
+        Leaderboard failing = repository.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        Leaderboard later = repository.createLeaderboard(GAME_ID, START_TIME,
+                END_TIME + LeaderboardConfig.EVICT_AFTER_SECONDS - LeaderboardConfig.FREEZE_AFTER_SECONDS);
+        failing.addScoreListener(new ScoreListener() {
+            @Override
+            public void scoreChanged(Leaderboard leaderboard, int userKey, long previousScore, int score) {
+            }
+
+            @Override
+            public void leaderboardEvicted(Leaderboard leaderboard) {
+                throw new IllegalStateException("listener failed");
+            }
+        });
+
+        mockTimeProvider.setCurrentTime(END_TIME + LeaderboardConfig.EVICT_AFTER_SECONDS);
+        assertThrows(IllegalStateException.class, () -> lifecycleManager.sweep());
+
+        assertEquals(LeaderboardState.FROZEN, later.getState());
+        assertEquals(1, repository.getMetrics().snapshot().getCounter(MetricNames.LIFECYCLE_FAILURES));
+    }
+}
@@ -1,11 +1,18 @@
 package com.phonepe.leaderboard.repository;
 
+import com.phonepe.leaderboard.config.LeaderboardConfig;
+import com.phonepe.leaderboard.metrics.MetricNames;
+import com.phonepe.leaderboard.metrics.MetricsSnapshot;
 import com.phonepe.leaderboard.model.Leaderboard;
 import com.phonepe.leaderboard.util.TimeProvider;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 
@@ -35,6 +42,11 @@ public class LeaderboardRepositoryTest {
         repository = new LeaderboardRepository(mockTimeProvider);
     }
 
+    @AfterEach
+    void tearDown() {
+        repository.shutdown();
+    }
+
     @Test
     void testCreateLeaderboard() {
         Leaderboard leaderboard = repository.createLeaderboard(GAME_ID, START_TIME, END_TIME);
@@ -76,6 +88,39 @@ public class LeaderboardRepositoryTest {
         assertEquals(activeLeaderboard.getId(), activeLeaderboards.get(0).getId());
     }
 
+    @Test
+    void testActiveLeaderboardsFollowStartAndEndBoundaries() {
+        Leaderboard current = repository.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        Leaderboard next = repository.createLeaderboard(GAME_ID, END_TIME + 1, END_TIME + 1000);
+
+        mockTimeProvider.setCurrentTime(START_TIME - 1);
+        assertEquals(0, repository.getActiveLeaderboards(GAME_ID).length);
+
+        mockTimeProvider.setCurrentTime(START_TIME);
+        assertArrayEquals(new Leaderboard[] {current}, repository.getActiveLeaderboards(GAME_ID));
+
+        // End is inclusive, like Leaderboard.isActive
+        mockTimeProvider.setCurrentTime(END_TIME);
+        assertArrayEquals(new Leaderboard[] {current}, repository.getActiveLeaderboards(GAME_ID));
+
+        mockTimeProvider.setCurrentTime(END_TIME + 1);
+        assertArrayEquals(new Leaderboard[] {next}, repository.getActiveLeaderboards(GAME_ID));
+        assertEquals(0, repository.getActiveLeaderboards("another-game").length);
+    }
+
+    @Test
+    void testActiveLeaderboardsReusedBetweenBoundaries() {
+        repository.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+
+        Leaderboard[] first = repository.getActiveLeaderboards(GAME_ID);
+        mockTimeProvider.setCurrentTime(START_TIME + 600);
+        assertSame(first, repository.getActiveLeaderboards(GAME_ID));
+
+        // A new board is routed immediately
+        Leaderboard added = repository.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        assertTrue(Arrays.asList(repository.getActiveLeaderboards(GAME_ID)).contains(added));
+    }
+
     @Test
     void testGetAllLeaderboards() {
         // Create leaderboards for different games
@@ -89,6 +134,49 @@ public class LeaderboardRepositoryTest {
         assertTrue(allLeaderboards.stream().anyMatch(lb -> lb.getId().equals(leaderboard2.getId())));
     }
 
+    @Test
+    void testGaugesFollowBoards() {
+        Leaderboard first = repository.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        Leaderboard second = repository.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        first.updateScore("user1", 10);
+        first.updateScore("user2", 20);
+        second.updateScore("user1", 30);
+        second.freeze();
+
+        MetricsSnapshot metrics = repository.getMetrics().snapshot();
+        assertEquals(1L, metrics.getGauge(MetricNames.BOARDS_ACTIVE));
+        assertEquals(1L, metrics.getGauge(MetricNames.BOARDS_FROZEN));
+        assertEquals(3L, metrics.getGauge(MetricNames.ENTRIES));
+        assertEquals(2L, metrics.getGauge(MetricNames.boardEntries(first.getId())));
+        assertEquals(3, metrics.getCounter(MetricNames.UPDATES_APPLIED));
+
+        second.evict();
+        repository.remove(second);
+        assertNull(repository.getMetrics().snapshot().getGauge(MetricNames.boardEntries(second.getId())));
+    }
+
+    @Test
+    void testInMemoryRepositoriesArchiveIntoTheirOwnDirectoryDeletedOnShutdown() {
+        LeaderboardRepository other = new LeaderboardRepository(mockTimeProvider);
+        Leaderboard leaderboard = repository.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        Leaderboard otherBoard = other.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        leaderboard.updateScore("user1", 100);
+
+        mockTimeProvider.setCurrentTime(END_TIME + LeaderboardConfig.ARCHIVE_AFTER_SECONDS);
+        repository.getLifecycleManager().sweep();
+        other.getLifecycleManager().sweep();
+        Path archiveFile = repository.getLifecycleManager().archiveFile(leaderboard);
+        Path otherFile = other.getLifecycleManager().archiveFile(otherBoard);
+        assertTrue(Files.exists(archiveFile));
+        assertNotEquals(archiveFile.getParent(), otherFile.getParent());
+
+        other.shutdown();
+        assertFalse(Files.exists(otherFile.getParent()));
+        assertTrue(Files.exists(archiveFile));
+        repository.shutdown();
+        assertFalse(Files.exists(archiveFile.getParent()));
+    }
+
     @Test
     void testGetNonExistentLeaderboard() {
         Leaderboard leaderboard = repository.getLeaderboard("non-existent-id");
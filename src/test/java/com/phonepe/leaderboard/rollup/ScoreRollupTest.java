@@ -0,0 +1,139 @@
+package com.phonepe.leaderboard.rollup;
+
+import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.model.LeaderboardState;
+import com.phonepe.leaderboard.repository.LeaderboardRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ScoreRollupTest {
+    private static final long SEASON_START = 1_000_000L;
+    private static final long SEASON_END = SEASON_START + 14 * 86_400 - 1;
+    private static final long HOUR = 3_600;
+
+    private final AtomicLong now = new AtomicLong(SEASON_START);
+    private LeaderboardRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new LeaderboardRepository(now::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.shutdown();
+    }
+
+    private ScoreRollup rollup(RollupWindow... windows) {
+        return new ScoreRollup(repository, now::get, "game", SEASON_START, SEASON_END, Arrays.asList(windows));
+    }
+
+    private Leaderboard board(ScoreRollup rollup, String window, long at) {
+        String id = rollup.getLeaderboardId(window, at);
+        assertNotNull(id);
+        return repository.getLeaderboard(id);
+    }
+
+    private int key(String userId) {
+        return repository.getUserDictionary().intern(userId);
+    }
+
+    @Test
+    void testSubmissionStopsAtTheFirstWindowItDoesNotImprove() {
+        ScoreRollup rollup = rollup(RollupWindow.hourly(RollupMode.INCREMENTAL), RollupWindow.daily(RollupMode.INCREMENTAL),
+                RollupWindow.season(RollupMode.INCREMENTAL));
+
+        assertTrue(rollup.submit(key("alice"), 100));
+        now.addAndGet(HOUR);
+        assertTrue(rollup.submit(key("alice"), 50));
+        assertFalse(rollup.submit(key("alice"), 40));
+        assertTrue(rollup.submit(key("alice"), 120));
+
+        assertEquals(100, board(rollup, "hour", SEASON_START).getScore("alice"));
+        assertEquals(120, board(rollup, "hour", now.get()).getScore("alice"));
+        assertEquals(120, board(rollup, "day", now.get()).getScore("alice"));
+        assertEquals(120, board(rollup, "season", now.get()).getScore("alice"));
+
+        now.addAndGet(86_400);
+        assertTrue(rollup.submit(key("alice"), 60));
+        assertEquals(60, board(rollup, "day", now.get()).getScore("alice"));
+        assertEquals(120, board(rollup, "season", now.get()).getScore("alice"));
+    }
+
+    @Test
+    void testOnDemandBoardsAreBuiltFromTheSharedRecords() {
+        ScoreRollup rollup = rollup(RollupWindow.daily(RollupMode.INCREMENTAL), RollupWindow.weekly(RollupMode.ON_DEMAND));
+        rollup.submit(key("alice"), 30);
+        rollup.submit(key("bob"), 70);
+        rollup.submit(key("carol"), 50);
+
+        Leaderboard week = board(rollup, "week", now.get());
+        assertTrue(week.isDerived());
+        assertEquals(1, week.getRank("bob"));
+        assertEquals(2, week.getRank("carol"));
+        assertEquals(3, week.getRank("alice"));
+        assertEquals(3, week.size());
+    }
+
+    @Test
+    void testRolloverFreezesOnDemandBoardsWithTheirFinalScores() {
+        ScoreRollup rollup = rollup(RollupWindow.daily(RollupMode.INCREMENTAL), RollupWindow.weekly(RollupMode.ON_DEMAND));
+        rollup.submit(key("alice"), 30);
+        Leaderboard firstWeek = board(rollup, "week", now.get());
+        firstWeek.snapshot();
+        rollup.submit(key("bob"), 70);
+
+        now.addAndGet(7 * 86_400);
+        rollup.submit(key("alice"), 10);
+
+        assertEquals(LeaderboardState.FROZEN, firstWeek.getState());
+        assertEquals(30, firstWeek.getScore("alice"));
+        assertEquals(70, firstWeek.getScore("bob"));
+        Leaderboard secondWeek = board(rollup, "week", now.get());
+        assertEquals(10, secondWeek.getScore("alice"));
+        assertNull(secondWeek.getScore("bob"));
+    }
+
+    @Test
+    void testBoardsAreOnlyCreatedForWindowsThatWereReached() {
+        ScoreRollup rollup = rollup(RollupWindow.hourly(RollupMode.INCREMENTAL), RollupWindow.season(RollupMode.ON_DEMAND));
+        now.addAndGet(3 * HOUR);
+
+        assertNull(rollup.getLeaderboardId("hour", SEASON_START));
+        assertNull(rollup.getLeaderboardId("hour", now.get() + HOUR));
+        assertNull(rollup.getLeaderboardId("hour", SEASON_END + 1));
+        assertEquals("game:hour:" + (SEASON_START + 3 * HOUR), rollup.getLeaderboardId("hour", now.get()));
+        assertEquals("game:season:" + SEASON_START, rollup.getLeaderboardId("season", SEASON_START));
+        assertThrows(IllegalArgumentException.class, () -> rollup.getLeaderboardId("minute", now.get()));
+        // Rollup boards are reached through the rollup, never by routing submissions
+        assertEquals(0, repository.getActiveLeaderboards("game").length);
+    }
+
+    @Test
+    void testScoresOutsideTheSeasonAreIgnored() {
+        ScoreRollup rollup = rollup(RollupWindow.season(RollupMode.INCREMENTAL));
+        now.set(SEASON_START - 1);
+        assertFalse(rollup.submit(key("alice"), 10));
+        now.set(SEASON_END + 1);
+        assertFalse(rollup.submit(key("alice"), 10));
+        assertTrue(repository.getAllLeaderboards().isEmpty());
+    }
+
+    @Test
+    void testWindowsMustNest() {
+        assertThrows(IllegalArgumentException.class, () -> rollup(RollupWindow.season(RollupMode.INCREMENTAL),
+                RollupWindow.daily(RollupMode.INCREMENTAL)));
+        assertThrows(IllegalArgumentException.class, () -> rollup(RollupWindow.hourly(RollupMode.INCREMENTAL),
+                new RollupWindow("ninety-minutes", 5_400, RollupMode.INCREMENTAL)));
+        assertThrows(IllegalArgumentException.class, () -> rollup(RollupWindow.daily(RollupMode.INCREMENTAL),
+                RollupWindow.daily(RollupMode.ON_DEMAND)));
+        assertThrows(IllegalArgumentException.class, () -> new ScoreRollup(repository, now::get, "game", SEASON_START,
+                SEASON_END, Collections.emptyList()));
+    }
+}
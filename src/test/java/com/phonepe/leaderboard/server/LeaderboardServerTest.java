@@ -0,0 +1,290 @@
+package com.phonepe.leaderboard.server;
+
+import com.phonepe.leaderboard.config.LeaderboardConfig;
+import com.phonepe.leaderboard.model.RankedEntry;
+import com.phonepe.leaderboard.model.ScoreSubmission;
+import com.phonepe.leaderboard.model.SubmissionResult;
+import com.phonepe.leaderboard.service.LeaderboardService;
+import com.phonepe.leaderboard.validation.RangeScoreValidationStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+public class LeaderboardServerTest {
+    private static final String GAME_ID = "game";
+
+    private LeaderboardService service;
+    private LeaderboardServer server;
+    private String leaderboardId;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        service = new LeaderboardService(() -> 1_500L,
+                new RangeScoreValidationStrategy(LeaderboardConfig.MIN_SCORE, LeaderboardConfig.MAX_SCORE));
+        service.addSupportedGame(GAME_ID);
+        leaderboardId = service.createLeaderboard(GAME_ID, 1_000, 2_000);
+        server = new LeaderboardServer(service, 0);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        service.shutdown();
+    }
+
+    @Test
+    void testSubmitAndQueryOverHttp() throws IOException {
+        try (Client client = new Client()) {
+            Response submitted = client.call("POST", "/scores", "{\"gameId\":\"game\",\"userId\":\"alice\",\"score\":300}");
+            assertEquals(204, submitted.status);
+            assertFalse(submitted.head.toLowerCase(Locale.ROOT).contains("content-length"));
+            assertEquals(204, client.call("POST", "/scores", "{\"gameId\":\"game\",\"userId\":\"bob\",\"score\":500}").status);
+            assertEquals(204, client.call("POST", "/scores", "{\"gameId\":\"game\", \"userId\":\"carol \\\"c\\\"\", \"score\":100}").status);
+
+            Response rank = client.call("GET", "/leaderboards/" + leaderboardId + "/rank?userId=alice", null);
+            assertEquals(200, rank.status);
+            assertEquals("{\"userId\":\"alice\",\"rank\":2}", rank.body);
+            assertEquals("{\"entries\":[{\"userId\":\"bob\",\"score\":500,\"rank\":1},{\"userId\":\"alice\",\"score\":300,\"rank\":2}]}",
+                    client.call("GET", "/leaderboards/" + leaderboardId + "/top?k=2", null).body);
+            String bobCursor = service.getCursor(leaderboardId, "bob");
+            String aliceCursor = service.getCursor(leaderboardId, "alice");
+            String carolCursor = service.getCursor(leaderboardId, "carol \"c\"");
+            assertEquals("{\"entries\":[{\"userId\":\"carol \\\"c\\\"\",\"score\":100,\"rank\":3}],"
+                    + "\"prevCursor\":\"" + carolCursor + "\",\"nextCursor\":null}",
+                    client.call("GET", "/leaderboards/" + leaderboardId + "/next?userId=alice&n=5", null).body);
+            assertEquals("{\"entries\":[{\"userId\":\"bob\",\"score\":500,\"rank\":1}],\"prevCursor\":null,"
+                    + "\"nextCursor\":\"" + bobCursor + "\"}",
+                    client.call("GET", "/leaderboards/" + leaderboardId + "/prev?userId=alice&n=5", null).body);
+            // Paging on from a returned cursor
+            assertEquals("{\"entries\":[{\"userId\":\"alice\",\"score\":300,\"rank\":2}],"
+                    + "\"prevCursor\":\"" + aliceCursor + "\",\"nextCursor\":\"" + aliceCursor + "\"}",
+                    client.call("GET", "/leaderboards/" + leaderboardId + "/next?cursor=" + bobCursor + "&n=1", null).body);
+            assertEquals("{\"userId\":\"alice\",\"rank\":2,\"entries\":[{\"userId\":\"bob\",\"score\":500,\"rank\":1},"
+                    + "{\"userId\":\"alice\",\"score\":300,\"rank\":2}],\"prevCursor\":null,\"nextCursor\":\"" + aliceCursor + "\"}",
+                    client.call("GET", "/leaderboards/" + leaderboardId + "/around?userId=alice&above=3&below=0", null).body);
+            assertEquals("{\"userId\":\"dave\",\"rank\":-1,\"entries\":[],\"prevCursor\":null,\"nextCursor\":null}",
+                    client.call("GET", "/leaderboards/" + leaderboardId + "/around?userId=dave", null).body);
+        }
+    }
+
+    @Test
+    void testPipelinedRequestsAreAnsweredInOrder() throws IOException {
+        try (Client client = new Client()) {
+            StringBuilder requests = new StringBuilder();
+            for (int i = 0; i < 100; i++) {
+                requests.append(request("POST", "/scores",
+                        "{\"gameId\":\"game\",\"userId\":\"user" + i + "\",\"score\":" + i + "}"));
+                requests.append(request("GET", "/leaderboards/" + leaderboardId + "/rank?userId=user0", null));
+            }
+            client.send(requests.toString());
+            for (int i = 0; i < 100; i++) {
+                assertEquals(204, client.read().status);
+                assertEquals("{\"userId\":\"user0\",\"rank\":" + (i + 1) + "}", client.read().body);
+            }
+        }
+    }
+
+    @Test
+    void testErrorsMapToStatusCodes() throws IOException {
+        try (Client client = new Client()) {
+            assertEquals(404, client.call("GET", "/leaderboards/missing/rank?userId=alice", null).status);
+            assertEquals(404, client.call("GET", "/nowhere", null).status);
+            assertEquals(404, client.call("POST", "/games", "{\"gameId\":\"other\"}").status);
+            assertEquals(405, client.call("GET", "/scores", null).status);
+            assertEquals(400, client.call("POST", "/scores", "{\"gameId\":\"game\",\"userId\":\"alice\"}").status);
+            assertEquals(400, client.call("POST", "/scores", "{not json").status);
+            assertEquals(400, client.call("GET", "/leaderboards/" + leaderboardId + "/rank", null).status);
+            Response invalid = client.call("POST", "/scores", "{\"gameId\":\"game\",\"userId\":\"alice\",\"score\":-5}");
+            assertEquals(422, invalid.status);
+            assertTrue(invalid.body.startsWith("{\"error\":"));
+            assertEquals(422, client.call("POST", "/scores", "{\"gameId\":\"other\",\"userId\":\"alice\",\"score\":5}").status);
+            // Errors keep the connection usable
+            assertEquals(200, client.call("GET", "/leaderboards/" + leaderboardId + "/top", null).status);
+        }
+    }
+
+    @Test
+    void testMalformedRequestsAndConnectionCloseEndTheConnection() throws IOException {
+        try (Client client = new Client()) {
+            client.send("NONSENSE\r\n\r\n");
+            assertEquals(400, client.read().status);
+            assertEquals(-1, client.in.read());
+        }
+        try (Client client = new Client()) {
+            client.send("GET /leaderboards/" + leaderboardId + "/top HTTP/1.1\r\nConnection: close\r\n\r\n");
+            assertEquals(200, client.read().status);
+            assertEquals(-1, client.in.read());
+        }
+    }
+
+    @Test
+    void testBinaryBatchesArePipelined() throws IOException {
+        try (Client client = new Client()) {
+            ByteBuffer first = BinaryProtocol.encodeSubmitBatch(GAME_ID, Arrays.asList(new ScoreSubmission("alice", 10),
+                    new ScoreSubmission("bob", 20), new ScoreSubmission("alice", 5)));
+            ByteBuffer rejected = BinaryProtocol.encodeSubmitBatch("other", Arrays.asList(new ScoreSubmission("alice", 10)));
+            ByteBuffer second = BinaryProtocol.encodeSubmitBatch(GAME_ID, Arrays.asList(new ScoreSubmission("bob", 15),
+                    new ScoreSubmission("carol", -1)));
+            client.send(BinaryProtocol.handshake(), first, rejected, second);
+
+            assertEquals(Arrays.asList(SubmissionResult.APPLIED, SubmissionResult.APPLIED, SubmissionResult.SUPERSEDED),
+                    client.readResults());
+            IllegalStateException error = assertThrows(IllegalStateException.class, client::readResults);
+            assertTrue(error.getMessage().contains("other"));
+            assertEquals(Arrays.asList(SubmissionResult.NOT_IMPROVED, SubmissionResult.INVALID_SCORE), client.readResults());
+        }
+        assertEquals(2, service.getRank(leaderboardId, "alice"));
+    }
+
+    @Test
+    void testBinaryTopKPagesAreServedInOrder() throws IOException {
+        for (int i = 0; i < 300; i++) {
+            service.submitScore(GAME_ID, "user" + i, i);
+        }
+        List<RankedEntry> expectedTop = service.getTopK(leaderboardId, 10, 0);
+        List<RankedEntry> expectedDeep = service.getTopK(leaderboardId, 50, 200);
+        try (Client client = new Client()) {
+            client.send(BinaryProtocol.handshake(), BinaryProtocol.encodeTopK(leaderboardId, 10, 0),
+                    BinaryProtocol.encodeTopK("missing", 10, 0), BinaryProtocol.encodeTopK(leaderboardId, 50, 200),
+                    BinaryProtocol.encodeSubmitBatch(GAME_ID, Arrays.asList(new ScoreSubmission("late", 1_000))),
+                    BinaryProtocol.encodeTopK(leaderboardId, 1, 0));
+
+            List<RankedEntry> top = client.readPage();
+            assertEquals(expectedTop, top);
+            assertEquals(1, top.get(0).getRank());
+            assertThrows(IllegalStateException.class, client::readPage);
+            List<RankedEntry> deep = client.readPage();
+            assertEquals(expectedDeep, deep);
+            assertEquals(201, deep.get(0).getRank());
+            assertEquals(Arrays.asList(SubmissionResult.APPLIED), client.readResults());
+            assertEquals("late", client.readPage().get(0).getUserId());
+        }
+    }
+
+    @Test
+    void testClosedConnectionsAreReleased() throws IOException, InterruptedException {
+        try (Client client = new Client()) {
+            assertEquals(200, client.call("GET", "/leaderboards/" + leaderboardId + "/top", null).status);
+            assertEquals(1, server.getConnectionCount());
+        }
+        for (int i = 0; i < 100 && server.getConnectionCount() > 0; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, server.getConnectionCount());
+    }
+
+    private static String request(String method, String path, String body) {
+        byte[] content = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+        return method + " " + path + " HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + content.length + "\r\n\r\n"
+                + (body == null ? "" : body);
+    }
+
+    private static final class Response {
+        final int status;
+        final String head;
+        final String body;
+
+        Response(int status, String head, String body) {
+            this.status = status;
+            this.head = head;
+            this.body = body;
+        }
+    }
+
+    private final class Client implements AutoCloseable {
+        final Socket socket;
+        final InputStream in;
+        final OutputStream out;
+        private ByteBuffer pending = ByteBuffer.allocate(0);
+
+        Client() throws IOException {
+            socket = new Socket("localhost", server.getPort());
+            socket.setSoTimeout(10_000);
+            in = socket.getInputStream();
+            out = socket.getOutputStream();
+        }
+
+        Response call(String method, String path, String body) throws IOException {
+            send(request(method, path, body));
+            return read();
+        }
+
+        void send(String raw) throws IOException {
+            out.write(raw.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        void send(ByteBuffer... frames) throws IOException {
+            for (ByteBuffer frame : frames) {
+                out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+            }
+            out.flush();
+        }
+
+        Response read() throws IOException {
+            ByteArrayOutputStream head = new ByteArrayOutputStream();
+            while (!head.toString(StandardCharsets.ISO_8859_1).endsWith("\r\n\r\n")) {
+                int b = in.read();
+                assertNotEquals(-1, b, "connection closed mid-response");
+                head.write(b);
+            }
+            String[] lines = head.toString(StandardCharsets.ISO_8859_1).split("\r\n");
+            int length = 0;
+            for (String line : lines) {
+                if (line.toLowerCase(Locale.ROOT).startsWith("content-length:")) {
+                    length = Integer.parseInt(line.substring(15).trim());
+                }
+            }
+            byte[] body = in.readNBytes(length);
+            return new Response(Integer.parseInt(lines[0].split(" ")[1]), head.toString(StandardCharsets.ISO_8859_1),
+                    new String(body, StandardCharsets.UTF_8));
+        }
+
+        List<SubmissionResult> readResults() throws IOException {
+            while (true) {
+                List<SubmissionResult> results = BinaryProtocol.readResults(pending);
+                if (results != null) {
+                    return results;
+                }
+                fill();
+            }
+        }
+
+        List<RankedEntry> readPage() throws IOException {
+            while (true) {
+                List<RankedEntry> page = BinaryProtocol.readPage(pending);
+                if (page != null) {
+                    return page;
+                }
+                fill();
+            }
+        }
+
+        private void fill() throws IOException {
+            byte[] chunk = new byte[4096];
+            int n = in.read(chunk);
+            assertNotEquals(-1, n, "connection closed mid-frame");
+            ByteBuffer grown = ByteBuffer.allocate(pending.remaining() + n);
+            grown.put(pending).put(chunk, 0, n).flip();
+            pending = grown;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.phonepe.leaderboard.service;
+
+import com.phonepe.leaderboard.index.UserDictionary;
+import com.phonepe.leaderboard.model.Leaderboard;
+import com.phonepe.leaderboard.util.TimeProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BoardFanOutTest {
+    private static final TimeProvider TIME = () -> 1_500L;
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(3);
+    private final UserDictionary users = new UserDictionary();
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    // Boards sharing one dictionary in which user keys 0-255 exist
+    private Leaderboard[] boards(int count) {
+        for (int user = users.size(); user < 256; user++) {
+            users.intern("user" + user);
+        }
+        Leaderboard[] boards = new Leaderboard[count];
+        for (int i = 0; i < count; i++) {
+            boards[i] = new Leaderboard.Builder().id("board" + i).gameId("game").startTime(1_000).endTime(2_000)
+                    .timeProvider(TIME).userDictionary(users).build();
+        }
+        return boards;
+    }
+
+    @Test
+    void testEveryBoardIsUpdatedInParallelAboveTheThreshold() {
+        AtomicInteger forked = new AtomicInteger();
+        BoardFanOut fanOut = new BoardFanOut(task -> {
+            forked.incrementAndGet();
+            pool.execute(task);
+        }, 3, 4);
+        Leaderboard[] boards = boards(8);
+        for (int user = 0; user < 200; user++) {
+            fanOut.apply(boards, user, user * 10);
+        }
+        for (Leaderboard board : boards) {
+            assertEquals(200, board.size());
+            assertEquals(1990, board.getTopK(1, 0).get(0).getScore());
+        }
+        assertEquals(200 * 3, forked.get());
+    }
+
+    @Test
+    void testSmallFanOutsStayOnTheCallingThread() {
+        Executor refusing = task -> fail("no task expected");
+        new BoardFanOut(refusing, 3, 4).apply(boards(3), 1, 10);
+        Leaderboard[] boards = boards(6);
+        new BoardFanOut(refusing, 0, 4).apply(boards, 1, 10);
+        assertEquals(1, boards[5].size());
+    }
+
+    @Test
+    void testOneFailingBoardDoesNotStopTheOthers() {
+        // In parallel, and in the plain loop below the threshold or without helpers
+        for (BoardFanOut fanOut : new BoardFanOut[] {new BoardFanOut(pool, 3, 2), new BoardFanOut(pool, 3, 8),
+                new BoardFanOut(pool, 0, 2)}) {
+            Leaderboard[] boards = boards(6);
+            failOnUpdate(boards[2]);
+            assertThrows(IllegalStateException.class, () -> fanOut.apply(boards, 7, 70));
+            for (int i = 0; i < boards.length; i++) {
+                assertEquals(1, boards[i].size());
+            }
+        }
+    }
+
+    @Test
+    void testBoardsThatEndedAfterRoutingAreSkipped() {
+        for (BoardFanOut fanOut : new BoardFanOut[] {new BoardFanOut(pool, 3, 2), new BoardFanOut(pool, 3, 8)}) {
+            Leaderboard[] boards = boards(4);
+            boards[0].freeze();
+            boards[2].freeze();
+            fanOut.apply(boards, 7, 70);
+            assertEquals(0, boards[0].size());
+            assertEquals(1, boards[1].size());
+            assertEquals(1, boards[3].size());
+        }
+    }
+
+    // The board publishes the update and then reports a failure, as a failing listener would
+    private static void failOnUpdate(Leaderboard board) {
+        board.addScoreListener((leaderboard, userKey, previousScore, score) -> {
+            throw new IllegalStateException("listener failed");
+        });
+    }
+
+    @Test
+    void testPrimaryAcknowledgementLeavesTheRestToThePool() throws Exception {
+        Leaderboard[] boards = boards(4);
+        CountDownLatch release = new CountDownLatch(1);
+        BoardFanOut fanOut = new BoardFanOut(task -> pool.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            task.run();
+        }), 2, 4);
+
+        CompletableFuture<Void> rest = fanOut.applyAfterPrimary(boards, 3, 30);
+        assertEquals(1, boards[0].size());
+        assertEquals(0, boards[3].size());
+        assertFalse(rest.isDone());
+        release.countDown();
+        rest.get(5, TimeUnit.SECONDS);
+        for (Leaderboard board : boards) {
+            assertEquals(1, board.size());
+        }
+
+        failOnUpdate(boards[1]);
+        CompletableFuture<Void> failed = new BoardFanOut(pool, 2, 4).applyAfterPrimary(boards, 4, 40);
+        CompletionException error = assertThrows(CompletionException.class, failed::join);
+        assertTrue(error.getCause() instanceof IllegalStateException);
+        assertEquals(2, boards[3].size());
+    }
+
+    @Test
+    void testAShutDownPoolFallsBackToTheCaller() {
+        Leaderboard[] boards = boards(5);
+        Executor closed = task -> {
+            throw new RejectedExecutionException();
+        };
+        new BoardFanOut(closed, 2, 2).apply(boards, 1, 10);
+        assertTrue(new BoardFanOut(closed, 2, 2).applyAfterPrimary(boards, 2, 20).isDone());
+        for (Leaderboard board : boards) {
+            assertEquals(2, board.size());
+        }
+    }
+}
@@ -3,14 +3,40 @@ package com.phonepe.leaderboard.service;
 import com.phonepe.leaderboard.config.LeaderboardConfig;
 import com.phonepe.leaderboard.exception.GameNotSupportedException;
 import com.phonepe.leaderboard.exception.InvalidScoreException;
+import com.phonepe.leaderboard.metrics.MetricNames;
+import com.phonepe.leaderboard.metrics.MetricsSnapshot;
+import com.phonepe.leaderboard.model.AckMode;
+import com.phonepe.leaderboard.model.ApproximateRank;
+import com.phonepe.leaderboard.model.AroundUserPage;
+import com.phonepe.leaderboard.model.LeaderboardPage;
+import com.phonepe.leaderboard.model.LeaderboardSnapshot;
+import com.phonepe.leaderboard.model.LeaderboardStorage;
+import com.phonepe.leaderboard.model.RankedEntry;
+import com.phonepe.leaderboard.model.ScoreSubmission;
+import com.phonepe.leaderboard.model.SubmissionResult;
+import com.phonepe.leaderboard.notification.RankChange;
+import com.phonepe.leaderboard.notification.RankChangeListener;
+import com.phonepe.leaderboard.notification.Subscription;
+import com.phonepe.leaderboard.notification.TopKChange;
+import com.phonepe.leaderboard.rollup.RollupMode;
+import com.phonepe.leaderboard.rollup.RollupWindow;
 import com.phonepe.leaderboard.util.TimeProvider;
 import com.phonepe.leaderboard.validation.RangeScoreValidationStrategy;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 public class LeaderboardServiceTest {
     private LeaderboardService service;
@@ -41,6 +67,11 @@ public class LeaderboardServiceTest {
         service.addSupportedGame(GAME_ID);
     }
 
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
     @Test
     void testAddSupportedGame() {
         service.addSupportedGame("new-game");
@@ -98,6 +129,128 @@ public class LeaderboardServiceTest {
         );
     }
 
+    @Test
+    void testSubmitScores() {
+        String leaderboardId = service.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        String otherId = service.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        service.submitScore(GAME_ID, "user3", 5000);
+
+        List<SubmissionResult> results = service.submitScores(GAME_ID, Arrays.asList(
+                new ScoreSubmission("user1", 1000),
+                new ScoreSubmission("user2", 2000),
+                new ScoreSubmission("user1", 1500),
+                new ScoreSubmission("user2", 1800),
+                new ScoreSubmission("user3", 4000),
+                new ScoreSubmission("user4", -1),
+                new ScoreSubmission(null, 10),
+                null));
+
+        assertEquals(Arrays.asList(
+                SubmissionResult.SUPERSEDED,
+                SubmissionResult.APPLIED,
+                SubmissionResult.APPLIED,
+                SubmissionResult.SUPERSEDED,
+                SubmissionResult.NOT_IMPROVED,
+                SubmissionResult.INVALID_SCORE,
+                SubmissionResult.INVALID_SUBMISSION,
+                SubmissionResult.INVALID_SUBMISSION), results);
+        for (String id : Arrays.asList(leaderboardId, otherId)) {
+            assertEquals(1, service.getRank(id, "user3"));
+            assertEquals(2, service.getRank(id, "user2"));
+            assertEquals(3, service.getRank(id, "user1"));
+            assertEquals(-1, service.getRank(id, "user4"));
+        }
+        assertEquals(1500, service.getTopK(leaderboardId, 3, 0).get(2).getScore());
+    }
+
+    @Test
+    void testSubmitScoresWithoutActiveLeaderboard() {
+        List<SubmissionResult> results = service.submitScores(GAME_ID, Arrays.asList(
+                new ScoreSubmission("user1", 1000),
+                new ScoreSubmission("user1", 10)));
+
+        assertEquals(Arrays.asList(SubmissionResult.NO_ACTIVE_LEADERBOARD, SubmissionResult.SUPERSEDED), results);
+        assertThrows(GameNotSupportedException.class, () ->
+            service.submitScores("unsupported-game", Arrays.asList(new ScoreSubmission("user1", 1000)))
+        );
+    }
+
+    @Test
+    void testSubmitScoreAsync() throws Exception {
+        String daily = service.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        String weekly = service.createLeaderboard(GAME_ID, START_TIME, END_TIME + 1000);
+
+        assertEquals(SubmissionResult.APPLIED, service.submitScoreAsync(GAME_ID, USER_ID, 1000).get(5, TimeUnit.SECONDS));
+        assertEquals(SubmissionResult.NOT_IMPROVED, service.submitScoreAsync(GAME_ID, USER_ID, 500).get(5, TimeUnit.SECONDS));
+        assertEquals(1000, service.getLeaderboard(daily).get(USER_ID));
+        assertEquals(1000, service.getLeaderboard(weekly).get(USER_ID));
+
+        assertThrows(InvalidScoreException.class, () -> service.submitScoreAsync(GAME_ID, USER_ID, -1));
+        assertThrows(GameNotSupportedException.class, () -> service.submitScoreAsync("unsupported-game", USER_ID, 1));
+    }
+
+    @Test
+    void testOfferScoreIsAppliedBeforeShutdownReturns() {
+        String leaderboardId = service.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(service.offerScore(GAME_ID, "user" + i, i));
+        }
+
+        service.shutdown();
+
+        assertEquals(1000, service.getLeaderboard(leaderboardId).size());
+        assertEquals(1, service.getRank(leaderboardId, "user999"));
+    }
+
+    @Test
+    void testSubmitScoreAsyncWithoutActiveLeaderboard() throws Exception {
+        CompletableFuture<SubmissionResult> result = service.submitScoreAsync(GAME_ID, USER_ID, 1000);
+        assertEquals(SubmissionResult.NO_ACTIVE_LEADERBOARD, result.get(5, TimeUnit.SECONDS));
+        assertTrue(service.offerScore(GAME_ID, USER_ID, 1000));
+    }
+
+    @Test
+    void testDurableServiceSurvivesRestart(@TempDir Path dataDirectory) throws Exception {
+        RangeScoreValidationStrategy validation = new RangeScoreValidationStrategy(LeaderboardConfig.MIN_SCORE, LeaderboardConfig.MAX_SCORE);
+        LeaderboardService durable = new LeaderboardService(new MockTimeProvider(), validation, dataDirectory);
+        durable.addSupportedGame(GAME_ID);
+        String leaderboardId = durable.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        durable.submitScore(GAME_ID, USER_ID, 1000);
+        durable.submitScores(GAME_ID, Arrays.asList(new ScoreSubmission("user2", 2000), new ScoreSubmission("user3", 1500)));
+        durable.checkpoint();
+        durable.submitScoreAsync(GAME_ID, USER_ID, 3000).get(5, TimeUnit.SECONDS);
+        durable.shutdown();
+
+        LeaderboardService restarted = new LeaderboardService(new MockTimeProvider(), validation, dataDirectory);
+        try {
+            assertEquals(1, restarted.getRecoveryReport().getLeaderboards());
+            assertEquals(3, restarted.getRecoveryReport().getSnapshotEntries());
+            assertEquals(1, restarted.getRank(leaderboardId, USER_ID));
+            assertEquals(3, restarted.getRank(leaderboardId, "user3"));
+        } finally {
+            restarted.shutdown();
+        }
+        assertNull(service.getRecoveryReport());
+    }
+
+    @Test
+    void testPartitionedLeaderboardKeepsTheServiceApi() throws Exception {
+        String single = service.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        String partitioned = service.createLeaderboard(GAME_ID, START_TIME, END_TIME, LeaderboardStorage.HEAP, 4);
+        for (int i = 0; i < 40; i++) {
+            service.submitScore(GAME_ID, "user" + i, 100 + i % 10);
+        }
+        service.submitScores(GAME_ID, Arrays.asList(new ScoreSubmission("user5", 500), new ScoreSubmission("user6", 400)));
+        service.submitScoreAsync(GAME_ID, "user7", 450).get(5, TimeUnit.SECONDS);
+
+        assertEquals(service.getTopK(single, 40, 0), service.getTopK(partitioned, 40, 0));
+        assertEquals(1, service.getRank(partitioned, "user5"));
+        assertEquals(2, service.getRank(partitioned, "user7"));
+        assertEquals(service.listPlayersNext(GAME_ID, single, "user7", 3), service.listPlayersNext(GAME_ID, partitioned, "user7", 3));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.createLeaderboard(GAME_ID, START_TIME, END_TIME, LeaderboardStorage.HEAP, 0));
+    }
+
     @Test
     void testUpdateScore() {
         String leaderboardId = service.createLeaderboard(GAME_ID, START_TIME, END_TIME);
@@ -148,6 +301,311 @@ public class LeaderboardServiceTest {
         assertEquals(2000, prevPlayers.get(0).getValue());
     }
 
+    @Test
+    void testListPlayersAroundTies() {
+        String leaderboardId = service.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+
+        service.submitScore(GAME_ID, "user3", 1000);
+        service.submitScore(GAME_ID, "user1", 1000);
+        service.submitScore(GAME_ID, "user2", 1000);
+        service.submitScore(GAME_ID, "user4", 500);
+
+        // Tied users are ordered by when they were first seen, not by userId, so the tie ranks
+        // user3, user1, user2 and neighbours are positional within it
+        List<Map.Entry<String, Integer>> nextPlayers = service.listPlayersNext(GAME_ID, leaderboardId, "user1", 2);
+        assertEquals(2, nextPlayers.size());
+        assertEquals("user2", nextPlayers.get(0).getKey());
+        assertEquals("user4", nextPlayers.get(1).getKey());
+
+        List<Map.Entry<String, Integer>> prevPlayers = service.listPlayersPrev(GAME_ID, leaderboardId, "user4", 3);
+        assertEquals(3, prevPlayers.size());
+        assertEquals("user2", prevPlayers.get(0).getKey());
+        assertEquals("user1", prevPlayers.get(1).getKey());
+        assertEquals("user3", prevPlayers.get(2).getKey());
+    }
+
+    @Test
+    void testCursorPaging() {
+        String leaderboardId = service.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        for (int i = 1; i <= 10; i++) {
+            service.submitScore(GAME_ID, "user" + i, i * 100);
+        }
+
+        // user10 holds rank 1; page downwards two at a time
+        String cursor = service.getCursor(leaderboardId, "user10");
+        LeaderboardPage page = service.listPlayersNext(leaderboardId, cursor, 2);
+        assertEquals(2, page.getEntries().size());
+        assertEquals("user9", page.getEntries().get(0).getUserId());
+        assertEquals(2, page.getEntries().get(0).getRank());
+        assertEquals("user8", page.getEntries().get(1).getUserId());
+
+        page = service.listPlayersNext(leaderboardId, page.getNextCursor(), 2);
+        assertEquals("user7", page.getEntries().get(0).getUserId());
+        assertEquals(4, page.getEntries().get(0).getRank());
+
+        // And back up again
+        page = service.listPlayersPrev(leaderboardId, page.getPrevCursor(), 3);
+        assertEquals(3, page.getEntries().size());
+        assertEquals("user10", page.getEntries().get(0).getUserId());
+        assertEquals("user8", page.getEntries().get(2).getUserId());
+        assertNull(page.getPrevCursor());
+
+        // Last page has no next cursor
+        page = service.listPlayersNext(leaderboardId, service.getCursor(leaderboardId, "user2"), 5);
+        assertEquals(1, page.getEntries().size());
+        assertNull(page.getNextCursor());
+
+        assertNull(service.getCursor(leaderboardId, "non-existent"));
+        assertThrows(IllegalArgumentException.class, () -> service.listPlayersNext(leaderboardId, "not-a-cursor", 2));
+    }
+
+    @Test
+    void testGetAroundUser() {
+        String leaderboardId = service.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        for (int i = 1; i <= 10; i++) {
+            service.submitScore(GAME_ID, "user" + i, i * 100);
+        }
+
+        // Asked twice so the second answer comes from the cache
+        for (int i = 0; i < 2; i++) {
+            AroundUserPage page = service.getAroundUser(leaderboardId, "user5", 2, 3);
+            assertEquals(Arrays.asList("user7", "user6", "user5", "user4", "user3", "user2"),
+                    page.getEntries().stream().map(RankedEntry::getUserId).collect(Collectors.toList()));
+            assertEquals("user5", page.getUser().getUserId());
+            assertEquals(6, page.getUser().getRank());
+            assertEquals(2, page.getUserIndex());
+        }
+
+        // Users jumping over the window shift every rank in it, the user's included
+        service.submitScore(GAME_ID, "user1", 5000);
+        service.submitScore(GAME_ID, "user2", 6000);
+        AroundUserPage page = service.getAroundUser(leaderboardId, "user5", 2, 3);
+        assertEquals(Arrays.asList("user7", "user6", "user5", "user4", "user3"),
+                page.getEntries().stream().map(RankedEntry::getUserId).collect(Collectors.toList()));
+        assertEquals(8, page.getUser().getRank());
+        assertEquals(6, page.getEntries().get(0).getRank());
+        assertNull(page.getNextCursor());
+
+        // Near the top the window is cut short above the user
+        page = service.getAroundUser(leaderboardId, "user2", 5, 1);
+        assertEquals(0, page.getUserIndex());
+        assertEquals(1, page.getUser().getRank());
+        assertEquals("user1", page.getEntries().get(1).getUserId());
+
+        assertNull(service.getAroundUser(leaderboardId, "non-existent", 2, 2).getUser());
+        assertThrows(IllegalArgumentException.class, () -> service.getAroundUser(leaderboardId, "user5", 2, -1));
+    }
+
+    @Test
+    void testGetTopK() {
+        String leaderboardId = service.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        service.submitScore(GAME_ID, "user1", 1000);
+        service.submitScore(GAME_ID, "user2", 2000);
+        service.submitScore(GAME_ID, "user3", 1500);
+
+        List<RankedEntry> top = service.getTopK(leaderboardId, 2, 0);
+        assertEquals(2, top.size());
+        assertEquals("user2", top.get(0).getUserId());
+        assertEquals("user3", top.get(1).getUserId());
+        assertEquals(2, top.get(1).getRank());
+
+        List<RankedEntry> rest = service.getTopK(leaderboardId, 2, 2);
+        assertEquals(1, rest.size());
+        assertEquals("user1", rest.get(0).getUserId());
+        assertEquals(3, rest.get(0).getRank());
+    }
+
+    @Test
+    void testGetSnapshot() {
+        String leaderboardId = service.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        service.submitScore(GAME_ID, "user1", 1000);
+        LeaderboardSnapshot snapshot = service.getSnapshot(leaderboardId);
+
+        service.submitScore(GAME_ID, "user2", 2000);
+
+        assertEquals(1, snapshot.size());
+        assertEquals(1, snapshot.getRank("user1"));
+        assertEquals(2, service.getRank(leaderboardId, "user1"));
+    }
+
+    @Test
+    void testGetRank() {
+        String leaderboardId = service.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+
+        service.submitScore(GAME_ID, "user1", 1000);
+        service.submitScore(GAME_ID, "user2", 2000);
+        service.submitScore(GAME_ID, "user3", 1500);
+
+        assertEquals(1, service.getRank(leaderboardId, "user2"));
+        assertEquals(2, service.getRank(leaderboardId, "user3"));
+        assertEquals(3, service.getRank(leaderboardId, "user1"));
+        assertEquals(-1, service.getRank(leaderboardId, "non-existent"));
+        assertThrows(IllegalArgumentException.class, () -> service.getRank("non-existent-id", "user1"));
+    }
+
+    @Test
+    void testCachedQueriesFollowSubmissions() {
+        String leaderboardId = service.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        for (int i = 1; i <= 50; i++) {
+            service.submitScore(GAME_ID, "user" + i, i * 100);
+        }
+
+        // Queries are cached from their second miss on
+        service.getTopK(leaderboardId, 5, 0);
+        service.listPlayersNext(GAME_ID, leaderboardId, "user30", 3);
+        List<RankedEntry> top = service.getTopK(leaderboardId, 5, 0);
+        List<Map.Entry<String, Integer>> next = service.listPlayersNext(GAME_ID, leaderboardId, "user30", 3);
+        assertEquals(top, service.getTopK(leaderboardId, 5, 0));
+        assertEquals(next, service.listPlayersNext(GAME_ID, leaderboardId, "user30", 3));
+        assertEquals(2, service.getCacheStats().getHits());
+
+        // Far below both windows
+        service.submitScore(GAME_ID, "newcomer", 50);
+        assertEquals(top, service.getTopK(leaderboardId, 5, 0));
+        assertEquals(3, service.getCacheStats().getHits());
+
+        // Lands between user30 and user29
+        service.submitScore(GAME_ID, "newcomer", 2_950);
+        assertEquals("newcomer", service.listPlayersNext(GAME_ID, leaderboardId, "user30", 3).get(0).getKey());
+        assertEquals(top, service.getTopK(leaderboardId, 5, 0));
+        service.submitScore(GAME_ID, "newcomer", 10_000);
+        assertEquals("newcomer", service.getTopK(leaderboardId, 5, 0).get(0).getKey());
+        assertTrue(service.getCacheStats().getInvalidations() >= 2);
+    }
+
+    @Test
+    void testSubscriptionsPushRankChanges() throws InterruptedException {
+        String leaderboardId = service.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        for (int i = 1; i <= 20; i++) {
+            service.submitScore(GAME_ID, "user" + i, i * 100);
+        }
+        BlockingQueue<RankChange> moves = new LinkedBlockingQueue<>();
+        BlockingQueue<TopKChange> tops = new LinkedBlockingQueue<>();
+        service.subscribeToUser(leaderboardId, "user20", new RankChangeListener() {
+            @Override
+            public void ranksChanged(List<RankChange> changes) {
+                moves.addAll(changes);
+            }
+        });
+        Subscription top = service.subscribeToTopK(leaderboardId, 2, new RankChangeListener() {
+            @Override
+            public void topKChanged(TopKChange change) {
+                tops.add(change);
+            }
+        });
+
+        service.submitScore(GAME_ID, "user5", 5_000);
+        RankChange move = moves.poll(5, TimeUnit.SECONDS);
+        assertNotNull(move);
+        assertEquals(1, move.getPreviousRank());
+        assertEquals(2, move.getRank());
+        TopKChange change = tops.poll(5, TimeUnit.SECONDS);
+        assertNotNull(change);
+        assertEquals("user5", change.getEntries().get(0).getKey());
+        assertEquals("user20", change.getEntries().get(1).getKey());
+
+        top.cancel();
+        assertThrows(IllegalArgumentException.class, () -> service.subscribe("non-existent-id", new RankChangeListener() {
+        }));
+    }
+
+    @Test
+    void testMetricsCountSubmissionsAndQueries() throws InterruptedException {
+        String leaderboardId = service.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        service.submitScore(GAME_ID, "user1", 100);
+        service.submitScore(GAME_ID, "user2", 200);
+        service.submitScore(GAME_ID, "user1", 50);
+        service.submitScores(GAME_ID, Arrays.asList(new ScoreSubmission("user3", 300), new ScoreSubmission("user4", -1)));
+        assertThrows(InvalidScoreException.class, () -> service.submitScore(GAME_ID, "user1", -1));
+        assertThrows(GameNotSupportedException.class, () -> service.submitScore("unknown-game", "user1", 10));
+        for (int i = 0; i < 200; i++) {
+            service.getRank(leaderboardId, "user1");
+        }
+        service.getTopK(leaderboardId, 2, 0);
+
+        MetricsSnapshot metrics = service.getMetrics();
+        assertEquals(7, metrics.getCounter(MetricNames.SUBMISSIONS));
+        assertEquals(2, metrics.getCounter(MetricNames.REJECTED_INVALID_SCORE));
+        assertEquals(1, metrics.getCounter(MetricNames.REJECTED_GAME_NOT_SUPPORTED));
+        assertEquals(3, metrics.getCounter(MetricNames.UPDATES_APPLIED));
+        // Latencies are sampled: one call in METRICS_LATENCY_SAMPLE_RATE is timed
+        long rankSamples = metrics.getLatency(MetricNames.RANK_LATENCY).getCount();
+        assertTrue(rankSamples > 0 && rankSamples < 200, "sampled " + rankSamples + " of 200");
+        assertTrue(metrics.getLatency(MetricNames.TOP_K_LATENCY).getCount() <= 1);
+        assertNotNull(metrics.getLatency(MetricNames.PAGE_LATENCY));
+        assertEquals(1L, metrics.getGauge(MetricNames.BOARDS_ACTIVE));
+        assertEquals(3L, metrics.getGauge(MetricNames.ENTRIES));
+        assertEquals(3L, metrics.getGauge(MetricNames.boardEntries(leaderboardId)));
+        assertTrue(metrics.getGauge(MetricNames.HEAP_USED) > 0);
+
+        BlockingQueue<MetricsSnapshot> exported = new LinkedBlockingQueue<>();
+        service.addMetricsExporter(exported::add, 10);
+        assertNotNull(exported.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testRollupBoardsFollowEverySubmissionPath() {
+        String leaderboardId = service.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        service.createRollup(GAME_ID, START_TIME, START_TIME + 7 * 86_400 - 1,
+                RollupWindow.hourly(RollupMode.INCREMENTAL), RollupWindow.season(RollupMode.ON_DEMAND));
+        assertThrows(IllegalArgumentException.class, () -> service.createRollup(GAME_ID, START_TIME, END_TIME,
+                RollupWindow.season(RollupMode.INCREMENTAL)));
+        assertThrows(GameNotSupportedException.class, () -> service.createRollup("unknown", START_TIME, END_TIME,
+                RollupWindow.season(RollupMode.INCREMENTAL)));
+
+        service.submitScore(GAME_ID, "user1", 100);
+        service.submitScoreAsync(GAME_ID, "user2", 300).join();
+        assertEquals(Arrays.asList(SubmissionResult.APPLIED, SubmissionResult.NOT_IMPROVED),
+                service.submitScores(GAME_ID, Arrays.asList(new ScoreSubmission("user3", 200), new ScoreSubmission("user1", 50))));
+
+        String hour = service.getRollupLeaderboardId(GAME_ID, "hour", START_TIME + 500);
+        String season = service.getRollupLeaderboardId(GAME_ID, RollupWindow.SEASON, START_TIME);
+        for (String id : Arrays.asList(leaderboardId, hour, season)) {
+            List<RankedEntry> top = service.getTopK(id, 3, 0);
+            assertEquals(3, top.size(), id);
+            assertEquals("user2", top.get(0).getKey());
+            assertEquals("user1", top.get(2).getKey());
+        }
+        assertEquals(2, service.getRank(season, "user3"));
+        assertNull(service.getRollupLeaderboardId(GAME_ID, "hour", START_TIME + 3_600));
+    }
+
+    @Test
+    void testSubmissionsFanOutToEveryBoardAndCanAckOnThePrimary() throws Exception {
+        String[] ids = new String[LeaderboardConfig.FAN_OUT_MIN_BOARDS + 2];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = service.createLeaderboard(GAME_ID, START_TIME + i, END_TIME);
+        }
+        service.submitScore(GAME_ID, "user1", 100);
+        CompletableFuture<Void> rest = service.submitScore(GAME_ID, "user2", 200, AckMode.PRIMARY_BOARD);
+        assertEquals(1, service.getRank(ids[0], "user2"));
+        rest.get(5, TimeUnit.SECONDS);
+        assertTrue(service.submitScore(GAME_ID, "user3", 50, AckMode.ALL_BOARDS).isDone());
+        for (String id : ids) {
+            List<RankedEntry> top = service.getTopK(id, 3, 0);
+            assertEquals(3, top.size());
+            assertEquals("user2", top.get(0).getUserId());
+            assertEquals("user3", top.get(2).getUserId());
+        }
+        assertThrows(GameNotSupportedException.class, () -> service.submitScore("other", "user1", 5, AckMode.PRIMARY_BOARD));
+    }
+
+    @Test
+    void testGetApproximateRank() {
+        String leaderboardId = service.createLeaderboard(GAME_ID, START_TIME, END_TIME);
+        for (int i = 1; i <= 100; i++) {
+            service.submitScore(GAME_ID, "user" + i, i * 1_000);
+        }
+
+        // Scores 1% apart or more never share a histogram bucket
+        ApproximateRank rank = service.getApproximateRank(leaderboardId, "user97");
+        assertEquals(4, rank.getRank());
+        assertEquals(4.0, rank.getTopPercent(), 1e-9);
+        assertTrue(rank.getBestRank() <= 4 && rank.getWorstRank() >= 4);
+        assertNull(service.getApproximateRank(leaderboardId, "non-existent"));
+        assertThrows(IllegalArgumentException.class, () -> service.getApproximateRank("non-existent-id", "user1"));
+    }
+
     @Test
     void testListPlayersForNonExistentUser() {
         String leaderboardId = service.createLeaderboard(GAME_ID, START_TIME, END_TIME);
@@ -0,0 +1,64 @@
+package com.phonepe.leaderboard.wire;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+
+public class BufferPoolTest {
+
+    @Test
+    void testBuffersAreRecycledBySizeClass() {
+        BufferPool pool = new BufferPool(64 * 1024, 2);
+        ByteBuffer small = pool.acquire(100);
+        assertTrue(small.isDirect());
+        assertEquals(1024, small.capacity());
+        ByteBuffer medium = pool.acquire(3000);
+        assertEquals(4096, medium.capacity());
+
+        small.put((byte) 1);
+        pool.release(small);
+        pool.release(medium);
+        assertEquals(2, pool.getPooledBuffers());
+        ByteBuffer again = pool.acquire(1024);
+        assertSame(small, again);
+        assertEquals(0, again.position());
+        assertSame(medium, pool.acquire(2049));
+        assertEquals(0, pool.getPooledBuffers());
+    }
+
+    @Test
+    void testOversizedAndForeignBuffersAreNotPooled() {
+        BufferPool pool = new BufferPool(4096, 1);
+        ByteBuffer large = pool.acquire(10_000);
+        assertEquals(10_000, large.capacity());
+        pool.release(large);
+        pool.release(ByteBuffer.allocate(1024));
+        pool.release(ByteBuffer.allocateDirect(1000));
+        assertEquals(0, pool.getPooledBuffers());
+
+        pool.release(pool.acquire(10));
+        pool.release(ByteBuffer.allocateDirect(1024));
+        assertEquals(1, pool.getPooledBuffers(), "each size class is bounded");
+    }
+
+    @Test
+    void testClosingAPooledPageReturnsItsBufferOnce() {
+        BufferPool pool = new BufferPool(4096, 4);
+        ByteBuffer buffer = pool.acquire(10);
+        buffer.put(new byte[]{1, 2, 3});
+        EncodedPage page = EncodedPage.pooled(buffer, pool);
+        assertEquals(3, page.size());
+        assertEquals(0, page.getBuffer().position());
+        assertFalse(page.isShared());
+        page.close();
+        page.close();
+        assertEquals(1, pool.getPooledBuffers());
+
+        EncodedPage shared = EncodedPage.shared(ByteBuffer.allocateDirect(5));
+        assertTrue(shared.isShared());
+        assertTrue(shared.getBuffer().isReadOnly());
+        shared.close();
+        assertEquals(1, pool.getPooledBuffers());
+    }
+}
@@ -0,0 +1,80 @@
+package com.phonepe.leaderboard.wire;
+
+import com.phonepe.leaderboard.model.RankedEntry;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class PageCodecTest {
+
+    @Test
+    void testRoundTripKeepsRanksScoresAndIds() {
+        List<RankedEntry> page = Arrays.asList(
+                new RankedEntry("player-1001", Integer.MAX_VALUE, 41),
+                new RankedEntry("player-1002", 500, 42),
+                new RankedEntry("player-10", 500, 43),
+                new RankedEntry("jörg 😀a", 0, 44),
+                new RankedEntry("jörg 😀b", -7, 45),
+                new RankedEntry("", Integer.MIN_VALUE, 46));
+        ByteBuffer out = ByteBuffer.allocate(256);
+        PageCodec.encode(page, out);
+        out.flip();
+
+        List<RankedEntry> decoded = PageCodec.decode(out);
+        assertEquals(page, decoded);
+        for (int i = 0; i < page.size(); i++) {
+            assertEquals(page.get(i).getRank(), decoded.get(i).getRank());
+        }
+        assertFalse(out.hasRemaining());
+    }
+
+    @Test
+    void testSharedPrefixesAndSmallScoreGapsStayCompact() {
+        List<RankedEntry> page = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            page.add(new RankedEntry("player-" + (100_000 + i), 1_000_000 - i * 3, i + 1));
+        }
+        ByteBuffer out = ByteBuffer.allocate(4096);
+        PageCodec.encode(page, out);
+        // Header, one full score, then a byte per gap and four per ID (lengths plus the last digit or two)
+        assertTrue(out.position() < 600, "encoded " + out.position() + " bytes");
+        out.flip();
+        assertEquals(page, PageCodec.decode(out));
+    }
+
+    @Test
+    void testEmptyPage() {
+        ByteBuffer out = ByteBuffer.allocate(16);
+        PageCodec.encode(Collections.emptyList(), out);
+        out.flip();
+        assertTrue(PageCodec.decode(out).isEmpty());
+    }
+
+    @Test
+    void testWriterRejectsMisuseAndOverflows() {
+        PageCodec page = new PageCodec(ByteBuffer.allocate(64), 1, 1);
+        page.add("a", 10);
+        assertThrows(IllegalStateException.class, () -> page.add("b", 5));
+
+        PageCodec rising = new PageCodec(ByteBuffer.allocate(64), 2, 1);
+        rising.add("a", 10);
+        assertThrows(IllegalArgumentException.class, () -> rising.add("b", 11));
+        assertThrows(IllegalStateException.class, rising::finish);
+
+        assertThrows(BufferOverflowException.class,
+                () -> PageCodec.encode(Collections.singletonList(new RankedEntry("a-long-user-id", 1, 1)), ByteBuffer.allocate(8)));
+    }
+
+    @Test
+    void testMalformedPagesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> PageCodec.decode(ByteBuffer.wrap(new byte[]{9, 0, 1})));
+        // Claims 50 entries in a two-byte body
+        assertThrows(IllegalArgumentException.class, () -> PageCodec.decode(ByteBuffer.wrap(new byte[]{PageCodec.VERSION, 50, 1, 0, 0})));
+    }
+}